@@ -1,11 +1,8 @@
 package com.example.fitlink.adapters;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.text.format.DateFormat;
-import android.util.Base64;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -13,20 +10,23 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.fitlink.R;
 import com.example.fitlink.models.ChatMessage;
-import com.example.fitlink.models.User;
+import com.example.fitlink.models.UserSummary;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.MediaStore;
+import com.example.fitlink.utils.ImageUtil;
 
 import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+public class ChatAdapter extends RowAdapter<RecyclerView.ViewHolder> {
 
     private static final int VIEW_TYPE_SENT = 1;
     private static final int VIEW_TYPE_RECEIVED = 2;
@@ -77,6 +77,7 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        rowRequests.bind(holder);
         ChatMessage message = messages.get(position);
 
         String timeText = formatTime(message.getTimestamp());
@@ -129,20 +130,15 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             receivedHolder.imgUserProfile.setColorFilter(primaryColor);
 
             if (message.getSenderId() != null) {
-                DatabaseService.getInstance().getUser(message.getSenderId(), new DatabaseService.DatabaseCallback<>() {
+                rowRequests.loadUserSummary(holder, "sender", message.getSenderId(), new DatabaseService.DatabaseCallback<>() {
                     @Override
-                    public void onCompleted(User user) {
-                        if (user != null && user.getProfileImage() != null && !user.getProfileImage().isEmpty()) {
-                            try {
-                                byte[] decodedString = Base64.decode(user.getProfileImage(), Base64.DEFAULT);
-                                Bitmap decodedByte = BitmapFactory.decodeByteArray(decodedString, 0, decodedString.length);
-
-                                receivedHolder.imgUserProfile.setImageBitmap(decodedByte);
+                    public void onCompleted(UserSummary user) {
+                        if (user != null) {
+                            ImageUtil.loadImage(receivedHolder.imgUserProfile, user.getProfileThumbnail(), MediaStore.Variant.THUMBNAIL, bitmap -> {
+                                receivedHolder.imgUserProfile.setImageBitmap(bitmap);
                                 receivedHolder.imgUserProfile.clearColorFilter();
                                 receivedHolder.imgUserProfile.setPadding(0, 0, 0, 0);
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
+                            });
                         }
                     }
 
@@ -159,6 +155,12 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         }
     }
 
+    @Nullable
+    @Override
+    protected ImageView getRowImage(@NonNull RecyclerView.ViewHolder holder) {
+        return holder instanceof ReceivedMessageHolder ? ((ReceivedMessageHolder) holder).imgUserProfile : null;
+    }
+
     @Override
     public int getItemCount() {
         return messages.size();
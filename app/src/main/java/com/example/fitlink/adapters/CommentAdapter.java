@@ -1,8 +1,5 @@
 package com.example.fitlink.adapters;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.util.Base64;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -15,15 +12,17 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.fitlink.R;
 import com.example.fitlink.models.Comment;
-import com.example.fitlink.models.User;
+import com.example.fitlink.models.UserSummary;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.MediaStore;
+import com.example.fitlink.utils.ImageUtil;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
-public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentViewHolder> {
+public class CommentAdapter extends RowAdapter<CommentAdapter.CommentViewHolder> {
 
     private final SimpleDateFormat timeFormat = new SimpleDateFormat("dd/MM HH:mm", Locale.getDefault());
     // התיקון: ממשק חדש להאזנה ללחיצות
@@ -50,6 +49,7 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
 
     @Override
     public void onBindViewHolder(@NonNull CommentViewHolder holder, int position) {
+        rowRequests.bind(holder);
         Comment comment = commentList.get(position);
 
         holder.tvText.setText(comment.getText());
@@ -77,25 +77,17 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
                 if (listener != null) listener.onImageClick(comment.getUserId());
             });
 
-            DatabaseService.getInstance().getUser(comment.getUserId(), new DatabaseService.DatabaseCallback<>() {
+            rowRequests.loadUserSummary(holder, "author", comment.getUserId(), new DatabaseService.DatabaseCallback<>() {
                 @Override
-                public void onCompleted(User user) {
+                public void onCompleted(UserSummary user) {
                     if (user != null) {
                         holder.tvUserName.setText(user.getFirstName() + " " + user.getLastName());
 
-                        if (user.getProfileImage() != null && !user.getProfileImage().isEmpty()) {
-                            try {
-                                byte[] decodedString = Base64.decode(user.getProfileImage(), Base64.DEFAULT);
-                                Bitmap decodedByte = BitmapFactory.decodeByteArray(decodedString, 0, decodedString.length);
-
-                                holder.imgUserProfile.setImageBitmap(decodedByte);
-                                holder.imgUserProfile.clearColorFilter();
-                                holder.imgUserProfile.setPadding(0, 0, 0, 0);
-
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
-                        }
+                        ImageUtil.loadImage(holder.imgUserProfile, user.getProfileThumbnail(), MediaStore.Variant.THUMBNAIL, bitmap -> {
+                            holder.imgUserProfile.setImageBitmap(bitmap);
+                            holder.imgUserProfile.clearColorFilter();
+                            holder.imgUserProfile.setPadding(0, 0, 0, 0);
+                        });
                     } else {
                         holder.tvUserName.setText("Unknown User");
                     }
@@ -109,6 +101,11 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
         }
     }
 
+    @Override
+    protected ImageView getRowImage(@NonNull CommentViewHolder holder) {
+        return holder.imgUserProfile;
+    }
+
     @Override
     public int getItemCount() {
         return commentList.size();
@@ -1,6 +1,5 @@
 package com.example.fitlink.adapters;
 
-import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -13,8 +12,9 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.fitlink.R;
 import com.example.fitlink.models.ContactMessage;
-import com.example.fitlink.models.User;
+import com.example.fitlink.models.UserSummary;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.MediaStore;
 import com.example.fitlink.utils.ImageUtil;
 
 import java.text.SimpleDateFormat;
@@ -23,7 +23,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
-public class ContactMessageAdapter extends RecyclerView.Adapter<ContactMessageAdapter.ViewHolder> {
+public class ContactMessageAdapter extends RowAdapter<ContactMessageAdapter.ViewHolder> {
 
     private final List<ContactMessage> messagesList = new ArrayList<>();
     private final OnMessageClickListener listener;
@@ -48,6 +48,7 @@ public class ContactMessageAdapter extends RecyclerView.Adapter<ContactMessageAd
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        rowRequests.bind(holder);
         ContactMessage msg = messagesList.get(position);
 
         holder.tvName.setText(msg.getName());
@@ -65,14 +66,11 @@ public class ContactMessageAdapter extends RecyclerView.Adapter<ContactMessageAd
         holder.imgProfile.setImageResource(R.drawable.ic_user);
 
         if (msg.getUserId() != null && !msg.getUserId().isEmpty()) {
-            DatabaseService.getInstance().getUser(msg.getUserId(), new DatabaseService.DatabaseCallback<>() {
+            rowRequests.loadUserSummary(holder, "sender", msg.getUserId(), new DatabaseService.DatabaseCallback<>() {
                 @Override
-                public void onCompleted(User user) {
-                    if (user != null && user.getProfileImage() != null && !user.getProfileImage().isEmpty()) {
-                        Bitmap bmp = ImageUtil.convertFrom64base(user.getProfileImage());
-                        if (bmp != null) {
-                            holder.imgProfile.setImageBitmap(bmp);
-                        }
+                public void onCompleted(UserSummary user) {
+                    if (user != null) {
+                        ImageUtil.loadImage(holder.imgProfile, user.getProfileThumbnail(), MediaStore.Variant.THUMBNAIL, holder.imgProfile::setImageBitmap);
                     }
                 }
 
@@ -90,6 +88,11 @@ public class ContactMessageAdapter extends RecyclerView.Adapter<ContactMessageAd
         holder.btnDelete.setOnClickListener(v -> listener.onDeleteClick(msg));
     }
 
+    @Override
+    protected ImageView getRowImage(@NonNull ViewHolder holder) {
+        return holder.imgProfile;
+    }
+
     @Override
     public int getItemCount() {
         return messagesList.size();
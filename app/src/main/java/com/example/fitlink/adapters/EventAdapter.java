@@ -16,7 +16,7 @@ import com.example.fitlink.R;
 import com.example.fitlink.enums.SportType;
 import com.example.fitlink.models.Event;
 import com.example.fitlink.models.Group;
-import com.example.fitlink.models.User;
+import com.example.fitlink.models.UserSummary;
 import com.example.fitlink.services.DatabaseService;
 import com.google.android.material.chip.Chip;
 
@@ -27,7 +27,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHolder> {
+public class EventAdapter extends RowAdapter<EventAdapter.EventViewHolder> {
 
     private final String currentUserId;
     private final OnEventClickListener listener;
@@ -66,6 +66,7 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
 
     @Override
     public void onBindViewHolder(@NonNull EventViewHolder holder, int position) {
+        rowRequests.bind(holder);
         Event event = eventList.get(position);
 
         holder.tvTitle.setText(event.getTitle());
@@ -102,7 +103,7 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
                     loadCreatorNameAndSetSubtitle(holder, event.getCreatorId(), cachedGroupName);
                 } else {
                     if (groupId != null && !groupId.isEmpty()) {
-                        DatabaseService.getInstance().getGroup(groupId, new DatabaseService.DatabaseCallback<>() {
+                        rowRequests.load(holder, "group", cb -> DatabaseService.getInstance().getGroup(groupId, cb), new DatabaseService.DatabaseCallback<Group>() {
                             @Override
                             public void onCompleted(Group group) {
                                 String fetchedName = (group != null) ? group.getName() : "Group Event";
@@ -123,9 +124,9 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
         } else {
             String creatorId = event.getCreatorId();
             if (creatorId != null && !creatorId.isEmpty()) {
-                DatabaseService.getInstance().getUser(creatorId, new DatabaseService.DatabaseCallback<>() {
+                rowRequests.loadUserSummary(holder, "creator", creatorId, new DatabaseService.DatabaseCallback<>() {
                     @Override
-                    public void onCompleted(User user) {
+                    public void onCompleted(UserSummary user) {
                         String creatorName = (user != null) ? (user.getFirstName() + " " + user.getLastName()) : "Unknown";
                         holder.tvCreator.setText("By " + creatorName);
                     }
@@ -188,9 +189,9 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
 
     private void loadCreatorNameAndSetSubtitle(EventViewHolder holder, String creatorId, String contextPrefix) {
         if (creatorId != null && !creatorId.isEmpty()) {
-            DatabaseService.getInstance().getUser(creatorId, new DatabaseService.DatabaseCallback<>() {
+            rowRequests.loadUserSummary(holder, "creator", creatorId, new DatabaseService.DatabaseCallback<>() {
                 @Override
-                public void onCompleted(User user) {
+                public void onCompleted(UserSummary user) {
                     String creatorName = (user != null) ? (user.getFirstName() + " " + user.getLastName()) : "Unknown";
                     holder.tvCreator.setText(formatSubtitle(contextPrefix, creatorName));
                 }
@@ -2,7 +2,6 @@ package com.example.fitlink.adapters;
 
 import android.content.Context;
 import android.content.res.ColorStateList;
-import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -17,19 +16,24 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.fitlink.R;
 import com.example.fitlink.enums.SportType;
 import com.example.fitlink.models.Group;
-import com.example.fitlink.models.User;
+import com.example.fitlink.models.UserSummary;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.MediaStore;
 import com.example.fitlink.utils.ImageUtil;
 import com.google.android.material.chip.Chip;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHolder> {
+public class GroupAdapter extends RowAdapter<GroupAdapter.GroupViewHolder> {
 
     private final boolean showJoinButton;
     private final String currentUserId;
     private final OnGroupClickListener listener;
     private List<Group> groupList;
+    /// The number of unread chat messages per group id
+    private Map<String, Integer> unreadCounts = new HashMap<>();
 
     public GroupAdapter(List<Group> groupList, boolean showJoinButton, String currentUserId, OnGroupClickListener listener) {
         this.groupList = groupList;
@@ -43,6 +47,25 @@ public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHol
         notifyDataSetChanged();
     }
 
+    /// Show the number of unread chat messages of every group, only the rows whose number changed are bound again
+    ///
+    /// @param counts The number of unread messages per group id, a missing group has none
+    public void setUnreadCounts(Map<String, Integer> counts) {
+        Map<String, Integer> previous = unreadCounts;
+        unreadCounts = new HashMap<>(counts);
+        for (int i = 0; i < groupList.size(); i++) {
+            String groupId = groupList.get(i).getId();
+            if (getUnreadCount(previous, groupId) != getUnreadCount(unreadCounts, groupId)) {
+                notifyItemChanged(i);
+            }
+        }
+    }
+
+    private static int getUnreadCount(Map<String, Integer> counts, String groupId) {
+        Integer count = counts.get(groupId);
+        return count == null ? 0 : count;
+    }
+
     @NonNull
     @Override
     public GroupViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -52,6 +75,7 @@ public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHol
 
     @Override
     public void onBindViewHolder(@NonNull GroupViewHolder holder, int position) {
+        rowRequests.bind(holder);
         Group group = groupList.get(position);
 
         holder.tvName.setText(group.getName());
@@ -73,21 +97,24 @@ public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHol
         holder.imgSportMini.setImageResource(sportIconRes);
 
         // --- הלוגיקה של התמונה (כולל ביטול ה-Tint) ---
-        String base64Image = group.getGroupImage();
         Context context = holder.itemView.getContext();
 
-        if (base64Image != null && !base64Image.isEmpty()) {
-            Bitmap bitmap = ImageUtil.convertFrom64base(base64Image);
-            if (bitmap != null) {
-                holder.imgIcon.setImageBitmap(bitmap);
-                holder.imgIcon.setPadding(0, 0, 0, 0);
-                // ביטול ה-Tint כדי שהתמונה תוצג בצבעים המקוריים שלה!
-                holder.imgIcon.setImageTintList(null);
-            } else {
-                setFallbackIcon(holder, sportIconRes, context);
-            }
+        // האייקון של סוג הספורט מוצג עד שהתמונה של הקבוצה נטענת
+        setFallbackIcon(holder, sportIconRes, context);
+        ImageUtil.loadImage(holder.imgIcon, group.getGroupImage(), MediaStore.Variant.THUMBNAIL, bitmap -> {
+            holder.imgIcon.setImageBitmap(bitmap);
+            holder.imgIcon.setPadding(0, 0, 0, 0);
+            // ביטול ה-Tint כדי שהתמונה תוצג בצבעים המקוריים שלה!
+            holder.imgIcon.setImageTintList(null);
+        });
+
+        // מספר ההודעות שלא נקראו בצ'אט של הקבוצה
+        int unread = getUnreadCount(unreadCounts, group.getId());
+        if (unread > 0) {
+            holder.tvUnread.setText(unread > 99 ? "99+" : String.valueOf(unread));
+            holder.tvUnread.setVisibility(View.VISIBLE);
         } else {
-            setFallbackIcon(holder, sportIconRes, context);
+            holder.tvUnread.setVisibility(View.GONE);
         }
 
         int memberCount = (group.getMembers() != null) ? group.getMembers().size() : 0;
@@ -109,9 +136,9 @@ public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHol
 
         holder.tvCreator.setText("Loading...");
         if (creatorId != null && !creatorId.isEmpty()) {
-            DatabaseService.getInstance().getUser(creatorId, new DatabaseService.DatabaseCallback<>() {
+            rowRequests.loadUserSummary(holder, "creator", creatorId, new DatabaseService.DatabaseCallback<>() {
                 @Override
-                public void onCompleted(User user) {
+                public void onCompleted(UserSummary user) {
                     if (user != null) {
                         holder.tvCreator.setText(String.format("By %s %s", user.getFirstName(), user.getLastName()));
                     } else {
@@ -181,6 +208,11 @@ public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHol
         return R.drawable.ic_sport;
     }
 
+    @Override
+    protected ImageView getRowImage(@NonNull GroupViewHolder holder) {
+        return holder.imgIcon;
+    }
+
     @Override
     public int getItemCount() {
         return groupList.size();
@@ -195,7 +227,7 @@ public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHol
     }
 
     public static class GroupViewHolder extends RecyclerView.ViewHolder {
-        final TextView tvName, tvSport, tvLocation, tvMembers, tvCreator;
+        final TextView tvName, tvSport, tvLocation, tvMembers, tvCreator, tvUnread;
         final ImageView imgIcon, imgSportMini;
         final Chip chipLevel;
         final Button btnJoin;
@@ -208,6 +240,7 @@ public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHol
             tvLocation = itemView.findViewById(R.id.tv_item_group_location);
             tvMembers = itemView.findViewById(R.id.tv_item_group_members);
             tvCreator = itemView.findViewById(R.id.tv_item_group_creator);
+            tvUnread = itemView.findViewById(R.id.tv_item_group_unread);
             imgIcon = itemView.findViewById(R.id.img_item_group_icon);
             imgSportMini = itemView.findViewById(R.id.img_item_group_sport_mini);
             chipLevel = itemView.findViewById(R.id.chip_group_level);
@@ -1,6 +1,5 @@
 package com.example.fitlink.adapters;
 
-import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,12 +11,13 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.fitlink.R;
 import com.example.fitlink.models.User;
+import com.example.fitlink.services.MediaStore;
 import com.example.fitlink.utils.ImageUtil;
 import com.google.android.material.button.MaterialButton;
 
 import java.util.List;
 
-public class JoinRequestAdapter extends RecyclerView.Adapter<JoinRequestAdapter.ViewHolder> {
+public class JoinRequestAdapter extends RowAdapter<JoinRequestAdapter.ViewHolder> {
 
     private final List<User> requestList;
     private final OnRequestClickListener listener;
@@ -48,14 +48,8 @@ public class JoinRequestAdapter extends RecyclerView.Adapter<JoinRequestAdapter.
             holder.tvPhone.setText("No phone");
         }
 
-        String base64Image = user.getProfileImage();
-        if (base64Image != null && !base64Image.isEmpty()) {
-            Bitmap bmp = ImageUtil.convertFrom64base(base64Image);
-            if (bmp != null) holder.imgProfile.setImageBitmap(bmp);
-            else holder.imgProfile.setImageResource(R.drawable.ic_user);
-        } else {
-            holder.imgProfile.setImageResource(R.drawable.ic_user);
-        }
+        holder.imgProfile.setImageResource(R.drawable.ic_user);
+        ImageUtil.loadImage(holder.imgProfile, user.getProfileImage(), MediaStore.Variant.THUMBNAIL, holder.imgProfile::setImageBitmap);
 
         // --- הוספת מאזין הלחיצה על הפריט עצמו למעבר לפרופיל ---
         holder.itemView.setOnClickListener(v -> {
@@ -69,6 +63,11 @@ public class JoinRequestAdapter extends RecyclerView.Adapter<JoinRequestAdapter.
         holder.btnDecline.setOnClickListener(v -> listener.onDeclineClick(user));
     }
 
+    @Override
+    protected ImageView getRowImage(@NonNull ViewHolder holder) {
+        return holder.imgProfile;
+    }
+
     @Override
     public int getItemCount() {
         return requestList.size();
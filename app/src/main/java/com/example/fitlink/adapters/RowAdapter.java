@@ -0,0 +1,52 @@
+package com.example.fitlink.adapters;
+
+import android.widget.ImageView;
+
+import androidx.annotation.CallSuper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.fitlink.utils.ImageUtil;
+
+/// an adapter whose rows load their names, avatars and images after they are bound.
+/// the loads of a recycled row are dropped, and the loads of every row when the list goes away
+///
+/// the rows call rowRequests.bind() first in onBindViewHolder() and load through rowRequests
+///
+/// @see RowRequests
+public abstract class RowAdapter<VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
+
+    protected final RowRequests rowRequests = new RowRequests();
+
+    /// @param holder a row being recycled
+    /// @return the image the row loads, to cancel with the row, or null if it has none
+    @Nullable
+    protected ImageView getRowImage(@NonNull VH holder) {
+        return null;
+    }
+
+    @CallSuper
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        rowRequests.attach(recyclerView);
+    }
+
+    @CallSuper
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        rowRequests.detach(recyclerView);
+    }
+
+    // שורה שיצאה מהמסך לא צריכה יותר את הטעינות ואת התמונה שלה
+    @CallSuper
+    @Override
+    public void onViewRecycled(@NonNull VH holder) {
+        super.onViewRecycled(holder);
+        rowRequests.cancel(holder);
+        ImageView image = getRowImage(holder);
+        if (image != null) ImageUtil.cancelImage(image);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.fitlink.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.fitlink.models.UserSummary;
+import com.example.fitlink.services.BoundRequests;
+import com.example.fitlink.services.DatabaseService;
+
+/// the reads of the rows of an adapter (names, avatars, group names), bound to their ViewHolders.
+/// a row that is bound again or recycled drops its reads, the rows on the screen are read first
+///
+/// attached, detached and cancelled by RowAdapter, the adapter calls bind() when it binds a row
+///
+/// @see RowAdapter
+/// @see BoundRequests
+public class RowRequests extends RecyclerView.OnScrollListener {
+
+    /// the reads of a list running at the same time
+    private static final int MAX_IN_FLIGHT = 4;
+
+    private final BoundRequests<RecyclerView.ViewHolder> requests = new BoundRequests<>(MAX_IN_FLIGHT, this::isVisible);
+    @Nullable
+    private RecyclerView recyclerView;
+
+    public void attach(@NonNull RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+        recyclerView.addOnScrollListener(this);
+    }
+
+    public void detach(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(this);
+        this.recyclerView = null;
+        requests.cancelAll();
+    }
+
+    /// load a slot of a row, e.g. "creator", instead of its previous load.
+    /// the callback is called only if the row still shows the same item
+    public <T> void load(@NonNull RecyclerView.ViewHolder holder, @NonNull String slot,
+                         @NonNull BoundRequests.Request<T> request, @NonNull DatabaseService.DatabaseCallback<T> callback) {
+        requests.load(holder, slot, request, callback);
+    }
+
+    /// load the public profile of a user for a row
+    ///
+    /// @see DatabaseService#getUserSummary(String, DatabaseService.DatabaseCallback)
+    public void loadUserSummary(@NonNull RecyclerView.ViewHolder holder, @NonNull String slot, @NonNull String userId,
+                                @NonNull DatabaseService.DatabaseCallback<UserSummary> callback) {
+        load(holder, slot, cb -> DatabaseService.getInstance().getUserSummary(userId, cb), callback);
+    }
+
+    /// drop the loads of the item the row showed before, first in onBindViewHolder()
+    public void bind(@NonNull RecyclerView.ViewHolder holder) {
+        requests.cancel(holder);
+    }
+
+    /// cancel the loads of a recycled row
+    public void cancel(@NonNull RecyclerView.ViewHolder holder) {
+        requests.cancel(holder);
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        requests.reprioritize();
+    }
+
+    private boolean isVisible(@NonNull RecyclerView.ViewHolder holder) {
+        if (recyclerView == null || holder.itemView.getParent() != recyclerView) return false;
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        return layoutManager != null && layoutManager.isViewPartiallyVisible(holder.itemView, false, true);
+    }
+}
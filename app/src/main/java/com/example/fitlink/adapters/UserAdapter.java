@@ -1,6 +1,5 @@
 package com.example.fitlink.adapters;
 
-import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -14,6 +13,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.fitlink.R;
 import com.example.fitlink.models.User;
+import com.example.fitlink.services.MediaStore;
 import com.example.fitlink.utils.ImageUtil;
 import com.google.android.material.chip.Chip;
 
@@ -22,7 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class UserAdapter extends RecyclerView.Adapter<UserAdapter.ViewHolder> {
+public class UserAdapter extends RowAdapter<UserAdapter.ViewHolder> {
 
     private final List<User> userList;
     private final OnUserClickListener onUserClickListener;
@@ -94,17 +94,8 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.ViewHolder> {
         }
 
         // טיפול בתמונת פרופיל
-        String base64Image = user.getProfileImage();
-        if (base64Image != null && !base64Image.isEmpty()) {
-            Bitmap bmp = ImageUtil.convertFrom64base(base64Image);
-            if (bmp != null) {
-                holder.imgProfile.setImageBitmap(bmp);
-            } else {
-                holder.imgProfile.setImageResource(R.drawable.ic_user);
-            }
-        } else {
-            holder.imgProfile.setImageResource(R.drawable.ic_user);
-        }
+        holder.imgProfile.setImageResource(R.drawable.ic_user);
+        ImageUtil.loadImage(holder.imgProfile, user.getProfileImage(), MediaStore.Variant.THUMBNAIL, holder.imgProfile::setImageBitmap);
 
         // בדיקה האם זה המשתמש המחובר ("אני")
         boolean isSelf = user.getId() != null && onUserClickListener != null && onUserClickListener.isCurrentUser(user);
@@ -244,6 +235,11 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.ViewHolder> {
         });
     }
 
+    @Override
+    protected ImageView getRowImage(@NonNull ViewHolder holder) {
+        return holder.imgProfile;
+    }
+
     @Override
     public int getItemCount() {
         return userList.size();
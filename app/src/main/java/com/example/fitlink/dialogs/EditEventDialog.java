@@ -282,20 +282,21 @@ public class EditEventDialog extends Dialog {
 
         Location location = new Location(selectedAddress, selectedLat, selectedLng);
 
-        // עדכון האובייקט הקיים
-        currentEvent.setTitle(title);
-        currentEvent.setDescription(description);
-        currentEvent.setStartTimestamp(startTimestamp);
-        currentEvent.setDurationMillis(selectedDurationMillis);
-        currentEvent.setLocation(location);
-        currentEvent.setMaxParticipants(selectedMaxParticipants); // עדכון כמות המשתתפים החדשה
-
-        databaseService.updateEvent(currentEvent, new DatabaseService.DatabaseCallback<>() {
+        // עדכון עותק של האירוע, המסך יקבל אותו רק אחרי שהשמירה הצליחה
+        Event updatedEvent = new Event(currentEvent);
+        updatedEvent.setTitle(title);
+        updatedEvent.setDescription(description);
+        updatedEvent.setStartTimestamp(startTimestamp);
+        updatedEvent.setDurationMillis(selectedDurationMillis);
+        updatedEvent.setLocation(location);
+        updatedEvent.setMaxParticipants(selectedMaxParticipants); // עדכון כמות המשתתפים החדשה
+
+        databaseService.updateEvent(updatedEvent, new DatabaseService.DatabaseCallback<>() {
             @Override
             public void onCompleted(Void object) {
                 Toast.makeText(context, "Event Updated Successfully!", Toast.LENGTH_SHORT).show();
                 if (listener != null) {
-                    listener.onEventUpdated(currentEvent);
+                    listener.onEventUpdated(updatedEvent);
                 }
                 dismiss();
             }
@@ -151,20 +151,21 @@ public class EditGroupDialog extends Dialog {
 
         Location locationObj = new Location(selectedAddress, selectedLat, selectedLng);
 
-        // עדכון אובייקט הקבוצה
-        currentGroup.setName(name);
-        currentGroup.setDescription(description);
-        currentGroup.setSportType(selectedSport);
-        currentGroup.setLevel(selectedLevel);
-        currentGroup.setLocation(locationObj);
+        // עדכון עותק של הקבוצה, המסך יקבל אותו רק אחרי שהשמירה הצליחה
+        Group updatedGroup = new Group(currentGroup);
+        updatedGroup.setName(name);
+        updatedGroup.setDescription(description);
+        updatedGroup.setSportType(selectedSport);
+        updatedGroup.setLevel(selectedLevel);
+        updatedGroup.setLocation(locationObj);
 
         // שמירה במסד הנתונים
-        databaseService.updateGroup(currentGroup, new DatabaseService.DatabaseCallback<>() {
+        databaseService.updateGroup(updatedGroup, new DatabaseService.DatabaseCallback<>() {
             @Override
             public void onCompleted(Void object) {
                 Toast.makeText(context, "Group updated successfully!", Toast.LENGTH_SHORT).show();
                 if (listener != null) {
-                    listener.onGroupUpdated(currentGroup);
+                    listener.onGroupUpdated(updatedGroup);
                 }
                 dismiss();
             }
@@ -344,26 +344,27 @@ public class EditIndependentEventDialog extends Dialog {
 
         Location eventLocation = new Location(selectedAddress, selectedLat, selectedLng);
 
-        // עדכון האובייקט הקיים (שימוש ב-selectedMaxParticipants במקום בטקסט)
-        currentEvent.setTitle(title);
-        currentEvent.setDescription(description);
-        currentEvent.setSportType(selectedSport);
-        currentEvent.setLevel(selectedLevel);
-        currentEvent.setStartTimestamp(startTimestamp);
-        currentEvent.setDurationMillis(selectedDurationMillis);
-        currentEvent.setLocation(eventLocation);
-        currentEvent.setMaxParticipants(selectedMaxParticipants);
+        // עדכון עותק של האירוע (שימוש ב-selectedMaxParticipants במקום בטקסט), המסך יקבל אותו רק אחרי שהשמירה הצליחה
+        Event updatedEvent = new Event(currentEvent);
+        updatedEvent.setTitle(title);
+        updatedEvent.setDescription(description);
+        updatedEvent.setSportType(selectedSport);
+        updatedEvent.setLevel(selectedLevel);
+        updatedEvent.setStartTimestamp(startTimestamp);
+        updatedEvent.setDurationMillis(selectedDurationMillis);
+        updatedEvent.setLocation(eventLocation);
+        updatedEvent.setMaxParticipants(selectedMaxParticipants);
 
         progressBar.setVisibility(View.VISIBLE);
         btnSave.setEnabled(false);
 
-        DatabaseService.getInstance().updateEvent(currentEvent, new DatabaseService.DatabaseCallback<>() {
+        DatabaseService.getInstance().updateEvent(updatedEvent, new DatabaseService.DatabaseCallback<>() {
             @Override
             public void onCompleted(Void object) {
                 progressBar.setVisibility(View.GONE);
                 Toast.makeText(getContext(), "Event Updated!", Toast.LENGTH_SHORT).show();
                 if (listener != null) {
-                    listener.onEventUpdated(currentEvent);
+                    listener.onEventUpdated(updatedEvent);
                 }
                 dismiss();
             }
@@ -4,7 +4,6 @@ import android.app.Dialog;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.ColorStateList;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,6 +19,7 @@ import com.example.fitlink.R;
 import com.example.fitlink.enums.SportType;
 import com.example.fitlink.models.Group;
 import com.example.fitlink.screens.MembersListActivity;
+import com.example.fitlink.services.MediaStore;
 import com.example.fitlink.utils.ImageUtil;
 import com.google.android.material.chip.Chip;
 
@@ -138,20 +138,12 @@ public class GroupDescriptionDialog {
         // --- סוף עדכון המידע החדש ---
 
         // טיפול בתמונה הראשית
-        String base64Image = group.getGroupImage();
-
-        if (base64Image != null && !base64Image.isEmpty()) {
-            Bitmap bitmap = ImageUtil.convertFrom64base(base64Image);
-            if (bitmap != null) {
-                imgIcon.setImageBitmap(bitmap);
-                imgIcon.setPadding(0, 0, 0, 0);
-                imgIcon.setImageTintList(null);
-            } else {
-                setFallbackIcon(imgIcon, sportIconRes);
-            }
-        } else {
-            setFallbackIcon(imgIcon, sportIconRes);
-        }
+        setFallbackIcon(imgIcon, sportIconRes);
+        ImageUtil.loadImage(imgIcon, group.getGroupImage(), MediaStore.Variant.FULL, bitmap -> {
+            imgIcon.setImageBitmap(bitmap);
+            imgIcon.setPadding(0, 0, 0, 0);
+            imgIcon.setImageTintList(null);
+        });
 
         if (isAdminPanel) {
             layoutAdminActions.setVisibility(View.VISIBLE);
@@ -0,0 +1,31 @@
+package com.example.fitlink.enums;
+
+/// What the activity buckets of the admin dashboard count
+/// The key is the name of the counter in every bucket
+public enum ActivitySeries {
+    SIGNUPS("signups", "Sign-ups"),
+    EVENTS_CREATED("events", "Events"),
+    JOINS("joins", "Joins"),
+    MESSAGES("messages", "Messages");
+
+    private final String key;
+    private final String displayName;
+
+    ActivitySeries(String key, String displayName) {
+        this.key = key;
+        this.displayName = displayName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
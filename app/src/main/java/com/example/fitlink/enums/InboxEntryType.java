@@ -0,0 +1,9 @@
+package com.example.fitlink.enums;
+
+/// What an entry of the inbox of a user tells about
+public enum InboxEntryType {
+    CHAT_MESSAGE,
+    NEW_EVENT,
+    JOIN_REQUEST,
+    JOIN_APPROVED
+}
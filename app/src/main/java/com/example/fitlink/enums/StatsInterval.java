@@ -0,0 +1,76 @@
+package com.example.fitlink.enums;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+
+/// The length of the activity buckets of the admin dashboard
+/// A bucket is keyed by the UTC date it starts on (yyyy-MM-dd), so the keys sort by time and every device
+/// writes to the same bucket. A week starts on Monday
+public enum StatsInterval {
+    DAY("daily", "Daily"),
+    WEEK("weekly", "Weekly");
+
+    private final String path;
+    private final String displayName;
+
+    StatsInterval(String path, String displayName) {
+        this.path = path;
+        this.displayName = displayName;
+    }
+
+    /// @return The name of the node of the buckets of this length
+    public String getPath() {
+        return path;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /// @param timestamp A time in milliseconds
+    /// @return The key of the bucket the time is in
+    public String keyOf(long timestamp) {
+        return startDate(timestamp).toString();
+    }
+
+    /// @param timestamp A time in milliseconds
+    /// @return The start of the bucket the time is in, in milliseconds
+    public long startOf(long timestamp) {
+        return toMillis(startDate(timestamp));
+    }
+
+    /// @param bucketStart The start of a bucket, in milliseconds
+    /// @return The start of the next bucket
+    public long next(long bucketStart) {
+        LocalDate date = Instant.ofEpochMilli(bucketStart).atZone(ZoneOffset.UTC).toLocalDate();
+        return toMillis(this == DAY ? date.plusDays(1) : date.plusWeeks(1));
+    }
+
+    /// @param key The key of a bucket
+    /// @return The start of the bucket in milliseconds, or -1 if the key isn't a date
+    public static long startOfKey(String key) {
+        try {
+            return toMillis(LocalDate.parse(key));
+        } catch (DateTimeParseException | NullPointerException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+    private LocalDate startDate(long timestamp) {
+        LocalDate date = Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC).toLocalDate();
+        return this == DAY ? date : date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static long toMillis(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+}
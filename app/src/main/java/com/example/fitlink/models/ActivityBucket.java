@@ -0,0 +1,88 @@
+package com.example.fitlink.models;
+
+import com.example.fitlink.enums.ActivitySeries;
+
+/// The activity of one day or week, read from stats_activity/{daily|weekly}/{yyyy-MM-dd}
+/// Every counter is increased by the write it counts, so a range of buckets is one small read
+public class ActivityBucket {
+    private String key;             // The UTC date the bucket starts on, yyyy-MM-dd
+    private long startTimestamp;    // The start of the bucket, in milliseconds
+    private int signups;
+    private int events;
+    private int joins;
+    private int messages;
+
+    public ActivityBucket() {
+        // Required empty constructor for Firebase
+    }
+
+    public ActivityBucket(String key, long startTimestamp) {
+        this.key = key;
+        this.startTimestamp = startTimestamp;
+    }
+
+    /// @param series A counter of the bucket
+    /// @return The value of the counter
+    public int getCount(ActivitySeries series) {
+        switch (series) {
+            case SIGNUPS:
+                return signups;
+            case EVENTS_CREATED:
+                return events;
+            case JOINS:
+                return joins;
+            case MESSAGES:
+                return messages;
+            default:
+                return 0;
+        }
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getStartTimestamp() {
+        return startTimestamp;
+    }
+
+    public void setStartTimestamp(long startTimestamp) {
+        this.startTimestamp = startTimestamp;
+    }
+
+    public int getSignups() {
+        return signups;
+    }
+
+    public void setSignups(int signups) {
+        this.signups = signups;
+    }
+
+    public int getEvents() {
+        return events;
+    }
+
+    public void setEvents(int events) {
+        this.events = events;
+    }
+
+    public int getJoins() {
+        return joins;
+    }
+
+    public void setJoins(int joins) {
+        this.joins = joins;
+    }
+
+    public int getMessages() {
+        return messages;
+    }
+
+    public void setMessages(int messages) {
+        this.messages = messages;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.fitlink.models;
+
+import java.io.Serializable;
+
+/// Model class for the counters of the admin dashboard
+/// The number of users, groups and events, kept in stats/ and changed together with the writes that create
+/// or delete them, so the dashboard doesn't read every object to count them
+public class AppStats implements Serializable {
+
+    private int users, groups, events;
+
+    // בנאי ריק חובה עבור Firebase
+    public AppStats() {
+    }
+
+    public AppStats(int users, int groups, int events) {
+        this.users = users;
+        this.groups = groups;
+        this.events = events;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public int getGroups() {
+        return groups;
+    }
+
+    public void setGroups(int groups) {
+        this.groups = groups;
+    }
+
+    public int getEvents() {
+        return events;
+    }
+
+    public void setEvents(int events) {
+        this.events = events;
+    }
+}
@@ -28,6 +28,7 @@ public class Event implements Serializable {
     private Location location;         // Meeting point / Location of the event
     private String creatorId;          // The UID of the user (admin) who created the event
     private int maxParticipants;       // Maximum allowed participants (0 means unlimited)
+    private long createdAt;            // The server time the event was created (0 for events created before the field)
 
     // Map of user IDs who have joined the event (Key = userId, Value = true)
     private Map<String, Boolean> participants;
@@ -57,6 +58,25 @@ public class Event implements Serializable {
         this.participants.put(creatorId, true);
     }
 
+    /**
+     * Copy constructor. The location and the participants are copied too, so the copy can be edited on its own.
+     */
+    public Event(Event other) {
+        this.id = other.id;
+        this.groupId = other.groupId;
+        this.title = other.title;
+        this.description = other.description;
+        this.sportType = other.sportType;
+        this.level = other.level;
+        this.startTimestamp = other.startTimestamp;
+        this.durationMillis = other.durationMillis;
+        this.location = other.location != null ? new Location(other.location) : null;
+        this.creatorId = other.creatorId;
+        this.maxParticipants = other.maxParticipants;
+        this.createdAt = other.createdAt;
+        this.participants = other.participants != null ? new HashMap<>(other.participants) : null;
+    }
+
     // --- Helper Methods ---
 
     /**
@@ -184,6 +204,14 @@ public class Event implements Serializable {
         this.maxParticipants = maxParticipants;
     }
 
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
     public Map<String, Boolean> getParticipants() {
         return participants;
     }
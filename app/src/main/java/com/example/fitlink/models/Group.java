@@ -20,11 +20,11 @@ public class Group implements Serializable {
     private Location location;      // Meeting point or city
     private String creatorId;       // The UID of the user who created the group (formerly adminId)
 
-    private String groupImage;      // תמונת הקבוצה בפורמט Base64
+    private String groupImage;      // ה-hash של תמונת הקבוצה במאגר המדיה (בקבוצות ישנות: התמונה עצמה בפורמט Base64)
 
     private Map<String, Boolean> members;
     private Map<String, Boolean> managers;
-    private Map<String, Boolean> pendingRequests;
+    private Map<String, Long> pendingRequests;  // the UID of every user asking to join -> the time of the request
 
     // Required empty constructor for Firebase
     public Group() {
@@ -49,6 +49,23 @@ public class Group implements Serializable {
         this.managers = new HashMap<>();
     }
 
+    /**
+     * Copy constructor. The location and the maps are copied too, so the copy can be edited on its own.
+     */
+    public Group(Group other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.description = other.description;
+        this.sportType = other.sportType;
+        this.level = other.level;
+        this.location = other.location != null ? new Location(other.location) : null;
+        this.creatorId = other.creatorId;
+        this.groupImage = other.groupImage;
+        this.members = other.members != null ? new HashMap<>(other.members) : null;
+        this.managers = other.managers != null ? new HashMap<>(other.managers) : null;
+        this.pendingRequests = other.pendingRequests != null ? new HashMap<>(other.pendingRequests) : null;
+    }
+
     // --- Getters and Setters ---
 
     public String getId() {
@@ -140,11 +157,11 @@ public class Group implements Serializable {
         this.managers = managers;
     }
 
-    public Map<String, Boolean> getPendingRequests() {
+    public Map<String, Long> getPendingRequests() {
         return pendingRequests;
     }
 
-    public void setPendingRequests(Map<String, Boolean> pendingRequests) {
+    public void setPendingRequests(Map<String, Long> pendingRequests) {
         this.pendingRequests = pendingRequests;
     }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.example.fitlink.models;
+
+import com.example.fitlink.enums.InboxEntryType;
+
+/// A compact copy of a change a user is notified about, written to user_inbox/{userId} with the change itself
+public class InboxEntry {
+    private String id;
+    private InboxEntryType type;
+    private String groupId;
+    private String groupName;
+    private String refId;           // The id of the message, event or user the entry is about
+    private String senderId;
+    private String senderName;
+    private String text;            // The text of the message or the title of the event, shortened
+    private long createdAt;         // The server time the entry was written
+
+    public InboxEntry() {
+        // Required empty constructor for Firebase
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public InboxEntryType getType() {
+        return type;
+    }
+
+    public void setType(InboxEntryType type) {
+        this.type = type;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public String getRefId() {
+        return refId;
+    }
+
+    public void setRefId(String refId) {
+        this.refId = refId;
+    }
+
+    public String getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(String senderId) {
+        this.senderId = senderId;
+    }
+
+    public String getSenderName() {
+        return senderName;
+    }
+
+    public void setSenderName(String senderName) {
+        this.senderName = senderName;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+}
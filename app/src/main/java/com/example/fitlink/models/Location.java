@@ -20,6 +20,11 @@ public class Location implements Serializable {
         this.longitude = longitude;
     }
 
+    // קונסטרקטור העתקה
+    public Location(Location other) {
+        this(other.address, other.latitude, other.longitude);
+    }
+
     // Getters & Setters
     public String getAddress() {
         return address;
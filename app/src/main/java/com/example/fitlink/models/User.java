@@ -22,6 +22,7 @@ public class User implements Serializable {
     private String firstName, lastName;
     private String phone;
     private boolean isAdmin;
+    // ה-hash של תמונת הפרופיל במאגר המדיה (במשתמשים ישנים: התמונה עצמה בפורמט Base64)
     private String profileImage;
 
     // מפה של מזהי קבוצות (Key = groupId, Value = true)
@@ -53,6 +54,23 @@ public class User implements Serializable {
         this.pastEventsCount = 0;
     }
 
+    /// Copy constructor, the maps are copied too
+    ///
+    /// @param other the user to copy
+    public User(User other) {
+        this.id = other.id;
+        this.email = other.email;
+        this.password = other.password;
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.phone = other.phone;
+        this.isAdmin = other.isAdmin;
+        this.profileImage = other.profileImage;
+        this.groupIds = other.groupIds != null ? new HashMap<>(other.groupIds) : null;
+        this.eventIds = other.eventIds != null ? new HashMap<>(other.eventIds) : null;
+        this.pastEventsCount = other.pastEventsCount;
+    }
+
     public String getId() {
         return id;
     }
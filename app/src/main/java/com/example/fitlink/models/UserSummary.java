@@ -0,0 +1,94 @@
+package com.example.fitlink.models;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.Exclude;
+
+import java.io.Serializable;
+
+/// Model class for the public part of a user
+/// A small copy of the user kept in user_public/{uid}, with only what lists need to show a user:
+/// the name, a small profile image and the admin flag (no password, ids or full-size image)
+///
+/// @see User
+public class UserSummary implements Serializable {
+
+    /// the id of the user, the key of the node (not written inside it)
+    private String id;
+
+    private String firstName, lastName;
+    private boolean isAdmin;
+    /// the media hash of the profile image (its thumbnail is shown), a small inline base64 JPEG for users
+    /// not saved since the media store, or null if the user has no image
+    private String profileThumbnail;
+
+    // בנאי ריק חובה עבור Firebase
+    public UserSummary() {
+    }
+
+    public UserSummary(String id, String firstName, String lastName, boolean isAdmin, String profileThumbnail) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.isAdmin = isAdmin;
+        this.profileThumbnail = profileThumbnail;
+    }
+
+    @Exclude
+    public String getId() {
+        return id;
+    }
+
+    @Exclude
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public boolean getIsAdmin() {
+        return isAdmin;
+    }
+
+    public void setIsAdmin(boolean admin) {
+        isAdmin = admin;
+    }
+
+    public String getProfileThumbnail() {
+        return profileThumbnail;
+    }
+
+    public void setProfileThumbnail(String profileThumbnail) {
+        this.profileThumbnail = profileThumbnail;
+    }
+
+    @Exclude
+    public String getFullName() {
+        return firstName + " " + lastName;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "UserSummary{" +
+                "id='" + id + '\'' +
+                ", firstName='" + firstName + '\'' +
+                ", lastName='" + lastName + '\'' +
+                ", isAdmin=" + isAdmin +
+                '}';
+    }
+}
@@ -3,6 +3,7 @@ package com.example.fitlink.screens;
 import android.content.Intent;
 import android.os.Bundle;
 import android.widget.LinearLayout;
+import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.widget.Toolbar;
@@ -11,18 +12,28 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
 import com.example.fitlink.R;
-import com.example.fitlink.models.Event;
-import com.example.fitlink.models.Group;
-import com.example.fitlink.models.User;
+import com.example.fitlink.enums.StatsInterval;
+import com.example.fitlink.models.ActivityBucket;
+import com.example.fitlink.models.AppStats;
 import com.example.fitlink.services.DatabaseService;
 import com.example.fitlink.ui.AdminStatsGraphView;
+import com.google.android.material.button.MaterialButton;
+import com.google.android.material.chip.ChipGroup;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class AdminActivity extends BaseActivity {
 
+    // טווח גרף הפעילות: 90 ימים אחרונים או 52 שבועות אחרונים
+    private static final long DAILY_RANGE = TimeUnit.DAYS.toMillis(90);
+    private static final long WEEKLY_RANGE = TimeUnit.DAYS.toMillis(7 * 52);
+
     LinearLayout cardUsers, cardGroups, cardEvents, cardMessages;
     AdminStatsGraphView statsGraphView;
+    AdminStatsGraphView activityGraphView;
+    ChipGroup chipGroupActivityInterval;
+    MaterialButton btnRecountStats;
     DatabaseService databaseService;
 
     // משתנים לשמירת הכמויות
@@ -44,6 +55,7 @@ public class AdminActivity extends BaseActivity {
 
         // טעינת נתונים לגרף
         loadStatistics();
+        loadActivity(StatsInterval.DAY);
     }
 
     private void initViews() {
@@ -60,6 +72,9 @@ public class AdminActivity extends BaseActivity {
 
         // אתחול הגרף
         statsGraphView = findViewById(R.id.admin_stats_graph);
+        btnRecountStats = findViewById(R.id.btn_recount_stats);
+        activityGraphView = findViewById(R.id.admin_activity_graph);
+        chipGroupActivityInterval = findViewById(R.id.chipGroup_activity_interval);
     }
 
     private void setupToolbar() {
@@ -92,52 +107,69 @@ public class AdminActivity extends BaseActivity {
             Intent intent = new Intent(this, AdminContactMessagesListActivity.class);
             startActivity(intent);
         });
+
+        btnRecountStats.setOnClickListener(v -> recountStatistics());
+
+        chipGroupActivityInterval.setOnCheckedStateChangeListener((group, checkedIds) -> {
+            if (checkedIds.isEmpty()) return;
+            loadActivity(checkedIds.get(0) == R.id.chip_activity_weekly ? StatsInterval.WEEK : StatsInterval.DAY);
+        });
     }
 
-    // פונקציה חדשה לאיסוף הנתונים
+    // האזנה למוני המערכת: צומת קטן אחד במקום הורדת כל המשתמשים, הקבוצות והאירועים
     private void loadStatistics() {
-        // משיכת כמות המשתמשים
-        databaseService.getUserList(new DatabaseService.DatabaseCallback<>() {
+        databaseService.listenToStats(this, "stats", new DatabaseService.DatabaseCallback<>() {
             @Override
-            public void onCompleted(List<User> object) {
-                if (object != null) {
-                    userCount = object.size();
-                    updateGraph();
-                }
+            public void onCompleted(AppStats stats) {
+                userCount = stats.getUsers();
+                groupCount = stats.getGroups();
+                eventCount = stats.getEvents();
+                updateGraph();
             }
 
             @Override
             public void onFailed(Exception e) {
             }
         });
+    }
 
-        // משיכת כמות הקבוצות
-        databaseService.getAllGroups(new DatabaseService.DatabaseCallback<>() {
+    // טעינת גרף הפעילות: קריאה אחת של הדליים (Buckets) בטווח, בלי לסרוק את הנתונים עצמם
+    private void loadActivity(StatsInterval interval) {
+        long now = System.currentTimeMillis();
+        long range = interval == StatsInterval.WEEK ? WEEKLY_RANGE : DAILY_RANGE;
+        databaseService.getActivity(interval, now - range, now, new DatabaseService.DatabaseCallback<>() {
             @Override
-            public void onCompleted(List<Group> object) {
-                if (object != null) {
-                    groupCount = object.size();
-                    updateGraph();
-                }
+            public void onCompleted(List<ActivityBucket> buckets) {
+                // מתעלמים מתשובה של טווח שכבר הוחלף
+                StatsInterval selected = chipGroupActivityInterval.getCheckedChipId() == R.id.chip_activity_weekly ? StatsInterval.WEEK : StatsInterval.DAY;
+                if (selected != interval) return;
+                activityGraphView.setActivity(buckets, interval);
             }
 
             @Override
             public void onFailed(Exception e) {
+                Toast.makeText(AdminActivity.this, "Failed to load activity", Toast.LENGTH_SHORT).show();
             }
         });
+    }
 
-        // משיכת כמות האירועים
-        databaseService.getAllEvents(new DatabaseService.DatabaseCallback<>() {
+    // ספירה מחדש של כל הנתונים ותיקון המונים (למקרה שהם לא מדויקים)
+    private void recountStatistics() {
+        btnRecountStats.setEnabled(false);
+        btnRecountStats.setText("Counting...");
+        databaseService.recountStats(new DatabaseService.DatabaseCallback<>() {
             @Override
-            public void onCompleted(List<Event> object) {
-                if (object != null) {
-                    eventCount = object.size();
-                    updateGraph();
-                }
+            public void onCompleted(AppStats stats) {
+                btnRecountStats.setEnabled(true);
+                btnRecountStats.setText("Recount Statistics");
+                Toast.makeText(AdminActivity.this, "Statistics recounted", Toast.LENGTH_SHORT).show();
             }
 
             @Override
             public void onFailed(Exception e) {
+                btnRecountStats.setEnabled(true);
+                btnRecountStats.setText("Recount Statistics");
+                Toast.makeText(AdminActivity.this, "Recount failed", Toast.LENGTH_SHORT).show();
             }
         });
     }
@@ -148,4 +180,4 @@ public class AdminActivity extends BaseActivity {
             statsGraphView.setStats(userCount, groupCount, eventCount);
         }
     }
-}
\ No newline at end of file
+}
@@ -10,6 +10,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -22,16 +23,21 @@ import com.example.fitlink.adapters.ContactMessageAdapter;
 import com.example.fitlink.dialogs.DeleteContactMessageDialog;
 import com.example.fitlink.models.ContactMessage;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.utils.PageLoader;
 
 import java.util.List;
 
 public class AdminContactMessagesListActivity extends BaseActivity {
 
+    private static final int PAGE_SIZE = 30;
+
     private RecyclerView rvMessages;
     private ProgressBar progressBar;
     private LinearLayout layoutNoMessages;
     private TextView tvMessagesCount; // הרפרנס לטקסט החדש
     private ContactMessageAdapter messageAdapter;
+    // טוען את ההודעות בדפים תוך כדי גלילה, מהחדשה ביותר
+    private PageLoader<ContactMessage> messagesLoader;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -107,15 +113,12 @@ public class AdminContactMessagesListActivity extends BaseActivity {
         });
 
         rvMessages.setAdapter(messageAdapter);
-    }
 
-    private void loadMessages() {
-        progressBar.setVisibility(View.VISIBLE);
-        databaseService.getAllContactMessages(new DatabaseService.DatabaseCallback<>() {
+        messagesLoader = new PageLoader<>(PAGE_SIZE, databaseService::getContactMessagesPage, new PageLoader.Listener<>() {
             @Override
-            public void onCompleted(List<ContactMessage> messages) {
+            public void onItemsChanged(@NonNull List<ContactMessage> messages, boolean hasMore) {
                 progressBar.setVisibility(View.GONE);
-                if (messages == null || messages.isEmpty()) {
+                if (messages.isEmpty()) {
                     layoutNoMessages.setVisibility(View.VISIBLE);
                     rvMessages.setVisibility(View.GONE);
                     tvMessagesCount.setVisibility(View.GONE); // הסתרת הטקסט כשאין הודעות
@@ -123,17 +126,23 @@ public class AdminContactMessagesListActivity extends BaseActivity {
                     layoutNoMessages.setVisibility(View.GONE);
                     rvMessages.setVisibility(View.VISIBLE);
                     tvMessagesCount.setVisibility(View.VISIBLE); // הצגת הטקסט
-                    tvMessagesCount.setText("Total messages: " + messages.size()); // עדכון מספר ההודעות
+                    tvMessagesCount.setText("Total messages: " + messages.size() + (hasMore ? "+" : "")); // עדכון מספר ההודעות
                     messageAdapter.updateList(messages);
                 }
             }
 
             @Override
-            public void onFailed(Exception e) {
+            public void onFailed(@NonNull Exception e) {
                 progressBar.setVisibility(View.GONE);
                 Toast.makeText(AdminContactMessagesListActivity.this, "Failed to load messages", Toast.LENGTH_SHORT).show();
             }
         });
+        messagesLoader.attachTo(rvMessages);
+    }
+
+    private void loadMessages() {
+        progressBar.setVisibility(View.VISIBLE);
+        messagesLoader.refresh();
     }
 
     private void deleteMessage(String messageId) {
@@ -143,7 +152,8 @@ public class AdminContactMessagesListActivity extends BaseActivity {
             public void onCompleted(Void object) {
                 progressBar.setVisibility(View.GONE);
                 Toast.makeText(AdminContactMessagesListActivity.this, "Message deleted", Toast.LENGTH_SHORT).show();
-                // ה-Listener ב-DatabaseService ירענן את הרשימה אוטומטית כי עשינו addValueEventListener
+                // הרשימה נטענת בדפים ולא דרך מאזין, לכן מרעננים אותה ידנית
+                loadMessages();
             }
 
             @Override
@@ -14,6 +14,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.widget.Toolbar;
@@ -32,6 +33,7 @@ import com.example.fitlink.enums.DifficultyLevel;
 import com.example.fitlink.enums.SportType;
 import com.example.fitlink.models.Event;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.utils.PageLoader;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.button.MaterialButton;
 
@@ -44,6 +46,8 @@ import java.util.stream.Collectors;
 
 public class AdminEventsListActivity extends BaseActivity {
 
+    private static final int PAGE_SIZE = 30;
+
     private EventAdapter eventAdapter;
     private TextView tvEventCount;
     private EditText etSearch;
@@ -52,6 +56,8 @@ public class AdminEventsListActivity extends BaseActivity {
     private LinearLayout emptyState;
 
     private List<Event> allEvents = null;
+    // טוען את האירועים בדפים תוך כדי גלילה, מהאירוע המאוחר ביותר
+    private PageLoader<Event> eventsLoader;
     private String currentUserId;
     private CreateIndependentEventDialog currentCreateEventDialog;
     private final ActivityResultLauncher<Intent> mapPickerLauncher = registerForActivityResult(
@@ -133,6 +139,21 @@ public class AdminEventsListActivity extends BaseActivity {
         });
         eventAdapter.setShowGroupContext(true);
         rvEvents.setAdapter(eventAdapter);
+
+        eventsLoader = new PageLoader<>(PAGE_SIZE, databaseService::getEventsPage, new PageLoader.Listener<>() {
+            @Override
+            public void onItemsChanged(@NonNull List<Event> events, boolean hasMore) {
+                allEvents = events;
+                executeSearch();
+            }
+
+            @Override
+            public void onFailed(@NonNull Exception e) {
+                progressBar.setVisibility(View.GONE);
+                Toast.makeText(AdminEventsListActivity.this, "Error loading events", Toast.LENGTH_SHORT).show();
+            }
+        });
+        eventsLoader.attachTo(rvEvents);
     }
 
     private void setupSearchLogic() {
@@ -306,25 +327,13 @@ public class AdminEventsListActivity extends BaseActivity {
 
     private void loadAllEvents() {
         progressBar.setVisibility(View.VISIBLE);
-        databaseService.getAllEvents(new DatabaseService.DatabaseCallback<>() {
-            @Override
-            public void onCompleted(List<Event> events) {
-                allEvents = (events != null) ? events : new ArrayList<>();
-                executeSearch();
-            }
-
-            @Override
-            public void onFailed(Exception e) {
-                progressBar.setVisibility(View.GONE);
-                Toast.makeText(AdminEventsListActivity.this, "Error loading events", Toast.LENGTH_SHORT).show();
-            }
-        });
+        eventsLoader.refresh();
     }
 
     private void updateListDisplay(List<Event> listToDisplay) {
         progressBar.setVisibility(View.GONE);
         if (eventAdapter != null) eventAdapter.updateList(listToDisplay);
-        tvEventCount.setText(MessageFormat.format("Total events: {0}", listToDisplay.size()));
+        tvEventCount.setText(MessageFormat.format("Total events: {0}{1}", listToDisplay.size(), eventsLoader.hasMore() ? "+" : ""));
         emptyState.setVisibility(listToDisplay.isEmpty() ? View.VISIBLE : View.GONE);
     }
 }
\ No newline at end of file
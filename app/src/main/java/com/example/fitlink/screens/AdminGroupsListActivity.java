@@ -12,6 +12,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.widget.Toolbar;
@@ -34,6 +35,7 @@ import com.example.fitlink.enums.DifficultyLevel;
 import com.example.fitlink.enums.SportType;
 import com.example.fitlink.models.Group;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.utils.PageLoader;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.button.MaterialButton;
 
@@ -45,6 +47,8 @@ import java.util.stream.Collectors;
 
 public class AdminGroupsListActivity extends BaseActivity {
 
+    private static final int PAGE_SIZE = 30;
+
     private GroupAdapter groupAdapter;
     private TextView tvCount;
     private EditText etSearch;
@@ -54,6 +58,8 @@ public class AdminGroupsListActivity extends BaseActivity {
     private MaterialButton btnCreateGroup;
 
     private List<Group> allGroups = null;
+    // טוען את הקבוצות בדפים תוך כדי גלילה
+    private PageLoader<Group> groupsLoader;
     private CreateGroupDialog currentCreateGroupDialog;
     private EditGroupDialog currentEditGroupDialog;
     private final ActivityResultLauncher<Intent> mapPickerLauncher = registerForActivityResult(
@@ -157,6 +163,21 @@ public class AdminGroupsListActivity extends BaseActivity {
             }
         });
         rvGroups.setAdapter(groupAdapter);
+
+        groupsLoader = new PageLoader<>(PAGE_SIZE, databaseService::getGroupsPage, new PageLoader.Listener<>() {
+            @Override
+            public void onItemsChanged(@NonNull List<Group> groups, boolean hasMore) {
+                allGroups = groups;
+                executeSearch();
+            }
+
+            @Override
+            public void onFailed(@NonNull Exception e) {
+                progressBar.setVisibility(View.GONE);
+                Toast.makeText(AdminGroupsListActivity.this, "Error loading groups", Toast.LENGTH_SHORT).show();
+            }
+        });
+        groupsLoader.attachTo(rvGroups);
     }
 
     private void handleJoinGroup(Group group) {
@@ -332,25 +353,13 @@ public class AdminGroupsListActivity extends BaseActivity {
 
     private void loadGroups() {
         progressBar.setVisibility(View.VISIBLE);
-        databaseService.getAllGroups(new DatabaseService.DatabaseCallback<>() {
-            @Override
-            public void onCompleted(List<Group> groups) {
-                allGroups = (groups != null) ? groups : new ArrayList<>();
-                executeSearch();
-            }
-
-            @Override
-            public void onFailed(Exception e) {
-                progressBar.setVisibility(View.GONE);
-                Toast.makeText(AdminGroupsListActivity.this, "Error loading groups", Toast.LENGTH_SHORT).show();
-            }
-        });
+        groupsLoader.refresh();
     }
 
     private void updateListDisplay(List<Group> listToDisplay) {
         progressBar.setVisibility(View.GONE);
         if (groupAdapter != null) groupAdapter.updateList(listToDisplay);
-        tvCount.setText(MessageFormat.format("Total groups: {0}", listToDisplay.size()));
+        tvCount.setText(MessageFormat.format("Total groups: {0}{1}", listToDisplay.size(), groupsLoader.hasMore() ? "+" : ""));
         emptyState.setVisibility(listToDisplay.isEmpty() ? View.VISIBLE : View.GONE);
     }
 }
\ No newline at end of file
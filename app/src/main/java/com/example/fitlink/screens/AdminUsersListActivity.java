@@ -13,6 +13,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -28,17 +29,18 @@ import com.example.fitlink.dialogs.EditUserDialog;
 import com.example.fitlink.dialogs.UserFilterDialog;
 import com.example.fitlink.models.User;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.utils.PageLoader;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.button.MaterialButton;
 
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class AdminUsersListActivity extends BaseActivity {
 
     private static final String TAG = "UsersListActivity";
+    private static final int PAGE_SIZE = 30;
 
     // UI Elements
     private UserAdapter userAdapter;
@@ -51,6 +53,8 @@ public class AdminUsersListActivity extends BaseActivity {
 
     // Data Elements
     private List<User> allUsers = null;
+    // טוען את המשתמשים בדפים תוך כדי גלילה במקום את כל הטבלה בבת אחת
+    private PageLoader<User> usersLoader;
 
     // שמירת קריטריוני הסינון הנוכחיים מהדיאלוג
     private String currentFilterRole = null;
@@ -127,6 +131,23 @@ public class AdminUsersListActivity extends BaseActivity {
             }
         });
         usersList.setAdapter(userAdapter);
+
+        usersLoader = new PageLoader<>(PAGE_SIZE, databaseService::getUsersPage, new PageLoader.Listener<>() {
+            @Override
+            public void onItemsChanged(@NonNull List<User> users, boolean hasMore) {
+                allUsers = users;
+                // מריץ את כל הסינונים כדי לשמור על המצב הקודם גם אחרי רענון הרשימה
+                applyFullFilter();
+            }
+
+            @Override
+            public void onFailed(@NonNull Exception e) {
+                progressBar.setVisibility(View.GONE);
+                Log.e(TAG, "Failed to get users list", e);
+                Toast.makeText(AdminUsersListActivity.this, "Error loading users", Toast.LENGTH_SHORT).show();
+            }
+        });
+        usersLoader.attachTo(usersList);
     }
 
     private void setupSearchLogic() {
@@ -221,27 +242,14 @@ public class AdminUsersListActivity extends BaseActivity {
 
     private void loadUsers() {
         progressBar.setVisibility(View.VISIBLE);
-        databaseService.getUserList(new DatabaseService.DatabaseCallback<>() {
-            @Override
-            public void onCompleted(List<User> users) {
-                allUsers = (users != null) ? users : new ArrayList<>();
-                // מריץ את כל הסינונים כדי לשמור על המצב הקודם גם אחרי רענון הרשימה
-                applyFullFilter();
-            }
-
-            @Override
-            public void onFailed(Exception e) {
-                progressBar.setVisibility(View.GONE);
-                Log.e(TAG, "Failed to get users list", e);
-                Toast.makeText(AdminUsersListActivity.this, "Error loading users", Toast.LENGTH_SHORT).show();
-            }
-        });
+        usersLoader.refresh();
     }
 
     private void updateListDisplay(List<User> listToDisplay) {
         progressBar.setVisibility(View.GONE);
         userAdapter.setUserList(listToDisplay);
-        tvUserCount.setText(MessageFormat.format("Total users: {0}", listToDisplay.size()));
+        // "+" מסמן שיש עוד משתמשים שעדיין לא נטענו
+        tvUserCount.setText(MessageFormat.format("Total users: {0}{1}", listToDisplay.size(), usersLoader.hasMore() ? "+" : ""));
 
         if (listToDisplay.isEmpty()) {
             emptyState.setVisibility(View.VISIBLE);
@@ -282,6 +290,7 @@ public class AdminUsersListActivity extends BaseActivity {
 
                 if (isSelf) {
                     SharedPreferencesUtil.signOutUser(AdminUsersListActivity.this);
+                    databaseService.stopNotifications();
                     Intent intent = new Intent(AdminUsersListActivity.this, LoginActivity.class);
                     intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
                     startActivity(intent);
@@ -1,5 +1,6 @@
 package com.example.fitlink.screens;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
 import android.net.ConnectivityManager;
@@ -18,8 +19,9 @@ import com.example.fitlink.dialogs.NoInternetDialog;
 import com.example.fitlink.models.User;
 import com.example.fitlink.services.AuthService;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.backend.DataBackend;
+import com.example.fitlink.utils.ImageLoader;
 import com.example.fitlink.utils.SharedPreferencesUtil;
-import com.google.firebase.database.ValueEventListener;
 
 public class BaseActivity extends AppCompatActivity {
 
@@ -29,7 +31,7 @@ public class BaseActivity extends AppCompatActivity {
     private ConnectivityManager.NetworkCallback networkCallback;
     private NoInternetDialog customNoInternetDialog;
     // מאזינים לשינויים בזמן אמת במשתמש (למקרה של מחיקה)
-    private ValueEventListener currentUserListener;
+    private DataBackend.ListenerRegistration currentUserListener;
     private String currentUserId;
 
     @Override
@@ -55,8 +57,9 @@ public class BaseActivity extends AppCompatActivity {
                 if (user == null) {
                     Toast.makeText(BaseActivity.this, "Your account has been deleted by an admin.", Toast.LENGTH_LONG).show();
 
-                    // מחיקת נתוני ההתחברות המקומיים
+                    // מחיקת נתוני ההתחברות המקומיים והפסקת ההאזנה להתראות
                     SharedPreferencesUtil.signOutUser(BaseActivity.this);
+                    databaseService.stopNotifications();
 
                     // העברה מיידית למסך ההתחברות וניקוי כל היסטוריית המסכים (Back Stack)
                     Intent intent = new Intent(BaseActivity.this, LoginActivity.class);
@@ -112,6 +115,15 @@ public class BaseActivity extends AppCompatActivity {
         }
     }
 
+    // כשהמערכת מבקשת לפנות זיכרון, משחררים את התמונות המפוענחות (הן ייטענו שוב מהדיסק)
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            ImageLoader.getInstance(this).clearMemory();
+        }
+    }
+
     protected void logout() {
         AuthService authService = new AuthService(this);
 
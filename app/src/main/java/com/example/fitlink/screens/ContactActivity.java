@@ -1,7 +1,6 @@
 package com.example.fitlink.screens;
 
 import android.content.Intent;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
 import android.view.MenuItem;
@@ -23,6 +22,7 @@ import androidx.drawerlayout.widget.DrawerLayout;
 import com.example.fitlink.R;
 import com.example.fitlink.models.User;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.MediaStore;
 import com.example.fitlink.utils.ImageUtil;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.button.MaterialButton;
@@ -139,17 +139,8 @@ public class ContactActivity extends BaseActivity implements NavigationView.OnNa
             tvEmail.setText(user.getEmail());
         }
 
-        String base64Image = user.getProfileImage();
-        if (base64Image != null && !base64Image.isEmpty()) {
-            Bitmap bmp = ImageUtil.convertFrom64base(base64Image);
-            if (bmp != null) {
-                imgProfile.setImageBitmap(bmp);
-            } else {
-                imgProfile.setImageResource(R.drawable.ic_user);
-            }
-        } else {
-            imgProfile.setImageResource(R.drawable.ic_user);
-        }
+        imgProfile.setImageResource(R.drawable.ic_user);
+        ImageUtil.loadImage(imgProfile, user.getProfileImage(), MediaStore.Variant.THUMBNAIL, imgProfile::setImageBitmap);
     }
 
     @Override
@@ -2,7 +2,6 @@ package com.example.fitlink.screens;
 
 import android.app.Dialog;
 import android.content.Intent;
-import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.EditText;
@@ -32,6 +31,7 @@ import com.example.fitlink.models.Event;
 import com.example.fitlink.models.Group;
 import com.example.fitlink.models.User;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.MediaStore;
 import com.example.fitlink.utils.EventReminderScheduler;
 import com.example.fitlink.utils.ImageUtil;
 import com.example.fitlink.utils.SharedPreferencesUtil;
@@ -526,7 +526,7 @@ public class EventDetailsActivity extends BaseActivity {
     }
 
     private void loadComments() {
-        databaseService.getEventComments(currentEvent.getId(), new DatabaseService.DatabaseCallback<>() {
+        databaseService.getEventComments(this, "comments", currentEvent.getId(), new DatabaseService.DatabaseCallback<>() {
             @Override
             public void onCompleted(List<Comment> comments) {
                 if (commentAdapter != null) {
@@ -559,12 +559,8 @@ public class EventDetailsActivity extends BaseActivity {
                     }
 
                     ImageView dialogImage = dialog.findViewById(R.id.dialogImage);
-                    Bitmap bmp = ImageUtil.convertFrom64base(user.getProfileImage());
-                    if (bmp != null) {
-                        dialogImage.setImageBitmap(bmp);
-                    } else {
-                        dialogImage.setImageResource(R.drawable.ic_user);
-                    }
+                    dialogImage.setImageResource(R.drawable.ic_user);
+                    ImageUtil.loadImage(dialogImage, user.getProfileImage(), MediaStore.Variant.FULL, dialogImage::setImageBitmap);
 
                     View btnClose = dialog.findViewById(R.id.card_close_full_image);
                     if (btnClose != null) {
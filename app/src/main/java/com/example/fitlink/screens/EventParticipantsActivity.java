@@ -20,12 +20,15 @@ import com.example.fitlink.R;
 import com.example.fitlink.adapters.UserAdapter;
 import com.example.fitlink.models.Event;
 import com.example.fitlink.models.User;
+import com.example.fitlink.services.BatchFetcher;
 import com.example.fitlink.services.DatabaseService;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.appbar.AppBarLayout;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class EventParticipantsActivity extends BaseActivity {
 
@@ -171,21 +174,18 @@ public class EventParticipantsActivity extends BaseActivity {
                     currentEvent = updatedEvent;
                 }
 
-                databaseService.getUserList(new DatabaseService.DatabaseCallback<>() {
+                // המשתתפים והיוצר של האירוע, נקראים לפי ה-id שלהם במקום כל המשתמשים
+                Set<String> participantIds = new LinkedHashSet<>();
+                if (currentEvent.getCreatorId() != null) participantIds.add(currentEvent.getCreatorId());
+                if (currentEvent.getParticipants() != null) participantIds.addAll(currentEvent.getParticipants().keySet());
+
+                databaseService.getUsersByIds(participantIds, new DatabaseService.DatabaseCallback<>() {
                     @Override
-                    public void onCompleted(List<User> allUsers) {
+                    public void onCompleted(BatchFetcher.Result<User> result) {
                         if (progressBar != null) progressBar.setVisibility(View.GONE);
-                        List<User> participantsList = new ArrayList<>();
-
-                        if (allUsers != null) {
-                            for (User user : allUsers) {
-                                boolean isParticipant = currentEvent.getParticipants() != null && currentEvent.getParticipants().containsKey(user.getId());
-                                boolean isCreator = currentEvent.getCreatorId() != null && currentEvent.getCreatorId().equals(user.getId());
-
-                                if (isParticipant || isCreator) {
-                                    participantsList.add(user);
-                                }
-                            }
+                        List<User> participantsList = new ArrayList<>(result.getItems());
+                        if (!result.isComplete()) {
+                            Toast.makeText(EventParticipantsActivity.this, "Some participants could not be loaded", Toast.LENGTH_SHORT).show();
                         }
 
                         if (participantsList.isEmpty()) {
@@ -230,14 +230,14 @@ public class EventsListActivity extends BaseActivity {
 
     private void loadIndependentEvents() {
         progressBar.setVisibility(View.VISIBLE);
-        databaseService.getAllIndependentEvents(new DatabaseService.DatabaseCallback<>() {
+        // קורא רק אירועים שעוד לא הסתיימו (לפי זמן ההתחלה) במקום את כל היסטוריית האירועים
+        databaseService.getUpcomingEvents(System.currentTimeMillis(), 0, new DatabaseService.DatabaseCallback<>() {
             @Override
             public void onCompleted(List<Event> events) {
-                long currentTime = System.currentTimeMillis();
                 allEvents = new ArrayList<>();
                 if (events != null) {
                     for (Event event : events) {
-                        if (event.getEndTimestamp() >= currentTime) {
+                        if (event.isIndependent()) {
                             allEvents.add(event);
                         }
                     }
@@ -22,10 +22,10 @@ import com.example.fitlink.adapters.EventAdapter;
 import com.example.fitlink.models.Event;
 import com.example.fitlink.models.Group;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.backend.DataBackend;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.appbar.AppBarLayout;
 import com.google.android.material.card.MaterialCardView;
-import com.google.firebase.database.ValueEventListener;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -44,7 +44,7 @@ public class GroupCalendarActivity extends BaseActivity {
     private TextView tvSelectedDateTitle;
     private EventAdapter eventAdapter;
     private List<Event> allGroupEvents = new ArrayList<>();
-    private ValueEventListener groupListener;
+    private DataBackend.ListenerRegistration groupListener;
     private boolean isInitialized = false;
 
     @Override
@@ -177,7 +177,7 @@ public class GroupCalendarActivity extends BaseActivity {
 
     private void loadGroupEvents() {
         progressBar.setVisibility(View.VISIBLE);
-        databaseService.getEventsByGroupId(currentGroup.getId(), new DatabaseService.DatabaseCallback<>() {
+        databaseService.getEventsByGroupId(this, "calendar", currentGroup.getId(), new DatabaseService.DatabaseCallback<>() {
             @Override
             public void onCompleted(List<Event> events) {
                 progressBar.setVisibility(View.GONE);
@@ -3,7 +3,6 @@ package com.example.fitlink.screens;
 import android.app.AlertDialog;
 import android.app.Dialog;
 import android.content.Intent;
-import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.view.View;
@@ -12,6 +11,7 @@ import android.widget.ImageView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -24,19 +24,26 @@ import com.example.fitlink.adapters.ChatAdapter;
 import com.example.fitlink.models.ChatMessage;
 import com.example.fitlink.models.Group;
 import com.example.fitlink.models.User;
+import com.example.fitlink.services.ChatJournal;
+import com.example.fitlink.services.ChatStream;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.FitLinkNotificationService;
+import com.example.fitlink.services.MediaStore;
+import com.example.fitlink.services.backend.DataBackend;
 import com.example.fitlink.utils.ImageUtil;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.button.MaterialButton;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class GroupChatActivity extends BaseActivity {
 
     // משתנה סטטי לשמירת מזהה הקבוצה הפעילה כרגע כדי למנוע התראות כפולות בזמן צ'אט
     public static String activeGroupId = null;
+    // כמה הודעות לפני ראש הרשימה מתחילים לטעון הודעות ישנות יותר
+    private static final int LOAD_OLDER_THRESHOLD = 5;
 
     private Group currentGroup;
     private RecyclerView rvChat;
@@ -46,8 +53,11 @@ public class GroupChatActivity extends BaseActivity {
     private String currentUserId;
     private String currentUserName = "Unknown";
 
-    private ValueEventListener groupListener;
+    private DataBackend.ListenerRegistration groupListener;
+    private ChatStream chatStream;
     private boolean isInitialized = false;
+    // האם כבר אושר שהמשתמש חבר בקבוצה, רק אז מסמנים את ההודעות כנקראו
+    private boolean isMember = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -63,12 +73,20 @@ public class GroupChatActivity extends BaseActivity {
         }
 
         currentUserId = SharedPreferencesUtil.getUserId(this);
+        if (currentUserId == null) {
+            Toast.makeText(this, "User not found. Please log in again.", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+
+        messageList = new ArrayList<>();
 
         // מאזין זמן אמת לקבוצה - אם המשתמש מוסר, הוא נזרק מהצ'אט
         groupListener = DatabaseService.getInstance().listenToGroup(groupId, new DatabaseService.DatabaseCallback<>() {
             @Override
             public void onCompleted(Group group) {
                 if (group == null) {
+                    isMember = false;
                     Toast.makeText(GroupChatActivity.this, "This group no longer exists.", Toast.LENGTH_SHORT).show();
                     finish();
                     return;
@@ -76,16 +94,20 @@ public class GroupChatActivity extends BaseActivity {
 
                 // העפה מיידית אם המשתמש כבר לא ברשימת המשתתפים
                 if (group.getMembers() == null || !group.getMembers().containsKey(currentUserId)) {
+                    isMember = false;
                     Toast.makeText(GroupChatActivity.this, "You are no longer a member of this group.", Toast.LENGTH_LONG).show();
                     finish();
                     return;
                 }
 
                 currentGroup = group;
+                isMember = true;
 
                 if (!isInitialized) {
                     isInitialized = true;
                     continueInitialization();
+                    // המסך כבר הוצג לפני שהחברות אושרה
+                    markAsRead();
                 } else {
                     // עדכון הרשאות דינמי בזמן אמת (למקרה שמישהו מונה או הוסר מניהול בזמן שהוא בצ'אט)
                     if (adapter != null) {
@@ -107,6 +129,11 @@ public class GroupChatActivity extends BaseActivity {
         super.onResume();
         // כשהמסך מוצג למשתמש, נשמור איזה צ'אט פתוח
         activeGroupId = getIntent().getStringExtra("GROUP_ID");
+        markAsRead();
+        // ההודעות של הקבוצה מוצגות במסך, אין צורך בהתראה שלהן
+        if (activeGroupId != null) {
+            FitLinkNotificationService.getInstance(this).clearChatNotification(activeGroupId);
+        }
     }
 
     @Override
@@ -114,6 +141,15 @@ public class GroupChatActivity extends BaseActivity {
         super.onPause();
         // כשהמשתמש יוצא מהמסך, נאפס את המשתנה
         activeGroupId = null;
+        // ההודעות שהגיעו בזמן שהמסך היה פתוח כבר נקראו
+        markAsRead();
+    }
+
+    // איפוס מונה ההודעות שלא נקראו של המשתמש בקבוצה הזו, רק אחרי שאושר שהוא חבר בה
+    private void markAsRead() {
+        String groupId = getIntent().getStringExtra("GROUP_ID");
+        if (!isMember || currentUserId == null || groupId == null) return;
+        databaseService.markGroupRead(currentUserId, groupId, null);
     }
 
     @Override
@@ -126,9 +162,10 @@ public class GroupChatActivity extends BaseActivity {
     }
 
     private void continueInitialization() {
-        messageList = new ArrayList<>();
         initViews();
-        fetchUserDetailsAndListenToChat();
+        // ההודעות נטענות רק אחרי שאושר שהמשתמש חבר בקבוצה
+        listenToMessages(getIntent().getStringExtra("GROUP_ID"));
+        fetchUserDetails();
     }
 
     private void initViews() {
@@ -194,40 +231,66 @@ public class GroupChatActivity extends BaseActivity {
         });
         rvChat.setAdapter(adapter);
 
+        // טעינת הודעות ישנות יותר כשהמשתמש גולל קרוב לראש הצ'אט
+        rvChat.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy >= 0 || chatStream == null || !chatStream.hasOlder()) return;
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null && layoutManager.findFirstVisibleItemPosition() <= LOAD_OLDER_THRESHOLD) {
+                    chatStream.loadOlder(null);
+                }
+            }
+        });
+
         btnSend.setOnClickListener(v -> sendMessage());
     }
 
-    private void fetchUserDetailsAndListenToChat() {
+    private void fetchUserDetails() {
         DatabaseService.getInstance().getUser(currentUserId, new DatabaseService.DatabaseCallback<>() {
             @Override
             public void onCompleted(User user) {
                 if (user != null) {
                     currentUserName = user.getFirstName() + " " + user.getLastName();
                 }
-                listenToMessages();
             }
 
             @Override
             public void onFailed(Exception e) {
-                listenToMessages();
             }
         });
     }
 
-    private void listenToMessages() {
-        DatabaseService.getInstance().listenForGroupMessages(currentGroup.getId(), new DatabaseService.DatabaseCallback<>() {
+    private void listenToMessages(String groupId) {
+        ChatJournal journal = ChatJournal.forUser(this, currentUserId);
+        chatStream = DatabaseService.getInstance().listenForGroupMessages(this, groupId, journal, new ChatStream.Listener() {
             @Override
-            public void onCompleted(List<ChatMessage> messages) {
-                messageList.clear();
-                messageList.addAll(messages);
-                adapter.notifyDataSetChanged();
-                if (!messageList.isEmpty()) {
+            public void onMessagesInserted(int position, @NonNull List<ChatMessage> inserted) {
+                boolean isAppended = position == messageList.size();
+                messageList.addAll(position, inserted);
+                // נגלול למטה רק אם המשתמש כבר היה בתחתית הצ'אט או שזו הודעה שהוא שלח בעצמו
+                boolean isAtBottom = !rvChat.canScrollVertically(1);
+                adapter.notifyItemRangeInserted(position, inserted.size());
+                boolean isMine = inserted.size() == 1 && Objects.equals(currentUserId, inserted.get(0).getSenderId());
+                if (isAppended && (isAtBottom || isMine)) {
                     rvChat.scrollToPosition(messageList.size() - 1);
                 }
             }
 
             @Override
-            public void onFailed(Exception e) {
+            public void onMessageChanged(int position, @NonNull ChatMessage message) {
+                messageList.set(position, message);
+                adapter.notifyItemChanged(position);
+            }
+
+            @Override
+            public void onMessagesRemoved(int position, int count) {
+                messageList.subList(position, position + count).clear();
+                adapter.notifyItemRangeRemoved(position, count);
+            }
+
+            @Override
+            public void onFailed(@NonNull Exception e) {
                 Toast.makeText(GroupChatActivity.this, "Failed to load messages", Toast.LENGTH_SHORT).show();
             }
         });
@@ -248,6 +311,8 @@ public class GroupChatActivity extends BaseActivity {
             @Override
             public void onFailed(Exception e) {
                 Toast.makeText(GroupChatActivity.this, "Failed to send", Toast.LENGTH_SHORT).show();
+                // מחזירים את הטקסט כדי שלא ילך לאיבוד, אלא אם המשתמש כבר התחיל הודעה חדשה
+                if (TextUtils.isEmpty(etMessage.getText())) etMessage.setText(text);
             }
         });
     }
@@ -280,12 +345,8 @@ public class GroupChatActivity extends BaseActivity {
                     }
 
                     ImageView dialogImage = dialog.findViewById(R.id.dialogImage);
-                    Bitmap bmp = ImageUtil.convertFrom64base(user.getProfileImage());
-                    if (bmp != null) {
-                        dialogImage.setImageBitmap(bmp);
-                    } else {
-                        dialogImage.setImageResource(R.drawable.ic_user);
-                    }
+                    dialogImage.setImageResource(R.drawable.ic_user);
+                    ImageUtil.loadImage(dialogImage, user.getProfileImage(), MediaStore.Variant.FULL, dialogImage::setImageBitmap);
 
                     View btnClose = dialog.findViewById(R.id.card_close_full_image);
                     if (btnClose != null) {
@@ -32,13 +32,14 @@ import com.example.fitlink.dialogs.LeaveGroupDialog;
 import com.example.fitlink.dialogs.ProfileImageDialog;
 import com.example.fitlink.models.Group;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.MediaStore;
+import com.example.fitlink.services.backend.DataBackend;
 import com.example.fitlink.utils.ImageUtil;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.appbar.AppBarLayout;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.chip.Chip;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.Objects;
 
@@ -70,7 +71,7 @@ public class GroupDashboardActivity extends BaseActivity {
                 }
             }
     );
-    private ValueEventListener groupListener;
+    private DataBackend.ListenerRegistration groupListener;
     private boolean isInitialized = false;
 
     public ActivityResultLauncher<Intent> getMapPickerLauncher() {
@@ -330,8 +331,7 @@ public class GroupDashboardActivity extends BaseActivity {
         }
 
         if (currentGroup.getGroupImage() != null && !currentGroup.getGroupImage().isEmpty()) {
-            Bitmap bmp = ImageUtil.convertFrom64base(currentGroup.getGroupImage());
-            if (bmp != null) imgGroupPhoto.setImageBitmap(bmp);
+            ImageUtil.loadImage(imgGroupPhoto, currentGroup.getGroupImage(), MediaStore.Variant.FULL, imgGroupPhoto::setImageBitmap);
         } else {
             imgGroupPhoto.setImageResource(R.drawable.ic_sport);
         }
@@ -466,10 +466,15 @@ public class GroupDashboardActivity extends BaseActivity {
         if (bitmap != null) {
             imgGroupPhoto.setImageBitmap(bitmap);
 
-            String base64 = ImageUtil.convertTo64Base(imgGroupPhoto);
-            currentGroup.setGroupImage(base64);
-
-            saveGroupImage("Group photo updated!");
+            // מקטינים ומכווצים את התמונה ברקע לפני השמירה
+            ImageUtil.encodeForUpload(bitmap, base64 -> {
+                if (base64 == null) {
+                    Toast.makeText(GroupDashboardActivity.this, "Failed to update photo", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                currentGroup.setGroupImage(base64);
+                saveGroupImage("Group photo updated!");
+            });
         }
     }
 
@@ -228,7 +228,7 @@ public class GroupsListActivity extends BaseActivity {
 
     private void loadGroups() {
         progressBar.setVisibility(View.VISIBLE);
-        databaseService.getAllGroups(new DatabaseService.DatabaseCallback<>() {
+        databaseService.getAllGroups(this, "groups_list", new DatabaseService.DatabaseCallback<>() {
             @Override
             public void onCompleted(List<Group> groups) {
                 allGroups = (groups != null) ? groups : new ArrayList<>();
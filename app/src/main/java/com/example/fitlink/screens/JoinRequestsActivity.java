@@ -20,10 +20,11 @@ import com.example.fitlink.R;
 import com.example.fitlink.adapters.JoinRequestAdapter;
 import com.example.fitlink.models.Group;
 import com.example.fitlink.models.User;
+import com.example.fitlink.services.BatchFetcher;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.backend.DataBackend;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.appbar.AppBarLayout;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -38,7 +39,7 @@ public class JoinRequestsActivity extends BaseActivity {
     private JoinRequestAdapter adapter;
 
     private String currentUserId;
-    private ValueEventListener groupListener;
+    private DataBackend.ListenerRegistration groupListener;
     private boolean isInitialized = false;
 
     @Override
@@ -184,18 +185,13 @@ public class JoinRequestsActivity extends BaseActivity {
             return;
         }
 
-        databaseService.getUserList(new DatabaseService.DatabaseCallback<>() {
+        databaseService.getUsersByIds(currentGroup.getPendingRequests().keySet(), new DatabaseService.DatabaseCallback<>() {
             @Override
-            public void onCompleted(List<User> allUsers) {
+            public void onCompleted(BatchFetcher.Result<User> result) {
                 progressBar.setVisibility(View.GONE);
-                List<User> pendingUsers = new ArrayList<>();
-
-                if (allUsers != null) {
-                    for (User user : allUsers) {
-                        if (currentGroup.getPendingRequests().containsKey(user.getId())) {
-                            pendingUsers.add(user);
-                        }
-                    }
+                List<User> pendingUsers = new ArrayList<>(result.getItems());
+                if (!result.isComplete()) {
+                    Toast.makeText(JoinRequestsActivity.this, "Some requests could not be loaded", Toast.LENGTH_SHORT).show();
                 }
 
                 if (pendingUsers.isEmpty()) {
@@ -3,7 +3,6 @@ package com.example.fitlink.screens;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.graphics.Bitmap;
 import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
@@ -25,16 +24,24 @@ import androidx.drawerlayout.widget.DrawerLayout;
 import com.example.fitlink.R;
 import com.example.fitlink.models.Event;
 import com.example.fitlink.models.User;
+import com.example.fitlink.services.BatchFetcher;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.MediaStore;
 import com.example.fitlink.utils.EventReminderScheduler;
 import com.example.fitlink.utils.ImageUtil;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.navigation.NavigationView;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 public class MainActivity extends BaseActivity implements View.OnClickListener, NavigationView.OnNavigationItemSelectedListener {
 
     private static final String TAG = "MainActivity";
+    // כמה זמן נשמרות רשומות בתיבת ההתראות של המשתמש
+    private static final long INBOX_RETENTION = TimeUnit.DAYS.toMillis(14);
 
     private MaterialButton btnJoinorCreateGroup;
     private MaterialButton btnJoinorCreateEvent;
@@ -102,51 +109,47 @@ public class MainActivity extends BaseActivity implements View.OnClickListener,
         // --- ניהול והפעלת התראות ---
         String currentUserId = SharedPreferencesUtil.getUserId(this);
         if (currentUserId != null) {
-            // 1. האזנה לבקשות הצטרפות לקבוצות (בזמן אמת)
-            DatabaseService.getInstance().listenForNewJoinRequests(currentUserId, this);
-
-            // 2. האזנה להודעות חדשות בצ'אט הקבוצתי (בזמן אמת)
-            DatabaseService.getInstance().listenForNewChatMessages(currentUserId, this);
+            // 1. האזנה לתיבת ההתראות של המשתמש: בקשות הצטרפות, הודעות בצ'אט ואירועים חדשים (בזמן אמת).
+            // מאזין אחד למשתמש, גם כשהמסך נוצר מחדש
+            DatabaseService.getInstance().listenForNotifications(currentUserId, this);
 
-            // 3. האזנה לאירועים חדשים בקבוצות (בזמן אמת)
-            DatabaseService.getInstance().listenForNewEvents(currentUserId, this);
+            // 2. מחיקת רשומות ישנות מתיבת ההתראות
+            DatabaseService.getInstance().trimInbox(currentUserId, System.currentTimeMillis() - INBOX_RETENTION, null);
 
-            // 4. תזמון מחדש של התראות תזכורת לכל האירועים העתידיים של המשתמש
-            scheduleFutureEventReminders(currentUserId);
+            // 3. סנכרון התזכורות עם רשימת האירועים של המשתמש, בכל פעם שהיא משתנה
+            listenForEventReminders(currentUserId);
         }
     }
 
     /**
-     * פונקציית עזר העוברת על כל האירועים של המשתמש ומתזמנת עבורם
-     * התראה ל-24 שעות לפני תחילת האירוע באמצעות WorkManager
+     * פונקציית עזר המאזינה לרשימת האירועים של המשתמש ומעדכנת את תור התזכורות.
+     * נקראים רק אירועים חדשים (או כאלה שלא נקראו זמן רב), ולא כל האירועים בכל הפעלה
      */
-    private void scheduleFutureEventReminders(String userId) {
-        DatabaseService.getInstance().getUser(userId, new DatabaseService.DatabaseCallback<>() {
+    private void listenForEventReminders(String userId) {
+        DatabaseService.getInstance().listenToUserEventIds(this, "event_reminders", userId, new DatabaseService.DatabaseCallback<>() {
             @Override
-            public void onCompleted(User currentUser) {
-                if (currentUser != null && currentUser.getEventIds() != null) {
-                    for (String eventId : currentUser.getEventIds().keySet()) {
-                        DatabaseService.getInstance().getEvent(eventId, new DatabaseService.DatabaseCallback<>() {
+            public void onCompleted(List<String> eventIds) {
+                // עדכון התור נעשה ברקע, ואז קריאה של האירועים החדשים במקביל מוגבל
+                EventReminderScheduler.reconcile(MainActivity.this, eventIds, toRead ->
+                        DatabaseService.getInstance().getEventsByIds(toRead, new DatabaseService.DatabaseCallback<>() {
                             @Override
-                            public void onCompleted(Event event) {
-                                // מתזמן רק אירועים שעדיין לא התחילו
-                                if (event != null && event.getStartTimestamp() > System.currentTimeMillis()) {
-                                    EventReminderScheduler.scheduleReminder(MainActivity.this, event);
+                            public void onCompleted(BatchFetcher.Result<Event> result) {
+                                EventReminderScheduler.scheduleReminders(MainActivity.this, result.getItems(), result.getMissingIds());
+                                for (Map.Entry<String, Exception> failure : result.getFailures().entrySet()) {
+                                    Log.e(TAG, "Failed to load event " + failure.getKey() + " for scheduling reminder", failure.getValue());
                                 }
                             }
 
                             @Override
                             public void onFailed(Exception e) {
-                                Log.e(TAG, "Failed to load event for scheduling reminder", e);
+                                Log.e(TAG, "Failed to load events for scheduling reminders", e);
                             }
-                        });
-                    }
-                }
+                        }));
             }
 
             @Override
             public void onFailed(Exception e) {
-                Log.e(TAG, "Failed to load user for scheduling event reminders", e);
+                Log.e(TAG, "Failed to listen to the events of the user for scheduling reminders", e);
             }
         });
     }
@@ -213,18 +216,9 @@ public class MainActivity extends BaseActivity implements View.OnClickListener,
             tvEmail.setText(user.getEmail());
         }
 
-        // עדכון תמונת פרופיל (אם קיימת)
-        String base64Image = user.getProfileImage();
-        if (base64Image != null && !base64Image.isEmpty()) {
-            Bitmap bmp = ImageUtil.convertFrom64base(base64Image);
-            if (bmp != null) {
-                imgProfile.setImageBitmap(bmp);
-            } else {
-                imgProfile.setImageResource(R.drawable.ic_user); // תמונת ברירת מחדל
-            }
-        } else {
-            imgProfile.setImageResource(R.drawable.ic_user); // תמונת ברירת מחדל
-        }
+        // עדכון תמונת פרופיל (אם קיימת), עד שהיא נטענת מוצגת תמונת ברירת המחדל
+        imgProfile.setImageResource(R.drawable.ic_user);
+        ImageUtil.loadImage(imgProfile, user.getProfileImage(), MediaStore.Variant.THUMBNAIL, imgProfile::setImageBitmap);
     }
 
     @Override
@@ -20,13 +20,16 @@ import com.example.fitlink.R;
 import com.example.fitlink.adapters.UserAdapter;
 import com.example.fitlink.models.Group;
 import com.example.fitlink.models.User;
+import com.example.fitlink.services.BatchFetcher;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.backend.DataBackend;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.appbar.AppBarLayout;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class MembersListActivity extends BaseActivity {
 
@@ -41,7 +44,7 @@ public class MembersListActivity extends BaseActivity {
     private boolean isGroupCreator = false;
     private boolean isGroupManager = false;
 
-    private ValueEventListener groupListener;
+    private DataBackend.ListenerRegistration groupListener;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -203,24 +206,20 @@ public class MembersListActivity extends BaseActivity {
         });
     }
 
-    // ה-Listener דואג לעדכון הקבוצה, אז כאן אנחנו שואבים רק את רשימת המשתמשים כדי לסננן מתוכה את החברים
+    // ה-Listener דואג לעדכון הקבוצה, אז כאן אנחנו קוראים רק את המשתמשים שהם חברי הקבוצה לפי ה-id שלהם
     private void loadGroupMembers() {
         progressBar.setVisibility(View.VISIBLE);
         layoutNoMembers.setVisibility(View.GONE);
         tvMembersCount.setVisibility(View.GONE);
 
-        databaseService.getUserList(new DatabaseService.DatabaseCallback<>() {
+        Set<String> memberIds = currentGroup.getMembers() != null ? currentGroup.getMembers().keySet() : new HashSet<>();
+        databaseService.getUsersByIds(memberIds, new DatabaseService.DatabaseCallback<>() {
             @Override
-            public void onCompleted(List<User> allUsers) {
+            public void onCompleted(BatchFetcher.Result<User> result) {
                 progressBar.setVisibility(View.GONE);
-                List<User> groupMembers = new ArrayList<>();
-
-                if (allUsers != null && currentGroup.getMembers() != null) {
-                    for (User user : allUsers) {
-                        if (currentGroup.getMembers().containsKey(user.getId())) {
-                            groupMembers.add(user);
-                        }
-                    }
+                List<User> groupMembers = new ArrayList<>(result.getItems());
+                if (!result.isComplete()) {
+                    Toast.makeText(MembersListActivity.this, "Some members could not be loaded", Toast.LENGTH_SHORT).show();
                 }
 
                 if (groupMembers.isEmpty()) {
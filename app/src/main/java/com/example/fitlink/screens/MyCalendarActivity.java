@@ -20,6 +20,7 @@ import com.applandeo.materialcalendarview.EventDay;
 import com.example.fitlink.R;
 import com.example.fitlink.adapters.EventAdapter;
 import com.example.fitlink.models.Event;
+import com.example.fitlink.services.BatchFetcher;
 import com.example.fitlink.services.DatabaseService;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.card.MaterialCardView;
@@ -63,7 +64,12 @@ public class MyCalendarActivity extends BaseActivity {
         setupRecyclerView();
         setupCalendar();
         setupFilters();
+    }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // טעינה מחדש, למקרה שהמשתמש הצטרף או עזב אירוע במסך אחר
         loadMyEvents();
     }
 
@@ -141,19 +147,20 @@ public class MyCalendarActivity extends BaseActivity {
     private void loadMyEvents() {
         progressBar.setVisibility(View.VISIBLE);
 
-        databaseService.getAllEvents(new DatabaseService.DatabaseCallback<>() {
+        // קורא רק את האירועים של המשתמש (לפי eventIds) במקום לסרוק את כל האירועים
+        databaseService.getEventsForUser(currentUserId, new DatabaseService.DatabaseCallback<>() {
             @Override
-            public void onCompleted(List<Event> events) {
+            public void onCompleted(BatchFetcher.Result<Event> result) {
                 // התיקון: הסרנו את הסתרת ה-ProgressBar מכאן
                 allMyEvents = new ArrayList<>();
-
-                if (events != null) {
-                    for (Event event : events) {
-                        if (event.getParticipants() != null && event.getParticipants().containsKey(currentUserId)) {
-                            allMyEvents.add(event);
-                        }
+                for (Event event : result.getItems()) {
+                    if (event.getParticipants() != null && event.getParticipants().containsKey(currentUserId)) {
+                        allMyEvents.add(event);
                     }
                 }
+                if (!result.isComplete()) {
+                    Toast.makeText(MyCalendarActivity.this, "Some of your events failed to load", Toast.LENGTH_SHORT).show();
+                }
 
                 updateCalendarEventMarkers();
                 filterEvents();
@@ -25,7 +25,7 @@ import com.example.fitlink.dialogs.GroupFilterDialog;
 import com.example.fitlink.enums.DifficultyLevel;
 import com.example.fitlink.enums.SportType;
 import com.example.fitlink.models.Group;
-import com.example.fitlink.models.User;
+import com.example.fitlink.services.BatchFetcher;
 import com.example.fitlink.services.DatabaseService;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.button.MaterialButton;
@@ -152,6 +152,20 @@ public class MyGroupsActivity extends BaseActivity {
         });
 
         rvMyGroups.setAdapter(adapter);
+
+        // מאזין אחד למוני ההודעות שלא נקראו בכל הקבוצות, בלי לפתוח את הצ'אט של כל קבוצה
+        if (currentUserId != null) {
+            databaseService.listenToUnreadCounts(this, "unread_counts", currentUserId, new DatabaseService.DatabaseCallback<>() {
+                @Override
+                public void onCompleted(Map<String, Integer> counts) {
+                    adapter.setUnreadCounts(counts);
+                }
+
+                @Override
+                public void onFailed(Exception e) {
+                }
+            });
+        }
     }
 
     @Override
@@ -166,34 +180,15 @@ public class MyGroupsActivity extends BaseActivity {
 
         String currentUserId = SharedPreferencesUtil.getUserId(this);
 
-        databaseService.getUser(Objects.requireNonNull(currentUserId), new DatabaseService.DatabaseCallback<>() {
+        // קורא רק את הקבוצות של המשתמש (לפי groupIds) במקום לסרוק את כל הקבוצות
+        databaseService.getGroupsForUser(Objects.requireNonNull(currentUserId), new DatabaseService.DatabaseCallback<>() {
             @Override
-            public void onCompleted(User user) {
-                if (user == null || user.getGroupIds() == null || user.getGroupIds().isEmpty()) {
-                    allMyGroups = new ArrayList<>();
-                    executeSearch();
-                    return;
+            public void onCompleted(BatchFetcher.Result<Group> result) {
+                allMyGroups = new ArrayList<>(result.getItems());
+                if (!result.isComplete()) {
+                    Toast.makeText(MyGroupsActivity.this, "Some of your groups failed to load", Toast.LENGTH_SHORT).show();
                 }
-
-                Map<String, Boolean> myGroupIds = user.getGroupIds();
-
-                databaseService.getAllGroups(new DatabaseService.DatabaseCallback<>() {
-                    @Override
-                    public void onCompleted(List<Group> allGroupsList) {
-                        allMyGroups = new ArrayList<>();
-                        for (Group group : allGroupsList) {
-                            if (myGroupIds.containsKey(group.getId())) {
-                                allMyGroups.add(group);
-                            }
-                        }
-                        executeSearch();
-                    }
-
-                    @Override
-                    public void onFailed(Exception e) {
-                        handleError(e);
-                    }
-                });
+                executeSearch();
             }
 
             @Override
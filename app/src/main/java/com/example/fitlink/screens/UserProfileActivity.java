@@ -34,12 +34,13 @@ import com.example.fitlink.dialogs.EditUserDialog;
 import com.example.fitlink.dialogs.ProfileImageDialog;
 import com.example.fitlink.models.Event;
 import com.example.fitlink.models.User;
+import com.example.fitlink.services.BatchFetcher;
 import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.MediaStore;
 import com.example.fitlink.utils.ImageUtil;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 import com.google.android.material.navigation.NavigationView;
 
-import java.util.List;
 import java.util.Objects;
 
 public class UserProfileActivity extends BaseActivity implements NavigationView.OnNavigationItemSelectedListener {
@@ -228,17 +229,8 @@ public class UserProfileActivity extends BaseActivity implements NavigationView.
             tvEmail.setText(user.getEmail());
         }
 
-        String base64Image = user.getProfileImage();
-        if (base64Image != null && !base64Image.isEmpty()) {
-            Bitmap bmp = ImageUtil.convertFrom64base(base64Image);
-            if (bmp != null) {
-                imgProfile.setImageBitmap(bmp);
-            } else {
-                imgProfile.setImageResource(R.drawable.ic_user);
-            }
-        } else {
-            imgProfile.setImageResource(R.drawable.ic_user);
-        }
+        imgProfile.setImageResource(R.drawable.ic_user);
+        ImageUtil.loadImage(imgProfile, user.getProfileImage(), MediaStore.Variant.THUMBNAIL, imgProfile::setImageBitmap);
     }
 
     @Override
@@ -334,16 +326,8 @@ public class UserProfileActivity extends BaseActivity implements NavigationView.
             txtPassword.setText(user.getPassword());
         }
 
-        if (user.getProfileImage() != null && !user.getProfileImage().isEmpty()) {
-            Bitmap bmp = ImageUtil.convertFrom64base(user.getProfileImage());
-            if (bmp != null) {
-                imgUserProfile.setImageBitmap(bmp);
-            } else {
-                imgUserProfile.setImageResource(R.drawable.ic_user);
-            }
-        } else {
-            imgUserProfile.setImageResource(R.drawable.ic_user);
-        }
+        imgUserProfile.setImageResource(R.drawable.ic_user);
+        ImageUtil.loadImage(imgUserProfile, user.getProfileImage(), MediaStore.Variant.FULL, imgUserProfile::setImageBitmap);
 
         loadUserStats();
     }
@@ -352,21 +336,20 @@ public class UserProfileActivity extends BaseActivity implements NavigationView.
         int groupsCount = user.getGroupIds() != null ? user.getGroupIds().size() : 0;
         txtStatGroups.setText(String.valueOf(groupsCount));
 
-        DatabaseService.getInstance().getAllEvents(new DatabaseService.DatabaseCallback<>() {
+        // קורא רק את האירועים של המשתמש (לפי eventIds) במקום לסרוק את כל האירועים
+        DatabaseService.getInstance().getEventsForUser(user.getId(), new DatabaseService.DatabaseCallback<>() {
             @Override
-            public void onCompleted(List<Event> events) {
+            public void onCompleted(BatchFetcher.Result<Event> result) {
                 int upcomingCount = 0;
                 int completedCount = user.getPastEventsCount();
                 long currentTime = System.currentTimeMillis();
 
-                if (events != null) {
-                    for (Event event : events) {
-                        if (event.getParticipants() != null && event.getParticipants().containsKey(user.getId())) {
-                            if (event.getEndTimestamp() < currentTime) {
-                                completedCount++;
-                            } else {
-                                upcomingCount++;
-                            }
+                for (Event event : result.getItems()) {
+                    if (event.getParticipants() != null && event.getParticipants().containsKey(user.getId())) {
+                        if (event.getEndTimestamp() < currentTime) {
+                            completedCount++;
+                        } else {
+                            upcomingCount++;
                         }
                     }
                 }
@@ -510,9 +493,15 @@ public class UserProfileActivity extends BaseActivity implements NavigationView.
 
         if (bitmap != null) {
             imgUserProfile.setImageBitmap(bitmap);
-            String base64 = ImageUtil.convertTo64Base(imgUserProfile);
-            user.setProfileImage(base64);
-            saveProfileImage();
+            // מקטינים ומכווצים את התמונה ברקע לפני השמירה
+            ImageUtil.encodeForUpload(bitmap, base64 -> {
+                if (base64 == null) {
+                    Toast.makeText(UserProfileActivity.this, "Error updating image", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                user.setProfileImage(base64);
+                saveProfileImage();
+            });
         }
     }
 
@@ -3,6 +3,7 @@ package com.example.fitlink.services;
 import android.content.Context;
 
 import com.example.fitlink.models.User;
+import com.example.fitlink.utils.EventReminderScheduler;
 import com.example.fitlink.utils.SharedPreferencesUtil;
 
 public class AuthService {
@@ -18,6 +19,16 @@ public class AuthService {
 
         String email = user != null ? user.getEmail() : "";
         SharedPreferencesUtil.signOutUser(context);
+        // הפסקת ההאזנה להתראות של המשתמש שהתנתק
+        DatabaseService.getInstance().stopNotifications();
+        // מחיקת ההודעות שנשמרו במכשיר עבור המשתמש שהתנתק
+        if (user != null && user.getId() != null) {
+            DatabaseService.getInstance().clearChatJournal(ChatJournal.forUser(context, user.getId()));
+            // מחיקת רשימת ההתראות שכבר הוצגו
+            SeenSet.forUser(context, user.getId()).clear();
+            // ביטול התזכורות לאירועים של המשתמש
+            EventReminderScheduler.clear(context, user.getId());
+        }
 
         return email;
     }
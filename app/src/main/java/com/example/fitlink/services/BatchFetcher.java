@@ -0,0 +1,180 @@
+package com.example.fitlink.services;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/// reads many objects by id with at most a fixed number of reads in flight at once,
+/// instead of starting one unbounded read per id
+///
+/// the callback is called once, after every read finished. a failed read doesn't fail the batch:
+/// the result has the objects that were read, the ids that don't exist anymore and the ids that failed
+///
+/// @param <T> the class of the objects
+/// @see DatabaseService#getEventsForUser(String, DatabaseService.DatabaseCallback)
+public class BatchFetcher<T> {
+
+    private final int maxInFlight;
+    private final Reader<T> reader;
+    @Nullable
+    private final Comparator<? super T> order;
+
+    /// @param maxInFlight the maximal number of reads running at the same time
+    /// @param reader      reads a single object by its id
+    /// @param order       the order of the result, or null to keep the order of the ids
+    public BatchFetcher(int maxInFlight, @NonNull Reader<T> reader, @Nullable Comparator<? super T> order) {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive");
+        this.maxInFlight = maxInFlight;
+        this.reader = reader;
+        this.order = order;
+    }
+
+    /// read all the ids
+    ///
+    /// @param ids      the ids to read, duplicates are read once
+    /// @param callback called once with the result, never with onFailed()
+    public void fetch(@NonNull Collection<String> ids, @NonNull DatabaseService.DatabaseCallback<Result<T>> callback) {
+        new Batch(new ArrayList<>(new LinkedHashSet<>(ids)), callback).pump();
+    }
+
+    /// reads a single object by id, e.g. a DatabaseService getter
+    public interface Reader<T> {
+        void read(@NonNull String id, @NonNull DatabaseService.DatabaseCallback<T> callback);
+    }
+
+    /// the result of a batch
+    public static final class Result<T> {
+        private final List<T> items;
+        private final List<String> missingIds;
+        private final Map<String, Exception> failures;
+
+        Result(@NonNull List<T> items, @NonNull List<String> missingIds, @NonNull Map<String, Exception> failures) {
+            this.items = Collections.unmodifiableList(items);
+            this.missingIds = Collections.unmodifiableList(missingIds);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        /// @return the objects that were read
+        @NonNull
+        public List<T> getItems() {
+            return items;
+        }
+
+        /// @return the ids that have no object (e.g. an event that was deleted)
+        @NonNull
+        public List<String> getMissingIds() {
+            return missingIds;
+        }
+
+        /// @return the ids whose read failed, and why
+        @NonNull
+        public Map<String, Exception> getFailures() {
+            return failures;
+        }
+
+        /// @return true if every read succeeded
+        public boolean isComplete() {
+            return failures.isEmpty();
+        }
+    }
+
+    /// the state of one call to fetch()
+    private final class Batch {
+        final List<String> ids;
+        final DatabaseService.DatabaseCallback<Result<T>> callback;
+        final Object[] results;
+        final Exception[] errors;
+        int next = 0;
+        int inFlight = 0;
+        int finished = 0;
+        /// guards against starting reads from a read that completed synchronously
+        boolean isPumping = false;
+        boolean isDelivered = false;
+
+        Batch(@NonNull List<String> ids, @NonNull DatabaseService.DatabaseCallback<Result<T>> callback) {
+            this.ids = ids;
+            this.callback = callback;
+            this.results = new Object[ids.size()];
+            this.errors = new Exception[ids.size()];
+        }
+
+        void pump() {
+            List<Integer> toStart = new ArrayList<>();
+            boolean deliver;
+            synchronized (this) {
+                if (isPumping) return;
+                isPumping = true;
+            }
+            while (true) {
+                synchronized (this) {
+                    toStart.clear();
+                    while (inFlight < maxInFlight && next < ids.size()) {
+                        toStart.add(next++);
+                        inFlight++;
+                    }
+                    if (toStart.isEmpty()) {
+                        isPumping = false;
+                        deliver = finished == ids.size() && !isDelivered;
+                        if (deliver) isDelivered = true;
+                        break;
+                    }
+                }
+                for (int index : toStart) {
+                    start(index);
+                }
+            }
+            if (deliver) callback.onCompleted(buildResult());
+        }
+
+        void start(int index) {
+            reader.read(ids.get(index), new DatabaseService.DatabaseCallback<>() {
+                @Override
+                public void onCompleted(T object) {
+                    finish(index, object, null);
+                }
+
+                @Override
+                public void onFailed(Exception e) {
+                    finish(index, null, e);
+                }
+            });
+        }
+
+        void finish(int index, @Nullable T object, @Nullable Exception e) {
+            synchronized (this) {
+                results[index] = object;
+                errors[index] = e;
+                inFlight--;
+                finished++;
+            }
+            pump();
+        }
+
+        @NonNull
+        @SuppressWarnings("unchecked")
+        synchronized Result<T> buildResult() {
+            List<T> items = new ArrayList<>(ids.size());
+            List<String> missingIds = new ArrayList<>();
+            Map<String, Exception> failures = new LinkedHashMap<>();
+            for (int i = 0; i < ids.size(); i++) {
+                if (errors[i] != null) {
+                    failures.put(ids.get(i), errors[i]);
+                } else if (results[i] == null) {
+                    missingIds.add(ids.get(i));
+                } else {
+                    items.add((T) results[i]);
+                }
+            }
+            if (order != null) items.sort(order);
+            return new Result<>(items, missingIds, failures);
+        }
+    }
+}
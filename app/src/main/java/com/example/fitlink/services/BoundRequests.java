@@ -0,0 +1,199 @@
+package com.example.fitlink.services;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// runs reads that belong to an owner, e.g. the name and avatar of a row in a list, with at most a fixed
+/// number of reads in flight at once
+///
+/// every owner has named slots. loading a slot again supersedes the previous load of the slot: if it didn't
+/// start yet it is dropped, otherwise its result is ignored. cancelling an owner (a row that was recycled)
+/// does the same for all its slots. when there is room for another read, the reads of urgent owners
+/// (rows on the screen) start first, then the others in the order they were loaded
+///
+/// not thread safe, used from the main thread like the adapters
+///
+/// @param <O> the class of the owners
+public class BoundRequests<O> {
+
+    private final int maxInFlight;
+    private final Priority<O> priority;
+    private final Map<O, Map<String, Pending<?>>> bound = new HashMap<>();
+    private final List<Pending<?>> queue = new ArrayList<>();
+    private int inFlight = 0;
+    /// guards against starting reads from a read that completed synchronously
+    private boolean isDraining = false;
+    private long startedCount = 0;
+    private long droppedCount = 0;
+    private long ignoredCount = 0;
+
+    /// @param maxInFlight the maximal number of reads running at the same time
+    /// @param priority    tells which owners are urgent
+    public BoundRequests(int maxInFlight, @NonNull Priority<O> priority) {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive");
+        this.maxInFlight = maxInFlight;
+        this.priority = priority;
+    }
+
+    /// load a slot of an owner, superseding the previous load of the slot
+    ///
+    /// @param owner    the owner of the load
+    /// @param slot     the name of the slot, e.g. "creator"
+    /// @param request  starts the read
+    /// @param callback called with the result, only if the load wasn't superseded or cancelled
+    public <T> void load(@NonNull O owner, @NonNull String slot, @NonNull Request<T> request,
+                         @NonNull DatabaseService.DatabaseCallback<T> callback) {
+        Map<String, Pending<?>> slots = bound.get(owner);
+        if (slots == null) {
+            slots = new HashMap<>();
+            bound.put(owner, slots);
+        }
+        Pending<T> pending = new Pending<>(owner, slot, request, callback);
+        Pending<?> previous = slots.put(slot, pending);
+        if (previous != null) supersede(previous);
+        queue.add(pending);
+        drain();
+    }
+
+    /// cancel all the loads of an owner
+    ///
+    /// @param owner the owner, e.g. a row that was recycled
+    public void cancel(@NonNull O owner) {
+        Map<String, Pending<?>> slots = bound.remove(owner);
+        if (slots == null) return;
+        for (Pending<?> pending : slots.values()) {
+            supersede(pending);
+        }
+    }
+
+    /// cancel the loads of all the owners
+    public void cancelAll() {
+        for (Map<String, Pending<?>> slots : bound.values()) {
+            for (Pending<?> pending : slots.values()) {
+                supersede(pending);
+            }
+        }
+        bound.clear();
+    }
+
+    /// start waiting reads again, after the urgent owners changed (e.g. the list was scrolled)
+    public void reprioritize() {
+        drain();
+    }
+
+    private void supersede(@NonNull Pending<?> pending) {
+        pending.isCancelled = true;
+        if (!pending.isStarted && queue.remove(pending)) {
+            droppedCount++;
+        }
+    }
+
+    private void drain() {
+        if (isDraining) return;
+        isDraining = true;
+        try {
+            while (inFlight < maxInFlight && !queue.isEmpty()) {
+                start(queue.remove(nextIndex()));
+            }
+        } finally {
+            isDraining = false;
+        }
+    }
+
+    /// the first waiting read of an urgent owner, or the first waiting read
+    private int nextIndex() {
+        for (int i = 0; i < queue.size(); i++) {
+            if (priority.isUrgent(queue.get(i).owner)) return i;
+        }
+        return 0;
+    }
+
+    private <T> void start(@NonNull Pending<T> pending) {
+        pending.isStarted = true;
+        inFlight++;
+        startedCount++;
+        pending.request.start(new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(T object) {
+                if (finish(pending)) pending.callback.onCompleted(object);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (finish(pending)) pending.callback.onFailed(e);
+            }
+        });
+    }
+
+    /// @return true if the result should be delivered
+    private boolean finish(@NonNull Pending<?> pending) {
+        if (pending.isFinished) return false;
+        pending.isFinished = true;
+        inFlight--;
+
+        boolean deliver = !pending.isCancelled;
+        if (deliver) {
+            Map<String, Pending<?>> slots = bound.get(pending.owner);
+            if (slots != null && slots.get(pending.slot) == pending) {
+                slots.remove(pending.slot);
+                if (slots.isEmpty()) bound.remove(pending.owner);
+            }
+        } else {
+            ignoredCount++;
+        }
+        drain();
+        return deliver;
+    }
+
+    /// @return the number of reads started
+    public long getStartedCount() {
+        return startedCount;
+    }
+
+    /// @return the number of loads dropped before their read started
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /// @return the number of results ignored because their load was superseded or cancelled
+    public long getIgnoredCount() {
+        return ignoredCount;
+    }
+
+    /// @return the number of reads waiting for room
+    public int getWaitingCount() {
+        return queue.size();
+    }
+
+    /// starts a read, e.g. a DatabaseService getter
+    public interface Request<T> {
+        void start(@NonNull DatabaseService.DatabaseCallback<T> callback);
+    }
+
+    /// tells which owners to load first
+    public interface Priority<O> {
+        boolean isUrgent(@NonNull O owner);
+    }
+
+    private final class Pending<T> {
+        final O owner;
+        final String slot;
+        final Request<T> request;
+        final DatabaseService.DatabaseCallback<T> callback;
+        boolean isStarted = false;
+        boolean isFinished = false;
+        boolean isCancelled = false;
+
+        Pending(@NonNull O owner, @NonNull String slot, @NonNull Request<T> request,
+                @NonNull DatabaseService.DatabaseCallback<T> callback) {
+            this.owner = owner;
+            this.slot = slot;
+            this.request = request;
+            this.callback = callback;
+        }
+    }
+}
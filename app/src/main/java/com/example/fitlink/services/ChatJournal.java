@@ -0,0 +1,391 @@
+package com.example.fitlink.services;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.fitlink.models.ChatMessage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/// keeps the newest messages of every group chat on the device, so the chat screen shows them right away
+/// and reads only the messages sent since
+///
+/// every group has an append-only file of records: a message that was added or changed, or a message that was
+/// deleted together with the time it was deleted. reading the file replays the records. when the file has many more
+/// records than the messages it keeps, it is compacted: written again with only the newest messages.
+/// a file cut by a crash is read up to its last whole record and compacted
+///
+/// the tombstones of deleted messages are kept in the database for a while only, so the file also records the last
+/// time the chat was synced. messages kept longer than SYNC_HORIZON without a sync are dropped by the stream
+///
+/// the journal of a user is deleted when the user logs out. the methods read and write files,
+/// they are called on a background thread
+///
+/// @see ChatStream
+public class ChatJournal {
+
+    private static final String DIRECTORY = "chat_journal";
+    private static final int MAGIC = 0x464c434a;
+    private static final int VERSION = 1;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+    private static final byte RECORD_SYNCED = 3;
+    private static final byte RECORD_SYNC_TIME = 4;
+    /// the time after the last sync the kept messages of a group can still be synced, the tombstones in the
+    /// database are kept a little longer
+    static final long SYNC_HORIZON = TimeUnit.DAYS.toMillis(30);
+    /// the number of newest messages kept per group
+    static final int DEFAULT_RETENTION = 200;
+    /// a file is compacted when it has this many times more records than the messages it keeps
+    private static final int COMPACT_RATIO = 2;
+
+    @Nullable
+    private static ChatJournal instance;
+
+    private final File directory;
+    private final int retention;
+    /// the groups read since the journal was opened, so a write doesn't read the file again
+    private final Map<String, GroupJournal> groups = new HashMap<>();
+    private long appendCount = 0;
+    private long compactionCount = 0;
+
+    /// @param directory the directory of the files, created when needed
+    /// @param retention the number of newest messages kept per group
+    ChatJournal(@NonNull File directory, int retention) {
+        if (retention <= 0) throw new IllegalArgumentException("retention must be positive");
+        this.directory = directory;
+        this.retention = retention;
+    }
+
+    /// the journal of a user, in the private files of the app
+    ///
+    /// @param context the context of the app
+    /// @param userId  the id of the logged in user
+    /// @return the journal
+    @NonNull
+    public static synchronized ChatJournal forUser(@NonNull Context context, @NonNull String userId) {
+        File directory = new File(new File(context.getApplicationContext().getFilesDir(), DIRECTORY), userId);
+        if (instance == null || !instance.directory.equals(directory)) {
+            instance = new ChatJournal(directory, DEFAULT_RETENTION);
+        }
+        return instance;
+    }
+
+    /// read the kept messages of a group
+    ///
+    /// @param groupId the id of the group
+    /// @return the messages, oldest first, and the time of the last deletion synced
+    @NonNull
+    public synchronized Snapshot read(@NonNull String groupId) {
+        GroupJournal group = load(groupId);
+        return new Snapshot(group.sortedMessages(), group.deletionsSyncedAt, group.syncedAt);
+    }
+
+    /// remember when a group was synced, e.g. when its chat starts listening to the database
+    ///
+    /// @param groupId  the id of the group
+    /// @param syncedAt the time on the device
+    public synchronized void markSynced(@NonNull String groupId, long syncedAt) {
+        GroupJournal group = load(groupId);
+        try (DataOutputStream out = openForAppend(group)) {
+            out.writeByte(RECORD_SYNC_TIME);
+            out.writeLong(syncedAt);
+        } catch (IOException e) {
+            forget(groupId);
+            return;
+        }
+        group.syncedAt = syncedAt;
+        group.records++;
+        appendCount++;
+        compactIfNeeded(group);
+    }
+
+    /// keep messages that were added or changed
+    ///
+    /// @param groupId  the id of the group
+    /// @param messages the messages
+    public synchronized void append(@NonNull String groupId, @NonNull List<ChatMessage> messages) {
+        if (messages.isEmpty()) return;
+        GroupJournal group = load(groupId);
+        try (DataOutputStream out = openForAppend(group)) {
+            for (ChatMessage message : messages) {
+                writePut(out, message);
+                group.messages.put(message.getMessageId(), message);
+                group.records++;
+            }
+        } catch (IOException e) {
+            forget(groupId);
+            return;
+        }
+        appendCount += messages.size();
+        compactIfNeeded(group);
+    }
+
+    /// forget a message that was deleted
+    ///
+    /// @param groupId   the id of the group
+    /// @param messageId the id of the message
+    /// @param deletedAt the time the message was deleted, the next sync reads only the deletions after it
+    public synchronized void delete(@NonNull String groupId, @NonNull String messageId, long deletedAt) {
+        GroupJournal group = load(groupId);
+        try (DataOutputStream out = openForAppend(group)) {
+            out.writeByte(RECORD_DELETE);
+            writeString(out, messageId);
+            out.writeLong(deletedAt);
+        } catch (IOException e) {
+            forget(groupId);
+            return;
+        }
+        group.messages.remove(messageId);
+        group.deletionsSyncedAt = Math.max(group.deletionsSyncedAt, deletedAt);
+        group.records++;
+        appendCount++;
+        compactIfNeeded(group);
+    }
+
+    /// replace the kept messages of a group, e.g. when they are too old to be joined with the newest ones
+    ///
+    /// @param groupId  the id of the group
+    /// @param messages the messages to keep
+    public synchronized void replace(@NonNull String groupId, @NonNull List<ChatMessage> messages) {
+        GroupJournal group = load(groupId);
+        group.messages.clear();
+        for (ChatMessage message : messages) {
+            group.messages.put(message.getMessageId(), message);
+        }
+        compact(group);
+    }
+
+    /// delete the journal of every group, e.g. when the user logs out
+    public synchronized void clear() {
+        groups.clear();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+
+    /// @return the number of records appended
+    public synchronized long getAppendCount() {
+        return appendCount;
+    }
+
+    /// @return the number of times a file was written again with only the kept messages
+    public synchronized long getCompactionCount() {
+        return compactionCount;
+    }
+
+    /// @return the size of the file of a group in bytes, 0 if there is no file
+    public synchronized long getFileSize(@NonNull String groupId) {
+        return file(groupId).length();
+    }
+
+    @NonNull
+    private File file(@NonNull String groupId) {
+        return new File(directory, groupId + ".journal");
+    }
+
+    private void forget(@NonNull String groupId) {
+        groups.remove(groupId);
+    }
+
+    @NonNull
+    private GroupJournal load(@NonNull String groupId) {
+        GroupJournal group = groups.get(groupId);
+        if (group != null) return group;
+
+        group = new GroupJournal(file(groupId));
+        boolean isWhole = true;
+        if (group.file.exists()) {
+            isWhole = replay(group);
+        }
+        groups.put(groupId, group);
+        if (!isWhole) compact(group);
+        return group;
+    }
+
+    /// @return false if the file is cut or unreadable, the records read until then are kept
+    private boolean replay(@NonNull GroupJournal group) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(group.file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            while (true) {
+                int type = in.read();
+                if (type == -1) return true;
+                if (type == RECORD_PUT) {
+                    ChatMessage message = readPut(in);
+                    group.messages.put(message.getMessageId(), message);
+                } else if (type == RECORD_DELETE) {
+                    group.messages.remove(readString(in));
+                    group.deletionsSyncedAt = Math.max(group.deletionsSyncedAt, in.readLong());
+                } else if (type == RECORD_SYNCED) {
+                    group.deletionsSyncedAt = Math.max(group.deletionsSyncedAt, in.readLong());
+                } else if (type == RECORD_SYNC_TIME) {
+                    group.syncedAt = in.readLong();
+                } else {
+                    return false;
+                }
+                group.records++;
+            }
+        } catch (EOFException e) {
+            return false;
+        } catch (IOException e) {
+            group.messages.clear();
+            return false;
+        }
+    }
+
+    @NonNull
+    private DataOutputStream openForAppend(@NonNull GroupJournal group) throws IOException {
+        boolean isNew = !group.file.exists();
+        if (isNew && !directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(group.file, true)));
+        if (isNew) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+        return out;
+    }
+
+    private void compactIfNeeded(@NonNull GroupJournal group) {
+        if (group.records > retention * COMPACT_RATIO) compact(group);
+    }
+
+    /// write the file again with the newest messages only, through a temporary file so a crash keeps the old one
+    private void compact(@NonNull GroupJournal group) {
+        List<ChatMessage> kept = group.sortedMessages();
+        group.messages.clear();
+        for (ChatMessage message : kept) {
+            group.messages.put(message.getMessageId(), message);
+        }
+
+        File temporary = new File(directory, group.file.getName() + ".tmp");
+        if (!directory.exists() && !directory.mkdirs()) return;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(RECORD_SYNCED);
+            out.writeLong(group.deletionsSyncedAt);
+            out.writeByte(RECORD_SYNC_TIME);
+            out.writeLong(group.syncedAt);
+            for (ChatMessage message : kept) {
+                writePut(out, message);
+            }
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            temporary.delete();
+            return;
+        }
+        if (temporary.renameTo(group.file)) {
+            group.records = kept.size() + 2;
+            compactionCount++;
+        }
+    }
+
+    private static void writePut(@NonNull DataOutputStream out, @NonNull ChatMessage message) throws IOException {
+        out.writeByte(RECORD_PUT);
+        writeString(out, message.getMessageId());
+        writeString(out, message.getSenderId());
+        writeString(out, message.getSenderName());
+        writeString(out, message.getText());
+        out.writeLong(message.getTimestamp());
+    }
+
+    @NonNull
+    private static ChatMessage readPut(@NonNull DataInputStream in) throws IOException {
+        ChatMessage message = new ChatMessage();
+        message.setMessageId(readString(in));
+        message.setSenderId(readString(in));
+        message.setSenderName(readString(in));
+        message.setText(readString(in));
+        message.setTimestamp(in.readLong());
+        if (message.getMessageId() == null) throw new IOException("A message without an id");
+        return message;
+    }
+
+    /// writeUTF() is limited to 64KB, a message may be longer
+    private static void writeString(@NonNull DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(@NonNull DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) return null;
+        if (length < 0) throw new IOException("Bad string length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /// the kept messages of a group
+    public static final class Snapshot {
+        /// oldest first
+        @NonNull
+        public final List<ChatMessage> messages;
+        /// the time of the last deletion synced, 0 if none was
+        public final long deletionsSyncedAt;
+        /// the time on the device of the last sync, 0 if there was none
+        public final long syncedAt;
+
+        Snapshot(@NonNull List<ChatMessage> messages, long deletionsSyncedAt, long syncedAt) {
+            this.messages = Collections.unmodifiableList(messages);
+            this.deletionsSyncedAt = deletionsSyncedAt;
+            this.syncedAt = syncedAt;
+        }
+    }
+
+    /// the state of the file of one group
+    private final class GroupJournal {
+        final File file;
+        final Map<String, ChatMessage> messages = new LinkedHashMap<>();
+        long deletionsSyncedAt = 0;
+        long syncedAt = 0;
+        /// the number of records in the file
+        int records = 0;
+
+        GroupJournal(@NonNull File file) {
+            this.file = file;
+        }
+
+        /// @return the newest messages within the retention, oldest first
+        @NonNull
+        List<ChatMessage> sortedMessages() {
+            List<ChatMessage> sorted = new ArrayList<>(messages.values());
+            sorted.sort(ChatStream.ORDER);
+            return sorted.size() > retention ? new ArrayList<>(sorted.subList(sorted.size() - retention, sorted.size())) : sorted;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.fitlink.services;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+public class ChatNotificationDismissedReceiver extends BroadcastReceiver {
+
+    public static final String EXTRA_GROUP_ID = "GROUP_ID";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        // המשתמש החליק את ההתראה של הקבוצה, ההודעות הבאות יתחילו התראה חדשה
+        String groupId = intent.getStringExtra(EXTRA_GROUP_ID);
+        if (groupId != null) {
+            FitLinkNotificationService.getInstance(context).clearChatNotification(groupId);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.fitlink.services;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.fitlink.models.ChatMessage;
+import com.example.fitlink.services.backend.DataBackend;
+import com.example.fitlink.services.backend.DataNode;
+import com.example.fitlink.services.backend.DataQuery;
+import com.example.fitlink.services.mappers.SnapshotMappers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/// the messages of a group chat as the chat screen shows them, oldest first.
+/// the messages kept on the device by the ChatJournal are shown first, then only the messages sent after the newest
+/// of them are read: the newest messages are a live window, a child listener over the messages ordered by timestamp,
+/// startAfter the newest kept message and limitToLast(windowSize), so a new message costs one child event no matter
+/// how long the chat is. if the window is full there may be messages missing between the kept messages and the window,
+/// the kept messages are dropped then. older messages are read in pages with endBefore when the user scrolls up
+///
+/// deleteGroupMessage() leaves a tombstone with the time of the deletion, a message is removed from the list when its
+/// tombstone arrives. a message leaving the live window is only pushed out by a newer message and stays in the list.
+/// the tombstones are read from the last one the journal has seen, so messages deleted while the chat was closed are
+/// removed from the kept messages too. the old tombstones are deleted from the database, so kept messages that weren't
+/// synced within ChatJournal.SYNC_HORIZON are dropped and the newest messages are read instead
+///
+/// every change is passed to the listener as an insert, a change or a removal at a position, so the screen can
+/// notify its adapter about those rows only
+///
+/// not thread safe, used from the main thread like the screens
+///
+/// @see DatabaseService#listenForGroupMessages(androidx.lifecycle.LifecycleOwner, String, ChatJournal, Listener)
+/// @see ChatJournal
+public class ChatStream implements DataBackend.ListenerRegistration {
+
+    /// the order of the database: by timestamp, then by key
+    static final Comparator<ChatMessage> ORDER = Comparator.comparingLong(ChatMessage::getTimestamp)
+            .thenComparing(ChatMessage::getMessageId);
+    /// how much earlier than its message a tombstone may be, the clocks of the devices and the server differ
+    private static final long CLOCK_SKEW = TimeUnit.HOURS.toMillis(1);
+
+    private final DataBackend backend;
+    private final String groupId;
+    private final String path;
+    private final String deletionsPath;
+    private final int windowSize;
+    private final int pageSize;
+    private final PageLoader pageLoader;
+    @Nullable
+    private final ChatJournal journal;
+    private final Executor ioExecutor;
+    private final Executor mainExecutor;
+    private final Listener listener;
+    /// ordered like the database
+    private final List<ChatMessage> messages = new ArrayList<>();
+    /// the keys of the messages read through the live window, always the newest messages of the list
+    private final Set<String> liveKeys = new HashSet<>();
+    /// the messages deleted while the stream is open, so a page read before the deletion doesn't bring them back
+    private final Set<String> deletedKeys = new HashSet<>();
+    @Nullable
+    private DataBackend.ListenerRegistration registration;
+    @Nullable
+    private DataBackend.ListenerRegistration deletionsRegistration;
+    @Nullable
+    private DataBackend.ListenerRegistration gapCheck;
+    private boolean isGapChecked = false;
+    private boolean isActive = true;
+    private boolean isLoadingOlder = false;
+    private boolean hasOlder = true;
+    private int journalCount = 0;
+    private long eventCount = 0;
+
+    /// @param backend       the backend to listen to
+    /// @param groupId       the id of the group, the key of the chat in the journal
+    /// @param path          the path of the messages
+    /// @param deletionsPath the path of the tombstones of the deleted messages
+    /// @param windowSize    the maximal number of newest messages kept live
+    /// @param pageSize      the number of older messages to read per page
+    /// @param pageLoader    reads a page of older messages
+    /// @param journal       the messages kept on the device, or null to read the newest messages every time
+    /// @param ioExecutor    the executor the journal is read and written on
+    /// @param mainExecutor  the executor the listener is called on after reading the journal
+    /// @param listener      called with every change of the list
+    ChatStream(@NonNull DataBackend backend, @NonNull String groupId, @NonNull String path, @NonNull String deletionsPath,
+               int windowSize, int pageSize, @NonNull PageLoader pageLoader, @Nullable ChatJournal journal,
+               @NonNull Executor ioExecutor, @NonNull Executor mainExecutor, @NonNull Listener listener) {
+        if (windowSize <= 0 || pageSize <= 0) throw new IllegalArgumentException("windowSize and pageSize must be positive");
+        this.backend = backend;
+        this.groupId = groupId;
+        this.path = path;
+        this.deletionsPath = deletionsPath;
+        this.windowSize = windowSize;
+        this.pageSize = pageSize;
+        this.pageLoader = pageLoader;
+        this.journal = journal;
+        this.ioExecutor = ioExecutor;
+        this.mainExecutor = mainExecutor;
+        this.listener = listener;
+    }
+
+    /// show the kept messages, then attach the listeners. every message is passed to the listener as an insert
+    void start() {
+        if (journal == null) {
+            attach(0);
+            return;
+        }
+        ioExecutor.execute(() -> {
+            long now = System.currentTimeMillis();
+            ChatJournal.Snapshot kept = journal.read(groupId);
+            if (!kept.messages.isEmpty() && kept.syncedAt < now - ChatJournal.SYNC_HORIZON) {
+                journal.replace(groupId, Collections.emptyList());
+                kept = journal.read(groupId);
+            }
+            journal.markSynced(groupId, now);
+            ChatJournal.Snapshot snapshot = kept;
+            mainExecutor.execute(() -> {
+                if (!isActive) return;
+                if (!snapshot.messages.isEmpty()) {
+                    messages.addAll(snapshot.messages);
+                    journalCount = snapshot.messages.size();
+                    listener.onMessagesInserted(0, snapshot.messages);
+                }
+                attach(snapshot.deletionsSyncedAt);
+            });
+        });
+    }
+
+    private void attach(long deletionsSyncedAt) {
+        ChatMessage newest = messages.isEmpty() ? null : messages.get(messages.size() - 1);
+
+        // the tombstones from the last one seen, which may share its time with newer ones.
+        // without kept messages only new deletions matter, the window is wide enough for deletions made at the same time
+        DataQuery deletions = DataQuery.ref(deletionsPath).orderByValue();
+        if (messages.isEmpty()) {
+            deletions = deletions.limitToLast(windowSize);
+        } else {
+            deletions = deletions.startAt(Math.max(deletionsSyncedAt, messages.get(0).getTimestamp() - CLOCK_SKEW));
+        }
+        deletionsRegistration = backend.addChildListener(deletions, new DataBackend.ChildListener() {
+            @Override
+            public void onChildAdded(@NonNull DataNode node, @Nullable String previousChildKey) {
+                eventCount++;
+                if (isActive && node.getKey() != null && node.getValue() instanceof Number) {
+                    onDeleted(node.getKey(), ((Number) node.getValue()).longValue());
+                }
+            }
+        });
+
+        DataQuery window = DataQuery.ref(path).orderByChild("timestamp");
+        if (newest != null) window = window.startAfter(newest.getTimestamp(), newest.getMessageId());
+        window = window.limitToLast(windowSize);
+        registration = backend.addChildListener(window, new DataBackend.ChildListener() {
+            @Override
+            public void onChildAdded(@NonNull DataNode node, @Nullable String previousChildKey) {
+                eventCount++;
+                ChatMessage message = map(node);
+                if (!isActive || message == null) return;
+                liveKeys.add(message.getMessageId());
+                put(message);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataNode node, @Nullable String previousChildKey) {
+                eventCount++;
+                ChatMessage message = map(node);
+                if (!isActive || message == null) return;
+                put(message);
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataNode node) {
+                // pushed out of the window by a newer message, or deleted and removed by its tombstone
+                eventCount++;
+                liveKeys.remove(node.getKey());
+            }
+
+            @Override
+            public void onCancelled(@NonNull Exception e) {
+                if (isActive) listener.onFailed(e);
+            }
+        });
+
+        if (newest == null) return;
+        // the value of the same query is shared with the child listener and comes after its first events,
+        // a full window means there may be messages between the kept ones and the window
+        gapCheck = backend.addValueListener(window, new DataBackend.ValueListener() {
+            @Override
+            public void onDataChange(@NonNull DataNode node) {
+                if (isGapChecked) return;
+                isGapChecked = true;
+                if (gapCheck != null) gapCheck.remove();
+                if (isActive && node.getChildrenCount() >= windowSize) dropKeptMessages();
+            }
+
+            @Override
+            public void onCancelled(@NonNull Exception e) {
+                isGapChecked = true;
+            }
+        });
+        if (isGapChecked) gapCheck.remove();
+    }
+
+    /// read the page of messages before the oldest message of the list and insert it at the top.
+    /// does nothing while a page is being read or when there are no older messages
+    ///
+    /// @param callback called with the number of messages inserted, may be null
+    public void loadOlder(@Nullable DatabaseService.DatabaseCallback<Integer> callback) {
+        if (!isActive || isLoadingOlder || !hasOlder || messages.isEmpty()) {
+            if (callback != null) callback.onCompleted(0);
+            return;
+        }
+        isLoadingOlder = true;
+        ChatMessage oldest = messages.get(0);
+        pageLoader.load(new Page.Cursor(oldest.getTimestamp(), oldest.getMessageId()), pageSize, new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(Page<ChatMessage> page) {
+                isLoadingOlder = false;
+                if (!isActive) return;
+                hasOlder = page.hasMore();
+
+                // the page is newest first, the list is oldest first
+                List<ChatMessage> older = new ArrayList<>(page.getItems().size());
+                for (ChatMessage message : page.getItems()) {
+                    if (!deletedKeys.contains(message.getMessageId()) && indexOf(message) < 0) older.add(message);
+                }
+                Collections.reverse(older);
+                if (!older.isEmpty()) {
+                    messages.addAll(0, older);
+                    listener.onMessagesInserted(0, Collections.unmodifiableList(older));
+                }
+                if (callback != null) callback.onCompleted(older.size());
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                isLoadingOlder = false;
+                if (callback != null) callback.onFailed(e);
+            }
+        });
+    }
+
+    /// @return true if there may be messages before the oldest message of the list
+    public boolean hasOlder() {
+        return hasOlder;
+    }
+
+    /// @return the messages, oldest first
+    @NonNull
+    public List<ChatMessage> getMessages() {
+        return Collections.unmodifiableList(messages);
+    }
+
+    /// @return the number of messages shown from the journal before reading the database
+    public int getJournalCount() {
+        return journalCount;
+    }
+
+    /// @return the number of child events received, for debugging
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /// detach the listeners, no more changes are passed to the listener
+    @Override
+    public void remove() {
+        if (!isActive) return;
+        isActive = false;
+        if (registration != null) registration.remove();
+        if (deletionsRegistration != null) deletionsRegistration.remove();
+        if (gapCheck != null) gapCheck.remove();
+        registration = null;
+        deletionsRegistration = null;
+        gapCheck = null;
+    }
+
+    /// map a message, the key is its id
+    @Nullable
+    static ChatMessage map(@NonNull DataNode node) {
+        ChatMessage message = SnapshotMappers.CHAT_MESSAGE.map(node);
+        if (message != null && message.getMessageId() == null) message.setMessageId(node.getKey());
+        return message;
+    }
+
+    /// add a message or replace its previous copy, and keep it in the journal
+    private void put(@NonNull ChatMessage message) {
+        if (deletedKeys.contains(message.getMessageId())) return;
+        writeJournal(journal -> journal.append(groupId, Collections.singletonList(message)));
+
+        int index = indexOf(message);
+        if (index >= 0) {
+            messages.set(index, message);
+            listener.onMessageChanged(index, message);
+            return;
+        }
+        // a message that was edited has the old timestamp in the list
+        int oldIndex = indexOfKey(message.getMessageId());
+        if (oldIndex >= 0) {
+            messages.remove(oldIndex);
+            listener.onMessagesRemoved(oldIndex, 1);
+            index = indexOf(message);
+        }
+        int position = -index - 1;
+        messages.add(position, message);
+        listener.onMessagesInserted(position, Collections.singletonList(message));
+    }
+
+    private void onDeleted(@NonNull String key, long deletedAt) {
+        deletedKeys.add(key);
+        writeJournal(journal -> journal.delete(groupId, key, deletedAt));
+        int index = indexOfKey(key);
+        if (index < 0) return;
+        messages.remove(index);
+        listener.onMessagesRemoved(index, 1);
+    }
+
+    /// the window is full, the kept messages before it may not be followed by it. the older messages are read
+    /// again by loadOlder() when the user scrolls up
+    private void dropKeptMessages() {
+        int count = messages.size() - liveKeys.size();
+        if (count <= 0) return;
+        messages.subList(0, count).clear();
+        hasOlder = true;
+        listener.onMessagesRemoved(0, count);
+        List<ChatMessage> window = new ArrayList<>(messages);
+        writeJournal(journal -> journal.replace(groupId, window));
+    }
+
+    private void writeJournal(@NonNull JournalWrite write) {
+        if (journal == null) return;
+        ChatJournal target = journal;
+        ioExecutor.execute(() -> write.apply(target));
+    }
+
+    /// binary search by timestamp and key
+    ///
+    /// @return the index of the message, or (-(insertion point) - 1) if it isn't in the list
+    private int indexOf(@NonNull ChatMessage message) {
+        return Collections.binarySearch(messages, message, ORDER);
+    }
+
+    private int indexOfKey(@Nullable String key) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i).getMessageId().equals(key)) return i;
+        }
+        return -1;
+    }
+
+    private interface JournalWrite {
+        void apply(@NonNull ChatJournal journal);
+    }
+
+    /// reads a page of messages before a cursor, newest first
+    interface PageLoader {
+        void load(@NonNull Page.Cursor before, int pageSize, @NonNull DatabaseService.DatabaseCallback<Page<ChatMessage>> callback);
+    }
+
+    /// the changes of the list of messages, positions are indexes in getMessages()
+    public interface Listener {
+        void onMessagesInserted(int position, @NonNull List<ChatMessage> inserted);
+
+        void onMessageChanged(int position, @NonNull ChatMessage message);
+
+        void onMessagesRemoved(int position, int count);
+
+        void onFailed(@NonNull Exception e);
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.fitlink.services;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/// an in-memory cache of objects by id, shared by all the screens.
+/// a read of an id that is already being read waits for that read instead of starting another one,
+/// so two screens (or a batch with the same id twice) that ask for the same user cost one read
+///
+/// the cache keeps the most recently used objects, for at most a time to live: objects changed by other devices
+/// without a listener are read again after it. ids that don't exist are not cached
+///
+/// with a copier, every caller gets its own copy and the cached object is never handed out, so a screen
+/// that edits an object before saving it doesn't change what the other screens see
+///
+/// @param <T> the class of the objects
+/// @see DatabaseService#getUsersByIds(java.util.Collection, DatabaseService.DatabaseCallback)
+public class CoalescingCache<T> {
+
+    /// no time to live, the objects are kept until they are evicted or invalidated
+    public static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    private final Loader<T> loader;
+    private final UnaryOperator<T> copier;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    /// the cached objects, least recently used first
+    private final LinkedHashMap<String, Cached<T>> entries;
+    /// the callbacks waiting for each read in flight
+    private final Map<String, List<DatabaseService.DatabaseCallback<T>>> pending = new HashMap<>();
+    /// ids invalidated while their read was in flight, the result of that read may be stale and is not cached
+    private final Set<String> staleReads = new HashSet<>();
+    private long hits = 0;
+    private long misses = 0;
+    private long coalesced = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+
+    /// @param maxSize the maximal number of objects kept
+    /// @param loader  reads a single object from the database, e.g. DatabaseService#getUser
+    public CoalescingCache(int maxSize, @NonNull Loader<T> loader) {
+        this(maxSize, NO_EXPIRY, loader);
+    }
+
+    /// @param maxSize   the maximal number of objects kept
+    /// @param ttlMillis how long an object is kept after it was read, or NO_EXPIRY
+    /// @param loader    reads a single object from the database, e.g. DatabaseService#getUser
+    public CoalescingCache(int maxSize, long ttlMillis, @NonNull Loader<T> loader) {
+        this(maxSize, ttlMillis, UnaryOperator.identity(), loader);
+    }
+
+    /// @param maxSize   the maximal number of objects kept
+    /// @param ttlMillis how long an object is kept after it was read, or NO_EXPIRY
+    /// @param copier    copies a mutable object, e.g. a copy constructor
+    /// @param loader    reads a single object from the database, e.g. DatabaseService#getUser
+    public CoalescingCache(int maxSize, long ttlMillis, @NonNull UnaryOperator<T> copier, @NonNull Loader<T> loader) {
+        this(maxSize, ttlMillis, System::currentTimeMillis, copier, loader);
+    }
+
+    /// @param clock the current time in milliseconds, a fake clock in tests
+    @VisibleForTesting
+    CoalescingCache(int maxSize, long ttlMillis, @NonNull LongSupplier clock, @NonNull UnaryOperator<T> copier, @NonNull Loader<T> loader) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive");
+        if (ttlMillis <= 0) throw new IllegalArgumentException("ttlMillis must be positive");
+        this.loader = loader;
+        this.copier = copier;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached<T>> eldest) {
+                if (size() <= maxSize) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /// get an object, from the cache if it is there, otherwise by joining or starting a read
+    ///
+    /// @param id       the id of the object
+    /// @param callback the callback to call with the object, or null if it doesn't exist
+    public void get(@NonNull String id, @NonNull DatabaseService.DatabaseCallback<T> callback) {
+        T cached = null;
+        synchronized (this) {
+            Cached<T> entry = entries.get(id);
+            if (entry != null && clock.getAsLong() - entry.storedAt >= ttlMillis) {
+                entries.remove(id);
+                expirations++;
+            } else if (entry != null) {
+                cached = copier.apply(entry.value);
+            }
+            if (cached == null) {
+                List<DatabaseService.DatabaseCallback<T>> waiting = pending.get(id);
+                if (waiting != null) {
+                    coalesced++;
+                    waiting.add(callback);
+                    return;
+                }
+                misses++;
+                waiting = new ArrayList<>();
+                waiting.add(callback);
+                pending.put(id, waiting);
+            } else {
+                hits++;
+            }
+        }
+        if (cached != null) {
+            callback.onCompleted(cached);
+            return;
+        }
+
+        loader.load(id, new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(T object) {
+                List<DatabaseService.DatabaseCallback<T>> waiting;
+                synchronized (CoalescingCache.this) {
+                    waiting = pending.remove(id);
+                    if (!staleReads.remove(id) && object != null) store(id, object);
+                }
+                for (DatabaseService.DatabaseCallback<T> waitingCallback : waiting) {
+                    waitingCallback.onCompleted(object != null ? copier.apply(object) : null);
+                }
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                List<DatabaseService.DatabaseCallback<T>> waiting;
+                synchronized (CoalescingCache.this) {
+                    waiting = pending.remove(id);
+                    staleReads.remove(id);
+                }
+                for (DatabaseService.DatabaseCallback<T> waitingCallback : waiting) {
+                    waitingCallback.onFailed(e);
+                }
+            }
+        });
+    }
+
+    /// put a fresh copy of an object in the cache, e.g. from a realtime listener
+    ///
+    /// @param id     the id of the object
+    /// @param object the object, or null if it was deleted
+    public synchronized void put(@NonNull String id, @Nullable T object) {
+        if (object == null) {
+            invalidate(id);
+            return;
+        }
+        store(id, object);
+        if (pending.containsKey(id)) staleReads.add(id);
+    }
+
+    /// replace the cached copy of an object with a fresh one, only if the object is cached.
+    /// used for the objects of list listeners, that would otherwise fill the cache with objects nobody reads by id
+    ///
+    /// @param id     the id of the object
+    /// @param object the fresh copy
+    public synchronized void refresh(@NonNull String id, @NonNull T object) {
+        if (entries.containsKey(id)) store(id, object);
+        if (pending.containsKey(id)) staleReads.add(id);
+    }
+
+    /// keeps its own copy, the caller may go on changing the object it passed
+    private void store(@NonNull String id, @NonNull T object) {
+        entries.put(id, new Cached<>(copier.apply(object), clock.getAsLong()));
+    }
+
+    /// forget an object after it was changed or deleted, the next get() reads it again
+    ///
+    /// @param id the id of the object
+    public synchronized void invalidate(@NonNull String id) {
+        entries.remove(id);
+        if (pending.containsKey(id)) staleReads.add(id);
+    }
+
+    /// forget all the objects
+    public synchronized void invalidateAll() {
+        entries.clear();
+        staleReads.addAll(pending.keySet());
+    }
+
+    /// @return the number of get() calls answered from the cache
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /// @return the number of get() calls that started a read
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /// @return the number of get() calls that joined a read already in flight
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    /// @return the number of objects removed to make room for newer ones
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /// @return the number of objects read again because they were older than the time to live
+    public synchronized long getExpiredCount() {
+        return expirations;
+    }
+
+    /// @return the counters of the cache, for debugging
+    @NonNull
+    public synchronized String getStats() {
+        return "size=" + entries.size() + " hits=" + hits + " misses=" + misses + " coalesced=" + coalesced
+                + " evictions=" + evictions + " expired=" + expirations;
+    }
+
+    /// reads a single object by id, e.g. a DatabaseService getter
+    public interface Loader<T> {
+        void load(@NonNull String id, @NonNull DatabaseService.DatabaseCallback<T> callback);
+    }
+
+    private static final class Cached<T> {
+        final T value;
+        /// when the object was read or put, by the clock of the cache
+        final long storedAt;
+
+        Cached(@NonNull T value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+}
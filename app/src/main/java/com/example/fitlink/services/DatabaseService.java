@@ -5,30 +5,49 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.fitlink.enums.ActivitySeries;
+import com.example.fitlink.enums.InboxEntryType;
+import com.example.fitlink.enums.StatsInterval;
+import com.example.fitlink.models.ActivityBucket;
+import com.example.fitlink.models.AppStats;
 import com.example.fitlink.models.ChatMessage;
 import com.example.fitlink.models.Comment;
 import com.example.fitlink.models.Event;
 import com.example.fitlink.models.Group;
+import com.example.fitlink.models.InboxEntry;
 import com.example.fitlink.models.User;
-import com.google.firebase.database.ChildEventListener;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
+import com.example.fitlink.models.UserSummary;
+import com.example.fitlink.services.backend.DataBackend;
+import com.example.fitlink.services.backend.DataNode;
+import com.example.fitlink.services.backend.DataQuery;
+import com.example.fitlink.services.backend.FirebaseBackend;
+import com.example.fitlink.services.mappers.SnapshotMapper;
+import com.example.fitlink.services.mappers.SnapshotMappers;
+import com.example.fitlink.utils.ImageUtil;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.MutableData;
-import com.google.firebase.database.Transaction;
-import com.google.firebase.database.ValueEventListener;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
 
 
@@ -48,27 +67,167 @@ public class DatabaseService {
     ///
     /// @see DatabaseService#readData(String)
     private static final String USERS_PATH = "users";
+    /// the public part of every user (name, small image, admin flag), kept next to USERS_PATH for lists
+    ///
+    /// @see UserSummary
+    private static final String USERS_PUBLIC_PATH = "user_public";
     private static final String GROUPS_PATH = "groups";
     private static final String EVENTS_PATH = "events";
     private static final String GROUP_CHATS_PATH = "group_chats";
+    /// group_chat_deletions/{groupId}/{messageId} - the time a message was deleted, so the messages kept on
+    /// the devices are deleted too
+    ///
+    /// @see ChatStream
+    private static final String GROUP_CHAT_DELETIONS_PATH = "group_chat_deletions";
+    /// user_unread/{userId}/{groupId} - the number of messages of a group chat the user didn't read yet and
+    /// the time the user last read the chat, so the badges of all the groups of a user are one small node
+    ///
+    /// @see #listenToUnreadCounts(LifecycleOwner, String, String, DatabaseCallback)
+    private static final String USER_UNREAD_PATH = "user_unread";
+    /// user_inbox/{userId}/{entryId} - a compact entry for every change the user is notified about, written
+    /// together with the change, so a device listens to one node instead of every group, chat and event
+    ///
+    /// @see InboxEntry
+    private static final String USER_INBOX_PATH = "user_inbox";
+    /// stats/{users,groups,events} - the number of users, groups and events, changed by server increments in the
+    /// same writes that create or delete them, so the admin dashboard reads three numbers instead of every object
+    ///
+    /// @see AppStats
+    /// @see #recountStats(DatabaseCallback)
+    private static final String STATS_PATH = "stats";
+    /// stats_activity/{daily|weekly}/{yyyy-MM-dd}/{series} - the number of sign-ups, events created, joins and chat
+    /// messages of every day and week, increased by the same writes, so a trend is one range read of small buckets
+    ///
+    /// @see ActivityBucket
+    /// @see #getActivity(StatsInterval, long, long, DatabaseCallback)
+    private static final String STATS_ACTIVITY_PATH = "stats_activity";
+    /// the maximal number of buckets read by one range read
+    private static final int ACTIVITY_MAX_BUCKETS = 1000;
+    /// how long before now an event that is still running may have started, see getUpcomingEvents()
+    private static final long ONGOING_EVENTS_LOOKBACK = TimeUnit.DAYS.toMillis(1);
+    /// the maximal number of reads a batch of ids runs at the same time
+    ///
+    /// @see BatchFetcher
+    private static final int BATCH_MAX_IN_FLIGHT = 10;
+    /// the maximal number of users, groups and events kept in memory
+    ///
+    /// @see CoalescingCache
+    private static final int USER_CACHE_SIZE = 500;
+    private static final int GROUP_CACHE_SIZE = 200;
+    private static final int EVENT_CACHE_SIZE = 200;
+    /// how long a user, group or event read by id is used before it is read again.
+    /// writes through this service and realtime listeners refresh the cached copies sooner
+    private static final long ENTITY_CACHE_TTL = TimeUnit.MINUTES.toMillis(2);
+    /// the number of newest chat messages kept live, and the number of older messages read per page
+    ///
+    /// @see ChatStream
+    private static final int CHAT_WINDOW_SIZE = 50;
+    private static final int CHAT_PAGE_SIZE = 30;
+    /// how long the tombstones of deleted chat messages are kept, a day longer than the horizon of the journals
+    /// for the clocks of the devices
+    ///
+    /// @see ChatJournal#SYNC_HORIZON
+    private static final long CHAT_DELETIONS_RETENTION = ChatJournal.SYNC_HORIZON + TimeUnit.DAYS.toMillis(1);
+    /// the number of newest inbox entries the notifications listener keeps, and the number of entries kept in an inbox
+    ///
+    /// @see #listenForNotifications(String, Context)
+    /// @see #trimInbox(String, long, DatabaseCallback)
+    private static final int INBOX_LISTEN_LIMIT = 20;
+    private static final int INBOX_MAX_ENTRIES = 100;
+    /// the maximal length of the text of an inbox entry
+    private static final int INBOX_TEXT_LENGTH = 120;
+    /// how far back the notifications listener looks for entries that arrived while the app was closed.
+    /// the entries already notified are skipped by their id
+    ///
+    /// @see SeenSet
+    private static final long INBOX_CATCH_UP = TimeUnit.DAYS.toMillis(1);
     /// the instance of this class
     ///
     /// @see #getInstance()
     private static DatabaseService instance;
-    /// the reference to the database
+    /// the storage engine behind this service, Firebase in the app
+    ///
+    /// @see DataBackend
+    /// @see FirebaseBackend
+    private final DataBackend backend;
+    /// shares the realtime list listeners between screens and detaches them with their Activity
+    ///
+    /// @see ListenerHub
+    private final ListenerHub listenerHub;
+    private final Executor mainExecutor;
+    private final Executor ioExecutor;
+    /// makes the small profile image of user_public from a full-size base64 image
+    ///
+    /// @see ImageUtil#createThumbnail(String)
+    private final UnaryOperator<String> thumbnailMaker;
+    /// the profile and group images, stored once by content hash
     ///
-    /// @see DatabaseReference
-    /// @see FirebaseDatabase#getReference()
-    private final DatabaseReference databaseReference;
-    private final Set<String> notifiedRequests = new HashSet<>();
-    private boolean isFirstLoad = true;
+    /// @see MediaStore
+    private final MediaStore mediaStore;
+    /// read the events and groups of a user by their ids, the events by start time and the groups by name
+    ///
+    /// @see #getEventsForUser(String, DatabaseCallback)
+    /// @see #getGroupsForUser(String, DatabaseCallback)
+    private final BatchFetcher<Event> eventsFetcher = new BatchFetcher<>(BATCH_MAX_IN_FLIGHT, this::getEvent,
+            Comparator.comparingLong(Event::getStartTimestamp));
+    private final BatchFetcher<Group> groupsFetcher = new BatchFetcher<>(BATCH_MAX_IN_FLIGHT, this::getGroup,
+            Comparator.comparing(group -> group.getName() != null ? group.getName() : "", String.CASE_INSENSITIVE_ORDER));
+    /// the users, groups and events read by id, shared by all the screens. concurrent reads of the same object
+    /// are merged into one. every caller gets its own copy, so a screen can edit one before saving it
+    ///
+    /// @see #getUser(String, DatabaseCallback)
+    /// @see #getGroup(String, DatabaseCallback)
+    /// @see #getEvent(String, DatabaseCallback)
+    /// @see #invalidateCached(String)
+    private final CoalescingCache<User> userCache = new CoalescingCache<>(USER_CACHE_SIZE, ENTITY_CACHE_TTL, User::new, this::readUser);
+    private final CoalescingCache<Group> groupCache = new CoalescingCache<>(GROUP_CACHE_SIZE, ENTITY_CACHE_TTL, Group::new, this::readGroup);
+    private final CoalescingCache<Event> eventCache = new CoalescingCache<>(EVENT_CACHE_SIZE, ENTITY_CACHE_TTL, Event::new, this::readEvent);
+    private final BatchFetcher<User> usersFetcher = new BatchFetcher<>(BATCH_MAX_IN_FLIGHT, userCache::get,
+            Comparator.comparing(user -> user.getFullName() != null ? user.getFullName() : "", String.CASE_INSENSITIVE_ORDER));
+    /// the public profiles shown in lists, shared by all the adapters
+    ///
+    /// @see #getUserSummary(String, DatabaseCallback)
+    private final CoalescingCache<UserSummary> summaryCache = new CoalescingCache<>(USER_CACHE_SIZE, ENTITY_CACHE_TTL, this::readUserSummary);
+    /// the user the notifications listener was started for, and the listener once it is attached.
+    /// both are only used on the main thread
+    ///
+    /// @see #listenForNotifications(String, Context)
+    /// @see #stopNotifications()
+    private String inboxUserId;
+    private DataBackend.ListenerRegistration inboxRegistration;
 
     /// use getInstance() to get an instance of this class
     ///
     /// @see DatabaseService#getInstance()
     private DatabaseService() {
-        FirebaseDatabase firebaseDatabase = FirebaseDatabase.getInstance("https://fitlink-d9534-default-rtdb.europe-west1.firebasedatabase.app/");
-        databaseReference = firebaseDatabase.getReference();
+        this(new FirebaseBackend(FirebaseDatabase.getInstance("https://fitlink-d9534-default-rtdb.europe-west1.firebasedatabase.app/")),
+                new android.os.Handler(android.os.Looper.getMainLooper())::post, Executors.newSingleThreadExecutor(),
+                ImageUtil::runOnEncodeThread, ImageUtil::createThumbnail);
+    }
+
+    /// create a service over a specific backend, used by unit tests and benchmarks
+    /// with an InMemoryBackend. the app always uses getInstance()
+    ///
+    /// @param backend the backend to read and write
+    /// @see com.example.fitlink.services.backend.InMemoryBackend
+    @VisibleForTesting
+    DatabaseService(@NonNull DataBackend backend) {
+        this(backend, Runnable::run, Runnable::run, Runnable::run, image -> image);
+    }
+
+    /// @param backend        the backend to read and write
+    /// @param mainExecutor   the executor callbacks of shared listeners are replayed on
+    /// @param ioExecutor     the executor files on the device are read and written on
+    /// @param encodeExecutor the executor the thumbnails of new images are made on
+    /// @param thumbnailMaker makes the small profile image of user_public
+    private DatabaseService(@NonNull DataBackend backend, @NonNull Executor mainExecutor, @NonNull Executor ioExecutor,
+                            @NonNull Executor encodeExecutor, @NonNull UnaryOperator<String> thumbnailMaker) {
+        this.backend = backend;
+        this.mainExecutor = mainExecutor;
+        this.ioExecutor = ioExecutor;
+        this.listenerHub = new ListenerHub(backend, mainExecutor);
+        this.thumbnailMaker = thumbnailMaker;
+        this.mediaStore = new MediaStore(backend, thumbnailMaker, encodeExecutor, mainExecutor);
     }
 
     /// get an instance of this class
@@ -89,15 +248,8 @@ public class DatabaseService {
     /// @param callback the callback to call when the operation is completed
     /// @see DatabaseCallback
     private void writeData(@NotNull final String path, @NotNull final Object data, final @Nullable DatabaseCallback<Void> callback) {
-        readData(path).setValue(data, (error, ref) -> {
-            if (error != null) {
-                if (callback == null) return;
-                callback.onFailed(error.toException());
-            } else {
-                if (callback == null) return;
-                callback.onCompleted(null);
-            }
-        });
+        invalidateCached(path);
+        backend.setValue(path, data, invalidatingOnFailure(Collections.singleton(path), callback));
     }
 
 
@@ -110,25 +262,92 @@ public class DatabaseService {
     /// @param callback the callback to call when the operation is completed
     /// @see DatabaseCallback
     private void deleteData(@NotNull final String path, @Nullable final DatabaseCallback<Void> callback) {
-        readData(path).removeValue((error, ref) -> {
-            if (error != null) {
-                if (callback == null) return;
-                callback.onFailed(error.toException());
-            } else {
-                if (callback == null) return;
-                callback.onCompleted(null);
+        invalidateCached(path);
+        backend.setValue(path, null, invalidatingOnFailure(Collections.singleton(path), callback));
+    }
+
+    /// write several paths of the database at once (atomic multi-path update)
+    ///
+    /// @param updates  map of path (from the root) to value, a null value deletes the path
+    /// @param callback the callback to call when the operation is completed
+    /// @see DataBackend#updateChildren(String, Map, DatabaseCallback)
+    private void updateData(@NotNull final Map<String, Object> updates, @Nullable final DatabaseCallback<Void> callback) {
+        for (String path : updates.keySet()) {
+            invalidateCached(path);
+        }
+        backend.updateChildren("", updates, invalidatingOnFailure(new ArrayList<>(updates.keySet()), callback));
+    }
+
+    /// forget the cached copies of the written paths again if the write fails. a listener may have cached the
+    /// local value of the write before the server rejected it
+    ///
+    /// @param paths    the paths that are written
+    /// @param callback the callback of the write
+    /// @return the callback to pass to the backend
+    private DatabaseCallback<Void> invalidatingOnFailure(@NotNull final Collection<String> paths, @Nullable final DatabaseCallback<Void> callback) {
+        return new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(Void object) {
+                if (callback != null) callback.onCompleted(object);
             }
-        });
+
+            @Override
+            public void onFailed(Exception e) {
+                for (String path : paths) {
+                    invalidateCached(path);
+                }
+                if (callback != null) callback.onFailed(e);
+            }
+        };
+    }
+
+    /// forget the cached copy of the user, group or event a path is in, before writing the path.
+    /// every write goes through here, so a read after a write never gets the copy from before it
+    ///
+    /// @param path the path that is written, e.g. groups/{groupId}/members/{uid}
+    private void invalidateCached(@NotNull final String path) {
+        String[] parts = path.split("/", 3);
+        if (parts.length < 2 || parts[1].isEmpty()) {
+            // the whole list is written
+            switch (parts[0]) {
+                case USERS_PATH:
+                    userCache.invalidateAll();
+                    break;
+                case USERS_PUBLIC_PATH:
+                    summaryCache.invalidateAll();
+                    break;
+                case GROUPS_PATH:
+                    groupCache.invalidateAll();
+                    break;
+                case EVENTS_PATH:
+                    eventCache.invalidateAll();
+                    break;
+            }
+            return;
+        }
+        switch (parts[0]) {
+            case USERS_PATH:
+                userCache.invalidate(parts[1]);
+                break;
+            case USERS_PUBLIC_PATH:
+                summaryCache.invalidate(parts[1]);
+                break;
+            case GROUPS_PATH:
+                groupCache.invalidate(parts[1]);
+                break;
+            case EVENTS_PATH:
+                eventCache.invalidate(parts[1]);
+                break;
+        }
     }
 
     /// read data from the database at a specific path
     ///
     /// @param path the path to read the data from
-    /// @return a DatabaseReference object to read the data from
-    /// @see DatabaseReference
-
-    private DatabaseReference readData(@NotNull final String path) {
-        return databaseReference.child(path);
+    /// @return a DataQuery object to read the data from
+    /// @see DataQuery
+    private DataQuery readData(@NotNull final String path) {
+        return DataQuery.ref(path);
     }
 
     /// get data from the database at a specific path
@@ -139,14 +358,18 @@ public class DatabaseService {
     /// @see DatabaseCallback
     /// @see Class
     private <T> void getData(@NotNull final String path, @NotNull final Class<T> clazz, @NotNull final DatabaseCallback<T> callback) {
-        readData(path).get().addOnCompleteListener(task -> {
-            if (!task.isSuccessful()) {
-                Log.e(TAG, "Error getting data", task.getException());
-                callback.onFailed(task.getException());
-                return;
-            }
-            T data = task.getResult().getValue(clazz);
-            callback.onCompleted(data);
+        final SnapshotMapper<T> mapper = SnapshotMappers.forClass(clazz);
+        backend.get(readData(path), new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode node) {
+                callback.onCompleted(mapper.map(node));
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                Log.e(TAG, "Error getting data", e);
+                callback.onFailed(e);
+            }
         });
     }
 
@@ -156,19 +379,194 @@ public class DatabaseService {
     /// @param clazz    the class of the objects to return
     /// @param callback the callback to call when the operation is completed
     private <T> void getDataList(@NotNull final String path, @NotNull final Class<T> clazz, @NotNull final DatabaseCallback<List<T>> callback) {
-        readData(path).get().addOnCompleteListener(task -> {
-            if (!task.isSuccessful()) {
-                Log.e(TAG, "Error getting data", task.getException());
-                callback.onFailed(task.getException());
-                return;
-            }
-            List<T> tList = new ArrayList<>();
-            task.getResult().getChildren().forEach(dataSnapshot -> {
-                T t = dataSnapshot.getValue(clazz);
-                tList.add(t);
-            });
+        getDataList(readData(path), clazz, callback);
+    }
+
+    /// get a list of data from the database matching a query, once
+    ///
+    /// @param query    the query to read
+    /// @param clazz    the class of the objects to return
+    /// @param callback the callback to call when the operation is completed
+    private <T> void getDataList(@NotNull final DataQuery query, @NotNull final Class<T> clazz, @NotNull final DatabaseCallback<List<T>> callback) {
+        final SnapshotMapper<T> mapper = SnapshotMappers.forClass(clazz);
+        backend.get(query, new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode node) {
+                callback.onCompleted(toList(node, mapper));
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                Log.e(TAG, "Error getting data", e);
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    /// convert the children of a snapshot to a list of objects, skipping children that can't be read
+    ///
+    /// @param node   the snapshot
+    /// @param mapper the mapper converting every child to an object
+    /// @return the list, in the order of the snapshot
+    /// @see SnapshotMappers
+    @NonNull
+    private static <T> List<T> toList(@NonNull final DataNode node, @NotNull final SnapshotMapper<T> mapper) {
+        List<T> tList = new ArrayList<>((int) node.getChildrenCount());
+        for (DataNode child : node.getChildren()) {
+            T t = mapper.map(child);
+            if (t != null) tList.add(t);
+        }
+        return tList;
+    }
+
+    /// the shared cache of a class of objects read by id
+    ///
+    /// @param clazz the class of the objects
+    /// @return the cache, or null if the objects of the class are not cached
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <T> CoalescingCache<T> cacheOf(@NotNull final Class<T> clazz) {
+        if (clazz == User.class) return (CoalescingCache<T>) userCache;
+        if (clazz == Group.class) return (CoalescingCache<T>) groupCache;
+        if (clazz == Event.class) return (CoalescingCache<T>) eventCache;
+        return null;
+    }
+
+    /// listen to a list of data matching a query, the callback is called on every change.
+    /// the listener is shared with other screens listening to the same query and is removed when the owner is destroyed
+    ///
+    /// @param owner    the Activity (or other lifecycle owner) the subscription belongs to
+    /// @param key      identifies the subscription within the owner, subscribing again with the same key replaces it
+    /// @param query    the query to listen to
+    /// @param clazz    the class of the objects to return
+    /// @param callback the callback to call with the whole list every time it changes
+    /// @return a registration to detach the listener
+    private <T> DataBackend.ListenerRegistration listenToList(@NotNull final LifecycleOwner owner, @NotNull final String key, @NotNull final DataQuery query, @NotNull final Class<T> clazz, @NotNull final DatabaseCallback<List<T>> callback) {
+        final SnapshotMapper<T> mapper = SnapshotMappers.forClass(clazz);
+        final CoalescingCache<T> cache = cacheOf(clazz);
+        return listenerHub.subscribe(owner, query, key, new DataBackend.ValueListener() {
+            @Override
+            public void onDataChange(@NonNull DataNode node) {
+                List<T> list = new ArrayList<>((int) node.getChildrenCount());
+                for (DataNode child : node.getChildren()) {
+                    T t = mapper.map(child);
+                    if (t == null) continue;
+                    list.add(t);
+                    // the listener has the latest copy, keep the cached copy (if any) up to date with it
+                    if (cache != null) cache.refresh(child.getKey(), t);
+                }
+                callback.onCompleted(list);
+            }
+
+            @Override
+            public void onCancelled(@NonNull Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    /// listen to the data at a specific path, the callback is called on every change
+    ///
+    /// @param path     the path to listen to
+    /// @param clazz    the class of the object to return
+    /// @param callback the callback to call with the object (null if it was deleted) every time it changes
+    /// @return a registration to detach the listener
+    private <T> DataBackend.ListenerRegistration listenToObject(@NotNull final String path, @NotNull final Class<T> clazz, @NotNull final DatabaseCallback<T> callback) {
+        final SnapshotMapper<T> mapper = SnapshotMappers.forClass(clazz);
+        final String[] parts = path.split("/");
+        final CoalescingCache<T> cache = parts.length == 2 ? cacheOf(clazz) : null;
+        return backend.addValueListener(readData(path), new DataBackend.ValueListener() {
+            @Override
+            public void onDataChange(@NonNull DataNode node) {
+                T object = mapper.map(node);
+                // the listener always has the latest copy (null if it was deleted), keep the shared cache up to date with it
+                if (cache != null) cache.put(parts[1], object);
+                callback.onCompleted(object);
+            }
 
-            callback.onCompleted(tList);
+            @Override
+            public void onCancelled(@NonNull Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    /// read one page of a list ordered by a child, once.
+    /// reads one extra item to know if there is a page after this one
+    ///
+    /// @param path        the path of the list
+    /// @param orderChild  the child to order the list by
+    /// @param newestFirst true to read from the end of the order (limitToLast), e.g. newest messages first
+    /// @param after       the cursor of the previous page, or null for the first page
+    /// @param pageSize    the maximal number of items in the page
+    /// @param mapper      the mapper converting every child to an object
+    /// @param callback    the callback to call with the page
+    /// @see Page
+    private <T> void getPage(@NotNull final String path, @NotNull final String orderChild, final boolean newestFirst,
+                             @Nullable final Page.Cursor after, final int pageSize,
+                             @NotNull final SnapshotMapper<T> mapper, @NotNull final DatabaseCallback<Page<T>> callback) {
+        DataQuery query = readData(path).orderByChild(orderChild);
+        if (newestFirst) {
+            if (after != null) query = query.endBefore(after.getValue(), after.getKey());
+            query = query.limitToLast(pageSize + 1);
+        } else {
+            if (after != null) query = query.startAfter(after.getValue(), after.getKey());
+            query = query.limitToFirst(pageSize + 1);
+        }
+
+        backend.get(query, new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode node) {
+                List<DataNode> children = new ArrayList<>((int) node.getChildrenCount());
+                for (DataNode child : node.getChildren()) {
+                    children.add(child);
+                }
+                if (newestFirst) Collections.reverse(children);
+
+                boolean hasMore = children.size() > pageSize;
+                if (hasMore) children = children.subList(0, pageSize);
+
+                List<T> items = new ArrayList<>(children.size());
+                for (DataNode child : children) {
+                    T item = mapper.map(child);
+                    if (item != null) items.add(item);
+                }
+                Page.Cursor next = null;
+                if (hasMore) {
+                    DataNode last = children.get(children.size() - 1);
+                    next = new Page.Cursor(last.child(orderChild).getValue(), Objects.requireNonNull(last.getKey()));
+                }
+                callback.onCompleted(new Page<>(items, next));
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                Log.e(TAG, "Error getting page of " + path, e);
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    /// get the keys of the children at a specific path, once (e.g. the ids in users/{uid}/eventIds)
+    ///
+    /// @param path     the path to read
+    /// @param callback the callback to call with the keys, empty if there is no data
+    private void getChildKeys(@NotNull final String path, @NotNull final DatabaseCallback<List<String>> callback) {
+        backend.get(readData(path), new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode node) {
+                List<String> keys = new ArrayList<>((int) node.getChildrenCount());
+                for (DataNode child : node.getChildren()) {
+                    keys.add(child.getKey());
+                }
+                callback.onCompleted(keys);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                Log.e(TAG, "Error getting keys of " + path, e);
+                callback.onFailed(e);
+            }
         });
     }
 
@@ -177,10 +575,10 @@ public class DatabaseService {
     /// @param path the path to generate the id for
     /// @return a new id for the object
     /// @see String
-    /// @see DatabaseReference#push()
+    /// @see DataBackend#generateKey(String)
 
     private String generateNewId(@NotNull final String path) {
-        return databaseReference.child(path).push().getKey();
+        return backend.generateKey(path);
     }
 
     /// run a transaction on the data at a specific path </br>
@@ -190,31 +588,19 @@ public class DatabaseService {
     /// @param clazz    the class of the object to return
     /// @param function the function to apply to the current value of the data
     /// @param callback the callback to call when the operation is completed
-    /// @see DatabaseReference#runTransaction(Transaction.Handler)
+    /// @see DataBackend#runTransaction(String, DataBackend.TransactionHandler, DatabaseCallback)
     private <T> void runTransaction(@NotNull final String path, @NotNull final Class<T> clazz, @NotNull UnaryOperator<T> function, @NotNull final DatabaseCallback<T> callback) {
-        readData(path).runTransaction(new Transaction.Handler() {
-            @NonNull
-            @Override
-            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
-                T currentValue = currentData.getValue(clazz);
-                if (currentValue == null) {
-                    currentValue = function.apply(null);
-                } else {
-                    currentValue = function.apply(currentValue);
-                }
-                currentData.setValue(currentValue);
-                return Transaction.success(currentData);
+        invalidateCached(path);
+        backend.runTransaction(path, currentData -> function.apply(currentData.getValue(clazz)), new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode currentData) {
+                callback.onCompleted(currentData.getValue(clazz));
             }
 
             @Override
-            public void onComplete(@Nullable DatabaseError error, boolean committed, @Nullable DataSnapshot currentData) {
-                if (error != null) {
-                    Log.e(TAG, "Transaction failed", error.toException());
-                    callback.onFailed(error.toException());
-                    return;
-                }
-                T result = currentData != null ? currentData.getValue(clazz) : null;
-                callback.onCompleted(result);
+            public void onFailed(Exception e) {
+                Log.e(TAG, "Transaction failed", e);
+                callback.onFailed(e);
             }
         });
 
@@ -229,10 +615,65 @@ public class DatabaseService {
         return generateNewId(USERS_PATH);
     }
 
+    /// store an image in the media store (if it isn't a hash already) and then write the object that refers to it
+    ///
+    /// @param image    the base64 image, its hash, or null
+    /// @param callback the callback of the write, failed if the image couldn't be stored
+    /// @param write    writes the object with the hash of the image (null if there is no image)
+    private void withStoredImage(@Nullable final String image, @Nullable final DatabaseCallback<Void> callback, @NonNull final Consumer<String> write) {
+        mediaStore.store(image, new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(String imageHash) {
+                write.accept(imageHash);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                Log.e(TAG, "Failed to store image", e);
+                if (callback != null) callback.onFailed(e);
+            }
+        });
+    }
+
     // endregion of private methods for reading and writing data
 
     // public methods to interact with the database
 
+    // region Media Section
+
+    /// store an image in the media store, if it isn't stored already.
+    /// createNewUser(), updateUser(), createNewGroup() and updateGroup() already do this for the images of the objects
+    ///
+    /// @param image    a base64 image
+    /// @param callback the callback to call with the hash of the image, to keep instead of the image
+    /// @see MediaStore
+    public void storeImage(@Nullable final String image, @NotNull final DatabaseCallback<String> callback) {
+        mediaStore.store(image, callback);
+    }
+
+    /// get an image of a user or a group
+    ///
+    /// @param image    the value of User.profileImage or Group.groupImage: a media hash, or an inline base64 image of an object
+    ///                 that wasn't saved since the media store (returned as is)
+    /// @param variant  the variant of the image to read
+    /// @param callback the callback to call with the base64 image, or null if there is no such image
+    public void getImage(@Nullable final String image, @NotNull final MediaStore.Variant variant, @NotNull final DatabaseCallback<String> callback) {
+        if (MediaStore.isMediaHash(image)) {
+            mediaStore.load(image, variant, callback);
+        } else {
+            callback.onCompleted(image == null || image.isEmpty() ? null : image);
+        }
+    }
+
+    /// the media store behind storeImage() and getImage(), for its counters
+    @NonNull
+    @VisibleForTesting
+    MediaStore getMediaStore() {
+        return mediaStore;
+    }
+
+    // endregion Media Section
+
     // region User Section
 
     /// create a new user in the database
@@ -244,10 +685,41 @@ public class DatabaseService {
     /// @see DatabaseCallback
     /// @see User
     public void createNewUser(@NotNull final User user, @Nullable final DatabaseCallback<Void> callback) {
-        writeData(USERS_PATH + "/" + user.getId(), user, callback);
+        withStoredImage(user.getProfileImage(), callback, imageHash -> {
+            user.setProfileImage(imageHash);
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(USERS_PATH + "/" + user.getId(), user);
+            updates.put(USERS_PUBLIC_PATH + "/" + user.getId(), toPublicProfile(user));
+            addStatsIncrement(updates, "users", 1);
+            addActivityIncrement(updates, ActivitySeries.SIGNUPS);
+            updateData(updates, callback);
+        });
+    }
+
+    /// the user_public node of a user
+    ///
+    /// @param user the user
+    /// @return map of the public fields of the user
+    @NonNull
+    private Map<String, Object> toPublicProfile(@NonNull final User user) {
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("firstName", user.getFirstName());
+        profile.put("lastName", user.getLastName());
+        profile.put("isAdmin", user.getIsAdmin());
+        profile.put("profileThumbnail", toThumbnail(user.getProfileImage()));
+        return profile;
+    }
+
+    /// @param profileImage the media hash of the image, or an inline base64 image of a user that wasn't saved since the media store
+    /// @return the hash as is (its thumbnail variant is shown), or a small inline copy of the old image
+    @Nullable
+    private String toThumbnail(@Nullable final String profileImage) {
+        if (profileImage == null || profileImage.isEmpty()) return null;
+        if (MediaStore.isMediaHash(profileImage)) return profileImage;
+        return thumbnailMaker.apply(profileImage);
     }
 
-    /// get a user from the database
+    /// get a user from the database, or from the shared cache if it was read lately
     ///
     /// @param uid      the id of the user to get
     /// @param callback the callback to call when the operation is completed
@@ -256,6 +728,11 @@ public class DatabaseService {
     /// @see DatabaseCallback
     /// @see User
     public void getUser(@NotNull final String uid, @NotNull final DatabaseCallback<User> callback) {
+        userCache.get(uid, callback);
+    }
+
+    /// read a user from the database, without the cache
+    private void readUser(@NotNull final String uid, @NotNull final DatabaseCallback<User> callback) {
         getData(USERS_PATH + "/" + uid, User.class, callback);
     }
 
@@ -271,12 +748,104 @@ public class DatabaseService {
         getDataList(USERS_PATH, User.class, callback);
     }
 
+    /// get a page of the users, ordered by first name
+    ///
+    /// @param after    the cursor of the previous page, or null for the first page
+    /// @param pageSize the maximal number of users in the page
+    /// @param callback the callback to call with the page
+    /// @see Page
+    public void getUsersPage(@Nullable final Page.Cursor after, final int pageSize, @NotNull final DatabaseCallback<Page<User>> callback) {
+        getPage(USERS_PATH, "firstName", false, after, pageSize, SnapshotMappers.USER, callback);
+    }
+
+    /// get users by their ids, at most BATCH_MAX_IN_FLIGHT reads at a time.
+    /// users read before are taken from memory, and a user that is already being read is read once
+    /// every user is a copy of the cached one, like the users getUser() returns, so the callback may edit them
+    ///
+    /// @param userIds  the ids of the users, e.g. the members of a group
+    /// @param callback the callback to call with the users (ordered by name), the ids of deleted users and the failed reads
+    /// @see CoalescingCache
+    public void getUsersByIds(@NotNull final Collection<String> userIds, @NotNull final DatabaseCallback<BatchFetcher.Result<User>> callback) {
+        usersFetcher.fetch(userIds, callback);
+    }
+
+    /// the caches behind getUser(), getGroup() and getEvent(), for their counters
+    @NonNull
+    @VisibleForTesting
+    CoalescingCache<User> getUserCache() {
+        return userCache;
+    }
+
+    @NonNull
+    @VisibleForTesting
+    CoalescingCache<Group> getGroupCache() {
+        return groupCache;
+    }
+
+    @NonNull
+    @VisibleForTesting
+    CoalescingCache<Event> getEventCache() {
+        return eventCache;
+    }
+
+    /// get the public profile of a user (name, small image and admin flag), for showing the user in a list.
+    /// much smaller than getUser(), and shared between all the rows that show the same user
+    ///
+    /// @param uid      the id of the user
+    /// @param callback the callback to call with the profile, or null if the user doesn't exist
+    /// @see UserSummary
+    public void getUserSummary(@NotNull final String uid, @NotNull final DatabaseCallback<UserSummary> callback) {
+        summaryCache.get(uid, callback);
+    }
+
+    /// read user_public/{uid}. users created before user_public existed don't have it,
+    /// for them the full user is read once and its public profile is written
+    private void readUserSummary(@NotNull final String uid, @NotNull final DatabaseCallback<UserSummary> callback) {
+        getData(USERS_PUBLIC_PATH + "/" + uid, UserSummary.class, new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(UserSummary summary) {
+                if (summary != null) {
+                    callback.onCompleted(summary);
+                    return;
+                }
+                getUser(uid, new DatabaseCallback<>() {
+                    @Override
+                    public void onCompleted(User user) {
+                        if (user == null) {
+                            callback.onCompleted(null);
+                            return;
+                        }
+                        Map<String, Object> profile = toPublicProfile(user);
+                        // not through writeData(), the summary being read is made from this same profile and may be cached
+                        backend.setValue(USERS_PUBLIC_PATH + "/" + uid, profile, null);
+                        callback.onCompleted(new UserSummary(uid, user.getFirstName(), user.getLastName(),
+                                user.getIsAdmin(), (String) profile.get("profileThumbnail")));
+                    }
+
+                    @Override
+                    public void onFailed(Exception e) {
+                        callback.onFailed(e);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
     /// delete a user from the database
     ///
     /// @param uid      the user id to delete
     /// @param callback the callback to call when the operation is completed
     public void deleteUser(@NotNull final String uid, @Nullable final DatabaseCallback<Void> callback) {
-        deleteData(USERS_PATH + "/" + uid, callback);
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(USERS_PATH + "/" + uid, null);
+        updates.put(USERS_PUBLIC_PATH + "/" + uid, null);
+        addStatsIncrement(updates, "users", -1);
+        updateData(updates, callback);
     }
 
     /**
@@ -287,19 +856,25 @@ public class DatabaseService {
     public void deleteUserCompletely(@NotNull final User userToDelete, @Nullable final DatabaseCallback<Void> callback) {
         String userId = userToDelete.getId();
 
-        getAllGroups(new DatabaseCallback<>() {
+        // קריאה חד-פעמית (ולא מאזין קבוע) כדי שהמחיקה לא תרוץ שוב בכל שינוי בקבוצות או באירועים
+        getDataList(GROUPS_PATH, Group.class, new DatabaseCallback<>() {
             @Override
             public void onCompleted(List<Group> allGroups) {
 
-                getAllEvents(new DatabaseCallback<>() {
+                getDataList(EVENTS_PATH, Event.class, new DatabaseCallback<>() {
                     @Override
                     public void onCompleted(List<Event> allEvents) {
                         Map<String, Object> updates = new HashMap<>();
                         Map<String, Integer> pastEventsToIncrement = new HashMap<>();
                         long currentTime = System.currentTimeMillis();
+                        int deletedGroups = 0;
+                        int deletedEvents = 0;
 
                         // 1. הכנת מחיקת פרופיל המשתמש עצמו
                         updates.put(USERS_PATH + "/" + userId, null);
+                        updates.put(USERS_PUBLIC_PATH + "/" + userId, null);
+                        updates.put(USER_UNREAD_PATH + "/" + userId, null);
+                        updates.put(USER_INBOX_PATH + "/" + userId, null);
 
                         // 2. סריקה וטיפול בכל הקבוצות באפליקציה
                         if (allGroups != null) {
@@ -309,13 +884,16 @@ public class DatabaseService {
                                 if (isCreator) {
                                     // מחיקת הקבוצה שיצר וכל הצ'אטים שלה
                                     updates.put(GROUPS_PATH + "/" + group.getId(), null);
+                                    deletedGroups++;
                                     updates.put(GROUP_CHATS_PATH + "/" + group.getId(), null);
+                                    updates.put(GROUP_CHAT_DELETIONS_PATH + "/" + group.getId(), null);
 
                                     // הסרת הקבוצה מרשימת הקבוצות של שאר המשתתפים
                                     if (group.getMembers() != null) {
                                         for (String memberId : group.getMembers().keySet()) {
                                             if (!memberId.equals(userId)) {
                                                 updates.put(USERS_PATH + "/" + memberId + "/groupIds/" + group.getId(), null);
+                                                updates.put(USER_UNREAD_PATH + "/" + memberId + "/" + group.getId(), null);
                                             }
                                         }
                                     }
@@ -338,6 +916,7 @@ public class DatabaseService {
                                 // מוחקים את האירוע אם המשתמש יצר אותו וזה אירוע עצמאי, או אם הקבוצה שלו נמחקת
                                 if ((isCreator && event.isIndependent()) || isGroupDeleted) {
                                     updates.put(EVENTS_PATH + "/" + event.getId(), null);
+                                    deletedEvents++;
                                     updates.put("event_comments/" + event.getId(), null);
 
                                     boolean isPastEvent = event.getEndTimestamp() < currentTime;
@@ -363,17 +942,16 @@ public class DatabaseService {
                         // עדכון הניקוד (Gamification) למשתמשים אחרים שהיו באירועים שנמחקו
                         for (Map.Entry<String, Integer> entry : pastEventsToIncrement.entrySet()) {
                             updates.put(USERS_PATH + "/" + entry.getKey() + "/pastEventsCount",
-                                    com.google.firebase.database.ServerValue.increment(entry.getValue()));
+                                    backend.serverIncrement(entry.getValue()));
                         }
 
+                        // עדכון המונים של לוח הבקרה
+                        addStatsIncrement(updates, "users", -1);
+                        addStatsIncrement(updates, "groups", -deletedGroups);
+                        addStatsIncrement(updates, "events", -deletedEvents);
+
                         // 4. שיגור כל העדכונים ל-Firebase כמקשה אחת (Atomic Update)
-                        databaseReference.updateChildren(updates).addOnCompleteListener(task -> {
-                            if (task.isSuccessful()) {
-                                if (callback != null) callback.onCompleted(null);
-                            } else {
-                                if (callback != null) callback.onFailed(task.getException());
-                            }
-                        });
+                        updateData(updates, callback);
                     }
 
                     @Override
@@ -403,68 +981,74 @@ public class DatabaseService {
     /// get a user by email and password
     public void getUserByEmailAndPassword(@NotNull final String email, @NotNull final String password, @NotNull final DatabaseCallback<User> callback) {
         // ביצוע שאילתה ישירה בשרת במקום להוריד את כל המשתמשים
-        databaseReference.child(USERS_PATH).orderByChild("email").equalTo(email)
-                .addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        if (snapshot.exists()) {
-                            // snapshot עשוי להכיל מספר תוצאות (למרות שאימייל אמור להיות ייחודי), נרוץ על הילדים
-                            for (DataSnapshot userSnapshot : snapshot.getChildren()) {
-                                User user = userSnapshot.getValue(User.class);
-                                if (user != null && Objects.equals(user.getPassword(), password)) {
-                                    callback.onCompleted(user);
-                                    return;
-                                }
-                            }
+        backend.get(readData(USERS_PATH).orderByChild("email").equalTo(email), new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode snapshot) {
+                if (snapshot.exists()) {
+                    // snapshot עשוי להכיל מספר תוצאות (למרות שאימייל אמור להיות ייחודי), נרוץ על הילדים
+                    for (DataNode userSnapshot : snapshot.getChildren()) {
+                        User user = SnapshotMappers.USER.map(userSnapshot);
+                        if (user != null && Objects.equals(user.getPassword(), password)) {
+                            callback.onCompleted(user);
+                            return;
                         }
-                        // אם הגענו לכאן - לא נמצא משתמש או שהסיסמה שגויה
-                        callback.onCompleted(null);
                     }
+                }
+                // אם הגענו לכאן - לא נמצא משתמש או שהסיסמה שגויה
+                callback.onCompleted(null);
+            }
 
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {
-                        callback.onFailed(error.toException());
-                    }
-                });
+            @Override
+            public void onFailed(Exception e) {
+                callback.onFailed(e);
+            }
+        });
     }
 
     /// check if an email already exists in the database
     /// check if an email already exists in the database
     public void checkIfEmailExists(@NotNull final String email, @NotNull final DatabaseCallback<Boolean> callback) {
         // ביצוע שאילתה ישירה בשרת במקום להוריד את כל המשתמשים
-        databaseReference.child(USERS_PATH).orderByChild("email").equalTo(email)
-                .addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        // אם יש תוצאה, האימייל קיים
-                        callback.onCompleted(snapshot.exists());
-                    }
+        backend.get(readData(USERS_PATH).orderByChild("email").equalTo(email), new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode snapshot) {
+                // אם יש תוצאה, האימייל קיים
+                callback.onCompleted(snapshot.exists());
+            }
 
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {
-                        callback.onFailed(error.toException());
-                    }
-                });
+            @Override
+            public void onFailed(Exception e) {
+                callback.onFailed(e);
+            }
+        });
     }
 
     public void updateUser(@NotNull final User user, @Nullable final DatabaseCallback<Void> callback) {
+        // תמונה חדשה נשמרת קודם במאגר המדיה, והמשתמש שומר רק את ה-hash שלה
+        withStoredImage(user.getProfileImage(), callback, imageHash -> {
+            user.setProfileImage(imageHash);
+            writeUserProfile(user, callback);
+        });
+    }
+
+    private void writeUserProfile(@NotNull final User user, @Nullable final DatabaseCallback<Void> callback) {
         // ניצור מפה של השדות שאנחנו רוצים לעדכן בלבד, כדי לא לדרוס רשימות כמו eventIds/groupIds
+        String userPath = USERS_PATH + "/" + user.getId();
+        String publicPath = USERS_PUBLIC_PATH + "/" + user.getId();
         Map<String, Object> updates = new HashMap<>();
-        updates.put("firstName", user.getFirstName());
-        updates.put("lastName", user.getLastName());
-        updates.put("phone", user.getPhone());
-        updates.put("profileImage", user.getProfileImage());
-        updates.put("email", user.getEmail());
-        updates.put("password", user.getPassword());
-
-        databaseReference.child(USERS_PATH).child(user.getId()).updateChildren(updates)
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (callback != null) callback.onCompleted(null);
-                    } else {
-                        if (callback != null) callback.onFailed(task.getException());
-                    }
-                });
+        updates.put(userPath + "/firstName", user.getFirstName());
+        updates.put(userPath + "/lastName", user.getLastName());
+        updates.put(userPath + "/phone", user.getPhone());
+        updates.put(userPath + "/profileImage", user.getProfileImage());
+        updates.put(userPath + "/email", user.getEmail());
+        updates.put(userPath + "/password", user.getPassword());
+
+        // עדכון הפרופיל הציבורי באותה כתיבה, כדי שהרשימות לא יראו שם או תמונה ישנים
+        updates.put(publicPath + "/firstName", user.getFirstName());
+        updates.put(publicPath + "/lastName", user.getLastName());
+        updates.put(publicPath + "/profileThumbnail", toThumbnail(user.getProfileImage()));
+
+        updateData(updates, callback);
     }
 
     /// update only the admin status of a user
@@ -473,223 +1057,198 @@ public class DatabaseService {
     /// @param isAdmin  new admin value (true/false)
     /// @param callback result callback
     public void updateUserAdminStatus(@NotNull final String uid, boolean isAdmin, @Nullable final DatabaseCallback<Void> callback) {
-        readData(USERS_PATH + "/" + uid + "/isAdmin")
-                .setValue(isAdmin, (error, ref) -> {
-                    if (error != null) {
-                        if (callback != null) callback.onFailed(error.toException());
-                    } else {
-                        if (callback != null) callback.onCompleted(null);
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(USERS_PATH + "/" + uid + "/isAdmin", isAdmin);
+        updates.put(USERS_PUBLIC_PATH + "/" + uid + "/isAdmin", isAdmin);
+        updateData(updates, callback);
+    }
+
+    /// show a notification for every new entry of the inbox of a user, with one listener on the newest entries.
+    /// every entry is notified once: the ids of the entries notified are kept on the device, so the entries
+    /// that arrived while the app was closed are notified on the next start and the others are skipped.
+    /// there is one listener for the logged in user: calling this again for the same user, e.g. from a recreated
+    /// Activity, keeps the listener, and calling it for another user replaces it. called on the main thread
+    ///
+    /// @param currentUserId the id of the logged in user
+    /// @param context       the context for the notifications
+    /// @see #listenToInbox(String, long, DatabaseCallback)
+    /// @see #stopNotifications()
+    /// @see SeenSet
+    public void listenForNotifications(@NotNull String currentUserId, @NonNull Context context) {
+        if (currentUserId.equals(inboxUserId)) return;
+        stopNotifications();
+        inboxUserId = currentUserId;
+        // the listener outlives the Activity that started it
+        final Context appContext = context.getApplicationContext();
+        final long listenerStartTime = System.currentTimeMillis();
+        final SeenSet seen = SeenSet.forUser(appContext, currentUserId);
+
+        // קריאת ההתראות שכבר הוצגו מהקובץ, ברקע
+        ioExecutor.execute(() -> {
+            // בהפעלה הראשונה לא נתריע על רשומות ישנות, אחר כך נתריע גם על מה שהגיע כשהאפליקציה הייתה סגורה
+            final long since = seen.isEmpty() ? listenerStartTime : listenerStartTime - INBOX_CATCH_UP;
+            mainExecutor.execute(() -> {
+                // the user logged out, or logged in again, before the file was read
+                if (!currentUserId.equals(inboxUserId) || inboxRegistration != null) return;
+                inboxRegistration = listenToInbox(currentUserId, since, new DatabaseCallback<>() {
+                    @Override
+                    public void onCompleted(InboxEntry entry) {
+                        if (entry.getType() == null || entry.getId() == null) return;
+                        // כל רשומה מוצגת פעם אחת בלבד
+                        if (!seen.add(entry.getId())) return;
+                        FitLinkNotificationService notifications = FitLinkNotificationService.getInstance(appContext);
+                        switch (entry.getType()) {
+                            case CHAT_MESSAGE:
+                                // לא נתריע אם המשתמש כרגע נמצא בתוך מסך הצ'אט של הקבוצה הזו
+                                if (entry.getGroupId() == null || entry.getGroupId().equals(com.example.fitlink.screens.GroupChatActivity.activeGroupId)) {
+                                    return;
+                                }
+                                notifications.showChatMessageNotification(entry.getGroupId(), entry.getGroupName(), entry.getSenderName(), entry.getText());
+                                break;
+                            case NEW_EVENT:
+                                notifications.showNewEventNotification(entry.getGroupName(), entry.getText(), entry.getRefId());
+                                break;
+                            case JOIN_REQUEST:
+                                notifications.showJoinRequestNotification(entry.getGroupName(), entry.getSenderId());
+                                break;
+                            case JOIN_APPROVED:
+                                notifications.showJoinApprovedNotification(entry.getGroupId(), entry.getGroupName());
+                                break;
+                        }
+                    }
+
+                    @Override
+                    public void onFailed(Exception e) {
+                        Log.e(TAG, "Failed to listen to the inbox for notifications", e);
                     }
                 });
+            });
+        });
+    }
+
+    /// detach the notifications listener of the logged in user, when the user logs out
+    ///
+    /// @see #listenForNotifications(String, Context)
+    public void stopNotifications() {
+        inboxUserId = null;
+        if (inboxRegistration != null) {
+            inboxRegistration.remove();
+            inboxRegistration = null;
+        }
     }
 
-    public void listenForNewJoinRequests(String currentUserId, Context context) {
-        // קודם נשלוף את פרטי המשתמש כדי לדעת באילו קבוצות הוא נמצא
-        getUser(currentUserId, new DatabaseCallback<>() {
+    /// listen to the entries added to the inbox of a user after a given time.
+    /// only the newest INBOX_LISTEN_LIMIT entries are downloaded when the listener is attached
+    ///
+    /// @param userId   the id of the user
+    /// @param since    the server time to listen from
+    /// @param callback called with every new entry
+    /// @return a registration to detach the listener
+    DataBackend.ListenerRegistration listenToInbox(@NotNull String userId, long since, @NotNull final DatabaseCallback<InboxEntry> callback) {
+        return backend.addChildListener(readData(USER_INBOX_PATH + "/" + userId).orderByChild("createdAt").startAt(since)
+                .limitToLast(INBOX_LISTEN_LIMIT), new DataBackend.ChildListener() {
             @Override
-            public void onCompleted(User user) {
-                if (user == null || user.getGroupIds() == null || user.getGroupIds().isEmpty()) {
-                    isFirstLoad = false;
-                    return;
-                }
-
-                // נעבור על כל הקבוצות של המשתמש ונאזין *אך ורק* להן!
-                for (String groupId : user.getGroupIds().keySet()) {
-                    databaseReference.child(GROUPS_PATH).child(groupId)
-                            .addValueEventListener(new ValueEventListener() {
-                                @Override
-                                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                                    Group group = snapshot.getValue(Group.class);
-                                    if (group == null) return;
-
-                                    boolean isCreator = group.getCreatorId() != null && group.getCreatorId().equals(currentUserId);
-                                    boolean isManager = group.getManagers() != null && group.getManagers().containsKey(currentUserId);
-
-                                    // מציג התראות רק למנהלים או ליוצר הקבוצה
-                                    if (isCreator || isManager) {
-                                        if (group.getPendingRequests() != null) {
-                                            for (String requesterId : group.getPendingRequests().keySet()) {
-                                                String uniqueRequestId = group.getId() + "_" + requesterId;
-
-                                                if (!notifiedRequests.contains(uniqueRequestId)) {
-                                                    notifiedRequests.add(uniqueRequestId);
-
-                                                    if (!isFirstLoad) {
-                                                        FitLinkNotificationService.getInstance(context)
-                                                                .showJoinRequestNotification(group.getName(), requesterId);
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-
-                                @Override
-                                public void onCancelled(@NonNull DatabaseError error) {
-                                    Log.e(TAG, "Failed to listen to group requests", error.toException());
-                                }
-                            });
-                }
-
-                // מורידים את דגל הטעינה הראשונית אחרי השהייה קלה כדי לא להקפיץ התראות מהעבר
-                new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> isFirstLoad = false, 2000);
-            }
+            public void onChildAdded(@NonNull DataNode node, @Nullable String previousChildKey) {
+                InboxEntry entry = SnapshotMappers.INBOX_ENTRY.map(node);
+                if (entry != null) callback.onCompleted(entry);
+            }
 
             @Override
-            public void onFailed(Exception e) {
-                Log.e(TAG, "Failed to fetch user for join requests", e);
+            public void onCancelled(@NonNull Exception e) {
+                callback.onFailed(e);
             }
         });
     }
 
-    public void listenForNewChatMessages(String currentUserId, Context context) {
-        // נשמור את זמן ההפעלה, כדי שלא נקבל התראות על היסטוריית ההודעות בעת פתיחת האפליקציה
-        final long listenerStartTime = System.currentTimeMillis();
-
-        getUser(currentUserId, new DatabaseCallback<>() {
+    /// delete the old entries of the inbox of a user, and the entries beyond the newest INBOX_MAX_ENTRIES
+    ///
+    /// @param userId          the id of the user
+    /// @param cutoffTimestamp entries written before this time are deleted
+    /// @param callback        called with the number of entries deleted
+    public void trimInbox(@NotNull final String userId, final long cutoffTimestamp, @Nullable final DatabaseCallback<Integer> callback) {
+        final String path = USER_INBOX_PATH + "/" + userId;
+        // the oldest of the newest entries kept, everything before it is deleted too
+        backend.get(readData(path).orderByChild("createdAt").limitToLast(INBOX_MAX_ENTRIES), new DatabaseCallback<>() {
             @Override
-            public void onCompleted(User user) {
-                if (user == null || user.getGroupIds() == null || user.getGroupIds().isEmpty()) {
-                    return;
+            public void onCompleted(DataNode newest) {
+                DataQuery old = readData(path).orderByChild("createdAt").endBefore(cutoffTimestamp);
+                if (newest.getChildrenCount() >= INBOX_MAX_ENTRIES) {
+                    // entries written at the same time are ordered by their keys
+                    DataNode oldestKept = newest.getChildren().iterator().next();
+                    Object createdAt = oldestKept.child("createdAt").getValue();
+                    if (createdAt instanceof Number && ((Number) createdAt).longValue() >= cutoffTimestamp) {
+                        old = readData(path).orderByChild("createdAt").endBefore(createdAt, oldestKept.getKey());
+                    }
                 }
 
-                // עוברים על כל קבוצה שהמשתמש חבר בה
-                for (String groupId : user.getGroupIds().keySet()) {
-
-                    // קודם נשלוף את שם הקבוצה כדי להציג בהתראה
-                    getGroup(groupId, new DatabaseCallback<>() {
-                        @Override
-                        public void onCompleted(Group group) {
-                            if (group == null) return;
-
-                            String groupName = group.getName();
-
-                            // מאזינים רק להודעות שנוצרו אחרי שהמאזין הופעל!
-                            databaseReference.child(GROUP_CHATS_PATH).child(groupId)
-                                    .orderByChild("timestamp").startAt((double) listenerStartTime)
-                                    .addChildEventListener(new ChildEventListener() {
-                                        @Override
-                                        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
-                                            ChatMessage message = snapshot.getValue(ChatMessage.class);
-                                            if (message == null) return;
-
-                                            // 1. לא נתריע על הודעות שהמשתמש עצמו שלח
-                                            boolean isMyMessage = message.getSenderId().equals(currentUserId);
-
-                                            // 2. לא נתריע אם המשתמש כרגע נמצא בתוך מסך הצ'אט של הקבוצה הזו
-                                            boolean isChatCurrentlyOpen = groupId.equals(com.example.fitlink.screens.GroupChatActivity.activeGroupId);
-
-                                            if (!isMyMessage && !isChatCurrentlyOpen) {
-                                                FitLinkNotificationService.getInstance(context)
-                                                        .showChatMessageNotification(
-                                                                groupId,
-                                                                groupName,
-                                                                message.getSenderName(),
-                                                                message.getText()
-                                                        );
-                                            }
-                                        }
-
-                                        @Override
-                                        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
-                                        }
-
-                                        @Override
-                                        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
-                                        }
-
-                                        @Override
-                                        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
-                                        }
-
-                                        @Override
-                                        public void onCancelled(@NonNull DatabaseError error) {
-                                        }
-                                    });
+                backend.get(old, new DatabaseCallback<>() {
+                    @Override
+                    public void onCompleted(DataNode entries) {
+                        if (entries.getChildrenCount() == 0) {
+                            if (callback != null) callback.onCompleted(0);
+                            return;
                         }
-
-                        @Override
-                        public void onFailed(Exception e) {
+                        Map<String, Object> updates = new HashMap<>();
+                        for (DataNode entry : entries.getChildren()) {
+                            updates.put(path + "/" + entry.getKey(), null);
                         }
-                    });
-                }
-            }
-
-            @Override
-            public void onFailed(Exception e) {
-                Log.e(TAG, "Failed to fetch user for chat notifications", e);
-            }
-        });
-    }
-
-    public void listenForNewEvents(String currentUserId, Context context) {
-        // נשתמש בזמן הנוכחי כדי למנוע התראות על אירועים ישנים בעת הפעלת האפליקציה
-        final long listenerStartTime = System.currentTimeMillis();
-
-        // שליפת פרטי המשתמש כדי לדעת לאילו קבוצות הוא שייך
-        getUser(currentUserId, new DatabaseCallback<>() {
-            @Override
-            public void onCompleted(User user) {
-                if (user == null || user.getGroupIds() == null || user.getGroupIds().isEmpty()) {
-                    return;
-                }
-
-                // האזנה לשינויים בטבלת האירועים הכללית
-                databaseReference.child(EVENTS_PATH)
-                        .addChildEventListener(new com.google.firebase.database.ChildEventListener() {
-                            @Override
-                            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
-                                com.example.fitlink.models.Event event = snapshot.getValue(com.example.fitlink.models.Event.class);
-                                if (event == null) return;
-
-                                // בדיקה: האם האירוע חדש והאם הוא שייך לאחת הקבוצות של המשתמש
-                                boolean isNewEvent = event.getStartTimestamp() > 0; // ניתן להוסיף שדה createdAt במידה ויש
-                                boolean belongsToMyGroups = user.getGroupIds().containsKey(event.getGroupId());
-                                boolean isNotMyEvent = !event.getCreatorId().equals(currentUserId);
-
-                                if (belongsToMyGroups && isNotMyEvent) {
-                                    // שליפת שם הקבוצה לצורך התצוגה בהתראה
-                                    getGroup(event.getGroupId(), new DatabaseCallback<>() {
-                                        @Override
-                                        public void onCompleted(Group group) {
-                                            if (group != null) {
-                                                FitLinkNotificationService.getInstance(context)
-                                                        .showNewEventNotification(group.getName(), event.getTitle(), event.getId());
-                                            }
-                                        }
-
-                                        @Override
-                                        public void onFailed(Exception e) {
-                                        }
-                                    });
-                                }
-                            }
-
-                            @Override
-                            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
-                            }
-
-                            @Override
-                            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
-                            }
-
+                        updateData(updates, new DatabaseCallback<>() {
                             @Override
-                            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                            public void onCompleted(Void object) {
+                                if (callback != null) callback.onCompleted(updates.size());
                             }
 
                             @Override
-                            public void onCancelled(@NonNull DatabaseError error) {
+                            public void onFailed(Exception e) {
+                                if (callback != null) callback.onFailed(e);
                             }
                         });
+                    }
+
+                    @Override
+                    public void onFailed(Exception e) {
+                        if (callback != null) callback.onFailed(e);
+                    }
+                });
             }
 
             @Override
             public void onFailed(Exception e) {
-                Log.e(TAG, "Failed to fetch user for event notifications", e);
+                if (callback != null) callback.onFailed(e);
             }
         });
     }
 
+    /// add an entry to the inboxes of users, to the updates of the change the entry tells about
+    ///
+    /// @param updates    the updates of the change
+    /// @param recipients the ids of the users to notify
+    /// @param type       what the entry tells about
+    /// @param group      the group of the change
+    /// @param refId      the id of the message, event or user the entry is about
+    /// @param senderId   the id of the user who made the change, not notified, or null
+    /// @param senderName the name of the user who made the change, or null
+    /// @param text       the text of the message or the title of the event, or null
+    private void addInboxEntry(@NonNull Map<String, Object> updates, @NonNull Iterable<String> recipients, @NonNull InboxEntryType type,
+                               @NonNull Group group, @Nullable String refId, @Nullable String senderId, @Nullable String senderName, @Nullable String text) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("type", type.name());
+        entry.put("groupId", group.getId());
+        entry.put("groupName", group.getName());
+        entry.put("refId", refId);
+        entry.put("senderId", senderId);
+        entry.put("senderName", senderName);
+        entry.put("text", text != null && text.length() > INBOX_TEXT_LENGTH ? text.substring(0, INBOX_TEXT_LENGTH) : text);
+        entry.put("createdAt", backend.serverTimestamp());
+
+        // the same key in every inbox, the entries of one change are written once per user
+        String entryId = generateNewId(USER_INBOX_PATH);
+        for (String userId : recipients) {
+            if (userId.equals(senderId)) continue;
+            updates.put(USER_INBOX_PATH + "/" + userId + "/" + entryId, entry);
+        }
+    }
+
     /**
      * Creates a new sports group and updates the creator's user record.
      */
@@ -700,43 +1259,37 @@ public class DatabaseService {
             group.setId(groupId);
         }
 
-        Map<String, Object> updates = new HashMap<>();
-        updates.put(GROUPS_PATH + "/" + groupId, group);
-        updates.put(USERS_PATH + "/" + group.getCreatorId() + "/groupIds/" + groupId, true);
+        final String newGroupId = groupId;
+        withStoredImage(group.getGroupImage(), callback, imageHash -> {
+            group.setGroupImage(imageHash);
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(GROUPS_PATH + "/" + newGroupId, group);
+            updates.put(USERS_PATH + "/" + group.getCreatorId() + "/groupIds/" + newGroupId, true);
+            addStatsIncrement(updates, "groups", 1);
 
-        databaseReference.updateChildren(updates).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                if (callback != null) callback.onCompleted(null);
-            } else {
-                if (callback != null) callback.onFailed(task.getException());
-            }
+            updateData(updates, callback);
         });
     }
 
     // region Group Section
 
     /**
-     * Retrieves all available groups.
+     * Retrieves all available groups, and again on every change.
+     * The listener is shared with other screens and removed when the owner is destroyed.
+     * Subscribing again with the same key replaces the previous subscription of the owner.
      */
-    public void getAllGroups(@NotNull final DatabaseCallback<List<Group>> callback) {
-        databaseReference.child(GROUPS_PATH).addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                List<Group> groups = new ArrayList<>();
-                for (DataSnapshot groupSnapshot : snapshot.getChildren()) {
-                    Group group = groupSnapshot.getValue(Group.class);
-                    if (group != null) {
-                        groups.add(group);
-                    }
-                }
-                callback.onCompleted(groups);
-            }
+    public DataBackend.ListenerRegistration getAllGroups(@NonNull final LifecycleOwner owner, @NonNull final String key, @NotNull final DatabaseCallback<List<Group>> callback) {
+        return listenToList(owner, key, readData(GROUPS_PATH), Group.class, callback);
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                callback.onFailed(error.toException());
-            }
-        });
+    /// get a page of the groups, ordered by name
+    ///
+    /// @param after    the cursor of the previous page, or null for the first page
+    /// @param pageSize the maximal number of groups in the page
+    /// @param callback the callback to call with the page
+    /// @see Page
+    public void getGroupsPage(@Nullable final Page.Cursor after, final int pageSize, @NotNull final DatabaseCallback<Page<Group>> callback) {
+        getPage(GROUPS_PATH, "name", false, after, pageSize, SnapshotMappers.GROUP, callback);
     }
 
     /**
@@ -746,14 +1299,9 @@ public class DatabaseService {
         Map<String, Object> updates = new HashMap<>();
         updates.put(GROUPS_PATH + "/" + groupId + "/members/" + userId, true);
         updates.put(USERS_PATH + "/" + userId + "/groupIds/" + groupId, true);
+        addActivityIncrement(updates, ActivitySeries.JOINS);
 
-        databaseReference.updateChildren(updates).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                if (callback != null) callback.onCompleted(null);
-            } else {
-                if (callback != null) callback.onFailed(task.getException());
-            }
-        });
+        updateData(updates, callback);
     }
 
     /**
@@ -764,14 +1312,9 @@ public class DatabaseService {
         updates.put(GROUPS_PATH + "/" + groupId + "/members/" + userId, null);
         updates.put(GROUPS_PATH + "/" + groupId + "/managers/" + userId, null); // חדש: מסיר את המשתמש גם מרשימת המנהלים במידה והיה כזה
         updates.put(USERS_PATH + "/" + userId + "/groupIds/" + groupId, null);
+        updates.put(USER_UNREAD_PATH + "/" + userId + "/" + groupId, null);
 
-        databaseReference.updateChildren(updates).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                if (callback != null) callback.onCompleted(null);
-            } else {
-                if (callback != null) callback.onFailed(task.getException());
-            }
-        });
+        updateData(updates, callback);
     }
 
     /**
@@ -785,16 +1328,14 @@ public class DatabaseService {
         updates.put("sportType", group.getSportType());
         updates.put("level", group.getLevel());
         updates.put("location", group.getLocation());
-        updates.put("groupImage", group.getGroupImage());
-
-        databaseReference.child(GROUPS_PATH).child(group.getId()).updateChildren(updates)
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (callback != null) callback.onCompleted(null);
-                    } else {
-                        if (callback != null) callback.onFailed(task.getException());
-                    }
-                });
+
+        withStoredImage(group.getGroupImage(), callback, imageHash -> {
+            group.setGroupImage(imageHash);
+            updates.put("groupImage", imageHash);
+            String path = GROUPS_PATH + "/" + group.getId();
+            invalidateCached(path);
+            backend.updateChildren(path, updates, invalidatingOnFailure(Collections.singleton(path), callback));
+        });
     }
 
     /**
@@ -803,24 +1344,10 @@ public class DatabaseService {
     public void updateGroupManager(@NotNull final String groupId, @NotNull final String userId, boolean isManager, @Nullable final DatabaseCallback<Void> callback) {
         if (isManager) {
             // הוספת מנהל (שמים true תחת מזהה המשתמש)
-            databaseReference.child(GROUPS_PATH).child(groupId).child("managers").child(userId).setValue(true)
-                    .addOnCompleteListener(task -> {
-                        if (task.isSuccessful()) {
-                            if (callback != null) callback.onCompleted(null);
-                        } else {
-                            if (callback != null) callback.onFailed(task.getException());
-                        }
-                    });
+            writeData(GROUPS_PATH + "/" + groupId + "/managers/" + userId, true, callback);
         } else {
             // הסרת מנהל (מוחקים את מזהה המשתמש מרשימת המנהלים)
-            databaseReference.child(GROUPS_PATH).child(groupId).child("managers").child(userId).removeValue()
-                    .addOnCompleteListener(task -> {
-                        if (task.isSuccessful()) {
-                            if (callback != null) callback.onCompleted(null);
-                        } else {
-                            if (callback != null) callback.onFailed(task.getException());
-                        }
-                    });
+            deleteData(GROUPS_PATH + "/" + groupId + "/managers/" + userId, callback);
         }
     }
 
@@ -828,44 +1355,67 @@ public class DatabaseService {
      * User requests to join a group (adds to pendingRequests).
      */
     public void requestToJoinGroup(@NotNull final String groupId, @NotNull final String userId, @Nullable final DatabaseCallback<Void> callback) {
-        databaseReference.child(GROUPS_PATH).child(groupId).child("pendingRequests").child(userId).setValue(true)
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (callback != null) callback.onCompleted(null);
-                    } else {
-                        if (callback != null) callback.onFailed(task.getException());
-                    }
-                });
+        getGroup(groupId, new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(Group group) {
+                // a write under a deleted group would bring back a stub of it
+                if (group == null) {
+                    if (callback != null) callback.onFailed(new Exception("Group not found"));
+                    return;
+                }
+
+                Map<String, Object> updates = new HashMap<>();
+                updates.put(GROUPS_PATH + "/" + groupId + "/pendingRequests/" + userId, backend.serverTimestamp());
+
+                // the creator and the managers are notified through their inboxes
+                Set<String> managers = new HashSet<>();
+                if (group.getCreatorId() != null) managers.add(group.getCreatorId());
+                if (group.getManagers() != null) managers.addAll(group.getManagers().keySet());
+                addInboxEntry(updates, managers, InboxEntryType.JOIN_REQUEST, group, userId, userId, null, null);
+                updateData(updates, callback);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (callback != null) callback.onFailed(e);
+            }
+        });
     }
 
     /**
      * User cancels their pending request to join a group.
      */
     public void cancelJoinRequest(@NotNull final String groupId, @NotNull final String userId, @Nullable final DatabaseCallback<Void> callback) {
-        databaseReference.child(GROUPS_PATH).child(groupId).child("pendingRequests").child(userId).removeValue()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (callback != null) callback.onCompleted(null);
-                    } else {
-                        if (callback != null) callback.onFailed(task.getException());
-                    }
-                });
+        deleteData(GROUPS_PATH + "/" + groupId + "/pendingRequests/" + userId, callback);
     }
 
     /**
      * Manager approves a join request (moves from pending to members).
      */
     public void approveJoinRequest(@NotNull final String groupId, @NotNull final String userId, @Nullable final DatabaseCallback<Void> callback) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put(GROUPS_PATH + "/" + groupId + "/pendingRequests/" + userId, null);
-        updates.put(GROUPS_PATH + "/" + groupId + "/members/" + userId, true);
-        updates.put(USERS_PATH + "/" + userId + "/groupIds/" + groupId, true);
+        getGroup(groupId, new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(Group group) {
+                // a write under a deleted group would bring back a stub of it
+                if (group == null) {
+                    if (callback != null) callback.onFailed(new Exception("Group not found"));
+                    return;
+                }
 
-        databaseReference.updateChildren(updates).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                if (callback != null) callback.onCompleted(null);
-            } else {
-                if (callback != null) callback.onFailed(task.getException());
+                Map<String, Object> updates = new HashMap<>();
+                updates.put(GROUPS_PATH + "/" + groupId + "/pendingRequests/" + userId, null);
+                updates.put(GROUPS_PATH + "/" + groupId + "/members/" + userId, true);
+                updates.put(USERS_PATH + "/" + userId + "/groupIds/" + groupId, true);
+                addActivityIncrement(updates, ActivitySeries.JOINS);
+
+                // the new member is notified through its inbox
+                addInboxEntry(updates, Collections.singleton(userId), InboxEntryType.JOIN_APPROVED, group, groupId, null, null, null);
+                updateData(updates, callback);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (callback != null) callback.onFailed(e);
             }
         });
     }
@@ -874,23 +1424,48 @@ public class DatabaseService {
      * Manager declines a join request (removes from pending).
      */
     public void declineJoinRequest(@NotNull final String groupId, @NotNull final String userId, @Nullable final DatabaseCallback<Void> callback) {
-        databaseReference.child(GROUPS_PATH).child(groupId).child("pendingRequests").child(userId).removeValue()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (callback != null) callback.onCompleted(null);
-                    } else {
-                        if (callback != null) callback.onFailed(task.getException());
-                    }
-                });
+        deleteData(GROUPS_PATH + "/" + groupId + "/pendingRequests/" + userId, callback);
     }
 
     /**
      * Retrieves a specific group by its ID.
+     * Served from the shared cache when the group was read lately.
      */
     public void getGroup(@NotNull final String groupId, @NotNull final DatabaseCallback<Group> callback) {
+        groupCache.get(groupId, callback);
+    }
+
+    /// read a group from the database, without the cache
+    private void readGroup(@NotNull final String groupId, @NotNull final DatabaseCallback<Group> callback) {
         getData(GROUPS_PATH + "/" + groupId, Group.class, callback);
     }
 
+    /// get groups by their ids, at most BATCH_MAX_IN_FLIGHT reads at a time
+    ///
+    /// @param groupIds the ids of the groups
+    /// @param callback the callback to call with the groups (ordered by name), the ids of deleted groups and the failed reads
+    public void getGroupsByIds(@NotNull final Collection<String> groupIds, @NotNull final DatabaseCallback<BatchFetcher.Result<Group>> callback) {
+        groupsFetcher.fetch(groupIds, callback);
+    }
+
+    /// get the groups of a user, using the ids in users/{uid}/groupIds instead of scanning all the groups
+    ///
+    /// @param uid      the id of the user
+    /// @param callback the callback to call with the groups (ordered by name), the ids of deleted groups and the failed reads
+    public void getGroupsForUser(@NotNull final String uid, @NotNull final DatabaseCallback<BatchFetcher.Result<Group>> callback) {
+        getChildKeys(USERS_PATH + "/" + uid + "/groupIds", new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(List<String> groupIds) {
+                getGroupsByIds(groupIds, callback);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
     /**
      * Creates a new event in the database and adds it to the creator's event list.
      */
@@ -903,21 +1478,61 @@ public class DatabaseService {
 
         Map<String, Object> updates = new HashMap<>();
 
-        // 1. כתיבת נתוני האירוע
-        updates.put(EVENTS_PATH + "/" + eventId, event);
+        // 1. כתיבת נתוני האירוע, עם זמן היצירה של השרת
+        updates.put(EVENTS_PATH + "/" + eventId, toEventNode(event));
 
         // 2. הוספת האירוע לרשימת האירועים של היוצר
         updates.put(USERS_PATH + "/" + event.getCreatorId() + "/eventIds/" + eventId, true);
+        addStatsIncrement(updates, "events", 1);
+        addActivityIncrement(updates, ActivitySeries.EVENTS_CREATED);
 
-        databaseReference.updateChildren(updates).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                if (callback != null) callback.onCompleted(null);
-            } else {
-                if (callback != null) callback.onFailed(task.getException());
+        if (event.getGroupId() == null) {
+            updateData(updates, callback);
+            return;
+        }
+
+        // 3. רשומה בתיבת ההתראות של חברי הקבוצה, באותה כתיבה עם האירוע
+        final String newEventId = eventId;
+        getGroup(event.getGroupId(), new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(Group group) {
+                if (group != null && group.getMembers() != null) {
+                    addInboxEntry(updates, group.getMembers().keySet(), InboxEntryType.NEW_EVENT, group, newEventId,
+                            event.getCreatorId(), null, event.getTitle());
+                }
+                updateData(updates, callback);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (callback != null) callback.onFailed(e);
             }
         });
     }
 
+    /// the events/{eventId} node of a new event, written as a map so createdAt can be the server time
+    ///
+    /// @param event the event
+    /// @return map of the fields of the event
+    @NonNull
+    private Map<String, Object> toEventNode(@NonNull final Event event) {
+        Map<String, Object> node = new HashMap<>();
+        node.put("id", event.getId());
+        node.put("groupId", event.getGroupId());
+        node.put("title", event.getTitle());
+        node.put("description", event.getDescription());
+        node.put("sportType", event.getSportType());
+        node.put("level", event.getLevel());
+        node.put("startTimestamp", event.getStartTimestamp());
+        node.put("durationMillis", event.getDurationMillis());
+        node.put("location", event.getLocation());
+        node.put("creatorId", event.getCreatorId());
+        node.put("maxParticipants", event.getMaxParticipants());
+        node.put("participants", event.getParticipants());
+        node.put("createdAt", backend.serverTimestamp());
+        return node;
+    }
+
     /**
      * Updates an existing event in the database without overwriting participants.
      */
@@ -933,68 +1548,148 @@ public class DatabaseService {
         updates.put("sportType", event.getSportType());
         updates.put("level", event.getLevel());
 
-        databaseReference.child(EVENTS_PATH).child(event.getId()).updateChildren(updates)
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (callback != null) callback.onCompleted(null);
-                    } else {
-                        if (callback != null) callback.onFailed(task.getException());
-                    }
-                });
+        String path = EVENTS_PATH + "/" + event.getId();
+        invalidateCached(path);
+        backend.updateChildren(path, updates, invalidatingOnFailure(Collections.singleton(path), callback));
     }
 
     /**
      * Retrieves a specific event by its ID.
+     * Served from the shared cache when the event was read lately.
      */
     public void getEvent(@NotNull final String eventId, @NotNull final DatabaseCallback<Event> callback) {
+        eventCache.get(eventId, callback);
+    }
+
+    /// read an event from the database, without the cache
+    private void readEvent(@NotNull final String eventId, @NotNull final DatabaseCallback<Event> callback) {
         getData(EVENTS_PATH + "/" + eventId, Event.class, callback);
     }
 
+    /// get events by their ids, at most BATCH_MAX_IN_FLIGHT reads at a time
+    ///
+    /// @param eventIds the ids of the events
+    /// @param callback the callback to call with the events (ordered by start time), the ids of deleted events and the failed reads
+    public void getEventsByIds(@NotNull final Collection<String> eventIds, @NotNull final DatabaseCallback<BatchFetcher.Result<Event>> callback) {
+        eventsFetcher.fetch(eventIds, callback);
+    }
+
+    /// get the events of a user, using the ids in users/{uid}/eventIds instead of scanning all the events
+    ///
+    /// @param uid      the id of the user
+    /// @param callback the callback to call with the events (ordered by start time), the ids of deleted events and the failed reads
+    public void getEventsForUser(@NotNull final String uid, @NotNull final DatabaseCallback<BatchFetcher.Result<Event>> callback) {
+        getChildKeys(USERS_PATH + "/" + uid + "/eventIds", new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(List<String> eventIds) {
+                getEventsByIds(eventIds, callback);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    /// listen to the ids in users/{uid}/eventIds, e.g. to reconcile the event reminders when the user joins or leaves an event.
+    /// the listener is shared with other screens and is removed when the owner is destroyed
+    ///
+    /// @param owner    the screen that listens
+    /// @param key      identifies the subscription within the owner
+    /// @param uid      the id of the user
+    /// @param callback the callback to call with the ids of the events of the user, every time they change
+    /// @return a registration to detach the listener
+    public DataBackend.ListenerRegistration listenToUserEventIds(@NonNull final LifecycleOwner owner, @NonNull final String key, @NotNull final String uid, @NotNull final DatabaseCallback<List<String>> callback) {
+        return listenerHub.subscribe(owner, readData(USERS_PATH + "/" + uid + "/eventIds"), key, new DataBackend.ValueListener() {
+            @Override
+            public void onDataChange(@NonNull DataNode node) {
+                List<String> keys = new ArrayList<>((int) node.getChildrenCount());
+                for (DataNode child : node.getChildren()) {
+                    keys.add(child.getKey());
+                }
+                callback.onCompleted(keys);
+            }
+
+            @Override
+            public void onCancelled(@NonNull Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
     /**
      * Retrieves all events associated with a specific group ID.
      */
-    public void getEventsByGroupId(@NotNull final String groupId, @NotNull final DatabaseCallback<List<com.example.fitlink.models.Event>> callback) {
-        databaseReference.child(EVENTS_PATH).orderByChild("groupId").equalTo(groupId)
-                .addValueEventListener(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        List<com.example.fitlink.models.Event> events = new ArrayList<>();
-                        for (DataSnapshot eventSnapshot : snapshot.getChildren()) {
-                            com.example.fitlink.models.Event event = eventSnapshot.getValue(com.example.fitlink.models.Event.class);
-                            if (event != null) {
-                                events.add(event);
-                            }
-                        }
-                        callback.onCompleted(events);
-                    }
-
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {
-                        callback.onFailed(error.toException());
-                    }
-                });
+    public DataBackend.ListenerRegistration getEventsByGroupId(@NonNull final LifecycleOwner owner, @NonNull final String key, @NotNull final String groupId, @NotNull final DatabaseCallback<List<com.example.fitlink.models.Event>> callback) {
+        return listenToList(owner, key, readData(EVENTS_PATH).orderByChild("groupId").equalTo(groupId), Event.class, callback);
     }
 
     /**
      * Retrieves all events (both group and independent) from the database.
      */
-    public void getAllEvents(@NotNull final DatabaseCallback<List<com.example.fitlink.models.Event>> callback) {
-        databaseReference.child(EVENTS_PATH).addValueEventListener(new ValueEventListener() {
+    public DataBackend.ListenerRegistration getAllEvents(@NonNull final LifecycleOwner owner, @NonNull final String key, @NotNull final DatabaseCallback<List<com.example.fitlink.models.Event>> callback) {
+        return listenToList(owner, key, readData(EVENTS_PATH), Event.class, callback);
+    }
+
+    /// get a page of the events, the latest start time first
+    ///
+    /// @param after    the cursor of the previous page, or null for the first page
+    /// @param pageSize the maximal number of events in the page
+    /// @param callback the callback to call with the page
+    /// @see Page
+    public void getEventsPage(@Nullable final Page.Cursor after, final int pageSize, @NotNull final DatabaseCallback<Page<Event>> callback) {
+        getPage(EVENTS_PATH, "startTimestamp", true, after, pageSize, SnapshotMappers.EVENT, callback);
+    }
+
+    /// get the events starting within a time range, once, ordered by start time
+    ///
+    /// @param start    the earliest start time (inclusive), in milliseconds
+    /// @param end      the latest start time (inclusive), in milliseconds
+    /// @param callback the callback to call with the events
+    public void getEventsInRange(final long start, final long end, @NotNull final DatabaseCallback<List<Event>> callback) {
+        getDataList(readData(EVENTS_PATH).orderByChild("startTimestamp").startAt(start).endAt(end), Event.class, callback);
+    }
+
+    /// get the events that haven't ended yet, once, ordered by start time:
+    /// the events still running that started up to ONGOING_EVENTS_LOOKBACK before now, and then the events starting from now
+    ///
+    /// @param now      the current time, in milliseconds
+    /// @param limit    the maximal number of events, 0 for no limit
+    /// @param callback the callback to call with the events
+    public void getUpcomingEvents(final long now, final int limit, @NotNull final DatabaseCallback<List<Event>> callback) {
+        DataQuery running = readData(EVENTS_PATH).orderByChild("startTimestamp").startAt(now - ONGOING_EVENTS_LOOKBACK).endBefore(now);
+        getDataList(running, Event.class, new DatabaseCallback<>() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                List<com.example.fitlink.models.Event> events = new ArrayList<>();
-                for (DataSnapshot eventSnapshot : snapshot.getChildren()) {
-                    com.example.fitlink.models.Event event = eventSnapshot.getValue(com.example.fitlink.models.Event.class);
-                    if (event != null) {
-                        events.add(event);
-                    }
+            public void onCompleted(List<Event> startedEvents) {
+                List<Event> events = new ArrayList<>();
+                for (Event event : startedEvents) {
+                    if (event.getEndTimestamp() >= now) events.add(event);
                 }
-                callback.onCompleted(events);
+                if (limit > 0 && events.size() >= limit) {
+                    callback.onCompleted(new ArrayList<>(events.subList(0, limit)));
+                    return;
+                }
+
+                DataQuery upcoming = readData(EVENTS_PATH).orderByChild("startTimestamp").startAt(now);
+                if (limit > 0) upcoming = upcoming.limitToFirst(limit - events.size());
+                getDataList(upcoming, Event.class, new DatabaseCallback<>() {
+                    @Override
+                    public void onCompleted(List<Event> futureEvents) {
+                        events.addAll(futureEvents);
+                        callback.onCompleted(events);
+                    }
+
+                    @Override
+                    public void onFailed(Exception e) {
+                        callback.onFailed(e);
+                    }
+                });
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                callback.onFailed(error.toException());
+            public void onFailed(Exception e) {
+                callback.onFailed(e);
             }
         });
     }
@@ -1002,15 +1697,15 @@ public class DatabaseService {
     /**
      * Retrieves all independent events (events not linked to any group).
      */
-    public void getAllIndependentEvents(@NotNull final DatabaseCallback<List<com.example.fitlink.models.Event>> callback) {
-        databaseReference.child(EVENTS_PATH).addValueEventListener(new ValueEventListener() {
+    public DataBackend.ListenerRegistration getAllIndependentEvents(@NonNull final LifecycleOwner owner, @NonNull final String key, @NotNull final DatabaseCallback<List<com.example.fitlink.models.Event>> callback) {
+        // משתף את המאזין של כל האירועים עם שאר המסכים, ומסנן רק את העצמאיים
+        return listenerHub.subscribe(owner, readData(EVENTS_PATH), key, new DataBackend.ValueListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
+            public void onDataChange(@NonNull DataNode node) {
                 List<com.example.fitlink.models.Event> events = new ArrayList<>();
-                for (DataSnapshot eventSnapshot : snapshot.getChildren()) {
-                    com.example.fitlink.models.Event event = eventSnapshot.getValue(com.example.fitlink.models.Event.class);
+                for (Event event : toList(node, SnapshotMappers.EVENT)) {
                     // מוסיף לרשימה רק אם האירוע עצמאי
-                    if (event != null && event.isIndependent()) {
+                    if (event.isIndependent()) {
                         events.add(event);
                     }
                 }
@@ -1018,8 +1713,8 @@ public class DatabaseService {
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                callback.onFailed(error.toException());
+            public void onCancelled(@NonNull Exception e) {
+                callback.onFailed(e);
             }
         });
     }
@@ -1030,7 +1725,8 @@ public class DatabaseService {
      * Preserves gamification stats for past events.
      */
     public void deleteGroup(@NotNull final String groupId, @Nullable final DatabaseCallback<Void> callback) {
-        getGroup(groupId, new DatabaseCallback<>() {
+        // the members and events to clean up must be the current ones, not a cached copy
+        readGroup(groupId, new DatabaseCallback<>() {
             @Override
             public void onCompleted(Group group) {
                 if (group == null) {
@@ -1038,17 +1734,22 @@ public class DatabaseService {
                     return;
                 }
 
-                getEventsByGroupId(groupId, new DatabaseCallback<>() {
+                // קריאה חד-פעמית של אירועי הקבוצה, מאזין קבוע היה מריץ את המחיקה שוב אחרי שהאירועים נמחקים
+                getDataList(readData(EVENTS_PATH).orderByChild("groupId").equalTo(groupId), Event.class, new DatabaseCallback<>() {
                     @Override
                     public void onCompleted(List<Event> groupEvents) {
                         Map<String, Object> updates = new HashMap<>();
 
                         updates.put(GROUPS_PATH + "/" + groupId, null);
                         updates.put(GROUP_CHATS_PATH + "/" + groupId, null);
+                        updates.put(GROUP_CHAT_DELETIONS_PATH + "/" + groupId, null);
+                        addStatsIncrement(updates, "groups", -1);
+                        addStatsIncrement(updates, "events", groupEvents != null ? -groupEvents.size() : 0);
 
                         if (group.getMembers() != null) {
                             for (String userId : group.getMembers().keySet()) {
                                 updates.put(USERS_PATH + "/" + userId + "/groupIds/" + groupId, null);
+                                updates.put(USER_UNREAD_PATH + "/" + userId + "/" + groupId, null);
                             }
                         }
 
@@ -1066,7 +1767,7 @@ public class DatabaseService {
                                         updates.put(USERS_PATH + "/" + participantId + "/eventIds/" + event.getId(), null);
 
                                         if (isPastEvent) {
-                                            updates.put(USERS_PATH + "/" + participantId + "/pastEventsCount", com.google.firebase.database.ServerValue.increment(1));
+                                            updates.put(USERS_PATH + "/" + participantId + "/pastEventsCount", backend.serverIncrement(1));
                                         }
                                     }
                                 }
@@ -1074,19 +1775,13 @@ public class DatabaseService {
                                 if (event.getCreatorId() != null) {
                                     updates.put(USERS_PATH + "/" + event.getCreatorId() + "/eventIds/" + event.getId(), null);
                                     if (isPastEvent && (event.getParticipants() == null || !event.getParticipants().containsKey(event.getCreatorId()))) {
-                                        updates.put(USERS_PATH + "/" + event.getCreatorId() + "/pastEventsCount", com.google.firebase.database.ServerValue.increment(1));
+                                        updates.put(USERS_PATH + "/" + event.getCreatorId() + "/pastEventsCount", backend.serverIncrement(1));
                                     }
                                 }
                             }
                         }
 
-                        databaseReference.updateChildren(updates).addOnCompleteListener(task -> {
-                            if (task.isSuccessful()) {
-                                if (callback != null) callback.onCompleted(null);
-                            } else {
-                                if (callback != null) callback.onFailed(task.getException());
-                            }
-                        });
+                        updateData(updates, callback);
                     }
 
                     @Override
@@ -1114,14 +1809,9 @@ public class DatabaseService {
 
         // 2. מוסיף את האירוע לרשימת האירועים של המשתמש
         updates.put(USERS_PATH + "/" + userId + "/eventIds/" + eventId, true);
+        addActivityIncrement(updates, ActivitySeries.JOINS);
 
-        databaseReference.updateChildren(updates).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                if (callback != null) callback.onCompleted(null);
-            } else {
-                if (callback != null) callback.onFailed(task.getException());
-            }
-        });
+        updateData(updates, callback);
     }
 
     /**
@@ -1136,13 +1826,7 @@ public class DatabaseService {
         // 2. מסיר את האירוע מרשימת האירועים של המשתמש
         updates.put(USERS_PATH + "/" + userId + "/eventIds/" + eventId, null);
 
-        databaseReference.updateChildren(updates).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                if (callback != null) callback.onCompleted(null);
-            } else {
-                if (callback != null) callback.onFailed(task.getException());
-            }
-        });
+        updateData(updates, callback);
     }
 
     /**
@@ -1150,7 +1834,8 @@ public class DatabaseService {
      * If it's a past event, it increments the pastEventsCount for all participants to preserve gamification stats.
      */
     public void deleteEvent(@NotNull final String eventId, @Nullable final DatabaseCallback<Void> callback) {
-        getEvent(eventId, new DatabaseCallback<>() {
+        // the participants to update must be the current ones, not a cached copy
+        readEvent(eventId, new DatabaseCallback<>() {
             @Override
             public void onCompleted(Event event) {
                 if (event == null) {
@@ -1163,6 +1848,7 @@ public class DatabaseService {
                 // שלב 1: מחיקת האירוע עצמו והתגובות
                 updates.put(EVENTS_PATH + "/" + eventId, null);
                 updates.put("event_comments/" + eventId, null);
+                addStatsIncrement(updates, "events", -1);
 
                 // בדיקה אם זה אירוע עבר שצריך לשמור בהיסטוריה
                 boolean isPastEvent = event.getEndTimestamp() < System.currentTimeMillis();
@@ -1174,7 +1860,7 @@ public class DatabaseService {
 
                         // הקסם: אם האירוע עבר, מוסיפים 1+ למונה של המשתמש בשרת
                         if (isPastEvent) {
-                            updates.put(USERS_PATH + "/" + userId + "/pastEventsCount", com.google.firebase.database.ServerValue.increment(1));
+                            updates.put(USERS_PATH + "/" + userId + "/pastEventsCount", backend.serverIncrement(1));
                         }
                     }
                 }
@@ -1183,18 +1869,12 @@ public class DatabaseService {
                 if (event.getCreatorId() != null) {
                     updates.put(USERS_PATH + "/" + event.getCreatorId() + "/eventIds/" + eventId, null);
                     if (isPastEvent && (event.getParticipants() == null || !event.getParticipants().containsKey(event.getCreatorId()))) {
-                        updates.put(USERS_PATH + "/" + event.getCreatorId() + "/pastEventsCount", com.google.firebase.database.ServerValue.increment(1));
+                        updates.put(USERS_PATH + "/" + event.getCreatorId() + "/pastEventsCount", backend.serverIncrement(1));
                     }
                 }
 
                 // שלב 3: ביצוע כל העדכונים בבת אחת בצורה בטוחה (Atomic update)
-                databaseReference.updateChildren(updates).addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (callback != null) callback.onCompleted(null);
-                    } else {
-                        if (callback != null) callback.onFailed(task.getException());
-                    }
-                });
+                updateData(updates, callback);
             }
 
             @Override
@@ -1205,38 +1885,45 @@ public class DatabaseService {
     }
 
     // שליפת כל הודעות צור קשר (מוצג מהחדש לישן)
-    public void getAllContactMessages(@NonNull final DatabaseCallback<List<com.example.fitlink.models.ContactMessage>> callback) {
-        databaseReference.child("contact_messages").orderByChild("timestamp")
-                .addValueEventListener(new com.google.firebase.database.ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull com.google.firebase.database.DataSnapshot snapshot) {
-                        List<com.example.fitlink.models.ContactMessage> messages = new ArrayList<>();
-                        for (com.google.firebase.database.DataSnapshot data : snapshot.getChildren()) {
-                            com.example.fitlink.models.ContactMessage msg = data.getValue(com.example.fitlink.models.ContactMessage.class);
-                            if (msg != null) {
-                                msg.setId(data.getKey()); // שמירת המזהה הייחודי
-                                messages.add(0, msg); // הוספה לתחילת הרשימה כדי שהחדשים יופיעו למעלה
-                            }
-                        }
-                        callback.onCompleted(messages);
+    public DataBackend.ListenerRegistration getAllContactMessages(@NonNull final LifecycleOwner owner, @NonNull final String key, @NonNull final DatabaseCallback<List<com.example.fitlink.models.ContactMessage>> callback) {
+        return listenerHub.subscribe(owner, readData("contact_messages").orderByChild("timestamp"), key, new DataBackend.ValueListener() {
+            @Override
+            public void onDataChange(@NonNull DataNode snapshot) {
+                List<com.example.fitlink.models.ContactMessage> messages = new ArrayList<>();
+                for (DataNode data : snapshot.getChildren()) {
+                    com.example.fitlink.models.ContactMessage msg = SnapshotMappers.CONTACT_MESSAGE.map(data);
+                    if (msg != null) {
+                        msg.setId(data.getKey()); // שמירת המזהה הייחודי
+                        messages.add(0, msg); // הוספה לתחילת הרשימה כדי שהחדשים יופיעו למעלה
                     }
+                }
+                callback.onCompleted(messages);
+            }
 
-                    @Override
-                    public void onCancelled(@NonNull com.google.firebase.database.DatabaseError error) {
-                        callback.onFailed(error.toException());
-                    }
-                });
+            @Override
+            public void onCancelled(@NonNull Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    /// get a page of the contact messages, the newest first
+    ///
+    /// @param after    the cursor of the previous page, or null for the first page
+    /// @param pageSize the maximal number of messages in the page
+    /// @param callback the callback to call with the page
+    /// @see Page
+    public void getContactMessagesPage(@Nullable final Page.Cursor after, final int pageSize, @NonNull final DatabaseCallback<Page<com.example.fitlink.models.ContactMessage>> callback) {
+        getPage("contact_messages", "timestamp", true, after, pageSize, node -> {
+            com.example.fitlink.models.ContactMessage msg = SnapshotMappers.CONTACT_MESSAGE.map(node);
+            if (msg != null) msg.setId(node.getKey()); // שמירת המזהה הייחודי
+            return msg;
+        }, callback);
     }
 
     // מחיקת הודעת צור קשר
     public void deleteContactMessage(@NonNull String messageId, @Nullable final DatabaseCallback<Void> callback) {
-        databaseReference.child("contact_messages").child(messageId).removeValue()
-                .addOnCompleteListener(task -> {
-                    if (callback != null) {
-                        if (task.isSuccessful()) callback.onCompleted(null);
-                        else callback.onFailed(task.getException());
-                    }
-                });
+        deleteData("contact_messages/" + messageId, callback);
     }
 
     public void sendContactMessage(String userId, String name, String email, String phone, String message, @Nullable final DatabaseCallback<Void> callback) {
@@ -1254,112 +1941,226 @@ public class DatabaseService {
     }
 
     public void checkIfPhoneExists(String phone, @NonNull final DatabaseCallback<Boolean> callback) {
-        databaseReference.child("users").orderByChild("phone").equalTo(phone)
-                .addListenerForSingleValueEvent(new com.google.firebase.database.ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull com.google.firebase.database.DataSnapshot snapshot) {
-                        callback.onCompleted(snapshot.exists());
-                    }
+        backend.get(readData(USERS_PATH).orderByChild("phone").equalTo(phone), new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode snapshot) {
+                callback.onCompleted(snapshot.exists());
+            }
 
-                    @Override
-                    public void onCancelled(@NonNull com.google.firebase.database.DatabaseError error) {
-                        callback.onFailed(error.toException());
-                    }
-                });
+            @Override
+            public void onFailed(Exception e) {
+                callback.onFailed(e);
+            }
+        });
     }
 
     // --- אזור הפונקציות החדשות של הצ'אט ---
+    /// send a message to a group chat.
+    /// the unread counters and the inboxes of the other members are updated in the same write as the message.
+    /// the members are read from the database and not from the cache, so a member who joined on another device
+    /// a moment ago gets the message too. fails if the group was deleted
+    ///
+    /// @param groupId  the id of the group
+    /// @param message  the message, its id is set here
+    /// @param callback the callback to call when the message is sent
+    /// @see #listenToUnreadCounts(LifecycleOwner, String, String, DatabaseCallback)
     public void sendGroupMessage(@NotNull String groupId, @NotNull ChatMessage message, @Nullable DatabaseCallback<Void> callback) {
-        String msgId = databaseReference.child(GROUP_CHATS_PATH).child(groupId).push().getKey();
-        if (msgId != null) {
-            message.setMessageId(msgId);
-            databaseReference.child(GROUP_CHATS_PATH).child(groupId).child(msgId).setValue(message)
-                    .addOnCompleteListener(task -> {
-                        if (callback != null) {
-                            if (task.isSuccessful()) callback.onCompleted(null);
-                            else callback.onFailed(task.getException());
+        String msgId = generateNewId(GROUP_CHATS_PATH + "/" + groupId);
+        message.setMessageId(msgId);
+        readGroup(groupId, new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(Group group) {
+                groupCache.put(groupId, group);
+                // a message under a deleted group would bring back its chat
+                if (group == null) {
+                    if (callback != null) callback.onFailed(new Exception("Group not found"));
+                    return;
+                }
+                Map<String, Object> updates = new HashMap<>();
+                updates.put(GROUP_CHATS_PATH + "/" + groupId + "/" + msgId, message);
+                addActivityIncrement(updates, ActivitySeries.MESSAGES);
+                if (group.getMembers() != null) {
+                    addInboxEntry(updates, group.getMembers().keySet(), InboxEntryType.CHAT_MESSAGE, group, msgId,
+                            message.getSenderId(), message.getSenderName(), message.getText());
+                    for (String memberId : group.getMembers().keySet()) {
+                        if (memberId.equals(message.getSenderId())) {
+                            // the sender has read the chat up to its own message
+                            updates.put(USER_UNREAD_PATH + "/" + memberId + "/" + groupId + "/lastReadAt", backend.serverTimestamp());
+                        } else {
+                            updates.put(USER_UNREAD_PATH + "/" + memberId + "/" + groupId + "/unread", backend.serverIncrement(1));
                         }
-                    });
+                    }
+                }
+                updateData(updates, callback);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (callback != null) callback.onFailed(e);
+            }
+        });
+    }
+
+    /// mark a group chat as read by a user, e.g. when the user opens or leaves the chat
+    ///
+    /// @param userId   the id of the user
+    /// @param groupId  the id of the group
+    /// @param callback the callback to call when the marker is written
+    public void markGroupRead(@NotNull String userId, @NotNull String groupId, @Nullable DatabaseCallback<Void> callback) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(USER_UNREAD_PATH + "/" + userId + "/" + groupId + "/unread", 0);
+        updates.put(USER_UNREAD_PATH + "/" + userId + "/" + groupId + "/lastReadAt", backend.serverTimestamp());
+        updateData(updates, callback);
+    }
+
+    /// listen to the unread counters of all the groups of a user, with one listener on one small node.
+    /// the listener is shared with other screens and is removed when the owner is destroyed
+    ///
+    /// @param owner    the screen showing the counters
+    /// @param key      identifies the subscription within the owner
+    /// @param userId   the id of the user
+    /// @param callback the callback to call with the number of unread messages per group id, every time one changes.
+    ///                 a group without unread messages may be missing
+    /// @return a registration to detach the listener
+    public DataBackend.ListenerRegistration listenToUnreadCounts(@NonNull final LifecycleOwner owner, @NonNull final String key, @NotNull String userId, @NotNull final DatabaseCallback<Map<String, Integer>> callback) {
+        return listenerHub.subscribe(owner, readData(USER_UNREAD_PATH + "/" + userId), key, new DataBackend.ValueListener() {
+            @Override
+            public void onDataChange(@NonNull DataNode node) {
+                callback.onCompleted(unreadCounts(node));
+            }
+
+            @Override
+            public void onCancelled(@NonNull Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    /// @param node the node of a user under USER_UNREAD_PATH
+    /// @return the number of unread messages per group id
+    @NonNull
+    private static Map<String, Integer> unreadCounts(@NonNull DataNode node) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (DataNode group : node.getChildren()) {
+            Object unread = group.child("unread").getValue();
+            if (unread instanceof Number) {
+                counts.put(group.getKey(), ((Number) unread).intValue());
+            }
         }
+        return counts;
     }
 
-    public void listenForGroupMessages(@NotNull String groupId, @NotNull DatabaseCallback<List<ChatMessage>> callback) {
-        databaseReference.child(GROUP_CHATS_PATH).child(groupId).orderByChild("timestamp")
-                .addValueEventListener(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        List<ChatMessage> messages = new ArrayList<>();
-                        for (DataSnapshot msgSnapshot : snapshot.getChildren()) {
-                            ChatMessage msg = msgSnapshot.getValue(ChatMessage.class);
-                            if (msg != null) messages.add(msg);
-                        }
-                        callback.onCompleted(messages);
-                    }
+    /// listen to the newest messages of a group chat, and read older ones on demand.
+    /// the messages kept on the device are shown first, then only the messages sent since are read.
+    /// every new, edited or deleted message is passed to the listener on its own, the history isn't read again.
+    /// the listener is removed when the owner is destroyed
+    ///
+    /// @param owner    the screen showing the chat
+    /// @param groupId  the id of the group
+    /// @param journal  the messages kept on the device, or null to read the newest messages from the database
+    /// @param listener called with every change of the messages
+    /// @return the stream, to load older messages and to stop listening before the owner is destroyed
+    /// @see ChatStream
+    @NonNull
+    public ChatStream listenForGroupMessages(@NonNull final LifecycleOwner owner, @NotNull String groupId,
+                                             @Nullable ChatJournal journal, @NotNull ChatStream.Listener listener) {
+        ChatStream stream = new ChatStream(backend, groupId, GROUP_CHATS_PATH + "/" + groupId, GROUP_CHAT_DELETIONS_PATH + "/" + groupId,
+                CHAT_WINDOW_SIZE, CHAT_PAGE_SIZE, (before, pageSize, callback) -> getGroupMessagesPage(groupId, before, pageSize, callback),
+                journal, ioExecutor, mainExecutor, listener);
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            return stream;
+        }
+        owner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) stream.remove();
+        });
+        stream.start();
+        return stream;
+    }
 
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {
-                        callback.onFailed(error.toException());
-                    }
-                });
+    /// delete the messages kept on the device, e.g. when the user logs out.
+    /// the files are deleted on the same executor the streams read and write them on
+    ///
+    /// @param journal the messages kept on the device
+    public void clearChatJournal(@NonNull ChatJournal journal) {
+        ioExecutor.execute(journal::clear);
     }
 
+    /// read a page of the messages of a group chat, newest first
+    ///
+    /// @param groupId  the id of the group
+    /// @param before   the cursor of the previous page, or null for the newest messages
+    /// @param pageSize the maximal number of messages in the page
+    /// @param callback the callback to call with the page
+    /// @see Page
+    public void getGroupMessagesPage(@NotNull String groupId, @Nullable final Page.Cursor before, final int pageSize, @NotNull final DatabaseCallback<Page<ChatMessage>> callback) {
+        getPage(GROUP_CHATS_PATH + "/" + groupId, "timestamp", true, before, pageSize, ChatStream::map, callback);
+    }
+
+    /// delete a message of a group chat. a tombstone with the time of the deletion tells the devices that keep the
+    /// message to delete it too, the tombstones older than CHAT_DELETIONS_RETENTION are deleted after it
+    ///
+    /// @param groupId   the id of the group
+    /// @param messageId the id of the message
+    /// @param callback  called when the message is deleted
     public void deleteGroupMessage(@NotNull String groupId, @NotNull String messageId, @Nullable DatabaseCallback<Void> callback) {
-        databaseReference.child(GROUP_CHATS_PATH).child(groupId).child(messageId).removeValue()
-                .addOnCompleteListener(task -> {
-                    if (callback != null) {
-                        if (task.isSuccessful()) callback.onCompleted(null);
-                        else callback.onFailed(task.getException());
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(GROUP_CHATS_PATH + "/" + groupId + "/" + messageId, null);
+        updates.put(GROUP_CHAT_DELETIONS_PATH + "/" + groupId + "/" + messageId, backend.serverTimestamp());
+        updateData(updates, new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(Void object) {
+                trimChatDeletions(groupId);
+                if (callback != null) callback.onCompleted(null);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (callback != null) callback.onFailed(e);
+            }
+        });
+    }
+
+    /// delete the tombstones of a group chat older than CHAT_DELETIONS_RETENTION before the newest one.
+    /// the times are the server's, so the clock of the device doesn't matter. the tombstones of a group are read
+    /// at once, after a trim they are only the deletions of CHAT_DELETIONS_RETENTION
+    ///
+    /// @param groupId the id of the group
+    private void trimChatDeletions(@NotNull String groupId) {
+        final String path = GROUP_CHAT_DELETIONS_PATH + "/" + groupId;
+        backend.get(readData(path), new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode deletions) {
+                long newest = 0;
+                for (DataNode deletion : deletions.getChildren()) {
+                    if (deletion.getValue() instanceof Number) newest = Math.max(newest, ((Number) deletion.getValue()).longValue());
+                }
+                Map<String, Object> updates = new HashMap<>();
+                for (DataNode deletion : deletions.getChildren()) {
+                    Object deletedAt = deletion.getValue();
+                    if (!(deletedAt instanceof Number) || ((Number) deletedAt).longValue() < newest - CHAT_DELETIONS_RETENTION) {
+                        updates.put(path + "/" + deletion.getKey(), null);
                     }
-                });
+                }
+                if (!updates.isEmpty()) updateData(updates, null);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                // trimmed after the next deletion
+            }
+        });
     }
 
     // הוספת תגובה חדשה לאירוע
     public void addEventComment(Comment comment, DatabaseCallback<Void> callback) {
-        String commentId = databaseReference.child("event_comments").child(comment.getEventId()).push().getKey();
-        if (commentId != null) {
-            comment.setId(commentId);
-            databaseReference.child("event_comments").child(comment.getEventId()).child(commentId).setValue(comment)
-                    .addOnCompleteListener(task -> {
-                        if (callback != null) {
-                            if (task.isSuccessful()) {
-                                callback.onCompleted(null);
-                            } else {
-                                callback.onFailed(task.getException());
-                            }
-                        }
-                    });
-        } else {
-            if (callback != null) {
-                callback.onFailed(new Exception("Failed to generate comment ID"));
-            }
-        }
+        String commentId = generateNewId("event_comments/" + comment.getEventId());
+        comment.setId(commentId);
+        writeData("event_comments/" + comment.getEventId() + "/" + commentId, comment, callback);
     }
 
     // שליפת כל התגובות של אירוע מסוים
-    public void getEventComments(String eventId, DatabaseCallback<List<Comment>> callback) {
-        databaseReference.child("event_comments").child(eventId)
-                .addValueEventListener(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        List<Comment> comments = new ArrayList<>();
-                        for (DataSnapshot data : snapshot.getChildren()) {
-                            Comment comment = data.getValue(Comment.class);
-                            if (comment != null) {
-                                comments.add(comment);
-                            }
-                        }
-                        if (callback != null) {
-                            callback.onCompleted(comments);
-                        }
-                    }
-
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {
-                        if (callback != null) {
-                            callback.onFailed(error.toException());
-                        }
-                    }
-                });
+    public DataBackend.ListenerRegistration getEventComments(@NonNull final LifecycleOwner owner, @NonNull final String key, @NotNull String eventId, @NotNull DatabaseCallback<List<Comment>> callback) {
+        return listenToList(owner, key, readData("event_comments/" + eventId), Comment.class, callback);
     }
 
     /**
@@ -1369,119 +2170,258 @@ public class DatabaseService {
     public void cleanupOldEvents(long cutoffTimestamp, @Nullable final DatabaseCallback<Integer> callback) {
         // שימוש בשאילתה: מביא מראש רק אירועים שזמן ההתחלה שלהם הוא לפני נקודת ה-cutoff!
         // זה חוסך הורדה של כל האירועים העתידיים לזיכרון
-        databaseReference.child(EVENTS_PATH).orderByChild("startTimestamp").endAt((double) cutoffTimestamp)
-                .get().addOnCompleteListener(task -> {
-                    if (!task.isSuccessful()) {
-                        if (callback != null) callback.onFailed(task.getException());
-                        return;
+        getDataList(readData(EVENTS_PATH).orderByChild("startTimestamp").endAt(cutoffTimestamp), Event.class, new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(List<Event> events) {
+                if (events.isEmpty()) {
+                    if (callback != null) callback.onCompleted(0);
+                    return;
+                }
+
+                // סינון סופי של האירועים שגם זמן ה*סיום* שלהם עבר את ה-cutoff
+                List<Event> eventsToDelete = new ArrayList<>();
+                for (Event event : events) {
+                    if (event.getEndTimestamp() > 0 && event.getEndTimestamp() < cutoffTimestamp) {
+                        eventsToDelete.add(event);
                     }
+                }
+
+                if (eventsToDelete.isEmpty()) {
+                    if (callback != null) callback.onCompleted(0); // אין מה לנקות
+                    return;
+                }
 
-                    List<Event> events = new ArrayList<>();
-                    for (DataSnapshot snapshot : task.getResult().getChildren()) {
-                        Event event = snapshot.getValue(Event.class);
-                        if (event != null) {
-                            events.add(event);
+                // מחיקת האירועים הישנים (תוך שמירה על היסטוריית גיימיפיקציה)
+                int[] completedOperations = {0};
+                for (Event event : eventsToDelete) {
+                    deleteEvent(event.getId(), new DatabaseCallback<>() {
+                        @Override
+                        public void onCompleted(Void object) {
+                            checkIfDone();
                         }
-                    }
 
-                    if (events.isEmpty()) {
-                        if (callback != null) callback.onCompleted(0);
-                        return;
-                    }
+                        @Override
+                        public void onFailed(Exception e) {
+                            checkIfDone(); // ממשיכים הלאה למחיקה הבאה גם אם אירוע אחד נכשל
+                        }
 
-                    // סינון סופי של האירועים שגם זמן ה*סיום* שלהם עבר את ה-cutoff
-                    List<Event> eventsToDelete = new ArrayList<>();
-                    for (Event event : events) {
-                        if (event.getEndTimestamp() > 0 && event.getEndTimestamp() < cutoffTimestamp) {
-                            eventsToDelete.add(event);
+                        private void checkIfDone() {
+                            completedOperations[0]++;
+                            if (completedOperations[0] == eventsToDelete.size()) {
+                                if (callback != null)
+                                    callback.onCompleted(eventsToDelete.size());
+                            }
                         }
-                    }
+                    });
+                }
+            }
 
-                    if (eventsToDelete.isEmpty()) {
-                        if (callback != null) callback.onCompleted(0); // אין מה לנקות
-                        return;
-                    }
+            @Override
+            public void onFailed(Exception e) {
+                if (callback != null) callback.onFailed(e);
+            }
+        });
+    }
 
-                    // מחיקת האירועים הישנים (תוך שמירה על היסטוריית גיימיפיקציה)
-                    int[] completedOperations = {0};
-                    for (Event event : eventsToDelete) {
-                        deleteEvent(event.getId(), new DatabaseCallback<>() {
+    /// add a change of a counter of the admin dashboard to a multi-path write
+    ///
+    /// @param updates the updates of the write
+    /// @param counter the name of the counter: users, groups or events
+    /// @param delta   the change of the counter, nothing is written for 0
+    private void addStatsIncrement(@NonNull Map<String, Object> updates, @NonNull String counter, int delta) {
+        if (delta == 0) return;
+        updates.put(STATS_PATH + "/" + counter, backend.serverIncrement(delta));
+    }
+
+    /// add one to a series of the daily and weekly activity buckets of now, in a multi-path write
+    ///
+    /// @param updates the updates of the write
+    /// @param series  the series to increase
+    private void addActivityIncrement(@NonNull Map<String, Object> updates, @NonNull ActivitySeries series) {
+        long now = System.currentTimeMillis();
+        for (StatsInterval interval : StatsInterval.values()) {
+            updates.put(STATS_ACTIVITY_PATH + "/" + interval.getPath() + "/" + interval.keyOf(now) + "/" + series.getKey(),
+                    backend.serverIncrement(1));
+        }
+    }
+
+    /// get the activity buckets of a range of time, with one read of the buckets that have activity
+    ///
+    /// @param interval the length of the buckets
+    /// @param from     the start of the range, in milliseconds
+    /// @param to       the end of the range, in milliseconds
+    /// @param callback the callback to call with a bucket for every day or week of the range, oldest first.
+    ///                 the buckets without activity have all their counters 0
+    public void getActivity(@NotNull final StatsInterval interval, long from, long to, @NotNull final DatabaseCallback<List<ActivityBucket>> callback) {
+        DataQuery query = readData(STATS_ACTIVITY_PATH + "/" + interval.getPath()).orderByKey()
+                .startAt(interval.keyOf(from)).endAt(interval.keyOf(to)).limitToLast(ACTIVITY_MAX_BUCKETS);
+        backend.get(query, new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode node) {
+                Map<String, ActivityBucket> stored = new HashMap<>();
+                for (DataNode child : node.getChildren()) {
+                    ActivityBucket bucket = SnapshotMappers.ACTIVITY_BUCKET.map(child);
+                    if (bucket != null) stored.put(bucket.getKey(), bucket);
+                }
+                // a bucket of every day or week, so the chart has a point for every one of them
+                List<ActivityBucket> buckets = new ArrayList<>();
+                for (long bucketStart = interval.startOf(from); bucketStart <= to; bucketStart = interval.next(bucketStart)) {
+                    String key = interval.keyOf(bucketStart);
+                    ActivityBucket bucket = stored.get(key);
+                    buckets.add(bucket != null ? bucket : new ActivityBucket(key, bucketStart));
+                }
+                // the newest buckets of a range that is too long
+                if (buckets.size() > ACTIVITY_MAX_BUCKETS) {
+                    buckets = new ArrayList<>(buckets.subList(buckets.size() - ACTIVITY_MAX_BUCKETS, buckets.size()));
+                }
+                callback.onCompleted(buckets);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                Log.e(TAG, "Error getting the activity buckets", e);
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    /// listen to the counters of the admin dashboard, one small node.
+    /// the listener is shared with other screens and is removed when the owner is destroyed
+    ///
+    /// @param owner    the screen showing the counters
+    /// @param key      identifies the subscription within the owner
+    /// @param callback the callback to call with the counters every time one changes, all 0 before the first count
+    /// @return a registration to detach the listener
+    public DataBackend.ListenerRegistration listenToStats(@NonNull final LifecycleOwner owner, @NonNull final String key, @NotNull final DatabaseCallback<AppStats> callback) {
+        return listenerHub.subscribe(owner, readData(STATS_PATH), key, new DataBackend.ValueListener() {
+            @Override
+            public void onDataChange(@NonNull DataNode node) {
+                AppStats stats = SnapshotMappers.APP_STATS.map(node);
+                callback.onCompleted(stats != null ? stats : new AppStats());
+            }
+
+            @Override
+            public void onCancelled(@NonNull Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    /**
+     * Admin Function: counts the users, groups and events again and writes the counters of the dashboard.
+     * Repairs counters that drifted, e.g. after writes made before the counters existed or two deletions of the same object.
+     * Reads all the users, groups and events once, so it is meant to run rarely.
+     */
+    public void recountStats(@Nullable final DatabaseCallback<AppStats> callback) {
+        // not user_public: the users created before it existed only get a public profile when they are first read
+        backend.get(readData(USERS_PATH), new DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode users) {
+                backend.get(readData(GROUPS_PATH), new DatabaseCallback<>() {
+                    @Override
+                    public void onCompleted(DataNode groups) {
+                        backend.get(readData(EVENTS_PATH), new DatabaseCallback<>() {
                             @Override
-                            public void onCompleted(Void object) {
-                                checkIfDone();
+                            public void onCompleted(DataNode events) {
+                                AppStats stats = new AppStats((int) users.getChildrenCount(), (int) groups.getChildrenCount(), (int) events.getChildrenCount());
+                                Map<String, Object> updates = new HashMap<>();
+                                updates.put(STATS_PATH + "/users", stats.getUsers());
+                                updates.put(STATS_PATH + "/groups", stats.getGroups());
+                                updates.put(STATS_PATH + "/events", stats.getEvents());
+                                updateData(updates, new DatabaseCallback<>() {
+                                    @Override
+                                    public void onCompleted(Void object) {
+                                        if (callback != null) callback.onCompleted(stats);
+                                    }
+
+                                    @Override
+                                    public void onFailed(Exception e) {
+                                        if (callback != null) callback.onFailed(e);
+                                    }
+                                });
                             }
 
                             @Override
                             public void onFailed(Exception e) {
-                                checkIfDone(); // ממשיכים הלאה למחיקה הבאה גם אם אירוע אחד נכשל
-                            }
-
-                            private void checkIfDone() {
-                                completedOperations[0]++;
-                                if (completedOperations[0] == eventsToDelete.size()) {
-                                    if (callback != null)
-                                        callback.onCompleted(eventsToDelete.size());
-                                }
+                                if (callback != null) callback.onFailed(e);
                             }
                         });
                     }
+
+                    @Override
+                    public void onFailed(Exception e) {
+                        if (callback != null) callback.onFailed(e);
+                    }
                 });
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (callback != null) callback.onFailed(e);
+            }
+        });
     }
 
     /**
      * Listens for real-time changes to a specific group.
      * Useful for detecting if a user was removed from a group or if the group was deleted.
      */
-    public ValueEventListener listenToGroup(@NotNull final String groupId, @NotNull final DatabaseCallback<Group> callback) {
-        ValueEventListener listener = new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                Group group = snapshot.getValue(Group.class);
-                callback.onCompleted(group);
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                callback.onFailed(error.toException());
-            }
-        };
-        databaseReference.child(GROUPS_PATH).child(groupId).addValueEventListener(listener);
-        return listener;
+    public DataBackend.ListenerRegistration listenToGroup(@NotNull final String groupId, @NotNull final DatabaseCallback<Group> callback) {
+        return listenToObject(GROUPS_PATH + "/" + groupId, Group.class, callback);
     }
 
     /**
      * Removes a previously attached real-time listener for a group.
      */
-    public void removeGroupListener(@NotNull final String groupId, @NotNull final ValueEventListener listener) {
-        databaseReference.child(GROUPS_PATH).child(groupId).removeEventListener(listener);
+    public void removeGroupListener(@NotNull final String groupId, @NotNull final DataBackend.ListenerRegistration listener) {
+        listener.remove();
     }
 
     /**
      * Listens for real-time changes to a specific user.
      * Useful for forcing a logout if the user is deleted by an admin.
      */
-    public ValueEventListener listenToUser(@NotNull final String userId, @NotNull final DatabaseCallback<User> callback) {
-        ValueEventListener listener = new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                User user = snapshot.getValue(User.class);
-                callback.onCompleted(user);
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                callback.onFailed(error.toException());
-            }
-        };
-        databaseReference.child(USERS_PATH).child(userId).addValueEventListener(listener);
-        return listener;
+    public DataBackend.ListenerRegistration listenToUser(@NotNull final String userId, @NotNull final DatabaseCallback<User> callback) {
+        return listenToObject(USERS_PATH + "/" + userId, User.class, callback);
     }
 
     /**
      * Removes a previously attached real-time listener for a user.
      */
-    public void removeUserListener(@NotNull final String userId, @NotNull final ValueEventListener listener) {
-        databaseReference.child(USERS_PATH).child(userId).removeEventListener(listener);
+    public void removeUserListener(@NotNull final String userId, @NotNull final DataBackend.ListenerRegistration listener) {
+        listener.remove();
+    }
+
+    /// the number of realtime listeners attached to the database per path, for debugging leaks
+    ///
+    /// @return map of path to the number of live listeners
+    /// @see ListenerHub#getLiveListenerCounts()
+    @NonNull
+    public Map<String, Integer> getLiveListenerCounts() {
+        return listenerHub.getLiveListenerCounts();
+    }
+
+    /// the hits, misses, merged reads and evictions of the shared caches, for debugging
+    ///
+    /// @return map of cache name to its counters
+    /// @see CoalescingCache#getStats()
+    @NonNull
+    public Map<String, String> getEntityCacheStats() {
+        Map<String, String> stats = new LinkedHashMap<>();
+        stats.put("users", userCache.getStats());
+        stats.put("user_public", summaryCache.getStats());
+        stats.put("groups", groupCache.getStats());
+        stats.put("events", eventCache.getStats());
+        return stats;
+    }
+
+    /// the number of screens subscribed to the shared listeners per path
+    ///
+    /// @return map of path to the number of subscribers
+    /// @see ListenerHub#getSubscriberCounts()
+    @NonNull
+    public Map<String, Integer> getListenerSubscriberCounts() {
+        return listenerHub.getSubscriberCounts();
     }
 
     /// callback interface for database operations
@@ -7,6 +7,10 @@ import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
 import com.example.fitlink.services.FitLinkNotificationService;
+import com.example.fitlink.services.ReminderQueue;
+import com.example.fitlink.utils.EventReminderScheduler;
+
+import java.util.List;
 
 public class EventReminderWorker extends Worker {
 
@@ -17,15 +21,16 @@ public class EventReminderWorker extends Worker {
     @NonNull
     @Override
     public Result doWork() {
-        // שולפים את הנתונים שהעברנו למשימה (מזהה אירוע ושם אירוע)
-        String eventId = getInputData().getString("eventId");
-        String eventTitle = getInputData().getString("eventTitle");
-
-        if (eventId != null && eventTitle != null) {
-            FitLinkNotificationService.getInstance(getApplicationContext())
-                    .showEventReminderNotification(eventId, eventTitle);
+        // שולפים את התזכורות שהגיע זמנן, ומתזמנים את ההתעוררות הבאה
+        List<ReminderQueue.Reminder> due = EventReminderScheduler.pollDue(getApplicationContext());
+
+        for (ReminderQueue.Reminder reminder : due) {
+            if (reminder.eventTitle != null) {
+                FitLinkNotificationService.getInstance(getApplicationContext())
+                        .showEventReminderNotification(reminder.eventId, reminder.eventTitle, reminder.offset);
+            }
         }
 
         return Result.success();
     }
-}
\ No newline at end of file
+}
@@ -7,15 +7,22 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
+import androidx.core.app.Person;
 
 import com.example.fitlink.R;
 import com.example.fitlink.screens.GroupChatActivity;
 import com.example.fitlink.screens.MainActivity;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 public class FitLinkNotificationService {
 
     // --- קבועים לערוצי ההתראות השונים ---
@@ -33,14 +40,26 @@ public class FitLinkNotificationService {
     private static final String EVENTS_GROUP = "com.example.fitlink.NEW_EVENTS";
     private static final String REMINDER_GROUP = "com.example.fitlink.REMINDERS";
 
+    // --- איחוד התראות הצ'אט ---
+    // כמה זמן ההודעה הראשונה מחכה להודעות נוספות באותה קבוצה לפני שההתראה מוצגת
+    private static final long CHAT_BATCH_WINDOW_MS = 1500;
+    // הזמן המינימלי בין שני עדכוני התראה באותו ערוץ
+    private static final long CHANNEL_MIN_INTERVAL_MS = 1000;
+    // מספר ההודעות האחרונות שמוצגות בהתראה של כל קבוצה
+    private static final int CHAT_NOTIFICATION_LINES = 6;
 
     private static FitLinkNotificationService instance;
     private final Context context;
     private final NotificationManagerCompat manager;
+    // הודעות שמגיעות ברצף לאותה קבוצה מתאחדות להתראה אחת שמתעדכנת
+    private final NotificationCoalescer<ChatLine> chatCoalescer;
 
     private FitLinkNotificationService(Context context) {
         this.context = context.getApplicationContext();
         this.manager = NotificationManagerCompat.from(this.context);
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        this.chatCoalescer = new NotificationCoalescer<>(CHAT_BATCH_WINDOW_MS, CHANNEL_MIN_INTERVAL_MS, CHAT_NOTIFICATION_LINES,
+                mainHandler::postDelayed, SystemClock::uptimeMillis, this::postChatNotification);
         createChannels();
     }
 
@@ -131,6 +150,34 @@ public class FitLinkNotificationService {
         }
     }
 
+    // --- 1b. התראה למשתמש שבקשת ההצטרפות שלו אושרה ---
+    public void showJoinApprovedNotification(String groupId, String groupName) {
+        int notificationId = ("approved" + groupId).hashCode();
+
+        Intent intent = new Intent(context, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                context,
+                notificationId,
+                intent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
+        );
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, GROUP_REQUESTS_CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_notification)
+                .setContentTitle("Request Approved!")
+                .setContentText("You are now a member of " + groupName)
+                .setAutoCancel(true)
+                .setContentIntent(pendingIntent)
+                .setGroup(GROUP_REQUESTS_GROUP)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setDefaults(NotificationCompat.DEFAULT_ALL);
+
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS) == PackageManager.PERMISSION_GRANTED) {
+            manager.notify(notificationId, builder.build());
+            showSummaryNotification();
+        }
+    }
+
     private void showSummaryNotification() {
         NotificationCompat.Builder summaryBuilder = new NotificationCompat.Builder(context, GROUP_REQUESTS_CHANNEL_ID)
                 .setSmallIcon(R.drawable.ic_notification)
@@ -145,8 +192,20 @@ public class FitLinkNotificationService {
     }
 
     // --- 2. התראה על הודעה חדשה בצ'אט ---
+    // ההודעה מצטרפת להתראה של הקבוצה, שמוצגת או מתעדכנת אחרי חלון קצר עם כל ההודעות שהגיעו בו
     public void showChatMessageNotification(String groupId, String groupName, String senderName, String messageText) {
-        int notificationId = (groupId + senderName + messageText).hashCode();
+        chatCoalescer.add(CHAT_CHANNEL_ID, groupId, new ChatLine(groupName, senderName, messageText, System.currentTimeMillis()));
+    }
+
+    // הסרת ההתראה של קבוצה וההודעות שמחכות לה, למשל כשהמשתמש פותח את הצ'אט
+    public void clearChatNotification(String groupId) {
+        chatCoalescer.clear(groupId);
+        manager.cancel(groupId.hashCode());
+    }
+
+    private void postChatNotification(String groupId, List<ChatLine> lines, int count) {
+        int notificationId = groupId.hashCode();
+        String groupName = lines.get(lines.size() - 1).groupName;
 
         Intent intent = new Intent(context, GroupChatActivity.class);
         intent.putExtra("GROUP_ID", groupId);
@@ -159,12 +218,32 @@ public class FitLinkNotificationService {
                 PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
         );
 
+        // כשהמשתמש מחליק את ההתראה, ההודעות שנאספו לה נמחקות (ולא רק כשהצ'אט נפתח)
+        Intent dismissIntent = new Intent(context, ChatNotificationDismissedReceiver.class);
+        dismissIntent.putExtra(ChatNotificationDismissedReceiver.EXTRA_GROUP_ID, groupId);
+        PendingIntent deleteIntent = PendingIntent.getBroadcast(
+                context,
+                notificationId,
+                dismissIntent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
+        );
+
+        // התראה אחת לכל קבוצה עם ההודעות האחרונות שלה
+        NotificationCompat.MessagingStyle style = new NotificationCompat.MessagingStyle(new Person.Builder().setName("You").build())
+                .setConversationTitle(count > lines.size() ? groupName + " (" + count + " messages)" : groupName)
+                .setGroupConversation(true);
+        for (ChatLine line : lines) {
+            style.addMessage(line.text, line.timestamp, new Person.Builder().setName(line.senderName).build());
+        }
+
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHAT_CHANNEL_ID)
                 .setSmallIcon(R.drawable.ic_notification)
-                .setContentTitle(groupName + " - " + senderName)
-                .setContentText(messageText)
+                .setStyle(style)
+                .setNumber(count)
                 .setAutoCancel(true)
+                .setOnlyAlertOnce(true) // עדכון של התראה קיימת לא משמיע צליל שוב
                 .setContentIntent(pendingIntent)
+                .setDeleteIntent(deleteIntent)
                 .setGroup(CHAT_GROUP)
                 .setPriority(NotificationCompat.PRIORITY_HIGH)
                 .setDefaults(NotificationCompat.DEFAULT_ALL);
@@ -174,6 +253,19 @@ public class FitLinkNotificationService {
         }
     }
 
+    // מונים של איחוד התראות הצ'אט: התראות שהוצגו, הודעות שאוחדו והודעות שלא הוצגו
+    public long getChatPostedCount() {
+        return chatCoalescer.getPostedCount();
+    }
+
+    public long getChatMergedCount() {
+        return chatCoalescer.getMergedCount();
+    }
+
+    public long getChatDroppedCount() {
+        return chatCoalescer.getDroppedCount();
+    }
+
     // --- 3. התראה על אירוע קבוצתי חדש ---
     public void showNewEventNotification(String groupName, String eventTitle, String eventId) {
         int notificationId = eventId.hashCode();
@@ -203,8 +295,8 @@ public class FitLinkNotificationService {
         }
     }
 
-    // --- 4. התראה לתזכורת (24 שעות לפני האירוע) ---
-    public void showEventReminderNotification(String eventId, String eventTitle) {
+    // --- 4. התראה לתזכורת (יום או שעה לפני האירוע, לפי startsIn) ---
+    public void showEventReminderNotification(String eventId, String eventTitle, long startsIn) {
         int notificationId = eventId.hashCode();
 
         Intent intent = new Intent(context, MainActivity.class);
@@ -219,8 +311,8 @@ public class FitLinkNotificationService {
 
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context, REMINDER_CHANNEL_ID)
                 .setSmallIcon(R.drawable.ic_notification)
-                .setContentTitle("Event Tomorrow!")
-                .setContentText("Don't forget: " + eventTitle + " is starting in 24 hours.")
+                .setContentTitle(startsIn >= TimeUnit.DAYS.toMillis(1) ? "Event Tomorrow!" : "Event Soon!")
+                .setContentText("Don't forget: " + eventTitle + " is starting in " + formatStartsIn(startsIn) + ".")
                 .setAutoCancel(true)
                 .setContentIntent(pendingIntent)
                 .setGroup(REMINDER_GROUP)
@@ -231,4 +323,27 @@ public class FitLinkNotificationService {
             manager.notify(notificationId, builder.build());
         }
     }
+
+    // הזמן עד תחילת האירוע, בשעות או בדקות
+    private static String formatStartsIn(long startsIn) {
+        long hours = TimeUnit.MILLISECONDS.toHours(startsIn);
+        if (hours >= 1) return hours + (hours == 1 ? " hour" : " hours");
+        long minutes = Math.max(1, TimeUnit.MILLISECONDS.toMinutes(startsIn));
+        return minutes + (minutes == 1 ? " minute" : " minutes");
+    }
+
+    // הודעת צ'אט אחת בהתראה של קבוצה
+    private static final class ChatLine {
+        final String groupName;
+        final String senderName;
+        final String text;
+        final long timestamp;
+
+        ChatLine(String groupName, String senderName, String text, long timestamp) {
+            this.groupName = groupName;
+            this.senderName = senderName;
+            this.text = text;
+            this.timestamp = timestamp;
+        }
+    }
 }
\ No newline at end of file
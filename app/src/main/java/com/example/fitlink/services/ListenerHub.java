@@ -0,0 +1,262 @@
+package com.example.fitlink.services;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.fitlink.services.backend.DataBackend;
+import com.example.fitlink.services.backend.DataNode;
+import com.example.fitlink.services.backend.DataQuery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+/// shares realtime subscriptions between screens.
+/// every query has at most one backend listener, no matter how many subscribers it has:
+/// a new subscriber gets the last snapshot right away, and the backend listener is detached
+/// when its last subscriber goes away. subscribers are owned by a LifecycleOwner (an Activity)
+/// and are dropped automatically when it is destroyed
+///
+/// subscribing again with the same owner, query and key replaces the previous subscription,
+/// so a screen that reloads its list in onResume() keeps a single subscription
+///
+/// @see DatabaseService
+public class ListenerHub {
+
+    private final DataBackend backend;
+    /// used to deliver the cached snapshot to new subscribers
+    private final Executor replayExecutor;
+    private final Map<DataQuery, SharedQuery> queries = new HashMap<>();
+    private final Map<LifecycleOwner, OwnerSubscriptions> owners = new HashMap<>();
+
+    /// @param backend        the backend to attach the shared listeners to
+    /// @param replayExecutor the executor used to deliver the cached snapshot to new subscribers
+    public ListenerHub(@NonNull DataBackend backend, @NonNull Executor replayExecutor) {
+        this.backend = backend;
+        this.replayExecutor = replayExecutor;
+    }
+
+    /// subscribe to a query for as long as the owner is alive
+    ///
+    /// @param owner    the owner of the subscription, it is removed when the owner is destroyed
+    /// @param query    the query to listen to
+    /// @param key      identifies the subscriber within the owner, chosen by the caller (e.g. the name of the list it fills)
+    /// @param listener the listener to call with the current data and on every change
+    /// @return a registration to remove the subscription before the owner is destroyed
+    @NonNull
+    public DataBackend.ListenerRegistration subscribe(@NonNull LifecycleOwner owner, @NonNull DataQuery query,
+                                                     @NonNull Object key, @NonNull DataBackend.ValueListener listener) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            return () -> {
+            };
+        }
+
+        Subscription subscription = new Subscription(owner, query, key, listener);
+        Subscription replaced;
+        SharedQuery shared;
+        boolean isNewQuery;
+        DataNode cached;
+        OwnerSubscriptions ownerSubscriptions;
+        boolean isNewOwner;
+        synchronized (this) {
+            ownerSubscriptions = owners.get(owner);
+            isNewOwner = ownerSubscriptions == null;
+            if (isNewOwner) {
+                ownerSubscriptions = new OwnerSubscriptions(owner);
+                owners.put(owner, ownerSubscriptions);
+            }
+            replaced = ownerSubscriptions.find(query, key);
+
+            shared = queries.get(query);
+            isNewQuery = shared == null;
+            if (isNewQuery) {
+                shared = new SharedQuery(query);
+                queries.put(query, shared);
+            }
+            shared.subscribers.add(subscription);
+            ownerSubscriptions.subscriptions.add(subscription);
+            subscription.shared = shared;
+            cached = shared.lastNode;
+        }
+
+        if (isNewOwner) {
+            owner.getLifecycle().addObserver(ownerSubscriptions);
+        }
+        if (replaced != null) {
+            replaced.remove();
+        }
+        if (isNewQuery) {
+            DataBackend.ListenerRegistration registration = backend.addValueListener(query, shared);
+            boolean isStillUsed;
+            synchronized (this) {
+                isStillUsed = queries.get(query) == shared;
+                shared.registration = registration;
+            }
+            if (!isStillUsed) registration.remove();
+        } else if (cached != null) {
+            // the listener may get a newer snapshot before the replay runs, it already went to this subscriber
+            final SharedQuery replayed = shared;
+            replayExecutor.execute(() -> {
+                boolean isLatest;
+                synchronized (this) {
+                    isLatest = replayed.lastNode == cached;
+                }
+                if (isLatest) subscription.deliver(cached);
+            });
+        }
+        return subscription;
+    }
+
+    /// @return the number of backend listeners per path (a path can have several different queries)
+    @NonNull
+    public synchronized Map<String, Integer> getLiveListenerCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (DataQuery query : queries.keySet()) {
+            counts.merge(query.getPath(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /// @return the number of subscribers per path, sharing the listeners counted by getLiveListenerCounts()
+    @NonNull
+    public synchronized Map<String, Integer> getSubscriberCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (SharedQuery shared : queries.values()) {
+            counts.merge(shared.query.getPath(), shared.subscribers.size(), Integer::sum);
+        }
+        return counts;
+    }
+
+    /// @return the total number of backend listeners attached by the hub
+    public synchronized int getLiveListenerCount() {
+        return queries.size();
+    }
+
+    private void release(@NonNull Subscription subscription) {
+        DataBackend.ListenerRegistration toDetach = null;
+        OwnerSubscriptions ownerToForget = null;
+        synchronized (this) {
+            SharedQuery shared = subscription.shared;
+            if (shared != null && shared.subscribers.remove(subscription) && shared.subscribers.isEmpty()
+                    && queries.get(shared.query) == shared) {
+                queries.remove(shared.query);
+                toDetach = shared.registration;
+            }
+            OwnerSubscriptions ownerSubscriptions = owners.get(subscription.owner);
+            if (ownerSubscriptions != null && ownerSubscriptions.subscriptions.remove(subscription)
+                    && ownerSubscriptions.subscriptions.isEmpty()) {
+                owners.remove(subscription.owner);
+                ownerToForget = ownerSubscriptions;
+            }
+        }
+        if (toDetach != null) toDetach.remove();
+        if (ownerToForget != null) subscription.owner.getLifecycle().removeObserver(ownerToForget);
+    }
+
+    /// one backend listener and its subscribers
+    private final class SharedQuery implements DataBackend.ValueListener {
+        final DataQuery query;
+        final Set<Subscription> subscribers = new LinkedHashSet<>();
+        @Nullable
+        DataBackend.ListenerRegistration registration;
+        @Nullable
+        DataNode lastNode;
+
+        SharedQuery(@NonNull DataQuery query) {
+            this.query = query;
+        }
+
+        @Override
+        public void onDataChange(@NonNull DataNode node) {
+            List<Subscription> targets;
+            synchronized (ListenerHub.this) {
+                lastNode = node;
+                targets = new ArrayList<>(subscribers);
+            }
+            for (Subscription subscription : targets) {
+                subscription.deliver(node);
+            }
+        }
+
+        @Override
+        public void onCancelled(@NonNull Exception e) {
+            // the backend dropped the listener, every subscriber gets the error and is removed
+            List<Subscription> targets;
+            synchronized (ListenerHub.this) {
+                targets = new ArrayList<>(subscribers);
+                if (queries.get(query) == this) queries.remove(query);
+            }
+            for (Subscription subscription : targets) {
+                if (subscription.active) subscription.listener.onCancelled(e);
+                subscription.remove();
+            }
+        }
+    }
+
+    /// the subscriptions of one owner, removed together when it is destroyed
+    private final class OwnerSubscriptions implements LifecycleEventObserver {
+        final LifecycleOwner owner;
+        final List<Subscription> subscriptions = new ArrayList<>();
+
+        OwnerSubscriptions(@NonNull LifecycleOwner owner) {
+            this.owner = owner;
+        }
+
+        @Nullable
+        Subscription find(@NonNull DataQuery query, @NonNull Object key) {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.query.equals(query) && subscription.key.equals(key)) return subscription;
+            }
+            return null;
+        }
+
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            if (event != Lifecycle.Event.ON_DESTROY) return;
+            List<Subscription> toRemove;
+            synchronized (ListenerHub.this) {
+                toRemove = new ArrayList<>(subscriptions);
+            }
+            for (Subscription subscription : toRemove) {
+                subscription.remove();
+            }
+        }
+    }
+
+    /// a single subscriber
+    private final class Subscription implements DataBackend.ListenerRegistration {
+        final LifecycleOwner owner;
+        final DataQuery query;
+        final Object key;
+        final DataBackend.ValueListener listener;
+        @Nullable
+        SharedQuery shared;
+        volatile boolean active = true;
+
+        Subscription(@NonNull LifecycleOwner owner, @NonNull DataQuery query, @NonNull Object key, @NonNull DataBackend.ValueListener listener) {
+            this.owner = owner;
+            this.query = query;
+            this.key = key;
+            this.listener = listener;
+        }
+
+        void deliver(@NonNull DataNode node) {
+            if (active) listener.onDataChange(node);
+        }
+
+        @Override
+        public void remove() {
+            if (!active) return;
+            active = false;
+            release(this);
+        }
+    }
+}
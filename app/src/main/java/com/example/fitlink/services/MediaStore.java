@@ -0,0 +1,212 @@
+package com.example.fitlink.services;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.fitlink.services.backend.DataBackend;
+import com.example.fitlink.services.backend.DataNode;
+import com.example.fitlink.services.backend.DataQuery;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.UnaryOperator;
+
+/// stores images once, under the hash of their content, so the users and groups keep only the hash.
+/// every image has two variants: a small thumbnail for lists and the full-size image
+///
+/// media/{hash}/thumbnail - base64 JPEG of at most 128 pixels per side
+/// media/{hash}/full      - the base64 image as it was uploaded
+/// media/{hash}/size      - the size of the full image in bytes, written in the same update and used to check the image exists
+///
+/// uploading an image that is already stored (e.g. saving a profile without changing the photo) writes nothing.
+/// the thumbnail of a new image is made on the encode executor, the write continues on the main executor.
+/// images are never changed or deleted, so the variants are cached forever
+///
+/// @see DatabaseService#storeImage(String, DatabaseService.DatabaseCallback)
+/// @see DatabaseService#getImage(String, Variant, DatabaseService.DatabaseCallback)
+public class MediaStore {
+
+    static final String MEDIA_PATH = "media";
+    /// the length of a hash: hex of SHA-256
+    private static final int HASH_LENGTH = 64;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /// the number of images kept in memory per variant
+    private static final int THUMBNAIL_CACHE_SIZE = 200;
+    private static final int FULL_CACHE_SIZE = 20;
+
+    private final DataBackend backend;
+    private final UnaryOperator<String> thumbnailMaker;
+    private final Executor encodeExecutor;
+    private final Executor mainExecutor;
+    private final CoalescingCache<String> thumbnails;
+    private final CoalescingCache<String> fullImages;
+    private long uploadCount = 0;
+    private long deduplicatedCount = 0;
+
+    /// @param backend        the backend to read and write
+    /// @param thumbnailMaker makes the thumbnail variant from a full-size base64 image
+    /// @param encodeExecutor the executor the thumbnails are made on
+    /// @param mainExecutor   the executor the write continues on after the thumbnail is made
+    MediaStore(@NonNull DataBackend backend, @NonNull UnaryOperator<String> thumbnailMaker,
+               @NonNull Executor encodeExecutor, @NonNull Executor mainExecutor) {
+        this.backend = backend;
+        this.thumbnailMaker = thumbnailMaker;
+        this.encodeExecutor = encodeExecutor;
+        this.mainExecutor = mainExecutor;
+        this.thumbnails = new CoalescingCache<>(THUMBNAIL_CACHE_SIZE, (hash, callback) -> read(hash, Variant.THUMBNAIL, callback));
+        this.fullImages = new CoalescingCache<>(FULL_CACHE_SIZE, (hash, callback) -> read(hash, Variant.FULL, callback));
+    }
+
+    /// @param image a value of User.profileImage or Group.groupImage
+    /// @return true if the value is the hash of an image in the media store, false if it is an inline base64 image
+    public static boolean isMediaHash(@Nullable String image) {
+        if (image == null || image.length() != HASH_LENGTH) return false;
+        for (int i = 0; i < image.length(); i++) {
+            char c = image.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) return false;
+        }
+        return true;
+    }
+
+    /// @param bytes the content of an image
+    /// @return the hash the image is stored under
+    @NonNull
+    static String hashOf(@NonNull byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+                hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /// store an image, if it isn't stored already
+    ///
+    /// @param image    a base64 image, or a hash (returned as is)
+    /// @param callback the callback to call with the hash of the image, or null if image is null or empty
+    void store(@Nullable String image, @NonNull DatabaseService.DatabaseCallback<String> callback) {
+        if (image == null || image.isEmpty()) {
+            callback.onCompleted(null);
+            return;
+        }
+        if (isMediaHash(image)) {
+            callback.onCompleted(image);
+            return;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Base64.getMimeDecoder().decode(image.getBytes(StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            callback.onFailed(e);
+            return;
+        }
+        String hash = hashOf(bytes);
+        String path = MEDIA_PATH + "/" + hash;
+
+        backend.get(DataQuery.ref(path + "/size"), new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode node) {
+                if (node.exists()) {
+                    synchronized (MediaStore.this) {
+                        deduplicatedCount++;
+                    }
+                    callback.onCompleted(hash);
+                    return;
+                }
+
+                encodeExecutor.execute(() -> {
+                    String fullImage = Base64.getEncoder().encodeToString(bytes);
+                    String thumbnail = thumbnailMaker.apply(fullImage);
+                    mainExecutor.execute(() -> write(path, hash, fullImage, thumbnail, bytes.length, callback));
+                });
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    private void write(@NonNull String path, @NonNull String hash, @NonNull String fullImage, @Nullable String thumbnail,
+                       int size, @NonNull DatabaseService.DatabaseCallback<String> callback) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(path + "/full", fullImage);
+        updates.put(path + "/thumbnail", thumbnail);
+        updates.put(path + "/size", size);
+        backend.updateChildren("", updates, new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(Void object) {
+                synchronized (MediaStore.this) {
+                    uploadCount++;
+                }
+                callback.onCompleted(hash);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    /// read a variant of a stored image
+    ///
+    /// @param hash     the hash of the image
+    /// @param variant  the variant to read
+    /// @param callback the callback to call with the base64 image, or null if there is no such image
+    void load(@NonNull String hash, @NonNull Variant variant, @NonNull DatabaseService.DatabaseCallback<String> callback) {
+        (variant == Variant.THUMBNAIL ? thumbnails : fullImages).get(hash, callback);
+    }
+
+    private void read(@NonNull String hash, @NonNull Variant variant, @NonNull DatabaseService.DatabaseCallback<String> callback) {
+        backend.get(DataQuery.ref(MEDIA_PATH + "/" + hash + "/" + variant.key), new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(DataNode node) {
+                Object value = node.getValue();
+                callback.onCompleted(value instanceof String ? (String) value : null);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    /// @return the number of images written to the media store
+    public synchronized long getUploadCount() {
+        return uploadCount;
+    }
+
+    /// @return the number of uploads skipped because the image was already stored
+    public synchronized long getDeduplicatedCount() {
+        return deduplicatedCount;
+    }
+
+    /// the variants every image is stored in
+    public enum Variant {
+        /// small image for lists and avatars
+        THUMBNAIL("thumbnail"),
+        /// the image as it was uploaded, for the profile and group screens
+        FULL("full");
+
+        private final String key;
+
+        Variant(String key) {
+            this.key = key;
+        }
+    }
+}
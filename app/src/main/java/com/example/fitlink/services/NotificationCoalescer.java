@@ -0,0 +1,151 @@
+package com.example.fitlink.services;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/// merges bursts of notifications about the same thing (e.g. the messages of one group chat) into one post
+///
+/// every key (e.g. a group) keeps its newest items. the first item after a post waits a short window for
+/// more items, then all of them are posted together as one update of the same notification. the posts of
+/// a channel are spaced by a minimal interval, so a busy channel is updated at a steady rate instead of once
+/// per item, and stays under the rate at which the system drops notification updates
+///
+/// not thread safe, used from the main thread like the listeners that add the items
+///
+/// @param <M> the class of the items, e.g. a chat message
+/// @see FitLinkNotificationService
+public class NotificationCoalescer<M> {
+
+    private final long batchWindow;
+    private final long minInterval;
+    private final int maxItems;
+    private final Scheduler scheduler;
+    private final LongSupplier clock;
+    private final Poster<M> poster;
+    private final Map<String, Batch<M>> batches = new HashMap<>();
+    /// the earliest time every channel may post again
+    private final Map<String, Long> channelFreeAt = new HashMap<>();
+    private long addedCount = 0;
+    private long postedCount = 0;
+    private long mergedCount = 0;
+    private long droppedCount = 0;
+
+    /// @param batchWindow how long the first item after a post waits for more items, in milliseconds
+    /// @param minInterval the minimal time between two posts of a channel, in milliseconds
+    /// @param maxItems    the number of newest items kept per key
+    /// @param scheduler   runs the posts later, a Handler of the main thread in the app
+    /// @param clock       the current time in milliseconds, of the same clock as the scheduler
+    /// @param poster      posts the items of a key
+    public NotificationCoalescer(long batchWindow, long minInterval, int maxItems, @NonNull Scheduler scheduler,
+                                 @NonNull LongSupplier clock, @NonNull Poster<M> poster) {
+        if (batchWindow < 0 || minInterval < 0) throw new IllegalArgumentException("times must not be negative");
+        if (maxItems <= 0) throw new IllegalArgumentException("maxItems must be positive");
+        this.batchWindow = batchWindow;
+        this.minInterval = minInterval;
+        this.maxItems = maxItems;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.poster = poster;
+    }
+
+    /// add an item to the notification of a key, it is posted with the other items that arrive until the post
+    ///
+    /// @param channel the channel of the notification, the posts of a channel are rate limited together
+    /// @param key     the key of the notification, e.g. the id of a group
+    /// @param item    the item
+    public void add(@NonNull String channel, @NonNull String key, @NonNull M item) {
+        addedCount++;
+        Batch<M> batch = batches.get(key);
+        if (batch == null) {
+            batch = new Batch<>();
+            batches.put(key, batch);
+        }
+        batch.items.add(item);
+        batch.count++;
+        batch.pending++;
+        if (batch.items.size() > maxItems) {
+            batch.items.remove(0);
+            // the oldest item was never shown if all the kept items are waiting
+            if (batch.pending > maxItems) droppedCount++;
+        }
+
+        if (batch.isScheduled) {
+            mergedCount++;
+            return;
+        }
+        batch.isScheduled = true;
+        long now = clock.getAsLong();
+        Long freeAt = channelFreeAt.get(channel);
+        long postAt = Math.max(now + batchWindow, freeAt == null ? 0 : freeAt);
+        channelFreeAt.put(channel, postAt + minInterval);
+
+        final Batch<M> scheduled = batch;
+        scheduler.schedule(() -> post(key, scheduled), postAt - now);
+    }
+
+    /// forget the items of a key, e.g. when the user opens the chat. items waiting for a post are dropped
+    ///
+    /// @param key the key of the notification
+    public void clear(@NonNull String key) {
+        Batch<M> batch = batches.remove(key);
+        if (batch == null) return;
+        if (batch.isScheduled) droppedCount += Math.min(batch.pending, maxItems);
+    }
+
+    private void post(@NonNull String key, @NonNull Batch<M> batch) {
+        // the key was cleared since the post was scheduled
+        if (batches.get(key) != batch) return;
+        batch.isScheduled = false;
+        batch.pending = 0;
+        postedCount++;
+        poster.post(key, Collections.unmodifiableList(new ArrayList<>(batch.items)), batch.count);
+    }
+
+    /// @return the number of items added
+    public long getAddedCount() {
+        return addedCount;
+    }
+
+    /// @return the number of posts, every post updates one notification
+    public long getPostedCount() {
+        return postedCount;
+    }
+
+    /// @return the number of items that joined a waiting post instead of causing a post of their own
+    public long getMergedCount() {
+        return mergedCount;
+    }
+
+    /// @return the number of items that were never posted, because newer items replaced them or their key was cleared
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /// runs a task later, e.g. Handler#postDelayed
+    public interface Scheduler {
+        void schedule(@NonNull Runnable task, long delayMillis);
+    }
+
+    /// posts the notification of a key
+    public interface Poster<M> {
+        /// @param key   the key of the notification
+        /// @param items the newest items of the key, oldest first
+        /// @param count the number of items added since the key was cleared, including the ones not kept
+        void post(@NonNull String key, @NonNull List<M> items, int count);
+    }
+
+    /// the state of the notification of one key
+    private static final class Batch<M> {
+        final List<M> items = new ArrayList<>();
+        int count = 0;
+        /// the number of items added since the last post
+        int pending = 0;
+        boolean isScheduled = false;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.fitlink.services;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/// one page of a list read from the database, and the cursor to read the page after it
+///
+/// @param <T> the class of the items
+/// @see DatabaseService#getUsersPage(Page.Cursor, int, DatabaseService.DatabaseCallback)
+public class Page<T> {
+
+    private final List<T> items;
+    @Nullable
+    private final Cursor nextCursor;
+
+    Page(@NonNull List<T> items, @Nullable Cursor nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    /// @return the items of this page, in display order
+    @NonNull
+    public List<T> getItems() {
+        return items;
+    }
+
+    /// @return the cursor to pass to read the next page, or null if this is the last page
+    @Nullable
+    public Cursor getNextCursor() {
+        return nextCursor;
+    }
+
+    /// @return true if there are more items after this page
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /// the position of the last item of a page: its value of the ordered child and its key,
+    /// which breaks ties between items with the same value
+    public static final class Cursor {
+        @Nullable
+        private final Object value;
+        @NonNull
+        private final String key;
+
+        Cursor(@Nullable Object value, @NonNull String key) {
+            this.value = value;
+            this.key = key;
+        }
+
+        @Nullable
+        Object getValue() {
+            return value;
+        }
+
+        @NonNull
+        String getKey() {
+            return key;
+        }
+    }
+}
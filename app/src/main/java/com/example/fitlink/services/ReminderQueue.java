@@ -0,0 +1,375 @@
+package com.example.fitlink.services;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.fitlink.models.Event;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/// the upcoming event reminders of a user, in a min-heap by the time they are due, kept on the device
+///
+/// every event of the user has a reminder per offset before its start (e.g. a day and an hour before).
+/// only the first reminder of the heap needs a wake-up, so the app schedules one wake-up instead of one job
+/// per event. the events known to the queue are reconciled against the event ids of the user: only the new ids,
+/// and the events of pending reminders that weren't read for a while, have to be read again
+///
+/// the file is small and is read on the first call, which is on a background thread in the app. it is written
+/// again by the writer executor after every change, through a temporary file so a crash keeps the old one
+///
+/// @see com.example.fitlink.utils.EventReminderScheduler
+public class ReminderQueue {
+
+    private static final String FILE_NAME = "event_reminders";
+    private static final int MAGIC = 0x464c5251;
+    private static final int VERSION = 1;
+    /// the reminders of every event, before its start
+    static final long[] DEFAULT_OFFSETS = {TimeUnit.DAYS.toMillis(1), TimeUnit.HOURS.toMillis(1)};
+    /// the events of pending reminders are read again after this time, in case their start time was changed
+    static final long DEFAULT_REFRESH_AFTER = TimeUnit.HOURS.toMillis(12);
+    /// the order of the heap, the reminder due first is the head
+    private static final Comparator<Reminder> DUE_ORDER = Comparator.<Reminder>comparingLong(reminder -> reminder.dueAt)
+            .thenComparing(reminder -> reminder.eventId);
+
+    /// writes the files of all the users, so switching users doesn't leave a thread behind
+    private static final Executor FILE_WRITER = Executors.newSingleThreadExecutor();
+
+    @Nullable
+    private static ReminderQueue instance;
+
+    private final File file;
+    private final long[] offsets;
+    private final long refreshAfter;
+    private final Executor writer;
+    private final PriorityQueue<Reminder> reminders = new PriorityQueue<>(DUE_ORDER);
+    /// every event of the user known to the queue, including the ones without pending reminders
+    private final Map<String, EventRecord> events = new HashMap<>();
+    /// the due time of the wake-up that was scheduled, 0 if none was
+    private long scheduledWakeUp = 0;
+    private boolean isLoaded = false;
+    private long writeCount = 0;
+
+    /// @param file         the file of the queue, created when needed
+    /// @param offsets      the times before the start of an event its reminders are due, in milliseconds
+    /// @param refreshAfter the time after which the events of pending reminders are read again, in milliseconds
+    /// @param writer       writes the file, in the order of the changes
+    ReminderQueue(@NonNull File file, @NonNull long[] offsets, long refreshAfter, @NonNull Executor writer) {
+        if (offsets.length == 0) throw new IllegalArgumentException("offsets must not be empty");
+        this.file = file;
+        this.offsets = offsets.clone();
+        this.refreshAfter = refreshAfter;
+        this.writer = writer;
+    }
+
+    /// the reminder queue of a user, in the private files of the app
+    ///
+    /// @param context the context of the app
+    /// @param userId  the id of the logged in user
+    /// @return the queue
+    @NonNull
+    public static synchronized ReminderQueue forUser(@NonNull Context context, @NonNull String userId) {
+        File file = new File(new File(context.getApplicationContext().getFilesDir(), FILE_NAME), userId + ".heap");
+        if (instance == null || !instance.file.equals(file)) {
+            instance = new ReminderQueue(file, DEFAULT_OFFSETS, DEFAULT_REFRESH_AFTER, FILE_WRITER);
+        }
+        return instance;
+    }
+
+    /// add the reminders of an event, or replace them when the event was changed.
+    /// only the reminders due after now are kept
+    ///
+    /// @param event the event
+    /// @param now   the current time
+    public synchronized void put(@NonNull Event event, long now) {
+        load();
+        removeReminders(event.getId());
+        events.put(event.getId(), new EventRecord(event.getTitle(), event.getStartTimestamp(), now));
+        for (long offset : offsets) {
+            long dueAt = event.getStartTimestamp() - offset;
+            if (dueAt > now) {
+                reminders.add(new Reminder(event.getId(), event.getTitle(), event.getStartTimestamp(), offset, dueAt));
+            }
+        }
+        save();
+    }
+
+    /// remember an event that doesn't exist anymore, so it isn't read again while its id is still in the user
+    ///
+    /// @param eventId the id of the event
+    /// @param now     the current time
+    public synchronized void putDeleted(@NonNull String eventId, long now) {
+        load();
+        removeReminders(eventId);
+        events.put(eventId, new EventRecord(null, 0, now));
+        save();
+    }
+
+    /// remove the reminders of an event, e.g. when the user leaves it
+    ///
+    /// @param eventId the id of the event
+    public synchronized void remove(@NonNull String eventId) {
+        load();
+        boolean isKnown = events.remove(eventId) != null;
+        if (removeReminders(eventId) || isKnown) save();
+    }
+
+    /// forget the events that aren't in the ids of the user anymore
+    ///
+    /// @param eventIds the ids of the events of the user
+    /// @param now      the current time
+    /// @return the ids of the events to read and put: the new ones, and the ones of pending reminders that weren't read lately
+    @NonNull
+    public synchronized List<String> reconcile(@NonNull Collection<String> eventIds, long now) {
+        load();
+        Set<String> current = new HashSet<>(eventIds);
+        boolean isChanged = false;
+        for (Iterator<String> iterator = events.keySet().iterator(); iterator.hasNext(); ) {
+            String eventId = iterator.next();
+            if (!current.contains(eventId)) {
+                iterator.remove();
+                removeReminders(eventId);
+                isChanged = true;
+            }
+        }
+        if (isChanged) save();
+
+        Set<String> pending = new HashSet<>();
+        for (Reminder reminder : reminders) {
+            pending.add(reminder.eventId);
+        }
+        List<String> toRead = new ArrayList<>();
+        for (String eventId : current) {
+            EventRecord record = events.get(eventId);
+            if (record == null || (pending.contains(eventId) && now - record.readAt >= refreshAfter)) {
+                toRead.add(eventId);
+            }
+        }
+        return toRead;
+    }
+
+    /// remove the reminders that are due
+    ///
+    /// @param now the current time
+    /// @return the reminders due until now, the earliest first
+    @NonNull
+    public synchronized List<Reminder> pollDue(long now) {
+        load();
+        List<Reminder> due = new ArrayList<>();
+        while (!reminders.isEmpty() && reminders.peek().dueAt <= now) {
+            due.add(reminders.poll());
+        }
+        if (!due.isEmpty()) save();
+        return due;
+    }
+
+    /// @return the time the first reminder is due, 0 if there is no reminder
+    public synchronized long getNextDueAt() {
+        load();
+        Reminder next = reminders.peek();
+        return next != null ? next.dueAt : 0;
+    }
+
+    /// @return the due time of the wake-up that was scheduled, 0 if none was
+    public synchronized long getScheduledWakeUp() {
+        load();
+        return scheduledWakeUp;
+    }
+
+    /// remember the wake-up that was scheduled, so it isn't scheduled again while the first reminder is the same
+    ///
+    /// @param dueAt the due time of the wake-up, 0 if none is scheduled
+    public synchronized void setScheduledWakeUp(long dueAt) {
+        load();
+        if (scheduledWakeUp == dueAt) return;
+        scheduledWakeUp = dueAt;
+        save();
+    }
+
+    /// @return true if the queue knows no event, e.g. on the first run of the app
+    public synchronized boolean isEmpty() {
+        load();
+        return events.isEmpty();
+    }
+
+    /// @return the number of pending reminders
+    public synchronized int size() {
+        load();
+        return reminders.size();
+    }
+
+    /// forget every event and delete the file, e.g. when the user logs out
+    public synchronized void clear() {
+        reminders.clear();
+        events.clear();
+        scheduledWakeUp = 0;
+        isLoaded = true;
+        writer.execute(this::deleteFile);
+    }
+
+    /// @return the number of times the file was written
+    public synchronized long getWriteCount() {
+        return writeCount;
+    }
+
+    /// @return true if a reminder of the event was removed
+    private boolean removeReminders(@NonNull String eventId) {
+        return reminders.removeIf(reminder -> reminder.eventId.equals(eventId));
+    }
+
+    private void load() {
+        if (isLoaded) return;
+        isLoaded = true;
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+            long wakeUp = in.readLong();
+            Map<String, EventRecord> readEvents = new HashMap<>();
+            int eventCount = in.readInt();
+            for (int i = 0; i < eventCount; i++) {
+                String eventId = readString(in);
+                String title = readString(in);
+                long startTimestamp = in.readLong();
+                long readAt = in.readLong();
+                if (eventId == null) throw new IOException("An event without an id");
+                readEvents.put(eventId, new EventRecord(title, startTimestamp, readAt));
+            }
+            List<Reminder> readReminders = new ArrayList<>();
+            int reminderCount = in.readInt();
+            for (int i = 0; i < reminderCount; i++) {
+                String eventId = readString(in);
+                long offset = in.readLong();
+                EventRecord record = readEvents.get(eventId);
+                if (record == null) throw new IOException("A reminder of an unknown event");
+                readReminders.add(new Reminder(eventId, record.title, record.startTimestamp, offset, record.startTimestamp - offset));
+            }
+            // a file cut by a crash is dropped as a whole, the events are read again by the next reconcile
+            scheduledWakeUp = wakeUp;
+            events.putAll(readEvents);
+            reminders.addAll(readReminders);
+        } catch (IOException e) {
+            events.clear();
+            reminders.clear();
+        }
+    }
+
+    /// write a copy of the queue on the writer executor
+    private void save() {
+        writeCount++;
+        final long wakeUp = scheduledWakeUp;
+        final Map<String, EventRecord> eventsCopy = new HashMap<>(events);
+        final List<Reminder> remindersCopy = new ArrayList<>(reminders);
+        writer.execute(() -> write(wakeUp, eventsCopy, remindersCopy));
+    }
+
+    private void write(long wakeUp, @NonNull Map<String, EventRecord> eventsCopy, @NonNull List<Reminder> remindersCopy) {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs()) return;
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(wakeUp);
+            out.writeInt(eventsCopy.size());
+            for (Map.Entry<String, EventRecord> entry : eventsCopy.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue().title);
+                out.writeLong(entry.getValue().startTimestamp);
+                out.writeLong(entry.getValue().readAt);
+            }
+            out.writeInt(remindersCopy.size());
+            for (Reminder reminder : remindersCopy) {
+                writeString(out, reminder.eventId);
+                out.writeLong(reminder.offset);
+            }
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            temporary.delete();
+            return;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        temporary.renameTo(file);
+    }
+
+    private void deleteFile() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private static void writeString(@NonNull DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(@NonNull DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) return null;
+        if (length < 0) throw new IOException("Bad string length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /// a reminder of an event
+    public static final class Reminder {
+        @NonNull
+        public final String eventId;
+        @Nullable
+        public final String eventTitle;
+        public final long startTimestamp;
+        /// the time before the start of the event the reminder is due
+        public final long offset;
+        public final long dueAt;
+
+        Reminder(@NonNull String eventId, @Nullable String eventTitle, long startTimestamp, long offset, long dueAt) {
+            this.eventId = eventId;
+            this.eventTitle = eventTitle;
+            this.startTimestamp = startTimestamp;
+            this.offset = offset;
+            this.dueAt = dueAt;
+        }
+    }
+
+    /// what the queue knows about an event
+    private static final class EventRecord {
+        @Nullable
+        final String title;
+        final long startTimestamp;
+        /// the time the event was read
+        final long readAt;
+
+        EventRecord(@Nullable String title, long startTimestamp, long readAt) {
+            this.title = title;
+            this.startTimestamp = startTimestamp;
+            this.readAt = readAt;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.fitlink.services;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.fitlink.utils.BloomFilter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/// remembers the ids of the notifications already shown, across restarts of the app, so a notification
+/// is shown once even when its inbox entry is delivered again
+///
+/// the newest ids are kept, the least recently used ones are forgotten past the capacity. they are kept in an
+/// append-only file, compacted to the kept ids when it has many more records. an optional Bloom filter
+/// answers most lookups of ids that were never seen without touching the set
+///
+/// the file is read on the first call, which should be on a background thread. the file is written by the
+/// writer executor, under its own lock and with a copy of the kept ids, so adding or looking up an id on the
+/// main thread doesn't wait for the disk
+///
+/// @see DatabaseService#listenForNotifications(String, Context)
+public class SeenSet {
+
+    private static final String DIRECTORY = "notifications_seen";
+    private static final int MAGIC = 0x464c5353;
+    private static final int VERSION = 1;
+    /// the number of newest ids kept per user
+    static final int DEFAULT_CAPACITY = 2000;
+    /// the file is compacted when it has this many times more records than the ids it keeps
+    private static final int COMPACT_RATIO = 2;
+    /// the false positive rate of the Bloom filter while it holds up to COMPACT_RATIO times the capacity
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+
+    /// one writer for the files of every user: a set of a user that logged out may still have writes queued,
+    /// they finish before the writes of the next user
+    private static final Executor FILE_WRITER = Executors.newSingleThreadExecutor();
+
+    @Nullable
+    private static SeenSet instance;
+
+    private final File file;
+    private final int capacity;
+    private final Executor writer;
+    /// the kept ids in access order, the eldest is forgotten first
+    private final LinkedHashMap<String, Boolean> ids;
+    /// holds every kept id and some forgotten ones, rebuilt from the kept ids when it is full
+    @Nullable
+    private final BloomFilter bloomFilter;
+    /// held while the file is written, never while waiting for the lock of the set
+    private final Object fileLock = new Object();
+    private boolean isLoaded = false;
+    /// the number of records in the file, guarded by fileLock
+    private int records = 0;
+    private long bloomRejectCount = 0;
+    private long bloomFalsePositiveCount = 0;
+    /// guarded by fileLock
+    private long compactionCount = 0;
+
+    /// @param file           the file of the ids, created when needed
+    /// @param capacity       the number of newest ids kept
+    /// @param useBloomFilter true to answer lookups of new ids with a Bloom filter first
+    /// @param writer         writes the file, in the order of the calls
+    SeenSet(@NonNull File file, int capacity, boolean useBloomFilter, @NonNull Executor writer) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.file = file;
+        this.capacity = capacity;
+        this.writer = writer;
+        this.ids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > SeenSet.this.capacity;
+            }
+        };
+        this.bloomFilter = useBloomFilter ? new BloomFilter(capacity * COMPACT_RATIO, BLOOM_FALSE_POSITIVE_RATE) : null;
+    }
+
+    /// the seen set of a user, in the private files of the app
+    ///
+    /// @param context the context of the app
+    /// @param userId  the id of the logged in user
+    /// @return the seen set
+    @NonNull
+    public static synchronized SeenSet forUser(@NonNull Context context, @NonNull String userId) {
+        File file = new File(new File(context.getApplicationContext().getFilesDir(), DIRECTORY), userId + ".seen");
+        if (instance == null || !instance.file.equals(file)) {
+            instance = new SeenSet(file, DEFAULT_CAPACITY, true, FILE_WRITER);
+        }
+        return instance;
+    }
+
+    /// @param id the id of a notification
+    /// @return true if the id was seen lately
+    public synchronized boolean contains(@NonNull String id) {
+        load();
+        if (bloomFilter != null && !bloomFilter.mightContain(id)) {
+            bloomRejectCount++;
+            return false;
+        }
+        boolean isKept = ids.get(id) != null;
+        if (bloomFilter != null && !isKept) bloomFalsePositiveCount++;
+        return isKept;
+    }
+
+    /// remember an id
+    ///
+    /// @param id the id of a notification
+    /// @return true if the id wasn't seen lately, i.e. the notification should be shown
+    public synchronized boolean add(@NonNull String id) {
+        if (contains(id)) return false;
+        ids.put(id, Boolean.TRUE);
+        if (bloomFilter != null) {
+            if (bloomFilter.size() >= capacity * COMPACT_RATIO) rebuildBloomFilter();
+            bloomFilter.put(id);
+        }
+        writer.execute(() -> append(id));
+        return true;
+    }
+
+    /// @return true if no id was seen, e.g. on the first run of the app
+    public synchronized boolean isEmpty() {
+        load();
+        return ids.isEmpty();
+    }
+
+    /// @return the number of ids kept
+    public synchronized int size() {
+        load();
+        return ids.size();
+    }
+
+    /// forget every id and delete the file, e.g. when the user logs out
+    public synchronized void clear() {
+        ids.clear();
+        if (bloomFilter != null) bloomFilter.clear();
+        isLoaded = true;
+        writer.execute(this::deleteFile);
+    }
+
+    /// @return the number of lookups answered by the Bloom filter alone
+    public synchronized long getBloomRejectCount() {
+        return bloomRejectCount;
+    }
+
+    /// @return the number of lookups the Bloom filter passed on for an id that wasn't kept
+    public synchronized long getBloomFalsePositiveCount() {
+        return bloomFalsePositiveCount;
+    }
+
+    /// @return the number of times the file was written again with only the kept ids
+    public long getCompactionCount() {
+        synchronized (fileLock) {
+            return compactionCount;
+        }
+    }
+
+    /// @return the size of the file in bytes, 0 if there is no file
+    public long getFileSize() {
+        synchronized (fileLock) {
+            return file.length();
+        }
+    }
+
+    private void load() {
+        if (isLoaded) return;
+        isLoaded = true;
+        boolean isCompactNeeded;
+        synchronized (fileLock) {
+            if (!file.exists()) return;
+            isCompactNeeded = !replay() || records > capacity * COMPACT_RATIO;
+        }
+        if (bloomFilter != null) rebuildBloomFilter();
+        if (isCompactNeeded) writer.execute(this::compact);
+    }
+
+    /// called with fileLock held
+    ///
+    /// @return false if the file is cut or unreadable, the ids read until then are kept
+    private boolean replay() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return true;
+                }
+                if (length < 0) return false;
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                ids.put(new String(bytes, StandardCharsets.UTF_8), Boolean.TRUE);
+                records++;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void rebuildBloomFilter() {
+        if (bloomFilter == null) return;
+        bloomFilter.clear();
+        for (String id : ids.keySet()) {
+            bloomFilter.put(id);
+        }
+    }
+
+    private void append(@NonNull String id) {
+        synchronized (fileLock) {
+            boolean isNew = !file.exists();
+            File directory = file.getParentFile();
+            if (isNew && directory != null && !directory.exists() && !directory.mkdirs()) return;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+                if (isNew) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                }
+                writeId(out, id);
+            } catch (IOException e) {
+                return;
+            }
+            records++;
+            if (records <= capacity * COMPACT_RATIO) return;
+        }
+        compact();
+    }
+
+    /// write the file again with the kept ids only, through a temporary file so a crash keeps the old one
+    private void compact() {
+        // the eldest first, so reading the file restores the same order. copied first, the set isn't locked
+        // while the file is written
+        List<String> kept;
+        synchronized (this) {
+            kept = new ArrayList<>(ids.keySet());
+        }
+        synchronized (fileLock) {
+            File directory = file.getParentFile();
+            if (directory != null && !directory.exists() && !directory.mkdirs()) return;
+            File temporary = new File(file.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (String id : kept) {
+                    writeId(out, id);
+                }
+            } catch (IOException e) {
+                //noinspection ResultOfMethodCallIgnored
+                temporary.delete();
+                return;
+            }
+            if (temporary.renameTo(file)) {
+                records = kept.size();
+                compactionCount++;
+            }
+        }
+    }
+
+    private void deleteFile() {
+        synchronized (fileLock) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            records = 0;
+        }
+    }
+
+    private static void writeId(@NonNull DataOutputStream out, @NonNull String id) throws IOException {
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
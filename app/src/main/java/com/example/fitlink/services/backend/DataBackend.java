@@ -0,0 +1,125 @@
+package com.example.fitlink.services.backend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.fitlink.services.DatabaseService;
+
+import java.util.Map;
+
+/// the storage engine behind DatabaseService.
+/// every read, write, query and listener of the app goes through this interface,
+/// so the same service code can run against Firebase in the app
+/// and against an in-memory tree in unit tests and benchmarks
+///
+/// paths are slash separated and relative to the root of the database, the empty string is the root
+///
+/// @see FirebaseBackend
+/// @see InMemoryBackend
+/// @see DatabaseService
+public interface DataBackend {
+
+    /// read the data matched by a query once
+    ///
+    /// @param query    the query to read
+    /// @param callback the callback to call with the snapshot of the data (never null, check DataNode#exists())
+    void get(@NonNull DataQuery query, @NonNull DatabaseService.DatabaseCallback<DataNode> callback);
+
+    /// write a value at a specific path, replacing whatever was there
+    ///
+    /// @param path     the path to write to
+    /// @param value    the value to write, a model object, a map, a primitive or null to delete
+    /// @param callback the callback to call when the write is completed
+    void setValue(@NonNull String path, @Nullable Object value, @Nullable DatabaseService.DatabaseCallback<Void> callback);
+
+    /// write several paths at once, all the updates succeed or fail together
+    ///
+    /// @param path     the base path the keys of the updates are relative to
+    /// @param updates  map of relative path to value, a null value deletes the path
+    /// @param callback the callback to call when the write is completed
+    void updateChildren(@NonNull String path, @NonNull Map<String, Object> updates, @Nullable DatabaseService.DatabaseCallback<Void> callback);
+
+    /// generate a new chronologically ordered key under a path, nothing is written
+    ///
+    /// @param path the path to generate the key under
+    /// @return the new key
+    @NonNull
+    String generateKey(@NonNull String path);
+
+    /// attach a listener that receives the whole result of a query every time it changes
+    ///
+    /// @param query    the query to listen to
+    /// @param listener the listener to call
+    /// @return a registration used to detach the listener
+    @NonNull
+    ListenerRegistration addValueListener(@NonNull DataQuery query, @NonNull ValueListener listener);
+
+    /// attach a listener that receives added, changed and removed children of a query
+    ///
+    /// @param query    the query to listen to
+    /// @param listener the listener to call
+    /// @return a registration used to detach the listener
+    @NonNull
+    ListenerRegistration addChildListener(@NonNull DataQuery query, @NonNull ChildListener listener);
+
+    /// atomically read-modify-write the data at a path
+    ///
+    /// @param path     the path to run the transaction on
+    /// @param handler  computes the new value from the current one, may be called more than once
+    /// @param callback the callback to call with the committed data
+    void runTransaction(@NonNull String path, @NonNull TransactionHandler handler, @NonNull DatabaseService.DatabaseCallback<DataNode> callback);
+
+    /// a placeholder value that adds delta to the number stored at the written path
+    ///
+    /// @param delta the amount to add (can be negative)
+    /// @return a value to put in setValue / updateChildren
+    @NonNull
+    Object serverIncrement(long delta);
+
+    /// a placeholder value that is replaced by the time of the write on the server
+    ///
+    /// @return a value to put in setValue / updateChildren
+    @NonNull
+    Object serverTimestamp();
+
+    /// listener for the whole result of a query
+    interface ValueListener {
+        /// called once when attached and every time the data changes
+        void onDataChange(@NonNull DataNode node);
+
+        /// called when the listener was cancelled by the backend (e.g. permission denied)
+        void onCancelled(@NonNull Exception e);
+    }
+
+    /// listener for the children of a query
+    interface ChildListener {
+        /// called for every existing child when attached, then for every new child
+        void onChildAdded(@NonNull DataNode node, @Nullable String previousChildKey);
+
+        /// called when the data of an existing child changed
+        default void onChildChanged(@NonNull DataNode node, @Nullable String previousChildKey) {
+        }
+
+        /// called when a child was removed (or left the query range)
+        default void onChildRemoved(@NonNull DataNode node) {
+        }
+
+        /// called when the listener was cancelled by the backend
+        default void onCancelled(@NonNull Exception e) {
+        }
+    }
+
+    /// computes the new value of a transaction
+    interface TransactionHandler {
+        /// @param current the current data at the path (DataNode#exists() is false when there is none)
+        /// @return the new value, null to delete
+        @Nullable
+        Object apply(@NonNull DataNode current);
+    }
+
+    /// handle of an attached listener
+    interface ListenerRegistration {
+        /// detach the listener, calling it more than once is a no-op
+        void remove();
+    }
+}
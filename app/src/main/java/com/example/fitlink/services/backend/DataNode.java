@@ -0,0 +1,48 @@
+package com.example.fitlink.services.backend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/// a read-only snapshot of the data at a location of the database
+/// returned by every DataBackend read and listener
+///
+/// raw values follow the Firebase conventions:
+/// a Map for objects, Long or Double for numbers, String, Boolean, or null when there is no data
+///
+/// @see DataBackend
+public interface DataNode {
+
+    /// @return the last segment of the path of this node, null for the root
+    @Nullable
+    String getKey();
+
+    /// @return true if there is data at this location
+    boolean exists();
+
+    /// @return the raw value at this location
+    @Nullable
+    Object getValue();
+
+    /// convert the data at this location to a model object
+    ///
+    /// @param clazz the class to convert to
+    /// @return the converted object, or null if there is no data
+    @Nullable
+    <T> T getValue(@NonNull Class<T> clazz);
+
+    /// @param path a relative slash separated path
+    /// @return the node at the relative path (may not exist)
+    @NonNull
+    DataNode child(@NonNull String path);
+
+    /// @param path a relative slash separated path
+    /// @return true if there is data at the relative path
+    boolean hasChild(@NonNull String path);
+
+    /// @return the direct children of this node, in query order
+    @NonNull
+    Iterable<DataNode> getChildren();
+
+    /// @return the number of direct children of this node
+    long getChildrenCount();
+}
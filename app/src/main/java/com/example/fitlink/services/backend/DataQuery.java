@@ -0,0 +1,314 @@
+package com.example.fitlink.services.backend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Objects;
+
+/// an immutable description of what to read from a DataBackend:
+/// a path plus optional ordering, range and limit, mirroring com.google.firebase.database.Query.
+/// every method returns a new query, so a query can be safely shared and used as a map key
+///
+/// example: `DataQuery.ref("events").orderByChild("startTimestamp").endAt(cutoff)`
+///
+/// @see DataBackend
+public final class DataQuery {
+
+    @NonNull
+    private final String path;
+    @NonNull
+    private final OrderBy orderBy;
+    @Nullable
+    private final String orderChild;
+    @Nullable
+    private final Bound start;
+    @Nullable
+    private final Bound end;
+    /// 0 means no limit
+    private final int limit;
+    private final boolean limitToLast;
+
+    private DataQuery(@NonNull String path, @NonNull OrderBy orderBy, @Nullable String orderChild,
+                      @Nullable Bound start, @Nullable Bound end, int limit, boolean limitToLast) {
+        this.path = path;
+        this.orderBy = orderBy;
+        this.orderChild = orderChild;
+        this.start = start;
+        this.end = end;
+        this.limit = limit;
+        this.limitToLast = limitToLast;
+    }
+
+    /// a query for all the data at a path
+    ///
+    /// @param path the slash separated path, the empty string is the root
+    /// @return the query
+    @NonNull
+    public static DataQuery ref(@NonNull String path) {
+        return new DataQuery(normalizePath(path), OrderBy.NONE, null, null, null, 0, false);
+    }
+
+    /// join path segments with a slash
+    ///
+    /// @param segments the segments to join
+    /// @return the joined path
+    @NonNull
+    public static String path(@NonNull String... segments) {
+        StringBuilder builder = new StringBuilder();
+        for (String segment : segments) {
+            String normalized = normalizePath(segment);
+            if (normalized.isEmpty()) continue;
+            if (builder.length() > 0) builder.append('/');
+            builder.append(normalized);
+        }
+        return builder.toString();
+    }
+
+    @NonNull
+    static String normalizePath(@NonNull String path) {
+        int from = 0;
+        int to = path.length();
+        while (from < to && path.charAt(from) == '/') from++;
+        while (to > from && path.charAt(to - 1) == '/') to--;
+        return path.substring(from, to);
+    }
+
+    /// numbers are compared as doubles by the database, so keep a single representation
+    @Nullable
+    private static Object normalizeValue(@Nullable Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value != null && !(value instanceof String) && !(value instanceof Boolean)) {
+            throw new IllegalArgumentException("Query bounds must be a String, a Number, a Boolean or null");
+        }
+        return value;
+    }
+
+    @NonNull
+    private DataQuery withOrder(@NonNull OrderBy newOrder, @Nullable String child) {
+        if (orderBy != OrderBy.NONE) {
+            throw new IllegalStateException("Query already has an order");
+        }
+        return new DataQuery(path, newOrder, child, start, end, limit, limitToLast);
+    }
+
+    @NonNull
+    private DataQuery withStart(@NonNull Bound bound) {
+        if (start != null) throw new IllegalStateException("Query already has a start bound");
+        return new DataQuery(path, orderBy, orderChild, bound, end, limit, limitToLast);
+    }
+
+    @NonNull
+    private DataQuery withEnd(@NonNull Bound bound) {
+        if (end != null) throw new IllegalStateException("Query already has an end bound");
+        return new DataQuery(path, orderBy, orderChild, start, bound, limit, limitToLast);
+    }
+
+    @NonNull
+    private DataQuery withLimit(int newLimit, boolean last) {
+        if (newLimit <= 0) throw new IllegalArgumentException("Limit must be positive");
+        if (limit != 0) throw new IllegalStateException("Query already has a limit");
+        return new DataQuery(path, orderBy, orderChild, start, end, newLimit, last);
+    }
+
+    @NonNull
+    public DataQuery orderByChild(@NonNull String child) {
+        return withOrder(OrderBy.CHILD, normalizePath(child));
+    }
+
+    @NonNull
+    public DataQuery orderByKey() {
+        return withOrder(OrderBy.KEY, null);
+    }
+
+    @NonNull
+    public DataQuery orderByValue() {
+        return withOrder(OrderBy.VALUE, null);
+    }
+
+    @NonNull
+    public DataQuery startAt(@Nullable Object value) {
+        return withStart(new Bound(normalizeValue(value), null, true));
+    }
+
+    @NonNull
+    public DataQuery startAt(@Nullable Object value, @Nullable String key) {
+        return withStart(new Bound(normalizeValue(value), key, true));
+    }
+
+    @NonNull
+    public DataQuery startAfter(@Nullable Object value) {
+        return withStart(new Bound(normalizeValue(value), null, false));
+    }
+
+    @NonNull
+    public DataQuery startAfter(@Nullable Object value, @Nullable String key) {
+        return withStart(new Bound(normalizeValue(value), key, false));
+    }
+
+    @NonNull
+    public DataQuery endAt(@Nullable Object value) {
+        return withEnd(new Bound(normalizeValue(value), null, true));
+    }
+
+    @NonNull
+    public DataQuery endAt(@Nullable Object value, @Nullable String key) {
+        return withEnd(new Bound(normalizeValue(value), key, true));
+    }
+
+    @NonNull
+    public DataQuery endBefore(@Nullable Object value) {
+        return withEnd(new Bound(normalizeValue(value), null, false));
+    }
+
+    @NonNull
+    public DataQuery endBefore(@Nullable Object value, @Nullable String key) {
+        return withEnd(new Bound(normalizeValue(value), key, false));
+    }
+
+    @NonNull
+    public DataQuery equalTo(@Nullable Object value) {
+        Object normalized = normalizeValue(value);
+        return withStart(new Bound(normalized, null, true)).withEnd(new Bound(normalized, null, true));
+    }
+
+    @NonNull
+    public DataQuery limitToFirst(int limit) {
+        return withLimit(limit, false);
+    }
+
+    @NonNull
+    public DataQuery limitToLast(int limit) {
+        return withLimit(limit, true);
+    }
+
+    @NonNull
+    public String getPath() {
+        return path;
+    }
+
+    @NonNull
+    public OrderBy getOrderBy() {
+        return orderBy;
+    }
+
+    @Nullable
+    public String getOrderChild() {
+        return orderChild;
+    }
+
+    @Nullable
+    public Bound getStart() {
+        return start;
+    }
+
+    @Nullable
+    public Bound getEnd() {
+        return end;
+    }
+
+    /// @return the limit, 0 if there is no limit
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isLimitToLast() {
+        return limitToLast;
+    }
+
+    /// @return true if this query reads the whole node at its path
+    public boolean isDefault() {
+        return orderBy == OrderBy.NONE && start == null && end == null && limit == 0;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+        DataQuery query = (DataQuery) object;
+        return limit == query.limit
+                && limitToLast == query.limitToLast
+                && path.equals(query.path)
+                && orderBy == query.orderBy
+                && Objects.equals(orderChild, query.orderChild)
+                && Objects.equals(start, query.start)
+                && Objects.equals(end, query.end);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, orderBy, orderChild, start, end, limit, limitToLast);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("/").append(path);
+        if (orderBy == OrderBy.CHILD) builder.append("?orderByChild=").append(orderChild);
+        else if (orderBy != OrderBy.NONE) builder.append("?orderBy=").append(orderBy);
+        if (start != null) builder.append(start.inclusive ? " startAt " : " startAfter ").append(start);
+        if (end != null) builder.append(end.inclusive ? " endAt " : " endBefore ").append(end);
+        if (limit != 0) builder.append(limitToLast ? " limitToLast " : " limitToFirst ").append(limit);
+        return builder.toString();
+    }
+
+    /// how the children of the queried node are ordered
+    public enum OrderBy {
+        /// no explicit order, children are ordered by key
+        NONE,
+        KEY,
+        CHILD,
+        VALUE
+    }
+
+    /// one end of a query range
+    public static final class Bound {
+        @Nullable
+        private final Object value;
+        @Nullable
+        private final String key;
+        private final boolean inclusive;
+
+        Bound(@Nullable Object value, @Nullable String key, boolean inclusive) {
+            this.value = value;
+            this.key = key;
+            this.inclusive = inclusive;
+        }
+
+        /// @return a String, a Double, a Boolean or null
+        @Nullable
+        public Object getValue() {
+            return value;
+        }
+
+        /// @return the key used to break ties between equal values, or null
+        @Nullable
+        public String getKey() {
+            return key;
+        }
+
+        public boolean isInclusive() {
+            return inclusive;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) return true;
+            if (object == null || getClass() != object.getClass()) return false;
+            Bound bound = (Bound) object;
+            return inclusive == bound.inclusive && Objects.equals(value, bound.value) && Objects.equals(key, bound.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(value, key, inclusive);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return key == null ? String.valueOf(value) : value + "," + key;
+        }
+    }
+}
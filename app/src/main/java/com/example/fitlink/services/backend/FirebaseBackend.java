@@ -0,0 +1,368 @@
+package com.example.fitlink.services.backend;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.fitlink.services.DatabaseService;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/// DataBackend adapter for the Firebase Realtime Database, used by the app
+///
+/// @see DataBackend
+/// @see FirebaseDatabase
+public class FirebaseBackend implements DataBackend {
+
+    /// tag for logging
+    ///
+    /// @see Log
+    private static final String TAG = "FirebaseBackend";
+
+    /// the reference to the root of the database
+    ///
+    /// @see FirebaseDatabase#getReference()
+    private final DatabaseReference root;
+
+    /// @param firebaseDatabase the database to read and write
+    public FirebaseBackend(@NonNull FirebaseDatabase firebaseDatabase) {
+        this.root = firebaseDatabase.getReference();
+    }
+
+    @NonNull
+    private DatabaseReference reference(@NonNull String path) {
+        return path.isEmpty() ? root : root.child(path);
+    }
+
+    /// translate a DataQuery to a Firebase query
+    ///
+    /// @param query the query to translate
+    /// @return the Firebase query
+    @NonNull
+    private Query toFirebaseQuery(@NonNull DataQuery query) {
+        Query result = reference(query.getPath());
+        switch (query.getOrderBy()) {
+            case CHILD:
+                result = result.orderByChild(query.getOrderChild());
+                break;
+            case KEY:
+                result = result.orderByKey();
+                break;
+            case VALUE:
+                result = result.orderByValue();
+                break;
+            default:
+                break;
+        }
+        DataQuery.Bound start = query.getStart();
+        DataQuery.Bound end = query.getEnd();
+        boolean isEqualTo = start != null && start.equals(end) && start.isInclusive();
+        if (isEqualTo) {
+            result = equalTo(result, start);
+        } else {
+            if (start != null) result = start.isInclusive() ? startAt(result, start) : startAfter(result, start);
+            if (end != null) result = end.isInclusive() ? endAt(result, end) : endBefore(result, end);
+        }
+        if (query.getLimit() > 0) {
+            result = query.isLimitToLast() ? result.limitToLast(query.getLimit()) : result.limitToFirst(query.getLimit());
+        }
+        return result;
+    }
+
+    @NonNull
+    private static Query startAt(@NonNull Query query, @NonNull DataQuery.Bound bound) {
+        Object value = bound.getValue();
+        if (value instanceof Double) return query.startAt((Double) value, bound.getKey());
+        if (value instanceof Boolean) return query.startAt((Boolean) value, bound.getKey());
+        return query.startAt((String) value, bound.getKey());
+    }
+
+    @NonNull
+    private static Query startAfter(@NonNull Query query, @NonNull DataQuery.Bound bound) {
+        Object value = bound.getValue();
+        if (value instanceof Double) return query.startAfter((Double) value, bound.getKey());
+        if (value instanceof Boolean) return query.startAfter((Boolean) value, bound.getKey());
+        return query.startAfter((String) value, bound.getKey());
+    }
+
+    @NonNull
+    private static Query endAt(@NonNull Query query, @NonNull DataQuery.Bound bound) {
+        Object value = bound.getValue();
+        if (value instanceof Double) return query.endAt((Double) value, bound.getKey());
+        if (value instanceof Boolean) return query.endAt((Boolean) value, bound.getKey());
+        return query.endAt((String) value, bound.getKey());
+    }
+
+    @NonNull
+    private static Query endBefore(@NonNull Query query, @NonNull DataQuery.Bound bound) {
+        Object value = bound.getValue();
+        if (value instanceof Double) return query.endBefore((Double) value, bound.getKey());
+        if (value instanceof Boolean) return query.endBefore((Boolean) value, bound.getKey());
+        return query.endBefore((String) value, bound.getKey());
+    }
+
+    @NonNull
+    private static Query equalTo(@NonNull Query query, @NonNull DataQuery.Bound bound) {
+        Object value = bound.getValue();
+        if (value instanceof Double) return query.equalTo((Double) value, bound.getKey());
+        if (value instanceof Boolean) return query.equalTo((Boolean) value, bound.getKey());
+        return query.equalTo((String) value, bound.getKey());
+    }
+
+    @NonNull
+    private static DatabaseReference.CompletionListener completion(@Nullable DatabaseService.DatabaseCallback<Void> callback) {
+        return (error, ref) -> {
+            if (callback == null) return;
+            if (error != null) {
+                callback.onFailed(error.toException());
+            } else {
+                callback.onCompleted(null);
+            }
+        };
+    }
+
+    @Override
+    public void get(@NonNull DataQuery query, @NonNull DatabaseService.DatabaseCallback<DataNode> callback) {
+        toFirebaseQuery(query).get().addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                Log.e(TAG, "Error getting data " + query, task.getException());
+                callback.onFailed(task.getException());
+                return;
+            }
+            callback.onCompleted(new SnapshotNode(task.getResult()));
+        });
+    }
+
+    @Override
+    public void setValue(@NonNull String path, @Nullable Object value, @Nullable DatabaseService.DatabaseCallback<Void> callback) {
+        reference(DataQuery.normalizePath(path)).setValue(value, completion(callback));
+    }
+
+    @Override
+    public void updateChildren(@NonNull String path, @NonNull Map<String, Object> updates, @Nullable DatabaseService.DatabaseCallback<Void> callback) {
+        reference(DataQuery.normalizePath(path)).updateChildren(updates, completion(callback));
+    }
+
+    @NonNull
+    @Override
+    public String generateKey(@NonNull String path) {
+        String key = reference(DataQuery.normalizePath(path)).push().getKey();
+        if (key == null) {
+            throw new IllegalStateException("Firebase returned a null push key for " + path);
+        }
+        return key;
+    }
+
+    @NonNull
+    @Override
+    public ListenerRegistration addValueListener(@NonNull DataQuery query, @NonNull ValueListener listener) {
+        Query firebaseQuery = toFirebaseQuery(query);
+        ValueEventListener firebaseListener = firebaseQuery.addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                listener.onDataChange(new SnapshotNode(snapshot));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                listener.onCancelled(error.toException());
+            }
+        });
+        return () -> firebaseQuery.removeEventListener(firebaseListener);
+    }
+
+    @NonNull
+    @Override
+    public ListenerRegistration addChildListener(@NonNull DataQuery query, @NonNull ChildListener listener) {
+        Query firebaseQuery = toFirebaseQuery(query);
+        ChildEventListener firebaseListener = firebaseQuery.addChildEventListener(new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                listener.onChildAdded(new SnapshotNode(snapshot), previousChildName);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                listener.onChildChanged(new SnapshotNode(snapshot), previousChildName);
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                listener.onChildRemoved(new SnapshotNode(snapshot));
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                listener.onCancelled(error.toException());
+            }
+        });
+        return () -> firebaseQuery.removeEventListener(firebaseListener);
+    }
+
+    @Override
+    public void runTransaction(@NonNull String path, @NonNull TransactionHandler handler, @NonNull DatabaseService.DatabaseCallback<DataNode> callback) {
+        reference(DataQuery.normalizePath(path)).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                currentData.setValue(handler.apply(new MutableDataNode(currentData)));
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(@Nullable DatabaseError error, boolean committed, @Nullable DataSnapshot currentData) {
+                if (error != null) {
+                    Log.e(TAG, "Transaction failed", error.toException());
+                    callback.onFailed(error.toException());
+                    return;
+                }
+                callback.onCompleted(currentData != null ? new SnapshotNode(currentData) : TreeNode.wrap(null, null));
+            }
+        });
+    }
+
+    @NonNull
+    @Override
+    public Object serverIncrement(long delta) {
+        return ServerValue.increment(delta);
+    }
+
+    @NonNull
+    @Override
+    public Object serverTimestamp() {
+        return ServerValue.TIMESTAMP;
+    }
+
+    /// DataNode view of a Firebase DataSnapshot
+    private static final class SnapshotNode implements DataNode {
+        private final DataSnapshot snapshot;
+
+        SnapshotNode(@NonNull DataSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Nullable
+        @Override
+        public String getKey() {
+            return snapshot.getKey();
+        }
+
+        @Override
+        public boolean exists() {
+            return snapshot.exists();
+        }
+
+        @Nullable
+        @Override
+        public Object getValue() {
+            return snapshot.getValue();
+        }
+
+        @Nullable
+        @Override
+        public <T> T getValue(@NonNull Class<T> clazz) {
+            return snapshot.getValue(clazz);
+        }
+
+        @NonNull
+        @Override
+        public DataNode child(@NonNull String path) {
+            return new SnapshotNode(snapshot.child(path));
+        }
+
+        @Override
+        public boolean hasChild(@NonNull String path) {
+            return snapshot.hasChild(path);
+        }
+
+        @NonNull
+        @Override
+        public Iterable<DataNode> getChildren() {
+            List<DataNode> children = new ArrayList<>((int) snapshot.getChildrenCount());
+            for (DataSnapshot child : snapshot.getChildren()) {
+                children.add(new SnapshotNode(child));
+            }
+            return children;
+        }
+
+        @Override
+        public long getChildrenCount() {
+            return snapshot.getChildrenCount();
+        }
+    }
+
+    /// DataNode view of the MutableData of a running transaction
+    private static final class MutableDataNode implements DataNode {
+        private final MutableData data;
+
+        MutableDataNode(@NonNull MutableData data) {
+            this.data = data;
+        }
+
+        @Nullable
+        @Override
+        public String getKey() {
+            return data.getKey();
+        }
+
+        @Override
+        public boolean exists() {
+            return data.getValue() != null;
+        }
+
+        @Nullable
+        @Override
+        public Object getValue() {
+            return data.getValue();
+        }
+
+        @Nullable
+        @Override
+        public <T> T getValue(@NonNull Class<T> clazz) {
+            return data.getValue(clazz);
+        }
+
+        @NonNull
+        @Override
+        public DataNode child(@NonNull String path) {
+            return new MutableDataNode(data.child(path));
+        }
+
+        @Override
+        public boolean hasChild(@NonNull String path) {
+            return data.hasChild(path);
+        }
+
+        @NonNull
+        @Override
+        public Iterable<DataNode> getChildren() {
+            List<DataNode> children = new ArrayList<>((int) data.getChildrenCount());
+            for (MutableData child : data.getChildren()) {
+                children.add(new MutableDataNode(child));
+            }
+            return children;
+        }
+
+        @Override
+        public long getChildrenCount() {
+            return data.getChildrenCount();
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package com.example.fitlink.services.backend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.fitlink.services.DatabaseService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/// a thread-safe, in-memory DataBackend with the semantics of the Firebase Realtime Database
+/// (ordered queries, atomic multi-path updates, server increments and timestamps, value and child listeners).
+/// it needs no network and no Android runtime, so DatabaseService can be unit tested and benchmarked on the JVM
+///
+/// callbacks are delivered on the given executor after the data was updated, by default on the calling thread,
+/// which makes every operation complete synchronously and deterministically
+///
+/// @see DataBackend
+public class InMemoryBackend implements DataBackend {
+
+    private static final String SERVER_VALUE = ".sv";
+    private static final String PUSH_CHARS = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    private final Object lock = new Object();
+    private final Executor callbackExecutor;
+    private final LongSupplier clock;
+    private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+    private final Random pushRandom = new Random(0);
+    private final int[] lastPushChars = new int[12];
+    private final AtomicLong readCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong eventCount = new AtomicLong();
+    /// the whole database, replaced (never mutated) on every write
+    @Nullable
+    private Object root;
+    private long lastPushTime = -1;
+
+    /// an engine that delivers callbacks synchronously and uses the system clock
+    public InMemoryBackend() {
+        this(Runnable::run, System::currentTimeMillis);
+    }
+
+    /// @param callbackExecutor the executor to deliver callbacks on
+    /// @param clock            the clock used for server timestamps and push keys
+    public InMemoryBackend(@NonNull Executor callbackExecutor, @NonNull LongSupplier clock) {
+        this.callbackExecutor = callbackExecutor;
+        this.clock = clock;
+    }
+
+    // region statistics
+
+    /// @return the number of listeners currently attached
+    public int getListenerCount() {
+        return registrations.size();
+    }
+
+    /// @return the number of get() calls served
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    /// @return the number of write operations (setValue, updateChildren, transactions) applied
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /// @return the number of listener callbacks delivered, the fan-out of all the writes so far
+    public long getEventCount() {
+        return eventCount.get();
+    }
+
+    // endregion
+
+    // region reads
+
+    @Override
+    public void get(@NonNull DataQuery query, @NonNull DatabaseService.DatabaseCallback<DataNode> callback) {
+        readCount.incrementAndGet();
+        Object result;
+        synchronized (lock) {
+            result = evaluate(query, root);
+        }
+        TreeNode node = TreeNode.wrap(Trees.lastSegment(query.getPath()), result);
+        callbackExecutor.execute(() -> callback.onCompleted(node));
+    }
+
+    /// @return the result of a query against a tree, a LinkedHashMap in query order for ordered queries
+    @Nullable
+    private static Object evaluate(@NonNull DataQuery query, @Nullable Object tree) {
+        Object node = Trees.get(tree, Trees.segments(query.getPath()));
+        if (query.isDefault() || !(node instanceof Map)) {
+            return node;
+        }
+        Map<String, Object> ordered = orderedChildren(query, node);
+        return ordered.isEmpty() ? null : ordered;
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private static LinkedHashMap<String, Object> orderedChildren(@NonNull DataQuery query, @Nullable Object node) {
+        LinkedHashMap<String, Object> result = new LinkedHashMap<>();
+        if (!(node instanceof Map)) return result;
+
+        DataQuery.OrderBy orderBy = query.getOrderBy();
+        boolean byValue = orderBy == DataQuery.OrderBy.CHILD || orderBy == DataQuery.OrderBy.VALUE;
+        String[] orderChild = orderBy == DataQuery.OrderBy.CHILD ? Trees.segments(query.getOrderChild()) : null;
+        DataQuery.Bound start = query.getStart();
+        DataQuery.Bound end = query.getEnd();
+
+        // filter first (computing every order value once), then sort only what is in range
+        List<Child> inRange = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : ((Map<String, Object>) node).entrySet()) {
+            Object value = entry.getValue();
+            Object orderValue = orderChild != null ? Trees.get(value, orderChild)
+                    : byValue ? (value instanceof Map ? null : value) : null;
+            Child child = new Child(entry.getKey(), value, orderValue);
+            if (start != null) {
+                int compare = child.compareTo(start, byValue);
+                if (start.isInclusive() ? compare < 0 : compare <= 0) continue;
+            }
+            if (end != null) {
+                int compare = child.compareTo(end, byValue);
+                if (end.isInclusive() ? compare > 0 : compare >= 0) continue;
+            }
+            inRange.add(child);
+        }
+        if (byValue) {
+            // children are stored in key order, a stable sort keeps the key as the tie breaker
+            inRange.sort((first, second) -> Trees.compareValues(first.orderValue, second.orderValue));
+        }
+
+        int from = 0;
+        int to = inRange.size();
+        if (query.getLimit() > 0 && query.getLimit() < inRange.size()) {
+            if (query.isLimitToLast()) {
+                from = to - query.getLimit();
+            } else {
+                to = query.getLimit();
+            }
+        }
+        for (Child child : inRange.subList(from, to)) {
+            result.put(child.key, child.value);
+        }
+        return result;
+    }
+
+    /// a child of a queried node with the value it is ordered by
+    private static final class Child {
+        final String key;
+        final Object value;
+        @Nullable
+        final Object orderValue;
+
+        Child(@NonNull String key, @NonNull Object value, @Nullable Object orderValue) {
+            this.key = key;
+            this.value = value;
+            this.orderValue = orderValue;
+        }
+
+        int compareTo(@NonNull DataQuery.Bound bound, boolean byValue) {
+            int compare = byValue
+                    ? Trees.compareValues(orderValue, bound.getValue())
+                    : Trees.compareKeys(key, String.valueOf(bound.getValue()));
+            if (compare != 0 || bound.getKey() == null) return compare;
+            return Trees.compareKeys(key, bound.getKey());
+        }
+    }
+
+    // endregion
+
+    // region writes
+
+    @Override
+    public void setValue(@NonNull String path, @Nullable Object value, @Nullable DatabaseService.DatabaseCallback<Void> callback) {
+        Map<String, Object> update = new HashMap<>();
+        update.put(DataQuery.normalizePath(path), value);
+        updateChildren("", update, callback);
+    }
+
+    @Override
+    public void updateChildren(@NonNull String path, @NonNull Map<String, Object> updates, @Nullable DatabaseService.DatabaseCallback<Void> callback) {
+        String basePath = DataQuery.normalizePath(path);
+        List<String> paths = new ArrayList<>(updates.size());
+        for (String key : updates.keySet()) {
+            paths.add(DataQuery.path(basePath, key));
+        }
+
+        // like Firebase, an update can't write a path and one of its descendants
+        List<String> sorted = new ArrayList<>(paths);
+        Collections.sort(sorted);
+        for (int i = 1; i < sorted.size(); i++) {
+            if (Trees.isAncestorOrSelf(sorted.get(i - 1), sorted.get(i))) {
+                IllegalArgumentException error = new IllegalArgumentException(
+                        "Path '/" + sorted.get(i - 1) + "' is an ancestor of '/" + sorted.get(i) + "' in an update");
+                if (callback != null) callbackExecutor.execute(() -> callback.onFailed(error));
+                return;
+            }
+        }
+
+        List<Runnable> events;
+        synchronized (lock) {
+            Object newRoot = root;
+            List<String> changedPaths = new ArrayList<>();
+            Iterator<String> pathIterator = paths.iterator();
+            for (Object value : updates.values()) {
+                String fullPath = pathIterator.next();
+                String[] segments = Trees.segments(fullPath);
+                Object current = Trees.get(newRoot, segments);
+                Object resolved = Trees.normalize(resolveServerValues(value, current));
+                if (!java.util.Objects.equals(current, resolved)) {
+                    newRoot = Trees.set(newRoot, segments, resolved);
+                    changedPaths.add(fullPath);
+                }
+            }
+            writeCount.incrementAndGet();
+            events = commit(newRoot, changedPaths);
+        }
+        dispatch(events);
+        if (callback != null) callbackExecutor.execute(() -> callback.onCompleted(null));
+    }
+
+    /// replace server value placeholders with their values at the time of the write
+    @Nullable
+    private Object resolveServerValues(@Nullable Object value, @Nullable Object current) {
+        if (!(value instanceof Map)) return value;
+        Map<?, ?> map = (Map<?, ?>) value;
+        if (map.containsKey(SERVER_VALUE)) {
+            Object serverValue = map.get(SERVER_VALUE);
+            if ("timestamp".equals(serverValue)) {
+                return clock.getAsLong();
+            }
+            if (serverValue instanceof Map && ((Map<?, ?>) serverValue).get("increment") instanceof Number) {
+                Number delta = (Number) ((Map<?, ?>) serverValue).get("increment");
+                if (current instanceof Long && !(delta instanceof Double || delta instanceof Float)) {
+                    return (Long) current + delta.longValue();
+                }
+                if (current instanceof Number) {
+                    return ((Number) current).doubleValue() + delta.doubleValue();
+                }
+                return delta;
+            }
+            throw new IllegalArgumentException("Unknown server value " + serverValue);
+        }
+        Map<String, Object> resolved = new HashMap<>();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            Object currentChild = current instanceof Map ? ((Map<?, ?>) current).get(key) : null;
+            resolved.put(key, resolveServerValues(entry.getValue(), currentChild));
+        }
+        return resolved;
+    }
+
+    @NonNull
+    @Override
+    public String generateKey(@NonNull String path) {
+        long now = clock.getAsLong();
+        synchronized (lock) {
+            boolean duplicateTime = now == lastPushTime;
+            lastPushTime = now;
+
+            char[] timeChars = new char[8];
+            for (int i = 7; i >= 0; i--) {
+                timeChars[i] = PUSH_CHARS.charAt((int) (now % 64));
+                now /= 64;
+            }
+            StringBuilder key = new StringBuilder(20).append(timeChars);
+
+            if (!duplicateTime) {
+                for (int i = 0; i < 12; i++) {
+                    lastPushChars[i] = pushRandom.nextInt(64);
+                }
+            } else {
+                // same millisecond: increment the random part so keys stay unique and ordered
+                int i = 11;
+                while (i >= 0 && lastPushChars[i] == 63) {
+                    lastPushChars[i] = 0;
+                    i--;
+                }
+                if (i >= 0) lastPushChars[i]++;
+            }
+            for (int i = 0; i < 12; i++) {
+                key.append(PUSH_CHARS.charAt(lastPushChars[i]));
+            }
+            return key.toString();
+        }
+    }
+
+    @Override
+    public void runTransaction(@NonNull String path, @NonNull TransactionHandler handler, @NonNull DatabaseService.DatabaseCallback<DataNode> callback) {
+        String normalized = DataQuery.normalizePath(path);
+        String[] segments = Trees.segments(normalized);
+        List<Runnable> events;
+        TreeNode committed;
+        try {
+            synchronized (lock) {
+                Object current = Trees.get(root, segments);
+                Object resolved = Trees.normalize(handler.apply(TreeNode.wrap(Trees.lastSegment(normalized), current)));
+                List<String> changedPaths = new ArrayList<>();
+                Object newRoot = root;
+                if (!java.util.Objects.equals(current, resolved)) {
+                    newRoot = Trees.set(root, segments, resolved);
+                    changedPaths.add(normalized);
+                }
+                writeCount.incrementAndGet();
+                events = commit(newRoot, changedPaths);
+                committed = TreeNode.wrap(Trees.lastSegment(normalized), resolved);
+            }
+        } catch (RuntimeException e) {
+            callbackExecutor.execute(() -> callback.onFailed(e));
+            return;
+        }
+        dispatch(events);
+        callbackExecutor.execute(() -> callback.onCompleted(committed));
+    }
+
+    @NonNull
+    @Override
+    public Object serverIncrement(long delta) {
+        Map<String, Object> increment = new HashMap<>();
+        increment.put("increment", delta);
+        return Collections.singletonMap(SERVER_VALUE, increment);
+    }
+
+    @NonNull
+    @Override
+    public Object serverTimestamp() {
+        return Collections.singletonMap(SERVER_VALUE, "timestamp");
+    }
+
+    // endregion
+
+    // region listeners
+
+    @NonNull
+    @Override
+    public ListenerRegistration addValueListener(@NonNull DataQuery query, @NonNull ValueListener listener) {
+        return attach(new Registration(query, listener, null));
+    }
+
+    @NonNull
+    @Override
+    public ListenerRegistration addChildListener(@NonNull DataQuery query, @NonNull ChildListener listener) {
+        return attach(new Registration(query, null, listener));
+    }
+
+    @NonNull
+    private Registration attach(@NonNull Registration registration) {
+        List<Runnable> events = new ArrayList<>();
+        synchronized (lock) {
+            registrations.add(registration);
+            registration.refresh(root, events, true);
+        }
+        dispatch(events);
+        return registration;
+    }
+
+    /// install the new root and collect the listener events of the changed paths, must hold the lock
+    @NonNull
+    private List<Runnable> commit(@Nullable Object newRoot, @NonNull List<String> changedPaths) {
+        root = newRoot;
+        List<Runnable> events = new ArrayList<>();
+        if (changedPaths.isEmpty()) return events;
+        for (Registration registration : registrations) {
+            for (String changedPath : changedPaths) {
+                if (Trees.isRelated(registration.query.getPath(), changedPath)) {
+                    registration.refresh(newRoot, events, false);
+                    break;
+                }
+            }
+        }
+        return events;
+    }
+
+    private void dispatch(@NonNull List<Runnable> events) {
+        for (Runnable event : events) {
+            callbackExecutor.execute(event);
+        }
+    }
+
+    /// an attached listener and the last result it has seen
+    private final class Registration implements ListenerRegistration {
+        private final DataQuery query;
+        @Nullable
+        private final ValueListener valueListener;
+        @Nullable
+        private final ChildListener childListener;
+        private volatile boolean active = true;
+        @Nullable
+        private Object lastValue;
+        @NonNull
+        private LinkedHashMap<String, Object> lastChildren = new LinkedHashMap<>();
+
+        Registration(@NonNull DataQuery query, @Nullable ValueListener valueListener, @Nullable ChildListener childListener) {
+            this.query = query;
+            this.valueListener = valueListener;
+            this.childListener = childListener;
+        }
+
+        /// compare the current result with the last one seen and queue the events, must hold the lock
+        void refresh(@Nullable Object tree, @NonNull List<Runnable> events, boolean initial) {
+            String key = Trees.lastSegment(query.getPath());
+            if (valueListener != null) {
+                Object value = evaluate(query, tree);
+                if (initial || !sameTree(lastValue, value)) {
+                    lastValue = value;
+                    TreeNode node = TreeNode.wrap(key, value);
+                    events.add(() -> {
+                        if (!active) return;
+                        eventCount.incrementAndGet();
+                        valueListener.onDataChange(node);
+                    });
+                }
+                return;
+            }
+
+            LinkedHashMap<String, Object> children = orderedChildren(query, Trees.get(tree, Trees.segments(query.getPath())));
+            for (Map.Entry<String, Object> old : lastChildren.entrySet()) {
+                if (!children.containsKey(old.getKey())) {
+                    TreeNode node = TreeNode.wrap(old.getKey(), old.getValue());
+                    events.add(() -> {
+                        if (!active) return;
+                        eventCount.incrementAndGet();
+                        childListener.onChildRemoved(node);
+                    });
+                }
+            }
+            String previousKey = null;
+            for (Map.Entry<String, Object> entry : children.entrySet()) {
+                String childKey = entry.getKey();
+                Object oldValue = lastChildren.get(childKey);
+                TreeNode node = TreeNode.wrap(childKey, entry.getValue());
+                String previous = previousKey;
+                if (oldValue == null) {
+                    events.add(() -> {
+                        if (!active) return;
+                        eventCount.incrementAndGet();
+                        childListener.onChildAdded(node, previous);
+                    });
+                } else if (oldValue != entry.getValue()) {
+                    events.add(() -> {
+                        if (!active) return;
+                        eventCount.incrementAndGet();
+                        childListener.onChildChanged(node, previous);
+                    });
+                }
+                previousKey = childKey;
+            }
+            lastChildren = children;
+        }
+
+        @Override
+        public void remove() {
+            active = false;
+            registrations.remove(this);
+        }
+    }
+
+    /// subtrees are shared between versions, so identity is enough to detect "nothing changed"
+    private static boolean sameTree(@Nullable Object first, @Nullable Object second) {
+        if (first == second) return true;
+        if (!(first instanceof LinkedHashMap) || !(second instanceof LinkedHashMap)) return false;
+        Map<?, ?> firstMap = (Map<?, ?>) first;
+        Map<?, ?> secondMap = (Map<?, ?>) second;
+        if (firstMap.size() != secondMap.size()) return false;
+        Iterator<? extends Map.Entry<?, ?>> secondIterator = secondMap.entrySet().iterator();
+        for (Map.Entry<?, ?> entry : firstMap.entrySet()) {
+            Map.Entry<?, ?> other = secondIterator.next();
+            if (!entry.getKey().equals(other.getKey()) || entry.getValue() != other.getValue()) return false;
+        }
+        return true;
+    }
+
+    // endregion
+}
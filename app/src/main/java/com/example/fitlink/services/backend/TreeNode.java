@@ -0,0 +1,107 @@
+package com.example.fitlink.services.backend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/// a DataNode over an in-memory data tree.
+/// used by InMemoryBackend for its snapshots, and handy for building snapshots by hand in tests
+///
+/// @see InMemoryBackend
+public final class TreeNode implements DataNode {
+
+    @Nullable
+    private final String key;
+    /// a normalized tree, never mutated
+    @Nullable
+    private final Object tree;
+
+    private TreeNode(@Nullable String key, @Nullable Object tree) {
+        this.key = key;
+        this.tree = tree;
+    }
+
+    /// build a snapshot from any value that could be written to the database
+    ///
+    /// @param key   the key of the snapshot
+    /// @param value a model object, a map, a primitive or null
+    /// @return the snapshot
+    @NonNull
+    public static TreeNode of(@Nullable String key, @Nullable Object value) {
+        return new TreeNode(key, Trees.normalize(value));
+    }
+
+    /// wrap a tree that is already normalized (no copy)
+    @NonNull
+    static TreeNode wrap(@Nullable String key, @Nullable Object tree) {
+        return new TreeNode(key, tree);
+    }
+
+    @Nullable
+    Object tree() {
+        return tree;
+    }
+
+    @Nullable
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean exists() {
+        return tree != null;
+    }
+
+    @Nullable
+    @Override
+    public Object getValue() {
+        return Trees.copy(tree);
+    }
+
+    @Nullable
+    @Override
+    public <T> T getValue(@NonNull Class<T> clazz) {
+        return Trees.toObject(tree, clazz);
+    }
+
+    @NonNull
+    @Override
+    public DataNode child(@NonNull String path) {
+        String[] segments = Trees.segments(path);
+        String childKey = segments.length == 0 ? key : segments[segments.length - 1];
+        return new TreeNode(childKey, Trees.get(tree, segments));
+    }
+
+    @Override
+    public boolean hasChild(@NonNull String path) {
+        return Trees.get(tree, Trees.segments(path)) != null;
+    }
+
+    @NonNull
+    @Override
+    public Iterable<DataNode> getChildren() {
+        if (!(tree instanceof Map)) return Collections.emptyList();
+        Map<?, ?> map = (Map<?, ?>) tree;
+        List<DataNode> children = new ArrayList<>(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            children.add(new TreeNode(String.valueOf(entry.getKey()), entry.getValue()));
+        }
+        return children;
+    }
+
+    @Override
+    public long getChildrenCount() {
+        return tree instanceof Map ? ((Map<?, ?>) tree).size() : 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "TreeNode{key=" + key + ", value=" + tree + "}";
+    }
+}
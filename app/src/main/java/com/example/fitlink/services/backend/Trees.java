@@ -0,0 +1,270 @@
+package com.example.fitlink.services.backend;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/// helpers for the raw data trees used by the in-memory engine.
+/// a tree is null, a String, a Boolean, a Long, a Double or a SortedMap of trees ordered by KEY_ORDER.
+/// stored trees are never mutated: a write copies the maps along the written path,
+/// so an unchanged subtree keeps its identity and snapshots can share it safely
+final class Trees {
+
+    /// the order of keys in the database: keys that are 32-bit integers first (numerically), then strings
+    static final Comparator<String> KEY_ORDER = Trees::compareKeys;
+
+    /// used to convert model objects to trees and back, like the Firebase bean mapper does
+    private static final Gson GSON = new Gson();
+
+    private Trees() {
+    }
+
+    @NonNull
+    static String[] segments(@NonNull String path) {
+        String normalized = DataQuery.normalizePath(path);
+        return normalized.isEmpty() ? new String[0] : normalized.split("/");
+    }
+
+    /// @return the key of the last segment of a path, null for the root
+    @Nullable
+    static String lastSegment(@NonNull String path) {
+        String normalized = DataQuery.normalizePath(path);
+        if (normalized.isEmpty()) return null;
+        return normalized.substring(normalized.lastIndexOf('/') + 1);
+    }
+
+    /// @return true if one of the paths contains the other (or they are equal)
+    static boolean isRelated(@NonNull String first, @NonNull String second) {
+        return isAncestorOrSelf(first, second) || isAncestorOrSelf(second, first);
+    }
+
+    static boolean isAncestorOrSelf(@NonNull String ancestor, @NonNull String path) {
+        if (ancestor.isEmpty()) return true;
+        if (!path.startsWith(ancestor)) return false;
+        return path.length() == ancestor.length() || path.charAt(ancestor.length()) == '/';
+    }
+
+    @Nullable
+    static Object get(@Nullable Object tree, @NonNull String[] segments) {
+        Object node = tree;
+        for (String segment : segments) {
+            if (!(node instanceof Map)) return null;
+            node = ((Map<?, ?>) node).get(segment);
+        }
+        return node;
+    }
+
+    /// @return a copy of tree with value stored at the path, sharing every untouched subtree
+    @Nullable
+    static Object set(@Nullable Object tree, @NonNull String[] segments, @Nullable Object value) {
+        return set(tree, segments, 0, value);
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static Object set(@Nullable Object node, @NonNull String[] segments, int index, @Nullable Object value) {
+        if (index == segments.length) return value;
+        TreeMap<String, Object> map = node instanceof SortedMap
+                ? new TreeMap<>((SortedMap<String, Object>) node)
+                : new TreeMap<>(KEY_ORDER);
+        Object child = set(map.get(segments[index]), segments, index + 1, value);
+        if (child == null) {
+            map.remove(segments[index]);
+        } else {
+            map.put(segments[index], child);
+        }
+        return map.isEmpty() ? null : map;
+    }
+
+    /// convert anything that can be written to the database to a tree
+    ///
+    /// @param value a model object, a map, a collection, an array, an enum, a primitive or null
+    /// @return the tree, null when the value holds no data
+    @Nullable
+    static Object normalize(@Nullable Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Number) {
+            return normalizeNumber((Number) value);
+        }
+        if (value instanceof Character || value instanceof Enum) {
+            return value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+        }
+        if (value instanceof Map) {
+            TreeMap<String, Object> map = new TreeMap<>(KEY_ORDER);
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                Object child = normalize(entry.getValue());
+                if (child != null) map.put(String.valueOf(entry.getKey()), child);
+            }
+            return map.isEmpty() ? null : map;
+        }
+        if (value instanceof Collection) {
+            return normalizeIndexed(((Collection<?>) value).iterator());
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            TreeMap<String, Object> map = new TreeMap<>(KEY_ORDER);
+            for (int i = 0; i < length; i++) {
+                Object child = normalize(Array.get(value, i));
+                if (child != null) map.put(String.valueOf(i), child);
+            }
+            return map.isEmpty() ? null : map;
+        }
+        if (value instanceof JsonElement) {
+            return fromJson((JsonElement) value);
+        }
+        return fromJson(GSON.toJsonTree(value));
+    }
+
+    @Nullable
+    private static Object normalizeIndexed(@NonNull Iterator<?> iterator) {
+        TreeMap<String, Object> map = new TreeMap<>(KEY_ORDER);
+        int index = 0;
+        while (iterator.hasNext()) {
+            Object child = normalize(iterator.next());
+            if (child != null) map.put(String.valueOf(index), child);
+            index++;
+        }
+        return map.isEmpty() ? null : map;
+    }
+
+    /// integral numbers are stored as Long, everything else as Double
+    @NonNull
+    private static Object normalizeNumber(@NonNull Number number) {
+        if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+            return number.longValue();
+        }
+        double value = number.doubleValue();
+        if (!Double.isInfinite(value) && value == Math.rint(value) && Math.abs(value) < 9.007199254740992E15) {
+            return (long) value;
+        }
+        return value;
+    }
+
+    @Nullable
+    private static Object fromJson(@Nullable JsonElement element) {
+        if (element == null || element.isJsonNull()) return null;
+        if (element.isJsonPrimitive()) {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) return primitive.getAsBoolean();
+            if (primitive.isNumber()) return normalizeNumber(primitive.getAsNumber());
+            return primitive.getAsString();
+        }
+        if (element.isJsonArray()) {
+            return normalizeIndexed(element.getAsJsonArray().iterator());
+        }
+        TreeMap<String, Object> map = new TreeMap<>(KEY_ORDER);
+        for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+            Object child = fromJson(entry.getValue());
+            if (child != null) map.put(entry.getKey(), child);
+        }
+        return map.isEmpty() ? null : map;
+    }
+
+    @NonNull
+    private static JsonElement toJson(@Nullable Object tree) {
+        if (tree == null) return com.google.gson.JsonNull.INSTANCE;
+        if (tree instanceof Map) {
+            JsonObject object = new JsonObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) tree).entrySet()) {
+                object.add(String.valueOf(entry.getKey()), toJson(entry.getValue()));
+            }
+            return object;
+        }
+        if (tree instanceof Collection) {
+            JsonArray array = new JsonArray();
+            for (Object child : (Collection<?>) tree) array.add(toJson(child));
+            return array;
+        }
+        if (tree instanceof Boolean) return new JsonPrimitive((Boolean) tree);
+        if (tree instanceof Number) return new JsonPrimitive((Number) tree);
+        return new JsonPrimitive(tree.toString());
+    }
+
+    /// convert a tree to a model object, the way DataSnapshot#getValue(Class) does
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static <T> T toObject(@Nullable Object tree, @NonNull Class<T> clazz) {
+        if (tree == null) return null;
+        if (clazz == Object.class || clazz == Map.class) return (T) copy(tree);
+        if (clazz.isInstance(tree) && !(tree instanceof Map)) return (T) tree;
+        return GSON.fromJson(toJson(tree), clazz);
+    }
+
+    /// @return a mutable deep copy of a tree, maps become HashMaps like the ones Firebase returns
+    @Nullable
+    static Object copy(@Nullable Object tree) {
+        if (!(tree instanceof Map)) return tree;
+        Map<String, Object> map = new HashMap<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) tree).entrySet()) {
+            map.put(String.valueOf(entry.getKey()), copy(entry.getValue()));
+        }
+        return map;
+    }
+
+    static int compareKeys(@NonNull String first, @NonNull String second) {
+        if (first.equals(second)) return 0;
+        Integer firstInt = tryParseInt(first);
+        Integer secondInt = tryParseInt(second);
+        if (firstInt != null && secondInt != null) return Integer.compare(firstInt, secondInt);
+        if (firstInt != null) return -1;
+        if (secondInt != null) return 1;
+        return first.compareTo(second);
+    }
+
+    @Nullable
+    private static Integer tryParseInt(@NonNull String key) {
+        int length = key.length();
+        if (length == 0 || length > 11) return null;
+        char first = key.charAt(0);
+        if (first == '-' ? length == 1 || key.charAt(1) == '0' : first == '0' && length > 1) return null;
+        for (int i = first == '-' ? 1 : 0; i < length; i++) {
+            if (!Character.isDigit(key.charAt(i))) return null;
+        }
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /// the order of values in the database: null, false, true, numbers, strings, objects
+    static int compareValues(@Nullable Object first, @Nullable Object second) {
+        int firstRank = rank(first);
+        int secondRank = rank(second);
+        if (firstRank != secondRank) return Integer.compare(firstRank, secondRank);
+        switch (firstRank) {
+            case 1:
+                return Boolean.compare((Boolean) first, (Boolean) second);
+            case 2:
+                return Double.compare(((Number) first).doubleValue(), ((Number) second).doubleValue());
+            case 3:
+                return ((String) first).compareTo((String) second);
+            default:
+                return 0;
+        }
+    }
+
+    private static int rank(@Nullable Object value) {
+        if (value == null) return 0;
+        if (value instanceof Boolean) return 1;
+        if (value instanceof Number) return 2;
+        if (value instanceof String) return 3;
+        return 4;
+    }
+}
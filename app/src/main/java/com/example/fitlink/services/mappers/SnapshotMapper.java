@@ -0,0 +1,19 @@
+package com.example.fitlink.services.mappers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.fitlink.services.backend.DataNode;
+
+/// converts a snapshot to a model object without reflection
+///
+/// @param <T> the model class
+/// @see SnapshotMappers
+@FunctionalInterface
+public interface SnapshotMapper<T> {
+
+    /// @param node the snapshot to convert
+    /// @return the model object, or null if the node has no object data
+    @Nullable
+    T map(@NonNull DataNode node);
+}
@@ -0,0 +1,307 @@
+package com.example.fitlink.services.mappers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.fitlink.enums.DifficultyLevel;
+import com.example.fitlink.enums.InboxEntryType;
+import com.example.fitlink.enums.SportType;
+import com.example.fitlink.enums.StatsInterval;
+import com.example.fitlink.models.ActivityBucket;
+import com.example.fitlink.models.AppStats;
+import com.example.fitlink.models.ChatMessage;
+import com.example.fitlink.models.Comment;
+import com.example.fitlink.models.ContactMessage;
+import com.example.fitlink.models.Event;
+import com.example.fitlink.models.Group;
+import com.example.fitlink.models.InboxEntry;
+import com.example.fitlink.models.Location;
+import com.example.fitlink.models.User;
+import com.example.fitlink.models.UserSummary;
+import com.example.fitlink.services.backend.DataNode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/// hand-written mappers for the models, used instead of the reflection-based bean mapper of Firebase.
+/// every mapper reads the raw value of the snapshot once and calls the setters directly
+///
+/// like the Firebase mapper, keys missing from the snapshot keep the value set by the empty constructor
+/// and unknown keys are ignored. unlike it, a value of the wrong type (or an unknown enum name) is
+/// read as missing instead of throwing, so one bad child doesn't break a whole list
+///
+/// @see SnapshotMapper
+/// @see #forClass(Class)
+public final class SnapshotMappers {
+
+    public static final SnapshotMapper<Location> LOCATION = node -> toLocation(node.getValue());
+
+    public static final SnapshotMapper<Event> EVENT = node -> {
+        Map<?, ?> map = asMap(node.getValue());
+        if (map == null) return null;
+        Event event = new Event();
+        event.setId(getString(map, "id"));
+        event.setGroupId(getString(map, "groupId"));
+        event.setTitle(getString(map, "title"));
+        event.setDescription(getString(map, "description"));
+        event.setSportType(getEnum(map, "sportType", SportType.class));
+        event.setLevel(getEnum(map, "level", DifficultyLevel.class));
+        event.setStartTimestamp(getLong(map, "startTimestamp"));
+        event.setDurationMillis(getLong(map, "durationMillis"));
+        event.setLocation(toLocation(map.get("location")));
+        event.setCreatorId(getString(map, "creatorId"));
+        event.setMaxParticipants(getInt(map, "maxParticipants"));
+        event.setCreatedAt(getLong(map, "createdAt"));
+        Map<String, Boolean> participants = getBooleanMap(map, "participants");
+        if (participants != null) event.setParticipants(participants);
+        return event;
+    };
+
+    public static final SnapshotMapper<Group> GROUP = node -> {
+        Map<?, ?> map = asMap(node.getValue());
+        if (map == null) return null;
+        Group group = new Group();
+        group.setId(getString(map, "id"));
+        group.setName(getString(map, "name"));
+        group.setDescription(getString(map, "description"));
+        group.setSportType(getEnum(map, "sportType", SportType.class));
+        group.setLevel(getEnum(map, "level", DifficultyLevel.class));
+        group.setLocation(toLocation(map.get("location")));
+        group.setCreatorId(getString(map, "creatorId"));
+        group.setGroupImage(getString(map, "groupImage"));
+        Map<String, Boolean> members = getBooleanMap(map, "members");
+        if (members != null) group.setMembers(members);
+        Map<String, Boolean> managers = getBooleanMap(map, "managers");
+        if (managers != null) group.setManagers(managers);
+        Map<String, Long> pendingRequests = getTimeMap(map, "pendingRequests");
+        if (pendingRequests != null) group.setPendingRequests(pendingRequests);
+        return group;
+    };
+
+    public static final SnapshotMapper<User> USER = node -> {
+        Map<?, ?> map = asMap(node.getValue());
+        if (map == null) return null;
+        User user = new User();
+        user.setId(getString(map, "id"));
+        user.setEmail(getString(map, "email"));
+        user.setPassword(getString(map, "password"));
+        user.setFirstName(getString(map, "firstName"));
+        user.setLastName(getString(map, "lastName"));
+        user.setPhone(getString(map, "phone"));
+        user.setIsAdmin(getBoolean(map, "isAdmin"));
+        user.setProfileImage(getString(map, "profileImage"));
+        Map<String, Boolean> groupIds = getBooleanMap(map, "groupIds");
+        if (groupIds != null) user.setGroupIds(groupIds);
+        Map<String, Boolean> eventIds = getBooleanMap(map, "eventIds");
+        if (eventIds != null) user.setEventIds(eventIds);
+        user.setPastEventsCount(getInt(map, "pastEventsCount"));
+        return user;
+    };
+
+    /// the id of a summary is the key of its node
+    public static final SnapshotMapper<UserSummary> USER_SUMMARY = node -> {
+        Map<?, ?> map = asMap(node.getValue());
+        if (map == null) return null;
+        UserSummary summary = new UserSummary();
+        summary.setId(node.getKey());
+        summary.setFirstName(getString(map, "firstName"));
+        summary.setLastName(getString(map, "lastName"));
+        summary.setIsAdmin(getBoolean(map, "isAdmin"));
+        summary.setProfileThumbnail(getString(map, "profileThumbnail"));
+        return summary;
+    };
+
+    public static final SnapshotMapper<ChatMessage> CHAT_MESSAGE = node -> {
+        Map<?, ?> map = asMap(node.getValue());
+        if (map == null) return null;
+        ChatMessage message = new ChatMessage();
+        message.setMessageId(getString(map, "messageId"));
+        message.setSenderId(getString(map, "senderId"));
+        message.setSenderName(getString(map, "senderName"));
+        message.setText(getString(map, "text"));
+        message.setTimestamp(getLong(map, "timestamp"));
+        return message;
+    };
+
+    public static final SnapshotMapper<Comment> COMMENT = node -> {
+        Map<?, ?> map = asMap(node.getValue());
+        if (map == null) return null;
+        Comment comment = new Comment();
+        comment.setId(getString(map, "id"));
+        comment.setEventId(getString(map, "eventId"));
+        comment.setUserId(getString(map, "userId"));
+        comment.setText(getString(map, "text"));
+        comment.setTimestamp(getLong(map, "timestamp"));
+        return comment;
+    };
+
+    /// the id of an entry is the key of its node
+    public static final SnapshotMapper<InboxEntry> INBOX_ENTRY = node -> {
+        Map<?, ?> map = asMap(node.getValue());
+        if (map == null) return null;
+        InboxEntry entry = new InboxEntry();
+        entry.setId(node.getKey());
+        entry.setType(getEnum(map, "type", InboxEntryType.class));
+        entry.setGroupId(getString(map, "groupId"));
+        entry.setGroupName(getString(map, "groupName"));
+        entry.setRefId(getString(map, "refId"));
+        entry.setSenderId(getString(map, "senderId"));
+        entry.setSenderName(getString(map, "senderName"));
+        entry.setText(getString(map, "text"));
+        entry.setCreatedAt(getLong(map, "createdAt"));
+        return entry;
+    };
+
+    public static final SnapshotMapper<ContactMessage> CONTACT_MESSAGE = node -> {
+        Map<?, ?> map = asMap(node.getValue());
+        if (map == null) return null;
+        ContactMessage message = new ContactMessage();
+        message.setId(getString(map, "id"));
+        message.setUserId(getString(map, "userId"));
+        message.setName(getString(map, "name"));
+        message.setEmail(getString(map, "email"));
+        message.setPhone(getString(map, "phone"));
+        message.setMessage(getString(map, "message"));
+        message.setTimestamp(getLong(map, "timestamp"));
+        return message;
+    };
+
+    public static final SnapshotMapper<AppStats> APP_STATS = node -> {
+        Map<?, ?> map = asMap(node.getValue());
+        if (map == null) return null;
+        AppStats stats = new AppStats();
+        stats.setUsers(getInt(map, "users"));
+        stats.setGroups(getInt(map, "groups"));
+        stats.setEvents(getInt(map, "events"));
+        return stats;
+    };
+
+    /// the key of a bucket is the date it starts on
+    public static final SnapshotMapper<ActivityBucket> ACTIVITY_BUCKET = node -> {
+        Map<?, ?> map = asMap(node.getValue());
+        if (map == null) return null;
+        ActivityBucket bucket = new ActivityBucket(node.getKey(), StatsInterval.startOfKey(node.getKey()));
+        bucket.setSignups(getInt(map, "signups"));
+        bucket.setEvents(getInt(map, "events"));
+        bucket.setJoins(getInt(map, "joins"));
+        bucket.setMessages(getInt(map, "messages"));
+        return bucket;
+    };
+
+    private static final Map<Class<?>, SnapshotMapper<?>> MAPPERS = new HashMap<>();
+
+    static {
+        MAPPERS.put(Location.class, LOCATION);
+        MAPPERS.put(Event.class, EVENT);
+        MAPPERS.put(Group.class, GROUP);
+        MAPPERS.put(User.class, USER);
+        MAPPERS.put(UserSummary.class, USER_SUMMARY);
+        MAPPERS.put(ChatMessage.class, CHAT_MESSAGE);
+        MAPPERS.put(Comment.class, COMMENT);
+        MAPPERS.put(ContactMessage.class, CONTACT_MESSAGE);
+        MAPPERS.put(AppStats.class, APP_STATS);
+        MAPPERS.put(ActivityBucket.class, ACTIVITY_BUCKET);
+        MAPPERS.put(InboxEntry.class, INBOX_ENTRY);
+    }
+
+    private SnapshotMappers() {
+    }
+
+    /// get the mapper of a class
+    ///
+    /// @param clazz the class to convert to
+    /// @return the hand-written mapper of the class, or a mapper using DataNode#getValue(Class) for other classes
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public static <T> SnapshotMapper<T> forClass(@NonNull Class<T> clazz) {
+        SnapshotMapper<T> mapper = (SnapshotMapper<T>) MAPPERS.get(clazz);
+        if (mapper != null) return mapper;
+        return node -> node.getValue(clazz);
+    }
+
+    // region raw value helpers
+
+    @Nullable
+    private static Map<?, ?> asMap(@Nullable Object value) {
+        return value instanceof Map ? (Map<?, ?>) value : null;
+    }
+
+    @Nullable
+    private static Location toLocation(@Nullable Object value) {
+        Map<?, ?> map = asMap(value);
+        if (map == null) return null;
+        Location location = new Location();
+        location.setAddress(getString(map, "address"));
+        location.setLatitude(getDouble(map, "latitude"));
+        location.setLongitude(getDouble(map, "longitude"));
+        return location;
+    }
+
+    @Nullable
+    private static String getString(@NonNull Map<?, ?> map, @NonNull String key) {
+        Object value = map.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static long getLong(@NonNull Map<?, ?> map, @NonNull String key) {
+        Object value = map.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private static int getInt(@NonNull Map<?, ?> map, @NonNull String key) {
+        Object value = map.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    private static double getDouble(@NonNull Map<?, ?> map, @NonNull String key) {
+        Object value = map.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0d;
+    }
+
+    private static boolean getBoolean(@NonNull Map<?, ?> map, @NonNull String key) {
+        return Boolean.TRUE.equals(map.get(key));
+    }
+
+    @Nullable
+    private static <E extends Enum<E>> E getEnum(@NonNull Map<?, ?> map, @NonNull String key, @NonNull Class<E> enumClass) {
+        String name = getString(map, key);
+        if (name == null) return null;
+        try {
+            return Enum.valueOf(enumClass, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /// @return the map of ids (e.g. members) at the key, or null if there is none
+    @Nullable
+    private static Map<String, Boolean> getBooleanMap(@NonNull Map<?, ?> map, @NonNull String key) {
+        Map<?, ?> value = asMap(map.get(key));
+        if (value == null) return null;
+        Map<String, Boolean> result = new HashMap<>(value.size() * 2);
+        for (Map.Entry<?, ?> entry : value.entrySet()) {
+            if (entry.getValue() instanceof Boolean) {
+                result.put(String.valueOf(entry.getKey()), (Boolean) entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /// a map of ids to the time they were added, an id saved as true before the times were saved has the time 0
+    @Nullable
+    private static Map<String, Long> getTimeMap(@NonNull Map<?, ?> map, @NonNull String key) {
+        Map<?, ?> value = asMap(map.get(key));
+        if (value == null) return null;
+        Map<String, Long> result = new HashMap<>(value.size() * 2);
+        for (Map.Entry<?, ?> entry : value.entrySet()) {
+            if (entry.getValue() instanceof Number) {
+                result.put(String.valueOf(entry.getKey()), ((Number) entry.getValue()).longValue());
+            } else if (Boolean.TRUE.equals(entry.getValue())) {
+                result.put(String.valueOf(entry.getKey()), 0L);
+            }
+        }
+        return result;
+    }
+
+    // endregion
+}
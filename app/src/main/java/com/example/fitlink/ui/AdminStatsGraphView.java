@@ -5,38 +5,62 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.DashPathEffect;
-import android.graphics.LinearGradient;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.RectF;
-import android.graphics.Shader;
 import android.graphics.Typeface;
 import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.animation.OvershootInterpolator;
+import android.widget.OverScroller;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.example.fitlink.enums.ActivitySeries;
+import com.example.fitlink.enums.StatsInterval;
+import com.example.fitlink.models.ActivityBucket;
+
+import java.util.List;
+
 public class AdminStatsGraphView extends View {
 
-    // פלטת הצבעים המעודכנת מבוססת על #1E88E5
-    private final int primaryColor = Color.parseColor("#1E88E5");
-    private final int darkPrimaryColor = Color.parseColor("#0D47A1");
-    private final int lightPrimaryColor = Color.parseColor("#64B5F6");
-    private final int trackColor = Color.parseColor("#F0F4F8"); // אפור-כחלחל סופר עדין לרקע
-    private final int glowColor = Color.parseColor("#661E88E5"); // צל כחול רך
-    private Paint barPaint;
-    private Paint barHighlightPaint; // ליצירת אפקט ברק תלת-ממדי
-    private Paint trackPaint;
-    private Paint textValuePaint;
-    private Paint textLabelPaint;
-    private Paint axisPaint;
-    private Paint gridPaint;
-    private Paint valueBadgePaint;
-    private int userCount = 0;
-    private int groupCount = 0;
-    private int eventCount = 0;
-    private float animationProgress = 0f;
+    // גרף העמודות מצויר דרך Renderer שמכין הכל מראש, והאנימציה היא אחת לכל עדכוני הנתונים
+    private final StatsBarRenderer barRenderer = new StatsBarRenderer();
+    private final StatsBarModel barModel = new StatsBarModel();
+    private ValueAnimator animator;
+
+    // מדידת זמן הציור של כל פריים (לבדיקות ביצועים)
+    @Nullable
+    private FrameListener frameListener;
+    private long frameCount = 0;
+    private long totalDrawNanos = 0;
+    private long maxDrawNanos = 0;
+
+    // --- מצב גרף זמן: קו לכל סדרה, עם גלילה אופקית ---
+    private final int[] seriesColors = {
+            Color.parseColor("#1E88E5"), Color.parseColor("#43A047"),
+            Color.parseColor("#FB8C00"), Color.parseColor("#8E24AA")
+    };
+    private final ActivitySeries[] series = ActivitySeries.values();
+    private Paint seriesPaint;
+    private Paint legendDotPaint;
+    private Paint legendTextPaint;
+    private Paint axisLabelPaint;
+    private Paint timeGridPaint;
+    @Nullable
+    private List<ActivityBucket> buckets; // null במצב העמודות
+    private Path[] seriesPaths;
+    private String[] bucketLabels;
+    private String[] yLabels;
+    private int maxActivity = 1;
+    private float pointSpacing;
+    private float scrollOffset = 0f; // כמה פיקסלים גללנו מתחילת הגרף
+    private final RectF chartArea = new RectF();
+    private OverScroller scroller;
+    private GestureDetector gestureDetector;
 
     public AdminStatsGraphView(Context context) {
         super(context);
@@ -49,202 +73,291 @@ public class AdminStatsGraphView extends View {
     }
 
     private void init() {
-        setLayerType(LAYER_TYPE_SOFTWARE, null);
-
-        // --- צבע העמודות ---
-        barPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        barPaint.setStyle(Paint.Style.FILL);
-        barPaint.setShadowLayer(15f, 0f, 8f, glowColor);
-
-        // --- ברק פנימי (3D Effect) ---
-        barHighlightPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        barHighlightPaint.setStyle(Paint.Style.FILL);
-
-        // --- רקע המסלול ---
-        trackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        trackPaint.setStyle(Paint.Style.FILL);
-        trackPaint.setColor(trackColor);
-
-        // --- הבועה שמכילה את המספרים (עכשיו בצבע המותג!) ---
-        valueBadgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        valueBadgePaint.setColor(primaryColor);
-        valueBadgePaint.setStyle(Paint.Style.FILL);
-        valueBadgePaint.setShadowLayer(10f, 0f, 6f, Color.parseColor("#33000000"));
-
-        // --- טקסט המספרים (עכשיו בלבן בוהק) ---
-        textValuePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        textValuePaint.setColor(Color.WHITE);
-        textValuePaint.setTextSize(42f);
-        textValuePaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
-        textValuePaint.setTextAlign(Paint.Align.CENTER);
-
-        // --- טקסט התוויות ---
-        textLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        textLabelPaint.setColor(Color.parseColor("#607D8B")); // אפור מתכתי מודרני
-        textLabelPaint.setTextSize(36f);
-        textLabelPaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
-        textLabelPaint.setTextAlign(Paint.Align.CENTER);
-
-        // --- ציר תחתון ---
-        axisPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        axisPaint.setColor(Color.parseColor("#CFD8DC"));
-        axisPaint.setStrokeWidth(6f);
-        axisPaint.setStrokeCap(Paint.Cap.ROUND);
-
-        // --- רשת מקווקות נמוגה ---
-        gridPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        gridPaint.setStrokeWidth(3f);
-        gridPaint.setPathEffect(new DashPathEffect(new float[]{15f, 15f}, 0f));
-    }
-
-    public void setStats(int users, int groups, int events) {
-        this.userCount = users;
-        this.groupCount = groups;
-        this.eventCount = events;
-
-        startAnimation();
-    }
-
-    private void startAnimation() {
-        ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
+        animator = ValueAnimator.ofFloat(0f, 1f);
         animator.setDuration(1600); // הארכנו מעט כדי לתת זמן לאפקט הגל (Stagger)
         animator.setInterpolator(new OvershootInterpolator(1.1f));
         animator.addUpdateListener(animation -> {
-            animationProgress = (float) animation.getAnimatedValue();
+            barModel.setProgress((float) animation.getAnimatedValue());
             invalidate();
         });
+
+        // --- קווי הסדרות בגרף הזמן ---
+        float density = getResources().getDisplayMetrics().density;
+        seriesPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        seriesPaint.setStyle(Paint.Style.STROKE);
+        seriesPaint.setStrokeWidth(2.5f * density);
+        seriesPaint.setStrokeJoin(Paint.Join.ROUND);
+        seriesPaint.setStrokeCap(Paint.Cap.ROUND);
+
+        legendDotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        legendDotPaint.setStyle(Paint.Style.FILL);
+
+        legendTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        legendTextPaint.setColor(Color.parseColor("#607D8B"));
+        legendTextPaint.setTextSize(30f);
+        legendTextPaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
+
+        axisLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        axisLabelPaint.setColor(Color.parseColor("#90A4AE"));
+        axisLabelPaint.setTextSize(26f);
+        axisLabelPaint.setTextAlign(Paint.Align.CENTER);
+
+        timeGridPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        timeGridPaint.setColor(Color.parseColor("#E0E0E0"));
+        timeGridPaint.setStrokeWidth(2f);
+        timeGridPaint.setPathEffect(new DashPathEffect(new float[]{15f, 15f}, 0f));
+
+        seriesPaths = new Path[series.length];
+        for (int i = 0; i < series.length; i++) {
+            seriesPaths[i] = new Path();
+        }
+
+        // גלילה וזריקה (Fling) אופקית בגרף הזמן
+        scroller = new OverScroller(getContext());
+        gestureDetector = new GestureDetector(getContext(), new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(@NonNull MotionEvent e) {
+                scroller.forceFinished(true);
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(@Nullable MotionEvent e1, @NonNull MotionEvent e2, float distanceX, float distanceY) {
+                if (Math.abs(distanceX) > Math.abs(distanceY)) {
+                    // הגלילה האופקית שלנו, לא של המסך שמכיל את הגרף
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                }
+                setScrollOffset(scrollOffset + distanceX);
+                return true;
+            }
+
+            @Override
+            public boolean onFling(@Nullable MotionEvent e1, @NonNull MotionEvent e2, float velocityX, float velocityY) {
+                scroller.fling((int) scrollOffset, 0, (int) -velocityX, 0, 0, (int) getMaxScrollOffset(), 0, 0);
+                postInvalidateOnAnimation();
+                return true;
+            }
+        });
+    }
+
+    /**
+     * מעדכן את העמודות. עדכון בזמן שהאנימציה רצה לא מתחיל אנימציה נוספת:
+     * אותה אנימציה ממשיכה מהערכים שמוצגים כרגע אל הערכים החדשים
+     */
+    public void setStats(int users, int groups, int events) {
+        boolean wasTimeChart = buckets != null;
+        this.buckets = null;
+        if (!barModel.setValues(new int[]{users, groups, events}, animator.isRunning(), wasTimeChart)) {
+            return;
+        }
+
+        animator.cancel();
         animator.start();
     }
 
+    /**
+     * מציג גרף זמן של הפעילות: קו לכל סדרה ונקודה לכל יום או שבוע, עם גלילה אופקית.
+     * המסלולים (Paths) נבנים פעם אחת כאן וב-onSizeChanged, ובגלילה רק מזיזים את הקנבס
+     */
+    public void setActivity(@NonNull List<ActivityBucket> buckets, @NonNull StatsInterval interval) {
+        this.buckets = buckets;
+        animator.cancel();
+        float density = getResources().getDisplayMetrics().density;
+        pointSpacing = (interval == StatsInterval.DAY ? 14f : 36f) * density;
+
+        maxActivity = 1;
+        bucketLabels = new String[buckets.size()];
+        for (int i = 0; i < buckets.size(); i++) {
+            ActivityBucket bucket = buckets.get(i);
+            for (ActivitySeries s : series) {
+                maxActivity = Math.max(maxActivity, bucket.getCount(s));
+            }
+            // yyyy-MM-dd -> dd/MM
+            String key = bucket.getKey();
+            bucketLabels[i] = key != null && key.length() == 10 ? key.substring(8, 10) + "/" + key.substring(5, 7) : "";
+        }
+        // עיגול כלפי מעלה כדי שלקווי הרשת יהיו מספרים נוחים
+        maxActivity = (int) (Math.ceil(maxActivity * 1.1 / 4.0) * 4);
+        yLabels = new String[]{"0", String.valueOf(maxActivity / 2), String.valueOf(maxActivity)};
+
+        buildSeriesPaths();
+        // מתחילים מהתקופה האחרונה
+        scrollOffset = getMaxScrollOffset();
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        barRenderer.setSize(w, h);
+        if (buckets != null) {
+            buildSeriesPaths();
+            setScrollOffset(scrollOffset);
+        }
+    }
+
+    // בניית מסלול לכל סדרה ביחס לתחילת הגרף, כך שבזמן גלילה לא מחשבים אותם מחדש
+    private void buildSeriesPaths() {
+        chartArea.set(90f, 110f, getWidth() - 40f, getHeight() - 70f);
+        if (buckets == null || chartArea.width() <= 0 || chartArea.height() <= 0) return;
+
+        for (int s = 0; s < series.length; s++) {
+            Path path = seriesPaths[s];
+            path.rewind();
+            for (int i = 0; i < buckets.size(); i++) {
+                float x = i * pointSpacing;
+                float y = chartArea.bottom - (buckets.get(i).getCount(series[s]) / (float) maxActivity) * chartArea.height();
+                if (i == 0) {
+                    path.moveTo(x, y);
+                } else {
+                    path.lineTo(x, y);
+                }
+            }
+        }
+    }
+
+    private float getMaxScrollOffset() {
+        if (buckets == null || buckets.isEmpty()) return 0f;
+        return Math.max(0f, (buckets.size() - 1) * pointSpacing - chartArea.width());
+    }
+
+    private void setScrollOffset(float offset) {
+        float clamped = Math.max(0f, Math.min(getMaxScrollOffset(), offset));
+        if (clamped != scrollOffset) {
+            scrollOffset = clamped;
+            postInvalidateOnAnimation();
+        }
+    }
+
+    @Override
+    public void computeScroll() {
+        super.computeScroll();
+        if (buckets != null && scroller.computeScrollOffset()) {
+            setScrollOffset(scroller.getCurrX());
+            postInvalidateOnAnimation();
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (buckets == null) return super.onTouchEvent(event);
+        boolean handled = gestureDetector.onTouchEvent(event);
+        if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+            performClick();
+        }
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        barRenderer.setSize(getWidth(), getHeight());
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        animator.cancel();
+        scroller.forceFinished(true);
+        barRenderer.release();
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        long start = System.nanoTime();
 
-        int width = getWidth();
-        int height = getHeight();
-        int paddingBottom = 130;
-        int paddingTop = 120;
-        int paddingSides = 60;
-
-        float graphHeight = height - paddingBottom - paddingTop;
-
-        // הגדרת רשת נמוגה (Fading Grid) - שקוף בצדדים, אטום באמצע
-        LinearGradient gridShader = new LinearGradient(
-                paddingSides, 0, width - paddingSides, 0,
-                new int[]{Color.TRANSPARENT, Color.parseColor("#E0E0E0"), Color.parseColor("#E0E0E0"), Color.TRANSPARENT},
-                new float[]{0f, 0.2f, 0.8f, 1f},
-                Shader.TileMode.CLAMP
-        );
-        gridPaint.setShader(gridShader);
-
-        // ציור רשת
-        int gridLines = 4;
-        for (int i = 0; i <= gridLines; i++) {
-            float y = paddingTop + (graphHeight / gridLines) * i;
-            canvas.drawLine(paddingSides, y, width - paddingSides, y, gridPaint);
+        if (buckets != null) {
+            drawTimeChart(canvas);
+        } else {
+            barRenderer.draw(canvas, barModel);
         }
 
-        // ציר X
-        canvas.drawLine(paddingSides, height - paddingBottom, width - paddingSides, height - paddingBottom, axisPaint);
-
-        int maxCount = Math.max(10, Math.max(userCount, Math.max(groupCount, eventCount)));
-        maxCount = (int) (maxCount * 1.15);
-
-        float availableWidth = width - (2 * paddingSides);
-        float unit = availableWidth / 10f;
-        float barWidth = unit * 2f;
-        float spacing = unit;
-        float maxBarHeight = height - paddingBottom - paddingTop;
-
-        String[] labels = {"Users", "Groups", "Events"};
-        int[] values = {userCount, groupCount, eventCount};
-
-        for (int i = 0; i < 3; i++) {
-            float left = paddingSides + spacing + (i * (barWidth + spacing));
-            float right = left + barWidth;
-            float centerX = left + (barWidth / 2f);
-            float bottom = height - paddingBottom;
-            float cornerRadius = barWidth / 2f;
-
-            // 1. ציור רקע ה"מסלול" (Track)
-            RectF trackRect = new RectF(left, paddingTop, right, bottom);
-            canvas.drawRoundRect(trackRect, cornerRadius, cornerRadius, trackPaint);
-
-            // --- חישוב אנימציה מדורגת (Staggered Animation) ---
-            // כל עמודה מתחילה קצת אחרי הקודמת כדי ליצור אפקט של "גל"
-            float delay = i * 0.15f;
-            float localProgress = (animationProgress - delay) / (1f - delay);
-            // אם האנימציה הכוללת עברה את 1.0 (בגלל Overshoot), נשמור על התנופה גם פה
-            if (localProgress < 0) localProgress = 0f;
-
-            // 2. חישוב גובה העמודה הפעילה
-            float targetHeight = (((float) values[i] / maxCount) * maxBarHeight);
-            float barHeight = targetHeight * localProgress;
-            if (barHeight < 0) barHeight = 0;
-            float top = bottom - barHeight;
-
-            // 3. הגרדיאנט המרכזי של העמודה
-            LinearGradient gradient = new LinearGradient(
-                    0, bottom, 0, top,
-                    new int[]{darkPrimaryColor, primaryColor, lightPrimaryColor},
-                    new float[]{0f, 0.6f, 1f},
-                    Shader.TileMode.CLAMP
-            );
-            barPaint.setShader(gradient);
-
-            // 4. ציור העמודה
-            RectF barRect = new RectF(left, top, right, bottom);
-            canvas.drawRoundRect(barRect, cornerRadius, cornerRadius, barPaint);
-
-            // 5. ציור הברק העליון (Glossy Highlight) - נותן תחושה של זכוכית תלת-ממדית
-            if (barHeight > cornerRadius * 2) {
-                RectF highlightRect = new RectF(left + 6, top + 6, right - 6, top + (barWidth));
-                LinearGradient highlightGradient = new LinearGradient(
-                        0, top, 0, top + barWidth,
-                        Color.argb(120, 255, 255, 255), // לבן חצי שקוף
-                        Color.TRANSPARENT,
-                        Shader.TileMode.CLAMP
-                );
-                barHighlightPaint.setShader(highlightGradient);
-                canvas.drawRoundRect(highlightRect, cornerRadius, cornerRadius, barHighlightPaint);
-            }
+        recordFrame(System.nanoTime() - start);
+    }
 
-            // חישוב המספר שמוצג כרגע (כדי לא לרדת מתחת לאפס ולעצור בערך המדויק)
-            int currentDisplayValue = Math.min(values[i], (int) (values[i] * Math.max(0, localProgress)));
-            String valueText = String.valueOf(currentDisplayValue);
-
-            // 6. ציור הבועה (Tooltip) רק אם העמודה התרוממה מספיק
-            if (localProgress > 0.1f) {
-                float textY = top - 45;
-                Paint.FontMetrics fm = textValuePaint.getFontMetrics();
-                float textWidth = textValuePaint.measureText(valueText);
-
-                float badgeTop = textY + fm.ascent - 15;
-                float badgeBottom = textY + fm.descent + 15;
-
-                // ציור החץ
-                Path arrowPath = new Path();
-                arrowPath.moveTo(centerX - 15, badgeBottom - 2);
-                arrowPath.lineTo(centerX + 15, badgeBottom - 2);
-                arrowPath.lineTo(centerX, badgeBottom + 15);
-                arrowPath.close();
-
-                // בועת הרקע עכשיו בצבע כחול
-                RectF badgeRect = new RectF(
-                        centerX - (textWidth / 2f) - 35,
-                        badgeTop,
-                        centerX + (textWidth / 2f) + 35,
-                        badgeBottom
-                );
-                canvas.drawRoundRect(badgeRect, 24f, 24f, valueBadgePaint);
-                canvas.drawPath(arrowPath, valueBadgePaint);
-
-                // הטקסט הלבן
-                canvas.drawText(valueText, centerX, textY, textValuePaint);
-            }
+    /**
+     * מאזין לזמן הציור של כל פריים. הזמן הוא של onDraw בלבד (הקלטת פקודות הציור),
+     * הציור עצמו בהאצת חומרה קורה אחר כך ב-RenderThread
+     */
+    public interface FrameListener {
+        void onFrameDrawn(long drawNanos);
+    }
+
+    public void setFrameListener(@Nullable FrameListener frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getAverageDrawNanos() {
+        return frameCount == 0 ? 0 : totalDrawNanos / frameCount;
+    }
+
+    public long getMaxDrawNanos() {
+        return maxDrawNanos;
+    }
+
+    public void resetFrameStats() {
+        frameCount = 0;
+        totalDrawNanos = 0;
+        maxDrawNanos = 0;
+    }
+
+    private void recordFrame(long drawNanos) {
+        frameCount++;
+        totalDrawNanos += drawNanos;
+        maxDrawNanos = Math.max(maxDrawNanos, drawNanos);
+        if (frameListener != null) {
+            frameListener.onFrameDrawn(drawNanos);
+        }
+    }
+
+    // ציור גרף הזמן: רשת, מקרא, הקווים ותוויות התאריכים הנראות בלבד
+    private void drawTimeChart(Canvas canvas) {
+        if (buckets == null || buckets.isEmpty() || chartArea.width() <= 0) return;
+
+        // רשת וערכי ציר Y
+        for (int i = 0; i < yLabels.length; i++) {
+            float y = chartArea.bottom - chartArea.height() * i / (yLabels.length - 1);
+            canvas.drawLine(chartArea.left, y, chartArea.right, y, timeGridPaint);
+            canvas.drawText(yLabels[i], chartArea.left / 2f, y + 9f, axisLabelPaint);
+        }
+
+        // מקרא הסדרות
+        float legendX = chartArea.left;
+        for (int s = 0; s < series.length; s++) {
+            legendDotPaint.setColor(seriesColors[s % seriesColors.length]);
+            canvas.drawCircle(legendX + 10f, 45f, 10f, legendDotPaint);
+            String name = series[s].getDisplayName();
+            canvas.drawText(name, legendX + 28f, 55f, legendTextPaint);
+            legendX += 28f + legendTextPaint.measureText(name) + 36f;
+        }
+
+        // הקווים: מזיזים את הקנבס לפי הגלילה וחותכים לשטח הגרף
+        canvas.save();
+        canvas.clipRect(chartArea.left - 8f, chartArea.top - 8f, chartArea.right + 8f, getHeight());
+        canvas.translate(chartArea.left - scrollOffset, 0f);
+        for (int s = 0; s < series.length; s++) {
+            seriesPaint.setColor(seriesColors[s % seriesColors.length]);
+            canvas.drawPath(seriesPaths[s], seriesPaint);
+        }
 
-            // 7. תוויות ציר X
-            canvas.drawText(labels[i], centerX, height - paddingBottom + 65, textLabelPaint);
+        // תוויות התאריכים רק לנקודות שבתחום הנראה, ובמרווח שלא יחפפו
+        int labelStep = Math.max(1, (int) Math.ceil(110f / pointSpacing));
+        int first = Math.max(0, (int) (scrollOffset / pointSpacing) - 1);
+        int last = Math.min(buckets.size() - 1, (int) ((scrollOffset + chartArea.width()) / pointSpacing) + 1);
+        first -= first % labelStep;
+        for (int i = first; i <= last; i += labelStep) {
+            canvas.drawText(bucketLabels[i], i * pointSpacing, chartArea.bottom + 45f, axisLabelPaint);
         }
+        canvas.restore();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package com.example.fitlink.ui;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * הערכים של גרף העמודות והחישוב של האנימציה המדורגת שלהם.
+ * Java רגיל בלי Android, כך שהחשבון נבדק בבדיקות יחידה בלי מכשיר
+ */
+final class StatsBarModel {
+
+    static final int BAR_COUNT = 3;
+
+    // כל עמודה מתחילה קצת אחרי הקודמת כדי ליצור אפקט של "גל"
+    private static final float STAGGER = 0.15f;
+
+    private final int[] fromValues = new int[BAR_COUNT];
+    private final int[] targetValues = new int[BAR_COUNT];
+    private float progress = 0f;
+
+    /**
+     * מעדכן את הערכים שהעמודות מגיעות אליהם. עדכון בזמן שהאנימציה רצה ממשיך מהערכים שמוצגים כרגע
+     *
+     * @param values    הערכים החדשים, אחד לכל עמודה
+     * @param animating האם האנימציה רצה כרגע
+     * @param fromZero  האם להתחיל מאפס (למשל אחרי גרף הזמן)
+     * @return false אם הערכים לא השתנו ואין צורך להתחיל אנימציה
+     */
+    boolean setValues(@NonNull int[] values, boolean animating, boolean fromZero) {
+        if (!fromZero && Arrays.equals(targetValues, values) && (animating || progress > 0f)) {
+            return false;
+        }
+
+        if (animating) {
+            for (int i = 0; i < BAR_COUNT; i++) {
+                fromValues[i] = getShownValue(i);
+            }
+        } else if (!fromZero) {
+            System.arraycopy(targetValues, 0, fromValues, 0, BAR_COUNT);
+        } else {
+            Arrays.fill(fromValues, 0);
+        }
+        System.arraycopy(values, 0, targetValues, 0, BAR_COUNT);
+        progress = 0f;
+        return true;
+    }
+
+    // ההתקדמות של האנימציה (יכולה לעבור את 1 בגלל ה-Overshoot)
+    void setProgress(float progress) {
+        this.progress = progress;
+    }
+
+    float getProgress() {
+        return progress;
+    }
+
+    // ההתקדמות של עמודה אחת, אחרי ההשהיה שלה. לא נחתכת ב-1 כדי שה-Overshoot יראה בגובה
+    float getLocalProgress(int index) {
+        float delay = index * STAGGER;
+        return Math.max(0f, (progress - delay) / (1f - delay));
+    }
+
+    // הגובה של העמודה ברגע זה, כולל ה-Overshoot
+    float getValue(int index) {
+        return fromValues[index] + (targetValues[index] - fromValues[index]) * getLocalProgress(index);
+    }
+
+    // המספר שהעמודה מציגה ברגע זה, בלי לעבור את הערך המדויק
+    int getShownValue(int index) {
+        float localProgress = Math.min(1f, getLocalProgress(index));
+        return Math.round(fromValues[index] + (targetValues[index] - fromValues[index]) * localProgress);
+    }
+
+    int getFromValue(int index) {
+        return fromValues[index];
+    }
+
+    // הערך הגבוה ביותר שהאנימציה עוברת בו, לקנה המידה של הגרף
+    int getMaxValue() {
+        int max = 0;
+        for (int i = 0; i < BAR_COUNT; i++) {
+            max = Math.max(max, Math.max(fromValues[i], targetValues[i]));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.fitlink.ui;
+
+import android.graphics.Bitmap;
+import android.graphics.BlurMaskFilter;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.DashPathEffect;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Typeface;
+
+/**
+ * מצייר את גרף העמודות של לוח הבקרה בלי הקצאות בזמן הציור.
+ * כל מה שתלוי בגודל (מיקומי העמודות, הרשת, ה-Shaders והצללים) מחושב פעם אחת ב-setSize,
+ * והצללים נשמרים כתמונות (Bitmap) במקום setShadowLayer, כך שהתצוגה נשארת מואצת בחומרה
+ */
+final class StatsBarRenderer {
+
+    static final int BAR_COUNT = StatsBarModel.BAR_COUNT;
+    private static final String[] LABELS = {"Users", "Groups", "Events"};
+
+    private static final int PADDING_BOTTOM = 130;
+    private static final int PADDING_TOP = 120;
+    private static final int PADDING_SIDES = 60;
+    private static final int GRID_LINES = 4;
+
+    private static final float BAR_SHADOW_BLUR = 15f;
+    private static final float BAR_SHADOW_DY = 8f;
+    private static final float BADGE_SHADOW_BLUR = 10f;
+    private static final float BADGE_SHADOW_DY = 6f;
+    private static final float BADGE_RADIUS = 24f;
+
+    // פלטת הצבעים המעודכנת מבוססת על #1E88E5
+    private final int primaryColor = Color.parseColor("#1E88E5");
+    private final int darkPrimaryColor = Color.parseColor("#0D47A1");
+    private final int lightPrimaryColor = Color.parseColor("#64B5F6");
+    private final int trackColor = Color.parseColor("#F0F4F8"); // אפור-כחלחל סופר עדין לרקע
+    private final int glowColor = Color.parseColor("#661E88E5"); // צל כחול רך
+    private final int badgeShadowColor = Color.parseColor("#33000000");
+
+    private final Paint barPaint;
+    private final Paint barHighlightPaint; // ליצירת אפקט ברק תלת-ממדי
+    private final Paint trackPaint;
+    private final Paint textValuePaint;
+    private final Paint textLabelPaint;
+    private final Paint axisPaint;
+    private final Paint gridPaint;
+    private final Paint valueBadgePaint;
+    private final Paint shadowPaint;
+
+    // גרדיאנטים בגובה יחידה, שמותאמים לכל עמודה דרך מטריצה במקום ליצור חדשים בכל פריים
+    private final LinearGradient barShader;
+    private final LinearGradient highlightShader;
+    private final Matrix shaderMatrix = new Matrix();
+
+    private final Paint.FontMetrics valueMetrics;
+    private final Path arrowPath = new Path();
+    private final char[] valueChars = new char[11];
+
+    // הפריסה, מחושבת ב-setSize
+    private int width, height;
+    private float barWidth, cornerRadius, bottom, maxBarHeight;
+    private final float[] barLefts = new float[BAR_COUNT];
+    private final RectF[] trackRects = new RectF[BAR_COUNT];
+    private float[] gridLines = new float[0];
+
+    // אובייקטים לשימוש חוזר בזמן הציור
+    private final RectF barRect = new RectF();
+    private final RectF highlightRect = new RectF();
+    private final RectF badgeRect = new RectF();
+    private final Rect sliceSrc = new Rect();
+    private final RectF sliceDst = new RectF();
+    private final int[] sliceSrcX = new int[4], sliceSrcY = new int[4];
+    private final float[] sliceDstX = new float[4], sliceDstY = new float[4];
+
+    // צללים מוכנים מראש: מלבן מעוגל מטושטש שנמתח לכל גודל (כמו Nine-Patch)
+    private Bitmap barShadow, badgeShadow, arrowShadow;
+    private int barShadowPad, badgeShadowPad, arrowShadowPad;
+
+    StatsBarRenderer() {
+        // --- צבע העמודות ---
+        barPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        barPaint.setStyle(Paint.Style.FILL);
+        barShader = new LinearGradient(
+                0, 0, 0, 1,
+                new int[]{darkPrimaryColor, primaryColor, lightPrimaryColor},
+                new float[]{0f, 0.6f, 1f},
+                Shader.TileMode.CLAMP
+        );
+        barPaint.setShader(barShader);
+
+        // --- ברק פנימי (3D Effect) ---
+        barHighlightPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        barHighlightPaint.setStyle(Paint.Style.FILL);
+        highlightShader = new LinearGradient(
+                0, 0, 0, 1,
+                Color.argb(120, 255, 255, 255), // לבן חצי שקוף
+                Color.TRANSPARENT,
+                Shader.TileMode.CLAMP
+        );
+        barHighlightPaint.setShader(highlightShader);
+
+        // --- רקע המסלול ---
+        trackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        trackPaint.setStyle(Paint.Style.FILL);
+        trackPaint.setColor(trackColor);
+
+        // --- הבועה שמכילה את המספרים ---
+        valueBadgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        valueBadgePaint.setColor(primaryColor);
+        valueBadgePaint.setStyle(Paint.Style.FILL);
+
+        // --- טקסט המספרים ---
+        textValuePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textValuePaint.setColor(Color.WHITE);
+        textValuePaint.setTextSize(42f);
+        textValuePaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
+        textValuePaint.setTextAlign(Paint.Align.CENTER);
+        valueMetrics = textValuePaint.getFontMetrics();
+
+        // --- טקסט התוויות ---
+        textLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textLabelPaint.setColor(Color.parseColor("#607D8B")); // אפור מתכתי מודרני
+        textLabelPaint.setTextSize(36f);
+        textLabelPaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
+        textLabelPaint.setTextAlign(Paint.Align.CENTER);
+
+        // --- ציר תחתון ---
+        axisPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        axisPaint.setColor(Color.parseColor("#CFD8DC"));
+        axisPaint.setStrokeWidth(6f);
+        axisPaint.setStrokeCap(Paint.Cap.ROUND);
+
+        // --- רשת מקווקות נמוגה ---
+        gridPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        gridPaint.setStrokeWidth(3f);
+        gridPaint.setPathEffect(new DashPathEffect(new float[]{15f, 15f}, 0f));
+
+        shadowPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+        // החץ של הבועה, יחסית לאמצע התחתית שלה
+        arrowPath.moveTo(-15, -2);
+        arrowPath.lineTo(15, -2);
+        arrowPath.lineTo(0, 15);
+        arrowPath.close();
+
+        for (int i = 0; i < BAR_COUNT; i++) {
+            trackRects[i] = new RectF();
+        }
+    }
+
+    // חישוב כל מה שתלוי בגודל התצוגה, נקרא מ-onSizeChanged
+    void setSize(int width, int height) {
+        if (width == this.width && height == this.height) return;
+        this.width = width;
+        this.height = height;
+        if (width <= 0 || height <= 0) return;
+
+        float graphHeight = height - PADDING_BOTTOM - PADDING_TOP;
+        bottom = height - PADDING_BOTTOM;
+        maxBarHeight = graphHeight;
+
+        // הגדרת רשת נמוגה (Fading Grid) - שקוף בצדדים, אטום באמצע
+        gridPaint.setShader(new LinearGradient(
+                PADDING_SIDES, 0, width - PADDING_SIDES, 0,
+                new int[]{Color.TRANSPARENT, Color.parseColor("#E0E0E0"), Color.parseColor("#E0E0E0"), Color.TRANSPARENT},
+                new float[]{0f, 0.2f, 0.8f, 1f},
+                Shader.TileMode.CLAMP
+        ));
+        gridLines = new float[(GRID_LINES + 1) * 4];
+        for (int i = 0; i <= GRID_LINES; i++) {
+            float y = PADDING_TOP + (graphHeight / GRID_LINES) * i;
+            gridLines[i * 4] = PADDING_SIDES;
+            gridLines[i * 4 + 1] = y;
+            gridLines[i * 4 + 2] = width - PADDING_SIDES;
+            gridLines[i * 4 + 3] = y;
+        }
+
+        float unit = (width - (2f * PADDING_SIDES)) / 10f;
+        barWidth = unit * 2f;
+        cornerRadius = barWidth / 2f;
+        for (int i = 0; i < BAR_COUNT; i++) {
+            barLefts[i] = PADDING_SIDES + unit + (i * (barWidth + unit));
+            trackRects[i].set(barLefts[i], PADDING_TOP, barLefts[i] + barWidth, bottom);
+        }
+
+        recycleShadows();
+        if (barWidth <= 0) return;
+        barShadowPad = shadowPadding(BAR_SHADOW_BLUR);
+        barShadow = createRoundRectShadow(barWidth, barWidth + 1, cornerRadius, BAR_SHADOW_BLUR, barShadowPad, glowColor);
+        float badgeHeight = valueMetrics.descent - valueMetrics.ascent + 30f;
+        badgeShadowPad = shadowPadding(BADGE_SHADOW_BLUR);
+        badgeShadow = createRoundRectShadow(BADGE_RADIUS * 2 + 1, badgeHeight, BADGE_RADIUS, BADGE_SHADOW_BLUR, badgeShadowPad, badgeShadowColor);
+        arrowShadowPad = badgeShadowPad;
+        arrowShadow = createArrowShadow(BADGE_SHADOW_BLUR, arrowShadowPad, badgeShadowColor);
+    }
+
+    // שחרור התמונות של הצללים, נקרא כשהתצוגה יורדת מהמסך
+    void release() {
+        recycleShadows();
+        width = 0;
+        height = 0;
+    }
+
+    /**
+     * ציור העמודות.
+     *
+     * @param model הערכים של העמודות וההתקדמות של האנימציה
+     */
+    void draw(Canvas canvas, StatsBarModel model) {
+        if (width <= 0 || height <= 0 || barShadow == null) return;
+
+        // ציור רשת וציר X
+        canvas.drawLines(gridLines, gridPaint);
+        canvas.drawLine(PADDING_SIDES, bottom, width - PADDING_SIDES, bottom, axisPaint);
+
+        int maxCount = (int) (Math.max(10, model.getMaxValue()) * 1.15);
+
+        for (int i = 0; i < BAR_COUNT; i++) {
+            float left = barLefts[i];
+            float right = left + barWidth;
+            float centerX = left + cornerRadius;
+
+            // 1. ציור רקע ה"מסלול" (Track)
+            canvas.drawRoundRect(trackRects[i], cornerRadius, cornerRadius, trackPaint);
+
+            // --- אנימציה מדורגת (Staggered Animation), החישוב ב-StatsBarModel ---
+            float localProgress = model.getLocalProgress(i);
+
+            // 2. חישוב גובה העמודה הפעילה
+            float value = model.getValue(i);
+            float barHeight = Math.max(0f, (value / maxCount) * maxBarHeight);
+            float top = bottom - barHeight;
+
+            if (barHeight > 0) {
+                // 3. צל העמודה מהתמונה המוכנה, ואז העמודה עם הגרדיאנט המותאם לגובה שלה
+                drawShadow(canvas, barShadow, barShadowPad, cornerRadius, left, top + BAR_SHADOW_DY, right, bottom + BAR_SHADOW_DY);
+                shaderMatrix.setScale(1f, -barHeight);
+                shaderMatrix.postTranslate(0f, bottom);
+                barShader.setLocalMatrix(shaderMatrix);
+                barRect.set(left, top, right, bottom);
+                canvas.drawRoundRect(barRect, cornerRadius, cornerRadius, barPaint);
+            }
+
+            // 4. ציור הברק העליון (Glossy Highlight) - נותן תחושה של זכוכית תלת-ממדית
+            if (barHeight > cornerRadius * 2) {
+                shaderMatrix.setScale(1f, barWidth);
+                shaderMatrix.postTranslate(0f, top);
+                highlightShader.setLocalMatrix(shaderMatrix);
+                highlightRect.set(left + 6, top + 6, right - 6, top + barWidth);
+                canvas.drawRoundRect(highlightRect, cornerRadius, cornerRadius, barHighlightPaint);
+            }
+
+            // 5. ציור הבועה (Tooltip) רק אם העמודה התרוממה מספיק
+            if (localProgress > 0.1f || model.getFromValue(i) > 0) {
+                int start = formatInt(model.getShownValue(i));
+                int count = valueChars.length - start;
+
+                float textY = top - 45;
+                float textWidth = textValuePaint.measureText(valueChars, start, count);
+                float badgeTop = textY + valueMetrics.ascent - 15;
+                float badgeBottom = textY + valueMetrics.descent + 15;
+                badgeRect.set(centerX - (textWidth / 2f) - 35, badgeTop, centerX + (textWidth / 2f) + 35, badgeBottom);
+
+                drawShadow(canvas, badgeShadow, badgeShadowPad, BADGE_RADIUS, badgeRect.left, badgeRect.top + BADGE_SHADOW_DY,
+                        badgeRect.right, badgeRect.bottom + BADGE_SHADOW_DY);
+                canvas.drawBitmap(arrowShadow, centerX - 15 - arrowShadowPad, badgeBottom - 2 - arrowShadowPad + BADGE_SHADOW_DY, shadowPaint);
+                canvas.drawRoundRect(badgeRect, BADGE_RADIUS, BADGE_RADIUS, valueBadgePaint);
+                canvas.save();
+                canvas.translate(centerX, badgeBottom);
+                canvas.drawPath(arrowPath, valueBadgePaint);
+                canvas.restore();
+
+                canvas.drawText(valueChars, start, count, centerX, textY, textValuePaint);
+            }
+
+            // 6. תוויות ציר X
+            canvas.drawText(LABELS[i], centerX, bottom + 65, textLabelPaint);
+        }
+    }
+
+    // כתיבת המספר לסוף המערך בלי ליצור String, מחזיר את האינדקס שבו הוא מתחיל
+    private int formatInt(int value) {
+        int index = valueChars.length;
+        long remaining = Math.abs((long) value);
+        do {
+            valueChars[--index] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        if (value < 0) valueChars[--index] = '-';
+        return index;
+    }
+
+    // ציור צל מוכן במתיחה של תשעה חלקים: הפינות נשארות בגודלן והפס האמצעי נמתח
+    private void drawShadow(Canvas canvas, Bitmap shadow, int pad, float radius, float left, float top, float right, float bottom) {
+        int cap = pad + (int) Math.ceil(radius);
+        float dstLeft = left - pad, dstTop = top - pad, dstRight = right + pad, dstBottom = bottom + pad;
+        float capX = Math.min(cap, (dstRight - dstLeft) / 2f);
+        float capY = Math.min(cap, (dstBottom - dstTop) / 2f);
+
+        sliceSrcX[0] = 0;
+        sliceSrcX[1] = cap;
+        sliceSrcX[2] = shadow.getWidth() - cap;
+        sliceSrcX[3] = shadow.getWidth();
+        sliceSrcY[0] = 0;
+        sliceSrcY[1] = cap;
+        sliceSrcY[2] = shadow.getHeight() - cap;
+        sliceSrcY[3] = shadow.getHeight();
+        sliceDstX[0] = dstLeft;
+        sliceDstX[1] = dstLeft + capX;
+        sliceDstX[2] = dstRight - capX;
+        sliceDstX[3] = dstRight;
+        sliceDstY[0] = dstTop;
+        sliceDstY[1] = dstTop + capY;
+        sliceDstY[2] = dstBottom - capY;
+        sliceDstY[3] = dstBottom;
+
+        for (int y = 0; y < 3; y++) {
+            if (sliceDstY[y + 1] <= sliceDstY[y] || sliceSrcY[y + 1] <= sliceSrcY[y]) continue;
+            for (int x = 0; x < 3; x++) {
+                if (sliceDstX[x + 1] <= sliceDstX[x] || sliceSrcX[x + 1] <= sliceSrcX[x]) continue;
+                sliceSrc.set(sliceSrcX[x], sliceSrcY[y], sliceSrcX[x + 1], sliceSrcY[y + 1]);
+                sliceDst.set(sliceDstX[x], sliceDstY[y], sliceDstX[x + 1], sliceDstY[y + 1]);
+                canvas.drawBitmap(shadow, sliceSrc, sliceDst, shadowPaint);
+            }
+        }
+    }
+
+    private static int shadowPadding(float blur) {
+        return (int) Math.ceil(blur) + 2;
+    }
+
+    // צל של מלבן מעוגל בגודל המינימלי (פינות + פס של פיקסל אחד), מצויר פעם אחת על Bitmap בתוכנה
+    private static Bitmap createRoundRectShadow(float width, float height, float radius, float blur, int pad, int color) {
+        int bitmapWidth = (int) Math.ceil(width) + pad * 2;
+        int bitmapHeight = (int) Math.ceil(height) + pad * 2;
+        Bitmap bitmap = Bitmap.createBitmap(bitmapWidth, bitmapHeight, Bitmap.Config.ARGB_8888);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(color);
+        paint.setMaskFilter(new BlurMaskFilter(blur, BlurMaskFilter.Blur.NORMAL));
+        new Canvas(bitmap).drawRoundRect(new RectF(pad, pad, pad + width, pad + height), radius, radius, paint);
+        return bitmap;
+    }
+
+    private Bitmap createArrowShadow(float blur, int pad, int color) {
+        Bitmap bitmap = Bitmap.createBitmap(30 + pad * 2, 17 + pad * 2, Bitmap.Config.ARGB_8888);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(color);
+        paint.setMaskFilter(new BlurMaskFilter(blur, BlurMaskFilter.Blur.NORMAL));
+        Canvas canvas = new Canvas(bitmap);
+        canvas.translate(pad + 15, pad + 2);
+        canvas.drawPath(arrowPath, paint);
+        return bitmap;
+    }
+
+    private void recycleShadows() {
+        if (barShadow != null) barShadow.recycle();
+        if (badgeShadow != null) badgeShadow.recycle();
+        if (arrowShadow != null) arrowShadow.recycle();
+        barShadow = null;
+        badgeShadow = null;
+        arrowShadow = null;
+    }
+}
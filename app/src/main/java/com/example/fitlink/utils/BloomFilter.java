@@ -0,0 +1,99 @@
+package com.example.fitlink.utils;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/// A fixed-size Bloom filter of strings
+/// mightContain() is false for a string that was never put, and true for a string that was put.
+/// For other strings it may be true too, at about the false positive rate the filter was sized for,
+/// as long as no more than the expected number of strings were put. Strings can't be removed, clear() and put
+/// the remaining ones again instead
+///
+/// Not thread safe
+public class BloomFilter {
+
+    private final long[] bits;
+    private final int bitCount;
+    private final int hashCount;
+    private int size = 0;
+
+    /// @param expectedItems     The number of strings the filter is sized for
+    /// @param falsePositiveRate The rate of false positives when the filter holds expectedItems strings, e.g. 0.01
+    public BloomFilter(int expectedItems, double falsePositiveRate) {
+        if (expectedItems <= 0) throw new IllegalArgumentException("expectedItems must be positive");
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        // the optimal sizes: m = -n ln p / (ln 2)^2 bits, k = m / n ln 2 hashes
+        long optimalBits = (long) Math.ceil(-expectedItems * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bitCount = (int) Math.max(64, Math.min(Integer.MAX_VALUE - 63, optimalBits));
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedItems * Math.log(2)));
+        bits = new long[(bitCount + 63) / 64];
+    }
+
+    /// Add a string
+    public void put(@NonNull String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(hash1 + i * hash2);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+        size++;
+    }
+
+    /// @return False if the string was never put, true if it was or, rarely, if it wasn't
+    public boolean mightContain(@NonNull String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(hash1 + i * hash2);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /// Remove all the strings
+    public void clear() {
+        Arrays.fill(bits, 0L);
+        size = 0;
+    }
+
+    /// @return The number of strings put since the filter was created or cleared
+    public int size() {
+        return size;
+    }
+
+    /// @return The number of bits of the filter
+    public int getBitCount() {
+        return bitCount;
+    }
+
+    /// @return The number of bits set for every string
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    private int index(long hash) {
+        return (int) ((hash >>> 1) % bitCount);
+    }
+
+    /// FNV-1a over the chars of the string
+    private static long hash(@NonNull String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /// The finalizer of MurmurHash3, spreads every bit of the input over the output
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,49 +1,189 @@
 package com.example.fitlink.utils;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
-import androidx.work.Data;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.work.ExistingWorkPolicy;
 import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
 
 import com.example.fitlink.models.Event;
+import com.example.fitlink.services.ReminderQueue;
 import com.example.fitlink.workers.EventReminderWorker;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+/// Schedules the reminders of the events of the logged in user
+/// The reminders are kept in a ReminderQueue, and only the first one due has a wake-up: one unique WorkManager job
+/// that shows the due reminders and schedules the next wake-up. Adding or removing a reminder schedules the job
+/// again only when the first reminder changed
+/// The queue is a file, so the methods called from the screens do their work on a background thread
+///
+/// @see ReminderQueue
+/// @see EventReminderWorker
 public class EventReminderScheduler {
 
+    private static final String TAG = "EventReminderScheduler";
+    private static final String WORK_NAME = "event_reminders";
+    /// Reads and changes the queue for the screens, one change at a time and in order
+    private static final ExecutorService queueExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /// Add the reminders of an event, or move them when the start time of the event was changed
+    ///
+    /// @param context The context to use
+    /// @param event   The event the user takes part in
     public static void scheduleReminder(Context context, Event event) {
-        // חישוב הזמן (במילישניות) עד שנקודת ה-24 שעות לפני האירוע תגיע
-        long currentTime = System.currentTimeMillis();
-        long twentyFourHoursInMillis = 24 * 60 * 60 * 1000L;
-        long targetTime = event.getStartTimestamp() - twentyFourHoursInMillis;
-        long delayInMillis = targetTime - currentTime;
-
-        // מוודאים שיש עוד יותר מ-24 שעות לאירוע. אם נשארו פחות מ-24 שעות, אין טעם לתזמן
-        if (delayInMillis > 0) {
-            Data inputData = new Data.Builder()
-                    .putString("eventId", event.getId())
-                    .putString("eventTitle", event.getTitle())
-                    .build();
+        final Context appContext = context.getApplicationContext();
+        // the screen may change its event while the queue is being written
+        final Event copy = new Event(event);
+        queueExecutor.execute(() -> {
+            ReminderQueue queue = queueOf(appContext);
+            if (queue == null || copy.getId() == null) return;
+            queue.put(copy, System.currentTimeMillis());
+            scheduleWakeUp(appContext, queue);
+        });
+    }
+
+    /// Remove the reminders of an event, e.g. when the user leaves it or it is deleted
+    ///
+    /// @param context The context to use
+    /// @param eventId The id of the event
+    public static void cancelReminder(Context context, String eventId) {
+        final Context appContext = context.getApplicationContext();
+        queueExecutor.execute(() -> {
+            ReminderQueue queue = queueOf(appContext);
+            if (queue == null) return;
+            queue.remove(eventId);
+            scheduleWakeUp(appContext, queue);
+        });
+    }
+
+    /// Forget the events the user doesn't take part in anymore
+    ///
+    /// @param context  The context to use
+    /// @param eventIds The ids in users/{uid}/eventIds
+    /// @param callback Called on the main thread with the ids of the events to read and pass to
+    ///                 {@link #scheduleReminders(Context, Collection, Collection)}
+    public static void reconcile(Context context, Collection<String> eventIds, @NonNull OnReconciled callback) {
+        final Context appContext = context.getApplicationContext();
+        queueExecutor.execute(() -> {
+            ReminderQueue queue = queueOf(appContext);
+            if (queue == null) return;
+            if (queue.isEmpty()) {
+                // the reminders were scheduled as a job per event before the queue, they are replaced by the queue
+                for (String eventId : eventIds) {
+                    WorkManager.getInstance(appContext).cancelAllWorkByTag("reminder_" + eventId);
+                }
+            }
+            List<String> toRead = queue.reconcile(eventIds, System.currentTimeMillis());
+            scheduleWakeUp(appContext, queue);
+            if (!toRead.isEmpty()) mainHandler.post(() -> callback.onReconciled(toRead));
+        });
+    }
+
+    /// Add the reminders of the events read after {@link #reconcile(Context, Collection, OnReconciled)}
+    ///
+    /// @param context    The context to use
+    /// @param events     The events that were read
+    /// @param missingIds The ids of the events that don't exist anymore
+    public static void scheduleReminders(Context context, Collection<Event> events, Collection<String> missingIds) {
+        final Context appContext = context.getApplicationContext();
+        queueExecutor.execute(() -> {
+            ReminderQueue queue = queueOf(appContext);
+            if (queue == null) return;
+            long now = System.currentTimeMillis();
+            for (Event event : events) {
+                if (event.getId() != null) queue.put(event, now);
+            }
+            for (String eventId : missingIds) {
+                queue.putDeleted(eventId, now);
+            }
+            scheduleWakeUp(appContext, queue);
+        });
+    }
 
-            OneTimeWorkRequest reminderRequest = new OneTimeWorkRequest.Builder(EventReminderWorker.class)
-                    .setInitialDelay(delayInMillis, TimeUnit.MILLISECONDS)
-                    .setInputData(inputData)
-                    .addTag("reminder_" + event.getId()) // תג כדי שנוכל לבטל אם המשתמש עוזב את האירוע
+    /// Take the reminders that are due and schedule the wake-up of the next one, called by the wake-up job
+    ///
+    /// @param context The context to use
+    /// @return The reminders to show, of events that didn't start yet
+    @NonNull
+    public static List<ReminderQueue.Reminder> pollDue(Context context) {
+        ReminderQueue queue = queueOf(context);
+        if (queue == null) return Collections.emptyList();
+        long now = System.currentTimeMillis();
+        List<ReminderQueue.Reminder> due = queue.pollDue(now);
+        // a reminder that is due after the event started, e.g. when the device was off, isn't shown
+        due.removeIf(reminder -> reminder.startTimestamp <= now);
+        queue.setScheduledWakeUp(0);
+        scheduleWakeUp(context, queue);
+        return due;
+    }
+
+    /// Remove the reminders of the user and the wake-up, e.g. when the user logs out
+    ///
+    /// @param context The context to use
+    /// @param userId  The id of the user
+    public static void clear(Context context, String userId) {
+        final Context appContext = context.getApplicationContext();
+        queueExecutor.execute(() -> {
+            ReminderQueue.forUser(appContext, userId).clear();
+            WorkManager.getInstance(appContext).cancelUniqueWork(WORK_NAME);
+        });
+    }
+
+    @Nullable
+    private static ReminderQueue queueOf(Context context) {
+        String userId = SharedPreferencesUtil.getUserId(context);
+        return userId != null ? ReminderQueue.forUser(context, userId) : null;
+    }
+
+    /// Schedule the wake-up of the first reminder, unless it is already scheduled. Called on a background thread
+    private static void scheduleWakeUp(Context context, ReminderQueue queue) {
+        long nextDueAt = queue.getNextDueAt();
+        if (nextDueAt == queue.getScheduledWakeUp()) return;
+
+        WorkManager workManager = WorkManager.getInstance(context);
+        // a wake-up that is showing reminders isn't stopped, the new one runs after it
+        boolean isRunning = isWakeUpRunning(workManager);
+        if (nextDueAt == 0) {
+            if (!isRunning) workManager.cancelUniqueWork(WORK_NAME);
+        } else {
+            OneTimeWorkRequest wakeUp = new OneTimeWorkRequest.Builder(EventReminderWorker.class)
+                    .setInitialDelay(Math.max(0, nextDueAt - System.currentTimeMillis()), TimeUnit.MILLISECONDS)
                     .build();
+            workManager.enqueueUniqueWork(WORK_NAME,
+                    isRunning ? ExistingWorkPolicy.APPEND_OR_REPLACE : ExistingWorkPolicy.REPLACE, wakeUp);
+        }
+        queue.setScheduledWakeUp(nextDueAt);
+    }
 
-            // משתמשים ב-REPLACE כדי שאם השעות ישתנו ויבוצע תזמון מחדש, הקודם יידרס
-            WorkManager.getInstance(context).enqueueUniqueWork(
-                    "work_reminder_" + event.getId(),
-                    ExistingWorkPolicy.REPLACE,
-                    reminderRequest
-            );
+    private static boolean isWakeUpRunning(WorkManager workManager) {
+        try {
+            for (WorkInfo info : workManager.getWorkInfosForUniqueWork(WORK_NAME).get()) {
+                if (info.getState() == WorkInfo.State.RUNNING) return true;
+            }
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Failed to read the state of the wake-up", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        return false;
     }
 
-    public static void cancelReminder(Context context, String eventId) {
-        WorkManager.getInstance(context).cancelAllWorkByTag("reminder_" + eventId);
+    /// Receives the ids of the events to read after {@link #reconcile(Context, Collection, OnReconciled)}
+    public interface OnReconciled {
+        void onReconciled(@NonNull List<String> toRead);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package com.example.fitlink.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/// Encodes pictures for upload within a byte budget
+/// The picture is scaled down so its longer side is at most the maximal edge, then encoded in the preferred format
+/// at descending qualities until it fits the budget. If no quality fits, the edge is made smaller and it is tried again.
+/// Encoding from pixels writes no metadata (EXIF, location, camera), only the image itself
+///
+/// The encoding itself is done by a Source, so the search is plain Java and can be tested without a device
+///
+/// @see ImageUtil#encodeForUpload(android.graphics.Bitmap, ImageUtil.OnImageEncoded)
+public class ImageEncoder {
+
+    /// The qualities tried for every format and size, best first
+    private static final int[] QUALITIES = {90, 80, 70, 60, 50, 40};
+    /// How much the edge is made smaller when no quality fits the budget
+    private static final float EDGE_STEP = 0.75f;
+    /// The edge is not made smaller than this, the smallest result is used instead
+    private static final int MIN_EDGE = 256;
+
+    private final int maxEdge;
+    private final int maxBytes;
+    private final List<Format> formats;
+
+    /// @param maxEdge  The maximal width and height of the encoded picture, in pixels
+    /// @param maxBytes The byte budget of the encoded picture
+    /// @param formats  The formats to try, the preferred one first
+    public ImageEncoder(int maxEdge, int maxBytes, @NonNull Format... formats) {
+        if (maxEdge <= 0 || maxBytes <= 0 || formats.length == 0) {
+            throw new IllegalArgumentException("maxEdge, maxBytes and formats must be positive");
+        }
+        this.maxEdge = maxEdge;
+        this.maxBytes = maxBytes;
+        this.formats = Arrays.asList(formats);
+    }
+
+    /// The size of a picture scaled down to fit a maximal edge, keeping its aspect ratio
+    ///
+    /// @param width   The width of the picture
+    /// @param height  The height of the picture
+    /// @param maxEdge The maximal width and height
+    /// @return The width and height, the picture is not scaled up
+    @NonNull
+    static int[] scaledSize(int width, int height, int maxEdge) {
+        int longer = Math.max(width, height);
+        if (longer <= maxEdge) {
+            return new int[]{width, height};
+        }
+        float scale = (float) maxEdge / longer;
+        return new int[]{Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale))};
+    }
+
+    /// Encode a picture
+    ///
+    /// @param source The picture
+    /// @return The first encoding that fits the budget, or the smallest one if none fits, or null if the source can't be encoded
+    @Nullable
+    public Result encode(@NonNull Source source) {
+        Result smallest = null;
+        int attempts = 0;
+        int edge = Math.min(maxEdge, Math.max(source.getWidth(), source.getHeight()));
+
+        while (true) {
+            int[] size = scaledSize(source.getWidth(), source.getHeight(), edge);
+            for (Format format : formats) {
+                for (int quality : QUALITIES) {
+                    byte[] bytes = source.encode(size[0], size[1], format, quality);
+                    attempts++;
+                    // the format isn't supported, try the next one
+                    if (bytes == null) break;
+
+                    Result result = new Result(bytes, format, quality, size[0], size[1], attempts);
+                    if (bytes.length <= maxBytes) {
+                        return result;
+                    }
+                    if (smallest == null || bytes.length < smallest.bytes.length) {
+                        smallest = result;
+                    }
+                }
+            }
+            if (edge <= MIN_EDGE) break;
+            edge = Math.max(MIN_EDGE, (int) (edge * EDGE_STEP));
+        }
+        return smallest == null ? null : smallest.withAttempts(attempts);
+    }
+
+    /// The formats a picture can be encoded in
+    public enum Format {
+        WEBP,
+        JPEG
+    }
+
+    /// A picture to encode
+    public interface Source {
+        int getWidth();
+
+        int getHeight();
+
+        /// @return The picture scaled to the size and encoded, or null if the format isn't supported
+        @Nullable
+        byte[] encode(int width, int height, @NonNull Format format, int quality);
+    }
+
+    /// An encoded picture
+    public static final class Result {
+        public final byte[] bytes;
+        public final Format format;
+        public final int quality;
+        public final int width;
+        public final int height;
+        /// The number of encodings tried, including this one
+        public final int attempts;
+
+        Result(@NonNull byte[] bytes, @NonNull Format format, int quality, int width, int height, int attempts) {
+            this.bytes = bytes;
+            this.format = format;
+            this.quality = quality;
+            this.width = width;
+            this.height = height;
+            this.attempts = attempts;
+        }
+
+        @NonNull
+        Result withAttempts(int attempts) {
+            return new Result(bytes, format, quality, width, height, attempts);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.fitlink.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.fitlink.R;
+import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.MediaStore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/// Loads the images of users and groups into ImageViews
+/// The decoded bitmaps are kept in a memory cache sized by bytes, and the image files of the media store
+/// in a disk cache keyed by their content hash, so scrolling a list doesn't read or decode the same avatar again.
+/// Images are decoded on a background thread, sampled down to the size of the view
+///
+/// @see ImageSampling
+/// @see ImageUtil#loadImage(ImageView, String, MediaStore.Variant, ImageUtil.OnImageLoaded)
+public final class ImageLoader {
+
+    private static final String TAG = "ImageLoader";
+    /// The part of the app memory the decoded bitmaps may use
+    private static final int MEMORY_CACHE_FRACTION = 8;
+    /// The maximal size of the image files on disk
+    private static final long DISK_CACHE_BYTES = 20L * 1024 * 1024;
+    private static final String DISK_CACHE_DIR = "images";
+    /// The size images are decoded to when the view has no size yet
+    private static final int DEFAULT_THUMBNAIL_SIZE = 256;
+    private static final int DECODE_THREADS = 2;
+
+    private static ImageLoader instance;
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final File diskCacheDir;
+    private final ExecutorService decodeExecutor = Executors.newFixedThreadPool(DECODE_THREADS);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final int screenSize;
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong decodes = new AtomicLong();
+
+    private ImageLoader(@NonNull Context context) {
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / MEMORY_CACHE_FRACTION);
+        memoryCache = new LruCache<>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+        diskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+        screenSize = Math.max(context.getResources().getDisplayMetrics().widthPixels,
+                context.getResources().getDisplayMetrics().heightPixels);
+    }
+
+    /// Get the image loader of the app
+    ///
+    /// @param context Any context of the app
+    /// @return The image loader
+    @NonNull
+    public static synchronized ImageLoader getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new ImageLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /// Load an image for a view. The callback is called on the main thread, and only if the view
+    /// still shows the same image (e.g. the row of a list wasn't reused for another user)
+    ///
+    /// @param target   The view the image is for, its size is the size the image is decoded to
+    /// @param image    The value of User.profileImage or Group.groupImage: a media hash or an inline base64 image
+    /// @param variant  The variant of the image
+    /// @param callback Called with the image, not called if there is no image
+    public void load(@NonNull ImageView target, @Nullable String image, @NonNull MediaStore.Variant variant,
+                     @NonNull ImageUtil.OnImageLoaded callback) {
+        target.setTag(R.id.tag_image, image);
+        if (image == null || image.isEmpty()) return;
+
+        int targetSize = targetSizeOf(target, variant);
+        String key = ImageSampling.cacheKey(image, variant, targetSize);
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            callback.onImageLoaded(cached);
+            return;
+        }
+
+        Runnable deliver = () -> {
+            Bitmap bitmap = memoryCache.get(key);
+            if (bitmap != null && Objects.equals(image, target.getTag(R.id.tag_image))) {
+                callback.onImageLoaded(bitmap);
+            }
+        };
+        decodeExecutor.execute(() -> {
+            File file = MediaStore.isMediaHash(image) ? diskFile(image, variant) : null;
+            if (file != null && file.exists() && decodeFile(file, key, targetSize)) {
+                diskHits.incrementAndGet();
+                file.setLastModified(System.currentTimeMillis());
+                mainHandler.post(deliver);
+                return;
+            }
+            mainHandler.post(() -> {
+                // the view shows another image by now, don't read this one
+                if (!Objects.equals(image, target.getTag(R.id.tag_image))) return;
+                misses.incrementAndGet();
+                fetch(image, variant, file, key, targetSize, deliver);
+            });
+        });
+    }
+
+    /// Forget the image a view is waiting for, e.g. when its row is recycled
+    ///
+    /// @param target The view
+    public void cancel(@NonNull ImageView target) {
+        target.setTag(R.id.tag_image, null);
+    }
+
+    /// Read the image from the database, then decode it in the background
+    private void fetch(@NonNull String image, @NonNull MediaStore.Variant variant, @Nullable File file,
+                       @NonNull String key, int targetSize, @NonNull Runnable deliver) {
+        DatabaseService.getInstance().getImage(image, variant, new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(String base64Code) {
+                if (base64Code == null) return;
+                decodeExecutor.execute(() -> {
+                    byte[] bytes;
+                    try {
+                        bytes = Base64.decode(base64Code, Base64.DEFAULT);
+                    } catch (IllegalArgumentException e) {
+                        Log.e(TAG, "Bad image " + key, e);
+                        return;
+                    }
+                    if (file != null) writeToDisk(file, bytes);
+                    if (decodeBytes(bytes, key, targetSize)) {
+                        mainHandler.post(deliver);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                Log.e(TAG, "Failed to load image " + key, e);
+            }
+        });
+    }
+
+    private boolean decodeFile(@NonNull File file, @NonNull String key, int targetSize) {
+        try {
+            return decodeBytes(Files.readAllBytes(file.toPath()), key, targetSize);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read cached image " + file, e);
+            return false;
+        }
+    }
+
+    /// Decode an image sampled down to about the target size, and keep it in the memory cache
+    private boolean decodeBytes(@NonNull byte[] bytes, @NonNull String key, int targetSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return false;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = ImageSampling.inSampleSize(options.outWidth, options.outHeight, targetSize);
+        Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (bitmap == null) return false;
+        decodes.incrementAndGet();
+        memoryCache.put(key, bitmap);
+        return true;
+    }
+
+    private void writeToDisk(@NonNull File file, @NonNull byte[] bytes) {
+        synchronized (diskCacheDir) {
+            if (!diskCacheDir.exists() && !diskCacheDir.mkdirs()) return;
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(bytes);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to cache image " + file, e);
+                return;
+            }
+            trimDiskCache();
+        }
+    }
+
+    /// Delete the least recently used files until the disk cache fits its size
+    private void trimDiskCache() {
+        File[] files = diskCacheDir.listFiles();
+        if (files == null) return;
+        long total = 0;
+        for (File file : files) total += file.length();
+        if (total <= DISK_CACHE_BYTES) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= DISK_CACHE_BYTES) break;
+            long length = file.length();
+            if (file.delete()) total -= length;
+        }
+    }
+
+    @NonNull
+    private File diskFile(@NonNull String hash, @NonNull MediaStore.Variant variant) {
+        return new File(diskCacheDir, hash + "_" + variant.name().toLowerCase());
+    }
+
+    /// The size to decode to: the size of the view, or a default until it is laid out
+    private int targetSizeOf(@NonNull ImageView target, @NonNull MediaStore.Variant variant) {
+        int size = Math.max(target.getWidth(), target.getHeight());
+        if (size <= 0) {
+            ViewGroup.LayoutParams params = target.getLayoutParams();
+            if (params != null) size = Math.max(params.width, params.height);
+        }
+        if (size <= 0) {
+            size = variant == MediaStore.Variant.THUMBNAIL ? DEFAULT_THUMBNAIL_SIZE : screenSize;
+        }
+        return size;
+    }
+
+    /// Forget the decoded bitmaps, e.g. when the system is low on memory
+    public void clearMemory() {
+        memoryCache.evictAll();
+    }
+
+    /// @return The number of loads answered from the memory cache
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    /// @return The number of loads answered from the disk cache
+    public long getDiskHitCount() {
+        return diskHits.get();
+    }
+
+    /// @return The number of loads that read the image from the database
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /// @return The number of bitmaps decoded
+    public long getDecodeCount() {
+        return decodes.get();
+    }
+
+    /// @return The bytes used by the memory cache, and its maximal size
+    @NonNull
+    public String getMemoryUsage() {
+        return memoryCache.size() + "/" + memoryCache.maxSize() + " bytes";
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.fitlink.utils;
+
+import androidx.annotation.NonNull;
+
+import com.example.fitlink.services.MediaStore;
+
+/// The sizes ImageLoader decodes images to, and the keys of the decoded bitmaps
+/// Plain Java, so the math is checked by unit tests without a device
+///
+/// @see ImageLoader
+final class ImageSampling {
+
+    private ImageSampling() {
+    }
+
+    /// The largest power of two to divide the image by, keeping both sides at least the target size
+    ///
+    /// @param width      The width of the image
+    /// @param height     The height of the image
+    /// @param targetSize The size of the view, in pixels
+    /// @return The inSampleSize to decode with
+    static int inSampleSize(int width, int height, int targetSize) {
+        int sampleSize = 1;
+        int smallerSide = Math.min(width, height);
+        while (smallerSide / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /// The same image decoded for views of about the same size shares one bitmap
+    ///
+    /// @param image      A media hash or an inline base64 image
+    /// @param variant    The variant of the image
+    /// @param targetSize The size of the view, in pixels
+    /// @return The key of the decoded bitmap in the memory cache
+    @NonNull
+    static String cacheKey(@NonNull String image, @NonNull MediaStore.Variant variant, int targetSize) {
+        String imageKey = MediaStore.isMediaHash(image) ? image : "inline" + image.hashCode() + "_" + image.length();
+        return imageKey + "_" + variant.name() + "_" + Integer.highestOneBit(Math.max(1, targetSize));
+    }
+}
@@ -4,20 +4,40 @@ import android.Manifest;
 import android.app.Activity;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.drawable.BitmapDrawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Base64;
+import android.util.Log;
 import android.widget.ImageView;
 
 import androidx.core.app.ActivityCompat;
 
+import com.example.fitlink.services.MediaStore;
+
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /// Utility class for image operations
 /// Contains methods for requesting permissions, converting images to base64 and vice versa
 public class ImageUtil {
+    private static final String TAG = "ImageUtil";
+    /// The maximal width and height of a thumbnail, in pixels
+    private static final int THUMBNAIL_SIZE = 128;
+    /// The JPEG quality of a thumbnail
+    private static final int THUMBNAIL_QUALITY = 80;
+    /// The maximal width and height of an uploaded picture, in pixels
+    private static final int UPLOAD_MAX_EDGE = 1080;
+    /// The byte budget of an uploaded picture, before base64
+    private static final int UPLOAD_MAX_BYTES = 150 * 1024;
+    private static final ImageEncoder uploadEncoder =
+            new ImageEncoder(UPLOAD_MAX_EDGE, UPLOAD_MAX_BYTES, ImageEncoder.Format.WEBP, ImageEncoder.Format.JPEG);
+    private static final ExecutorService encodeExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
     /// Request permissions for camera and storage
     ///
     /// @param activity The activity to request permissions from
@@ -32,19 +52,35 @@ public class ImageUtil {
                 }, 1);
     }
 
-    /// Convert an image to a base64 string
+    /// Encode a picture taken or picked by the user for saving it in the database
+    /// The picture is scaled to at most UPLOAD_MAX_EDGE pixels per side and encoded as WebP (or JPEG) at the best
+    /// quality that fits UPLOAD_MAX_BYTES, without metadata. The encoding is done on a background thread
     ///
-    /// @param postImage The image to convert
-    /// @return The base64 string representation of the image
-    public static @Nullable String convertTo64Base(@NotNull final ImageView postImage) {
-        if (postImage.getDrawable() == null) {
-            return null;
-        }
-        Bitmap bitmap = ((BitmapDrawable) postImage.getDrawable()).getBitmap();
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 100, byteArrayOutputStream);
-        byte[] byteArray = byteArrayOutputStream.toByteArray();
-        return Base64.encodeToString(byteArray, Base64.DEFAULT);
+    /// @param bitmap   The picture, it must not be changed or recycled until the callback is called
+    /// @param callback Called on the main thread with the base64 string, or null if the picture can't be encoded
+    /// @see ImageEncoder
+    public static void encodeForUpload(@NotNull final Bitmap bitmap, @NotNull final OnImageEncoded callback) {
+        encodeExecutor.execute(() -> {
+            long start = System.nanoTime();
+            BitmapSource source = new BitmapSource(bitmap);
+            ImageEncoder.Result result = uploadEncoder.encode(source);
+            source.release();
+            String base64 = result == null ? null : Base64.encodeToString(result.bytes, Base64.NO_WRAP);
+            if (result != null) {
+                Log.d(TAG, "Encoded " + bitmap.getWidth() + "x" + bitmap.getHeight() + " to " + result.width + "x" + result.height
+                        + " " + result.format + " q" + result.quality + ": " + result.bytes.length + " bytes, "
+                        + result.attempts + " attempts, " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+            mainHandler.post(() -> callback.onImageEncoded(base64));
+        });
+    }
+
+    /// Run a task on the thread pictures are encoded on, e.g. making the thumbnail of a picture before storing it
+    ///
+    /// @param task The task, run after the encodings already started
+    /// @see MediaStore
+    public static void runOnEncodeThread(@NotNull final Runnable task) {
+        encodeExecutor.execute(task);
     }
 
     /// Convert a base64 string to an image
@@ -58,4 +94,127 @@ public class ImageUtil {
         byte[] decodedString = Base64.decode(base64Code, Base64.DEFAULT);
         return BitmapFactory.decodeByteArray(decodedString, 0, decodedString.length);
     }
+
+    /// Load the image of a user or a group into a view
+    /// The image is a media hash, read from the media store when needed, or an inline base64 string of an object
+    /// that wasn't saved since the media store. The view may show another object before the image is loaded,
+    /// like the row of a list, so the image is passed to the callback only if the view still shows the same image
+    ///
+    /// @param target   The view the image is for, the image is decoded to its size
+    /// @param image    The value of User.profileImage or Group.groupImage
+    /// @param variant  The variant of the image, THUMBNAIL for lists and avatars
+    /// @param callback Called on the main thread with the decoded image, not called if there is no image or the view was reused
+    /// @see ImageLoader
+    public static void loadImage(@NotNull final ImageView target, @Nullable final String image, @NotNull final MediaStore.Variant variant, @NotNull final OnImageLoaded callback) {
+        ImageLoader.getInstance(target.getContext()).load(target, image, variant, callback);
+    }
+
+    /// Stop loading the image of a view, e.g. when its row is recycled
+    ///
+    /// @param target The view
+    /// @see ImageLoader#cancel(ImageView)
+    public static void cancelImage(@NotNull final ImageView target) {
+        ImageLoader.getInstance(target.getContext()).cancel(target);
+    }
+
+    /// Make a small copy of a base64 image, for showing it in lists
+    ///
+    /// @param base64Code The base64 string of the full-size image
+    /// @return The base64 string of a JPEG of at most THUMBNAIL_SIZE pixels per side, or null if the image can't be decoded
+    public static @Nullable String createThumbnail(@NotNull final String base64Code) {
+        if (base64Code.isEmpty()) {
+            return null;
+        }
+        byte[] decodedString;
+        try {
+            decodedString = Base64.decode(base64Code, Base64.DEFAULT);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        // read only the size first, and decode a smaller bitmap instead of the full-size one
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(decodedString, 0, decodedString.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        int sampleSize = 1;
+        while (Math.max(options.outWidth, options.outHeight) / (sampleSize * 2) >= THUMBNAIL_SIZE) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap bitmap = BitmapFactory.decodeByteArray(decodedString, 0, decodedString.length, options);
+        if (bitmap == null) {
+            return null;
+        }
+
+        float scale = Math.min(1f, (float) THUMBNAIL_SIZE / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        Bitmap thumbnail = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)), Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        thumbnail.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, byteArrayOutputStream);
+        if (thumbnail != bitmap) {
+            bitmap.recycle();
+        }
+        thumbnail.recycle();
+        return Base64.encodeToString(byteArrayOutputStream.toByteArray(), Base64.NO_WRAP);
+    }
+
+    /// Called with a picture encoded by encodeForUpload()
+    public interface OnImageEncoded {
+        void onImageEncoded(@Nullable String base64Code);
+    }
+
+    /// A bitmap encoded by ImageEncoder, scaled once per size
+    private static final class BitmapSource implements ImageEncoder.Source {
+        private final Bitmap bitmap;
+        private Bitmap scaled;
+
+        BitmapSource(@NotNull Bitmap bitmap) {
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        public int getWidth() {
+            return bitmap.getWidth();
+        }
+
+        @Override
+        public int getHeight() {
+            return bitmap.getHeight();
+        }
+
+        @Override
+        public byte[] encode(int width, int height, @NotNull ImageEncoder.Format format, int quality) {
+            if (scaled == null || scaled.getWidth() != width || scaled.getHeight() != height) {
+                if (scaled != null && scaled != bitmap) {
+                    scaled.recycle();
+                }
+                scaled = width == bitmap.getWidth() && height == bitmap.getHeight()
+                        ? bitmap : Bitmap.createScaledBitmap(bitmap, width, height, true);
+            }
+            Bitmap.CompressFormat compressFormat = format == ImageEncoder.Format.WEBP
+                    ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.JPEG;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (!scaled.compress(compressFormat, quality, out)) {
+                return null;
+            }
+            return out.toByteArray();
+        }
+
+        /// Free the scaled copy of the bitmap
+        void release() {
+            if (scaled != null && scaled != bitmap) {
+                scaled.recycle();
+            }
+            scaled = null;
+        }
+    }
+
+    /// Called with an image loaded by loadImage()
+    public interface OnImageLoaded {
+        void onImageLoaded(@NotNull Bitmap bitmap);
+    }
 }
@@ -0,0 +1,134 @@
+package com.example.fitlink.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.fitlink.services.DatabaseService;
+import com.example.fitlink.services.Page;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/// endless scroll for a RecyclerView over a paged list of the database.
+/// loads the next page when the list is scrolled near its end (or doesn't fill the screen),
+/// and keeps all the loaded items so the screen can filter them
+///
+/// @param <T> the class of the items
+/// @see Page
+public class PageLoader<T> {
+
+    /// how many items before the end of the list the next page starts loading
+    private static final int LOAD_AHEAD_ITEMS = 5;
+
+    private final int pageSize;
+    private final PageSource<T> source;
+    private final Listener<T> listener;
+    private final List<T> items = new ArrayList<>();
+    @Nullable
+    private Page.Cursor nextCursor;
+    private boolean hasMore = true;
+    private boolean isLoading = false;
+    /// incremented by refresh(), so a page requested before it is ignored
+    private int generation = 0;
+    @Nullable
+    private RecyclerView recyclerView;
+
+    /// @param pageSize the number of items in a page
+    /// @param source   reads a page from the database (e.g. databaseService::getUsersPage)
+    /// @param listener notified when the loaded items change
+    public PageLoader(int pageSize, @NonNull PageSource<T> source, @NonNull Listener<T> listener) {
+        this.pageSize = pageSize;
+        this.source = source;
+        this.listener = listener;
+    }
+
+    /// load the next page whenever the RecyclerView is scrolled near its end
+    ///
+    /// @param recyclerView a RecyclerView with a LinearLayoutManager
+    public void attachTo(@NonNull RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy > 0) loadMoreIfNeeded();
+            }
+        });
+    }
+
+    /// reload the list from the first page.
+    /// reads at least as many items as are loaded now, so the position in the list is kept after an edit
+    public void refresh() {
+        generation++;
+        int size = Math.max(pageSize, items.size());
+        load(null, size, true);
+    }
+
+    /// load the next page, if there is one and no page is loading
+    public void loadMore() {
+        if (isLoading || !hasMore) return;
+        load(nextCursor, pageSize, false);
+    }
+
+    /// @return all the items loaded so far, in display order
+    @NonNull
+    public List<T> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /// @return true if there are more pages to load
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    private void load(@Nullable Page.Cursor after, int size, boolean reset) {
+        final int requestGeneration = generation;
+        isLoading = true;
+        source.load(after, size, new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(Page<T> page) {
+                if (requestGeneration != generation) return;
+                isLoading = false;
+                if (reset) items.clear();
+                items.addAll(page.getItems());
+                nextCursor = page.getNextCursor();
+                hasMore = page.hasMore();
+                listener.onItemsChanged(getItems(), hasMore);
+                // the screen may still not be full (e.g. most items are filtered out)
+                if (recyclerView != null) recyclerView.post(PageLoader.this::loadMoreIfNeeded);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (requestGeneration != generation) return;
+                isLoading = false;
+                listener.onFailed(e);
+            }
+        });
+    }
+
+    private void loadMoreIfNeeded() {
+        if (recyclerView == null || isLoading || !hasMore) return;
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) return;
+        int lastVisible = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        if (lastVisible >= layoutManager.getItemCount() - LOAD_AHEAD_ITEMS) {
+            loadMore();
+        }
+    }
+
+    /// reads one page of the list, e.g. DatabaseService#getUsersPage
+    public interface PageSource<T> {
+        void load(@Nullable Page.Cursor after, int pageSize, @NonNull DatabaseService.DatabaseCallback<Page<T>> callback);
+    }
+
+    public interface Listener<T> {
+        /// @param items   all the items loaded so far
+        /// @param hasMore true if there are more pages to load
+        void onItemsChanged(@NonNull List<T> items, boolean hasMore);
+
+        void onFailed(@NonNull Exception e);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.fitlink;
+
+import org.junit.Assume;
+
+import java.util.Locale;
+
+/**
+ * The switch and the output of the benchmarks kept next to the unit tests.
+ * A benchmark only runs when asked for, with {@code ./gradlew testDebugUnitTest -Pbenchmark},
+ * so the plain test run stays fast and quiet.
+ */
+public final class Benchmarks {
+
+    /// the system property the build sets when the benchmarks are asked for
+    public static final String PROPERTY = "fitlink.benchmark";
+
+    private Benchmarks() {
+    }
+
+    /// skips the calling test unless the benchmarks were asked for
+    public static void assumeEnabled() {
+        Assume.assumeTrue("benchmarks run with -Pbenchmark", Boolean.getBoolean(PROPERTY));
+    }
+
+    /// prints one line of a benchmark
+    public static void report(String format, Object... args) {
+        System.out.printf(Locale.ROOT, format + "%n", args);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.fitlink.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Local unit tests for the bounded concurrency and the partial results of {@link BatchFetcher}.
+ */
+public class BatchFetcherTest {
+
+    /// a read waiting to be completed by the test
+    private static final class PendingRead {
+        final String id;
+        final DatabaseService.DatabaseCallback<String> callback;
+
+        PendingRead(String id, DatabaseService.DatabaseCallback<String> callback) {
+            this.id = id;
+            this.callback = callback;
+        }
+    }
+
+    @Test
+    public void fetch_keepsAtMostMaxInFlightReads() {
+        Deque<PendingRead> pending = new ArrayDeque<>();
+        int[] maxPending = {0};
+        BatchFetcher<String> fetcher = new BatchFetcher<>(3, (id, callback) -> {
+            pending.add(new PendingRead(id, callback));
+            maxPending[0] = Math.max(maxPending[0], pending.size());
+        }, null);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) ids.add("id" + i);
+        ids.add("id0");
+        BatchFetcher.Result<?>[] result = new BatchFetcher.Result<?>[1];
+        fetcher.fetch(ids, callback(r -> result[0] = r));
+
+        assertEquals(3, pending.size());
+        int reads = 0;
+        while (!pending.isEmpty()) {
+            // complete the reads out of order
+            PendingRead read = reads % 2 == 0 ? pending.pollLast() : pending.pollFirst();
+            reads++;
+            assertNull(result[0]);
+            read.callback.onCompleted("value of " + read.id);
+        }
+
+        assertEquals(3, maxPending[0]);
+        // the duplicate id is read once
+        assertEquals(20, reads);
+        assertEquals(20, result[0].getItems().size());
+        // without an order the items keep the order of the ids
+        assertEquals("value of id0", result[0].getItems().get(0));
+        assertEquals("value of id19", result[0].getItems().get(19));
+    }
+
+    @Test
+    public void fetch_reportsMissingAndFailedIdsWithoutFailingTheBatch() {
+        BatchFetcher<String> fetcher = new BatchFetcher<>(2, (id, callback) -> {
+            if (id.startsWith("deleted")) {
+                callback.onCompleted(null);
+            } else if (id.startsWith("broken")) {
+                callback.onFailed(new IllegalStateException(id));
+            } else {
+                callback.onCompleted(id);
+            }
+        }, Comparator.reverseOrder());
+
+        BatchFetcher.Result<?>[] result = new BatchFetcher.Result<?>[1];
+        fetcher.fetch(List.of("a", "deleted1", "c", "broken1", "b"), callback(r -> result[0] = r));
+
+        assertEquals(List.of("c", "b", "a"), result[0].getItems());
+        assertEquals(List.of("deleted1"), result[0].getMissingIds());
+        assertEquals(1, result[0].getFailures().size());
+        assertTrue(result[0].getFailures().get("broken1") instanceof IllegalStateException);
+        assertFalse(result[0].isComplete());
+
+        fetcher.fetch(List.of(), callback(r -> result[0] = r));
+        assertTrue(result[0].getItems().isEmpty());
+        assertTrue(result[0].isComplete());
+    }
+
+    private static <T> DatabaseService.DatabaseCallback<T> callback(java.util.function.Consumer<T> onCompleted) {
+        return new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(T object) {
+                onCompleted.accept(object);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+    }
+}
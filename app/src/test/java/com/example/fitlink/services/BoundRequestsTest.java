@@ -0,0 +1,128 @@
+package com.example.fitlink.services;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Local unit tests for binding reads to the rows of a list with {@link BoundRequests}.
+ */
+public class BoundRequestsTest {
+
+    /// reads that wait until the test completes them
+    private static final class PendingReads {
+        final List<String> ids = new ArrayList<>();
+        final List<DatabaseService.DatabaseCallback<String>> callbacks = new ArrayList<>();
+
+        BoundRequests.Request<String> read(String id) {
+            return callback -> {
+                ids.add(id);
+                callbacks.add(callback);
+            };
+        }
+
+        void complete(int index) {
+            callbacks.get(index).onCompleted("name of " + ids.get(index));
+        }
+    }
+
+    @Test
+    public void reboundRow_dropsTheWaitingReadAndIgnoresTheStartedOne() {
+        PendingReads reads = new PendingReads();
+        BoundRequests<String> requests = new BoundRequests<>(1, row -> false);
+        List<String> shown = new ArrayList<>();
+
+        // row A is bound to u1, then reused for u2 and u3 while u1 is still being read
+        requests.load("A", "creator", reads.read("u1"), callback(shown::add));
+        requests.load("A", "creator", reads.read("u2"), callback(shown::add));
+        requests.load("A", "creator", reads.read("u3"), callback(shown::add));
+        assertEquals(List.of("u1"), reads.ids);
+
+        reads.complete(0);
+        // u2 was never read, u3 is read as soon as u1 finished
+        assertEquals(List.of("u1", "u3"), reads.ids);
+        assertEquals(List.of(), shown);
+        reads.complete(1);
+        assertEquals(List.of("name of u3"), shown);
+
+        assertEquals(2, requests.getStartedCount());
+        assertEquals(1, requests.getDroppedCount());
+        assertEquals(1, requests.getIgnoredCount());
+    }
+
+    @Test
+    public void cancel_dropsAllTheSlotsOfARecycledRow() {
+        PendingReads reads = new PendingReads();
+        BoundRequests<String> requests = new BoundRequests<>(1, row -> false);
+        List<String> shown = new ArrayList<>();
+
+        requests.load("A", "creator", reads.read("u1"), callback(shown::add));
+        requests.load("A", "group", reads.read("g1"), callback(shown::add));
+        requests.load("B", "creator", reads.read("u2"), callback(shown::add));
+        requests.cancel("A");
+
+        reads.complete(0);
+        reads.complete(1);
+        assertEquals(List.of("u1", "u2"), reads.ids);
+        assertEquals(List.of("name of u2"), shown);
+        assertEquals(0, requests.getWaitingCount());
+    }
+
+    @Test
+    public void visibleRows_areReadFirst() {
+        PendingReads reads = new PendingReads();
+        Set<String> visible = new HashSet<>();
+        BoundRequests<String> requests = new BoundRequests<>(2, visible::contains);
+
+        // a fast fling binds ten rows, only the last three stay on the screen
+        for (int row = 0; row < 10; row++) {
+            requests.load("row" + row, "creator", reads.read("u" + row), callback(value -> {
+            }));
+        }
+        visible.add("row7");
+        visible.add("row8");
+        visible.add("row9");
+        for (int row = 0; row < 7; row++) {
+            requests.cancel("row" + row);
+        }
+        requests.reprioritize();
+
+        reads.complete(0);
+        reads.complete(1);
+        reads.complete(2);
+        assertEquals(List.of("u0", "u1", "u7", "u8", "u9"), reads.ids);
+        assertEquals(5, requests.getDroppedCount());
+    }
+
+    @Test
+    public void synchronousReads_areNotNested() {
+        BoundRequests<Integer> requests = new BoundRequests<>(1, row -> false);
+        List<String> shown = new ArrayList<>();
+        for (int row = 0; row < 10_000; row++) {
+            String id = "u" + row;
+            requests.<String>load(row, "creator", callback -> callback.onCompleted(id), callback(shown::add));
+        }
+        assertEquals(10_000, shown.size());
+        assertEquals(10_000, requests.getStartedCount());
+    }
+
+    private static <T> DatabaseService.DatabaseCallback<T> callback(Consumer<T> onCompleted) {
+        return new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(T object) {
+                onCompleted.accept(object);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.fitlink.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.fitlink.models.ChatMessage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ChatJournalTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("chat_journal").toFile();
+        directory.deleteOnExit();
+    }
+
+    private static ChatMessage message(int index) {
+        ChatMessage message = new ChatMessage("u" + index, "User " + index, "Message " + index, 1000L * index);
+        message.setMessageId(String.format("m%04d", index));
+        return message;
+    }
+
+    private static List<ChatMessage> messages(int from, int to) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = from; i < to; i++) messages.add(message(i));
+        return messages;
+    }
+
+    @Test
+    public void read_replaysTheRecordsOfTheFile() {
+        ChatJournal journal = new ChatJournal(directory, 100);
+        // appended out of order, read in the order of the database
+        journal.append("g1", messages(10, 20));
+        journal.append("g1", messages(0, 10));
+        journal.delete("g1", "m0005", 5_000);
+        ChatMessage edited = message(7);
+        edited.setText("Edited");
+        journal.append("g1", Collections.singletonList(edited));
+        journal.append("g2", messages(0, 3));
+
+        ChatJournal.Snapshot snapshot = new ChatJournal(directory, 100).read("g1");
+        assertEquals(19, snapshot.messages.size());
+        assertEquals("m0000", snapshot.messages.get(0).getMessageId());
+        assertEquals("m0019", snapshot.messages.get(18).getMessageId());
+        assertEquals("Edited", snapshot.messages.get(6).getText());
+        assertEquals(5_000, snapshot.deletionsSyncedAt);
+        for (ChatMessage message : snapshot.messages) {
+            assertFalse(message.getMessageId().equals("m0005"));
+        }
+        assertEquals(3, new ChatJournal(directory, 100).read("g2").messages.size());
+        assertTrue(new ChatJournal(directory, 100).read("g3").messages.isEmpty());
+    }
+
+    @Test
+    public void append_keepsOnlyTheNewestMessagesAndCompactsTheFile() {
+        ChatJournal journal = new ChatJournal(directory, 50);
+        for (int i = 0; i < 1000; i++) {
+            journal.append("g1", Collections.singletonList(message(i)));
+        }
+        assertTrue(journal.getCompactionCount() > 0);
+        long compactedSize = journal.getFileSize("g1");
+
+        List<ChatMessage> kept = new ChatJournal(directory, 50).read("g1").messages;
+        assertEquals(50, kept.size());
+        assertEquals("m0950", kept.get(0).getMessageId());
+        assertEquals("m0999", kept.get(49).getMessageId());
+        // the file never holds much more than twice the kept messages
+        assertTrue(compactedSize < 2 * 50 * 60);
+
+        // the time of the last sync survives a compaction
+        journal.markSynced("g1", 42_000);
+        journal.replace("g1", messages(2000, 2010));
+        assertEquals(42_000, new ChatJournal(directory, 50).read("g1").syncedAt);
+        journal.markSynced("g1", 43_000);
+        assertEquals(43_000, new ChatJournal(directory, 50).read("g1").syncedAt);
+
+        journal.replace("g1", messages(2000, 2010));
+        assertEquals(10, new ChatJournal(directory, 50).read("g1").messages.size());
+
+        journal.clear();
+        assertFalse(directory.exists());
+        assertTrue(new ChatJournal(directory, 50).read("g1").messages.isEmpty());
+    }
+
+    @Test
+    public void read_keepsTheWholeRecordsOfACutFile() throws IOException {
+        ChatJournal journal = new ChatJournal(directory, 100);
+        journal.append("g1", messages(0, 10));
+        File file = new File(directory, "g1.journal");
+        try (RandomAccessFile cut = new RandomAccessFile(file, "rw")) {
+            cut.setLength(cut.length() - 5);
+        }
+
+        ChatJournal reopened = new ChatJournal(directory, 100);
+        assertEquals(9, reopened.read("g1").messages.size());
+        // the file was written again without the cut record, so new records follow whole ones
+        reopened.append("g1", messages(10, 12));
+        assertEquals(11, new ChatJournal(directory, 100).read("g1").messages.size());
+
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        assertTrue(new ChatJournal(directory, 100).read("g1").messages.isEmpty());
+    }
+}
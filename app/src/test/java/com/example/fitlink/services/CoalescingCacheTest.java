@@ -0,0 +1,174 @@
+package com.example.fitlink.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Local unit tests for the request coalescing and the invalidation of {@link CoalescingCache}.
+ */
+public class CoalescingCacheTest {
+
+    /// a loader whose reads wait until the test completes them
+    private static final class PendingLoader implements CoalescingCache.Loader<String> {
+        final List<String> ids = new ArrayList<>();
+        final List<DatabaseService.DatabaseCallback<String>> callbacks = new ArrayList<>();
+
+        @Override
+        public void load(String id, DatabaseService.DatabaseCallback<String> callback) {
+            ids.add(id);
+            callbacks.add(callback);
+        }
+
+        void complete(int index, String value) {
+            callbacks.get(index).onCompleted(value);
+        }
+    }
+
+    @Test
+    public void get_mergesConcurrentReadsAndCachesTheResult() {
+        PendingLoader loader = new PendingLoader();
+        CoalescingCache<String> cache = new CoalescingCache<>(10, loader);
+        List<String> results = new ArrayList<>();
+
+        cache.get("u1", callback(results::add));
+        cache.get("u1", callback(results::add));
+        cache.get("u2", callback(results::add));
+        assertEquals(List.of("u1", "u2"), loader.ids);
+
+        loader.complete(0, "user 1");
+        assertEquals(List.of("user 1", "user 1"), results);
+
+        cache.get("u1", callback(results::add));
+        assertEquals(3, results.size());
+        assertEquals(2, loader.ids.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.getCoalescedCount());
+    }
+
+    @Test
+    public void invalidate_dropsTheCopyAndTheReadInFlight() {
+        PendingLoader loader = new PendingLoader();
+        CoalescingCache<String> cache = new CoalescingCache<>(10, loader);
+        String[] result = new String[1];
+
+        cache.get("u1", callback(value -> result[0] = value));
+        // the user is edited while it is being read, the read may have the old copy
+        cache.invalidate("u1");
+        loader.complete(0, "old name");
+        assertEquals("old name", result[0]);
+
+        cache.get("u1", callback(value -> result[0] = value));
+        assertEquals(2, loader.ids.size());
+        loader.complete(1, "new name");
+        cache.get("u1", callback(value -> result[0] = value));
+        assertEquals("new name", result[0]);
+        assertEquals(2, loader.ids.size());
+
+        // deleted users are not cached
+        cache.put("u1", null);
+        cache.get("u1", callback(value -> result[0] = value));
+        loader.complete(2, null);
+        assertNull(result[0]);
+        cache.get("u1", callback(value -> result[0] = value));
+        assertEquals(4, loader.ids.size());
+    }
+
+    @Test
+    public void get_evictsTheLeastRecentlyUsed() {
+        CoalescingCache<String> cache = new CoalescingCache<>(2, (id, callback) -> callback.onCompleted("value of " + id));
+        cache.get("a", callback(value -> {
+        }));
+        cache.get("b", callback(value -> {
+        }));
+        cache.get("a", callback(value -> {
+        }));
+        cache.get("c", callback(value -> {
+        }));
+        // b was used the longest time ago
+        cache.get("a", callback(value -> {
+        }));
+        cache.get("b", callback(value -> {
+        }));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void get_readsAgainAfterTheTimeToLive() {
+        long[] now = {0};
+        int[] reads = {0};
+        CoalescingCache<String> cache = new CoalescingCache<>(10, 1000, () -> now[0], UnaryOperator.identity(),
+                (id, callback) -> callback.onCompleted("value " + (++reads[0])));
+        String[] result = new String[1];
+
+        cache.get("g1", callback(value -> result[0] = value));
+        now[0] = 999;
+        cache.get("g1", callback(value -> result[0] = value));
+        assertEquals("value 1", result[0]);
+
+        now[0] = 1000;
+        cache.get("g1", callback(value -> result[0] = value));
+        assertEquals("value 2", result[0]);
+        assertEquals(1, cache.getExpiredCount());
+
+        // a copy from a listener starts a new time to live
+        now[0] = 1500;
+        cache.put("g1", "from listener");
+        now[0] = 2400;
+        cache.get("g1", callback(value -> result[0] = value));
+        assertEquals("from listener", result[0]);
+        assertEquals(2, reads[0]);
+    }
+
+    @Test
+    public void get_withACopierNeverHandsOutTheCachedObject() {
+        CoalescingCache<List<String>> cache = new CoalescingCache<>(10, CoalescingCache.NO_EXPIRY, ArrayList::new,
+                (id, callback) -> callback.onCompleted(new ArrayList<>(List.of(id))));
+        List<List<String>> results = new ArrayList<>();
+
+        cache.get("a", callback(results::add));
+        results.get(0).add("changed by a screen");
+        cache.get("a", callback(results::add));
+        assertEquals(List.of("a"), results.get(1));
+
+        List<String> fresh = new ArrayList<>(List.of("from listener"));
+        cache.put("a", fresh);
+        fresh.add("changed by the listener's screen");
+        cache.get("a", callback(results::add));
+        assertEquals(List.of("from listener"), results.get(2));
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void getEvictionCount_countsTheObjectsRemovedForRoom() {
+        CoalescingCache<String> cache = new CoalescingCache<>(2, (id, callback) -> callback.onCompleted("value of " + id));
+        for (String id : List.of("a", "b", "c", "d")) {
+            cache.get(id, callback(value -> {
+            }));
+        }
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(0, cache.getExpiredCount());
+    }
+
+    private static <T> DatabaseService.DatabaseCallback<T> callback(Consumer<T> onCompleted) {
+        return new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(T object) {
+                onCompleted.accept(object);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.fitlink.services;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+import com.example.fitlink.Benchmarks;
+import com.example.fitlink.enums.DifficultyLevel;
+import com.example.fitlink.enums.SportType;
+import com.example.fitlink.models.Event;
+import com.example.fitlink.models.Group;
+import com.example.fitlink.models.Location;
+import com.example.fitlink.models.User;
+import com.example.fitlink.services.backend.DataNode;
+import com.example.fitlink.services.backend.DataQuery;
+import com.example.fitlink.services.backend.InMemoryBackend;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A {@link DatabaseService} over an {@link InMemoryBackend} with a generated data set,
+ * shared by {@link DatabaseServiceTest} (a small set) and {@link DatabaseServiceBenchmarkTest} (a large one).
+ */
+final class DatabaseFixture {
+
+    static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    static final long NOW = 1_700_000_000_000L;
+
+    final int users;
+    final int groups;
+    final int events;
+    final InMemoryBackend backend;
+    final DatabaseService databaseService;
+    final TestScreen screen;
+
+    /// users u0.., group gN created by uN with 10 members, events split between groups and independent events,
+    /// half of them in the past, each with 5 participants
+    DatabaseFixture(int users, int groups, int events) {
+        this.users = users;
+        this.groups = groups;
+        this.events = events;
+        backend = new InMemoryBackend(Runnable::run, () -> NOW);
+        databaseService = new DatabaseService(backend);
+        screen = new TestScreen();
+
+        for (int i = 0; i < users; i++) {
+            User user = new User("u" + i, "u" + i + "@fitlink.test", "pass", "User", "" + i, "050000" + i, false, null);
+            databaseService.createNewUser(user, null);
+        }
+        for (int g = 0; g < groups; g++) {
+            Group group = new Group("g" + g, "Group " + g, "", SportType.RUNNING, DifficultyLevel.BEGINNER,
+                    new Location("Tel Aviv", 32.08, 34.78), "u" + g);
+            databaseService.createNewGroup(group, null);
+            for (int m = 0; m < 10; m++) {
+                databaseService.joinGroup("g" + g, "u" + ((g + m * groups) % users), null);
+            }
+        }
+        for (int e = 0; e < events; e++) {
+            boolean isGroupEvent = e % 4 != 0;
+            long start = e % 2 == 0 ? NOW - (e + 2) * HOUR : NOW + (e + 1) * HOUR;
+            Event event = new Event("e" + e, isGroupEvent ? "g" + (e % groups) : null, "Event " + e, "",
+                    SportType.CYCLING, DifficultyLevel.INTERMEDIATE, start, HOUR, null, "u" + (e % users), 0);
+            databaseService.createNewEvent(event, null);
+            for (int p = 0; p < 5; p++) {
+                databaseService.joinEvent("e" + e, "u" + ((e + p * 7) % users), null);
+            }
+        }
+    }
+
+    /// stands in for an Activity owning the realtime subscriptions
+    static final class TestScreen implements LifecycleOwner {
+        private final LifecycleRegistry lifecycle = LifecycleRegistry.createUnsafe(this);
+
+        TestScreen() {
+            lifecycle.setCurrentState(Lifecycle.State.RESUMED);
+        }
+
+        void destroy() {
+            lifecycle.setCurrentState(Lifecycle.State.DESTROYED);
+        }
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return lifecycle;
+        }
+    }
+
+    DataNode read(String path) {
+        DataNode[] result = new DataNode[1];
+        backend.get(DataQuery.ref(path), callback(node -> result[0] = node));
+        return result[0];
+    }
+
+    static <T> DatabaseService.DatabaseCallback<T> callback(Consumer<T> onCompleted) {
+        return new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(T object) {
+                onCompleted.accept(object);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+    }
+
+    /// runs a flow and prints how long it took and how many reads, writes and listener callbacks it caused
+    void measure(String name, Runnable flow) {
+        long reads = backend.getReadCount(), writes = backend.getWriteCount(), events = backend.getEventCount();
+        long start = System.nanoTime();
+        flow.run();
+        Benchmarks.report("%-24s %8.2f ms  reads=%d writes=%d listener events=%d", name,
+                (System.nanoTime() - start) / 1e6, backend.getReadCount() - reads,
+                backend.getWriteCount() - writes, backend.getEventCount() - events);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.fitlink.services;
+
+import static com.example.fitlink.services.DatabaseFixture.HOUR;
+import static com.example.fitlink.services.DatabaseFixture.NOW;
+import static com.example.fitlink.services.DatabaseFixture.callback;
+
+import androidx.annotation.NonNull;
+
+import com.example.fitlink.Benchmarks;
+import com.example.fitlink.enums.StatsInterval;
+import com.example.fitlink.models.ChatMessage;
+import com.example.fitlink.models.User;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints how long the heavy {@link DatabaseService} flows take on a realistic data set, and how many reads,
+ * writes and listener callbacks they cause. Runs only with -Pbenchmark, the checks are in {@link DatabaseServiceTest}.
+ */
+public class DatabaseServiceBenchmarkTest {
+
+    private DatabaseFixture fixture;
+    private DatabaseService databaseService;
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+        fixture = new DatabaseFixture(500, 50, 2000);
+        databaseService = fixture.databaseService;
+    }
+
+    @Test
+    public void benchmark_deletes() {
+        User user = new User();
+        user.setId("u3");
+        databaseService.getAllGroups(fixture.screen, "groups", callback(groups -> {
+        }));
+        fixture.measure("deleteUserCompletely", () -> databaseService.deleteUserCompletely(user, null));
+        fixture.measure("cleanupOldEvents", () -> databaseService.cleanupOldEvents(NOW, null));
+    }
+
+    @Test
+    public void benchmark_joinsAndListenerFanOut() {
+        for (int g = 0; g < fixture.groups; g++) {
+            databaseService.getEventsByGroupId(fixture.screen, "group " + g, "g" + g, callback(list -> {
+            }));
+        }
+        fixture.measure("joinEvent x1000", () -> {
+            for (int i = 0; i < 1000; i++) {
+                databaseService.joinEvent("e" + (i % fixture.events), "u" + ((i * 13) % fixture.users), null);
+            }
+        });
+        fixture.measure("fan-out x100", () -> {
+            for (int i = 0; i < 100; i++) {
+                databaseService.joinEvent("e1", "u" + (100 + i), null);
+            }
+        });
+    }
+
+    @Test
+    public void benchmark_reads() {
+        fixture.measure("getEventsInRange", () ->
+                databaseService.getEventsInRange(NOW, NOW + 30 * 24 * HOUR, callback(list -> {
+                })));
+        fixture.measure("getEventsForUser", () -> databaseService.getEventsForUser("u7", callback(result -> {
+        })));
+        List<String> ids = new ArrayList<>();
+        for (int m = 1; m <= 20; m++) ids.add("u" + (m * 13));
+        fixture.measure("getUsersByIds x20", () -> databaseService.getUsersByIds(ids, callback(result -> {
+        })));
+        fixture.measure("getUser x200 (5 users)", () -> {
+            for (int message = 0; message < 200; message++) {
+                databaseService.getUser("u" + (message % 5), callback(user -> {
+                }));
+            }
+        });
+        fixture.measure("getUserSummary x50", () -> {
+            for (int row = 0; row < 50; row++) {
+                databaseService.getUserSummary("u9", callback(summary -> {
+                }));
+            }
+        });
+    }
+
+    @Test
+    public void benchmark_chat() {
+        for (int i = 0; i < 1000; i++) {
+            databaseService.sendGroupMessage("g1", new ChatMessage("u" + (i % 10), "User", "Message " + i, NOW - (1000 - i) * 1000L), null);
+        }
+        ChatStream[] stream = new ChatStream[1];
+        fixture.measure("open chat", () -> stream[0] = databaseService.listenForGroupMessages(fixture.screen, "g1", null, new ChatStream.Listener() {
+            @Override
+            public void onMessagesInserted(int position, @NonNull List<ChatMessage> inserted) {
+            }
+
+            @Override
+            public void onMessageChanged(int position, @NonNull ChatMessage message) {
+            }
+
+            @Override
+            public void onMessagesRemoved(int position, int count) {
+            }
+
+            @Override
+            public void onFailed(@NonNull Exception e) {
+                throw new AssertionError(e);
+            }
+        }));
+        fixture.measure("new chat message", () ->
+                databaseService.sendGroupMessage("g1", new ChatMessage("u2", "User", "New", NOW), null));
+        fixture.measure("send x20 + counters", () -> {
+            for (int i = 0; i < 20; i++) {
+                databaseService.sendGroupMessage("g5", new ChatMessage("u55", "User", "Message " + i, NOW + i), null);
+            }
+        });
+        fixture.measure("trim inbox", () -> databaseService.trimInbox("u105", 0, null));
+        stream[0].remove();
+    }
+
+    @Test
+    public void benchmark_dashboard() {
+        fixture.measure("dashboard stats", () -> databaseService.listenToStats(fixture.screen, "stats", callback(stats -> {
+        })));
+        fixture.measure("recount stats", () -> databaseService.recountStats(null));
+        long now = System.currentTimeMillis();
+        fixture.measure("activity 90 days", () -> databaseService.getActivity(StatsInterval.DAY,
+                now - TimeUnit.DAYS.toMillis(90), now, callback(buckets -> {
+                })));
+    }
+}
@@ -0,0 +1,838 @@
+package com.example.fitlink.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static com.example.fitlink.services.DatabaseFixture.HOUR;
+import static com.example.fitlink.services.DatabaseFixture.NOW;
+import static com.example.fitlink.services.DatabaseFixture.callback;
+
+import androidx.annotation.NonNull;
+
+import com.example.fitlink.enums.ActivitySeries;
+import com.example.fitlink.enums.DifficultyLevel;
+import com.example.fitlink.enums.InboxEntryType;
+import com.example.fitlink.enums.SportType;
+import com.example.fitlink.enums.StatsInterval;
+import com.example.fitlink.models.ActivityBucket;
+import com.example.fitlink.models.AppStats;
+import com.example.fitlink.models.ChatMessage;
+import com.example.fitlink.models.Event;
+import com.example.fitlink.models.Group;
+import com.example.fitlink.models.InboxEntry;
+import com.example.fitlink.models.User;
+import com.example.fitlink.models.UserSummary;
+import com.example.fitlink.services.backend.DataBackend;
+import com.example.fitlink.services.backend.DataNode;
+import com.example.fitlink.services.DatabaseFixture.TestScreen;
+import com.example.fitlink.services.backend.InMemoryBackend;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Local unit tests for the flows of {@link DatabaseService}, run against an {@link InMemoryBackend} seeded with
+ * a small data set. The timings of the same flows on a large data set are in {@link DatabaseServiceBenchmarkTest}.
+ */
+public class DatabaseServiceTest {
+
+    private static final int USERS = 100;
+    private static final int GROUPS = 10;
+    private static final int EVENTS = 400;
+
+    private DatabaseFixture fixture;
+    private InMemoryBackend backend;
+    private DatabaseService databaseService;
+    private TestScreen screen;
+
+    @Before
+    public void setUp() {
+        fixture = new DatabaseFixture(USERS, GROUPS, EVENTS);
+        backend = fixture.backend;
+        databaseService = fixture.databaseService;
+        screen = fixture.screen;
+    }
+
+    private DataNode read(String path) {
+        return fixture.read(path);
+    }
+
+    private static DatabaseService.DatabaseCallback<Void> failure(Consumer<Exception> onFailed) {
+        return new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(Void object) {
+                throw new AssertionError("expected a failure");
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                onFailed.accept(e);
+            }
+        };
+    }
+
+    @Test
+    public void deleteUserCompletely() {
+        User user = new User();
+        user.setId("u3");
+        boolean[] done = {false};
+        int[] groupsListenerCalls = {0};
+        // a screen listening to all the groups while the user is deleted
+        databaseService.getAllGroups(screen, "groups", callback(groups -> groupsListenerCalls[0]++));
+
+        long reads = backend.getReadCount(), writes = backend.getWriteCount();
+        databaseService.deleteUserCompletely(user, callback(v -> done[0] = true));
+
+        assertTrue(done[0]);
+        // two single-shot reads and one atomic write, even though groups changed while we were listening
+        assertEquals(2, backend.getReadCount() - reads);
+        assertEquals(1, backend.getWriteCount() - writes);
+        assertEquals(2, groupsListenerCalls[0]);
+        assertFalse(read("users/u3").exists());
+        assertFalse(read("user_public/u3").exists());
+        assertFalse(read("groups/g3").exists());
+        assertFalse(read("group_chats/g3").exists());
+        // e3 belongs to group g3 which was deleted, e4 is an independent event of another user
+        assertFalse(read("events/e3").exists());
+        assertTrue(read("events/e4").exists());
+        assertFalse(read("users/u53/groupIds/g3").exists());
+    }
+
+    @Test
+    public void cleanupOldEvents() {
+        Integer[] deleted = new Integer[1];
+        databaseService.cleanupOldEvents(NOW, callback(count -> deleted[0] = count));
+
+        assertEquals(Integer.valueOf(EVENTS / 2), deleted[0]);
+        assertEquals(EVENTS / 2, read("events").getChildrenCount());
+        // every participant keeps the deleted past events in its history
+        long expectedPastEvents = 0;
+        for (int e = 0; e < EVENTS; e += 2) {
+            boolean isParticipant = false;
+            for (int p = 0; p < 5; p++) isParticipant |= (e + p * 7) % USERS == 7;
+            if (isParticipant || e % USERS == 7) expectedPastEvents++;
+        }
+        assertEquals(expectedPastEvents, read("users/u7/pastEventsCount").getValue());
+        assertNull(read("users/u0/eventIds/e0").getValue());
+    }
+
+    @Test
+    public void joinEvent_isOneWrite() {
+        long writes = backend.getWriteCount();
+        for (int i = 0; i < 100; i++) {
+            databaseService.joinEvent("e" + i, "u" + ((i * 13) % USERS), null);
+        }
+
+        assertEquals(100, backend.getWriteCount() - writes);
+        assertTrue(read("events/e99/participants/u" + ((99 * 13) % USERS)).exists());
+        assertTrue(read("users/u" + ((99 * 13) % USERS) + "/eventIds/e99").exists());
+    }
+
+    @Test
+    public void listenerFanOut() {
+        int[] calls = new int[GROUPS];
+        for (int g = 0; g < GROUPS; g++) {
+            int group = g;
+            databaseService.getEventsByGroupId(screen, "group " + g, "g" + g, callback(list -> calls[group]++));
+        }
+        int[] allEventsCalls = {0};
+        databaseService.getAllEvents(screen, "events", callback(list -> allEventsCalls[0]++));
+        assertEquals(GROUPS + 1, backend.getListenerCount());
+
+        long events = backend.getEventCount();
+        for (int i = 0; i < 100; i++) {
+            databaseService.joinEvent("e1", "u" + (100 + i), null);
+        }
+
+        // e1 belongs to g1: only its listener and the all-events listener see the changes
+        assertEquals(101, calls[1]);
+        assertEquals(1, calls[2]);
+        assertEquals(101, allEventsCalls[0]);
+        assertEquals(200, backend.getEventCount() - events);
+    }
+
+    @Test
+    public void getEventsByGroupId_returnsOnlyTheGroupEvents() {
+        List<?>[] result = new List<?>[1];
+        databaseService.getEventsByGroupId(screen, "calendar", "g1", callback(list -> result[0] = list));
+        // events e where e % 4 != 0 and e % GROUPS == 1
+        int expected = 0;
+        for (int e = 0; e < EVENTS; e++) if (e % 4 != 0 && e % GROUPS == 1) expected++;
+        assertEquals(expected, result[0].size());
+    }
+
+    @Test
+    public void sharedListeners_areDedupedAndDetachedWithTheirScreen() {
+        TestScreen otherScreen = new TestScreen();
+        int[] calls = {0, 0};
+        for (int resume = 0; resume < 5; resume++) {
+            // like loadGroups() in onResume(): the same call site subscribes again
+            databaseService.getAllGroups(screen, "groups", callback(groups -> calls[0]++));
+        }
+        databaseService.getAllGroups(otherScreen, "groups", callback(groups -> calls[1]++));
+
+        assertEquals(1, backend.getListenerCount());
+        assertEquals(Integer.valueOf(1), databaseService.getLiveListenerCounts().get("groups"));
+        assertEquals(Integer.valueOf(2), databaseService.getListenerSubscriberCounts().get("groups"));
+        // the second screen got the cached snapshot without a new download
+        assertEquals(5, calls[0]);
+        assertEquals(1, calls[1]);
+
+        databaseService.joinGroup("g1", "u99", null);
+        assertEquals(6, calls[0]);
+        assertEquals(2, calls[1]);
+
+        screen.destroy();
+        databaseService.joinGroup("g2", "u99", null);
+        assertEquals(6, calls[0]);
+        assertEquals(3, calls[1]);
+        assertEquals(1, backend.getListenerCount());
+
+        otherScreen.destroy();
+        assertEquals(0, backend.getListenerCount());
+        assertTrue(databaseService.getLiveListenerCounts().isEmpty());
+    }
+
+    @Test
+    public void pages_walkTheWholeListInOrder() {
+        List<User> users = new ArrayList<>();
+        Page.Cursor[] cursor = {null};
+        int pages = 0;
+        long reads = backend.getReadCount();
+        do {
+            databaseService.getUsersPage(cursor[0], 30, callback(page -> {
+                users.addAll(page.getItems());
+                cursor[0] = page.getNextCursor();
+            }));
+            pages++;
+        } while (cursor[0] != null);
+
+        // "User" + i for everyone: the ties on firstName are broken by the key, nobody is read twice
+        assertEquals(USERS, users.size());
+        assertEquals(USERS, users.stream().map(User::getId).distinct().count());
+        assertEquals((USERS + 29) / 30, pages);
+        assertEquals(pages, backend.getReadCount() - reads);
+
+        List<Event> events = new ArrayList<>();
+        databaseService.getEventsPage(null, 50, callback(page -> events.addAll(page.getItems())));
+        databaseService.getEventsPage(null, 50, callback(first ->
+                databaseService.getEventsPage(first.getNextCursor(), 50, callback(second -> events.addAll(second.getItems())))));
+        assertEquals(100, events.size());
+        // newest first, and the second page continues where the first one ended
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i - 1).getStartTimestamp() >= events.get(i).getStartTimestamp());
+        }
+        assertEquals(NOW + EVENTS * HOUR, events.get(0).getStartTimestamp());
+    }
+
+    @Test
+    public void rangeQueries_readOnlyTheWindow() {
+        List<?>[] result = new List<?>[1];
+        long reads = backend.getReadCount();
+        // a week of a calendar window: future events start every 2 hours (odd e)
+        databaseService.getEventsInRange(NOW, NOW + 7 * 24 * HOUR, callback(list -> result[0] = list));
+        assertEquals(7 * 24 / 2, result[0].size());
+        assertEquals(1, backend.getReadCount() - reads);
+
+        databaseService.getUpcomingEvents(NOW, 0, callback(list -> result[0] = list));
+        assertEquals(EVENTS / 2, result[0].size());
+        for (Object event : result[0]) {
+            assertTrue(((Event) event).getEndTimestamp() >= NOW);
+        }
+
+        databaseService.getUpcomingEvents(NOW, 10, callback(list -> result[0] = list));
+        assertEquals(10, result[0].size());
+        assertEquals(NOW + 2 * HOUR, ((Event) result[0].get(0)).getStartTimestamp());
+    }
+
+    @Test
+    public void userEventsAndGroups_areReadByTheirIds() {
+        BatchFetcher.Result<?>[] result = new BatchFetcher.Result<?>[1];
+        long reads = backend.getReadCount();
+        databaseService.getEventsForUser("u7", callback(r -> result[0] = r));
+
+        // the events u7 created or joined, one read for the ids and one per event
+        int expected = 0;
+        for (int e = 0; e < EVENTS; e++) {
+            boolean isParticipant = e % USERS == 7;
+            for (int p = 0; p < 5; p++) isParticipant |= (e + p * 7) % USERS == 7;
+            if (isParticipant) expected++;
+        }
+        assertEquals(expected, result[0].getItems().size());
+        assertEquals(expected + 1, backend.getReadCount() - reads);
+        assertTrue(result[0].isComplete());
+        for (int i = 1; i < result[0].getItems().size(); i++) {
+            assertTrue(((Event) result[0].getItems().get(i - 1)).getStartTimestamp() <= ((Event) result[0].getItems().get(i)).getStartTimestamp());
+        }
+
+        // an event deleted by another device, whose id is still in the user, is reported as missing
+        // once its cached copy is gone (after the time to live, or right away with a listener)
+        String deletedId = ((Event) result[0].getItems().get(0)).getId();
+        backend.setValue("events/" + deletedId, null, null);
+        databaseService.getEventCache().invalidate(deletedId);
+        databaseService.getEventsForUser("u7", callback(r -> result[0] = r));
+        assertEquals(1, result[0].getMissingIds().size());
+
+        databaseService.getGroupsForUser("u3", callback(r -> result[0] = r));
+        assertTrue(result[0].getItems().size() >= 1);
+        for (Object group : result[0].getItems()) {
+            assertTrue(((Group) group).getMembers().containsKey("u3"));
+        }
+    }
+
+    @Test
+    public void groupMembers_areReadByIdThroughTheSharedCache() {
+        Group group = new Group("big", "Big group", "", SportType.RUNNING, DifficultyLevel.BEGINNER, null, "u0");
+        databaseService.createNewGroup(group, null);
+        for (int m = 1; m < 20; m++) databaseService.joinGroup("big", "u" + (m * 13 % USERS), null);
+        List<String> memberIds = new ArrayList<>();
+        for (Object memberId : ((Map<?, ?>) read("groups/big/members").getValue()).keySet()) {
+            memberIds.add((String) memberId);
+        }
+        assertEquals(20, memberIds.size());
+
+        BatchFetcher.Result<?>[] result = new BatchFetcher.Result<?>[1];
+        long reads = backend.getReadCount();
+        databaseService.getUsersByIds(memberIds, callback(r -> result[0] = r));
+
+        // one small read per member instead of the whole users tree
+        assertEquals(20, result[0].getItems().size());
+        assertEquals(20, backend.getReadCount() - reads);
+        for (int i = 1; i < result[0].getItems().size(); i++) {
+            assertTrue(((User) result[0].getItems().get(i - 1)).getFullName()
+                    .compareToIgnoreCase(((User) result[0].getItems().get(i)).getFullName()) <= 0);
+        }
+
+        // opening the screen again, or another screen with the same users, reads nothing
+        reads = backend.getReadCount();
+        databaseService.getUsersByIds(memberIds.subList(0, 10), callback(r -> result[0] = r));
+        assertEquals(10, result[0].getItems().size());
+        assertEquals(0, backend.getReadCount() - reads);
+
+        // an edited user is read again, with the new name
+        User edited = (User) result[0].getItems().get(0);
+        edited.setFirstName("Edited");
+        databaseService.updateUser(edited, null);
+        reads = backend.getReadCount();
+        databaseService.getUsersByIds(List.of(edited.getId()), callback(r -> result[0] = r));
+        assertEquals(1, backend.getReadCount() - reads);
+        assertEquals("Edited", ((User) result[0].getItems().get(0)).getFirstName());
+    }
+
+    @Test
+    public void pointReads_areSharedUntilTheObjectChanges() {
+        // a chat of 200 messages from 5 senders asks for the sender of every message
+        long reads = backend.getReadCount();
+        for (int message = 0; message < 200; message++) {
+            databaseService.getUser("u" + (message % 5), callback(user -> assertNotNull(user)));
+        }
+        assertEquals(5, backend.getReadCount() - reads);
+        assertEquals(195, databaseService.getUserCache().getHitCount());
+
+        // every write through the service drops the copy it changes
+        Group[] group = new Group[1];
+        databaseService.getGroup("g1", callback(value -> group[0] = value));
+        reads = backend.getReadCount();
+        databaseService.getGroup("g1", callback(value -> group[0] = value));
+        assertEquals(0, backend.getReadCount() - reads);
+        databaseService.joinGroup("g1", "u99", null);
+        databaseService.getGroup("g1", callback(value -> group[0] = value));
+        assertEquals(1, backend.getReadCount() - reads);
+        assertTrue(group[0].getMembers().containsKey("u99"));
+
+        // a change made by another device arrives through the listener of an open screen
+        Event[] event = new Event[1];
+        databaseService.getEvent("e1", callback(value -> event[0] = value));
+        DataBackend.ListenerRegistration registration = databaseService.getAllEvents(screen, "events", callback(list -> {
+        }));
+        backend.setValue("events/e1/title", "Renamed", null);
+        reads = backend.getReadCount();
+        databaseService.getEvent("e1", callback(value -> event[0] = value));
+        assertEquals(0, backend.getReadCount() - reads);
+        assertEquals("Renamed", event[0].getTitle());
+        // the events nobody read by id are not cached by the listener
+        assertEquals(1, databaseService.getEventCache().getMissCount());
+        assertEquals(0, databaseService.getEventCache().getEvictionCount());
+        registration.remove();
+    }
+
+    @Test
+    public void pointReads_giveEveryScreenItsOwnCopy() {
+        Event[] edited = new Event[1];
+        databaseService.getEvent("e1", callback(value -> edited[0] = value));
+        // a dialog edits the event before it is saved
+        edited[0].setTitle("Not saved");
+        edited[0].addParticipant("u99");
+
+        Event[] other = new Event[1];
+        long reads = backend.getReadCount();
+        databaseService.getEvent("e1", callback(value -> other[0] = value));
+        assertEquals(0, backend.getReadCount() - reads);
+        assertEquals("Event 1", other[0].getTitle());
+        assertFalse(other[0].getParticipants().containsKey("u99"));
+
+        Group[] group = new Group[1];
+        databaseService.getGroup("g1", callback(value -> group[0] = value));
+        group[0].getMembers().clear();
+        databaseService.getGroup("g1", callback(value -> group[0] = value));
+        assertEquals(10, group[0].getMembers().size());
+    }
+
+    @Test
+    public void userSummaries_areReadFromThePublicProjection() {
+        User user = new User("photo", "photo@fitlink.test", "secret", "Dana", "Levi", "0501234567", false, "a".repeat(200_000));
+        databaseService.createNewUser(user, null);
+        assertTrue(read("user_public/photo").exists());
+        assertFalse(read("user_public/photo/password").exists());
+
+        UserSummary[] result = new UserSummary[1];
+        long reads = backend.getReadCount();
+        for (int row = 0; row < 50; row++) {
+            // a chat with 50 messages of the same sender
+            databaseService.getUserSummary("photo", callback(summary -> result[0] = summary));
+        }
+        assertEquals(1, backend.getReadCount() - reads);
+        assertEquals("photo", result[0].getId());
+        assertEquals("Dana Levi", result[0].getFullName());
+
+        // the profile and the projection change in the same write
+        user.setFirstName("Noa");
+        long writes = backend.getWriteCount();
+        databaseService.updateUser(user, null);
+        assertEquals(1, backend.getWriteCount() - writes);
+        databaseService.getUserSummary("photo", callback(summary -> result[0] = summary));
+        assertEquals("Noa Levi", result[0].getFullName());
+        databaseService.updateUserAdminStatus("photo", true, null);
+        databaseService.getUserSummary("photo", callback(summary -> result[0] = summary));
+        assertTrue(result[0].getIsAdmin());
+
+        // a user written before the projection existed gets it on the first read
+        backend.setValue("user_public/u1", null, null);
+        databaseService.getUserSummary("u1", callback(summary -> result[0] = summary));
+        assertEquals("User 1", result[0].getFullName());
+        assertTrue(read("user_public/u1").exists());
+
+        databaseService.deleteUser("photo", null);
+        databaseService.getUserSummary("photo", callback(summary -> result[0] = summary));
+        assertNull(result[0]);
+    }
+
+    /// mirrors the changes of a chat stream the way the chat screen applies them to its adapter
+    private static final class ChatScreen implements ChatStream.Listener {
+        final List<ChatMessage> rows = new ArrayList<>();
+        int inserts = 0;
+        int changes = 0;
+        int removals = 0;
+
+        @Override
+        public void onMessagesInserted(int position, @NonNull List<ChatMessage> inserted) {
+            rows.addAll(position, inserted);
+            inserts++;
+        }
+
+        @Override
+        public void onMessageChanged(int position, @NonNull ChatMessage message) {
+            rows.set(position, message);
+            changes++;
+        }
+
+        @Override
+        public void onMessagesRemoved(int position, int count) {
+            rows.subList(position, position + count).clear();
+            removals += count;
+        }
+
+        @Override
+        public void onFailed(@NonNull Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void groupChat_deliversOnlyTheChangedMessages() {
+        int history = 1000;
+        for (int i = 0; i < history; i++) {
+            databaseService.sendGroupMessage("g1", new ChatMessage("u" + (i % 10), "User", "Message " + i, NOW - (history - i) * 1000L), null);
+        }
+
+        ChatScreen chat = new ChatScreen();
+        long reads = backend.getReadCount();
+        ChatStream stream = databaseService.listenForGroupMessages(screen, "g1", null, chat);
+        assertEquals(50, chat.rows.size());
+        assertEquals("Message 950", chat.rows.get(0).getText());
+        assertEquals("Message 999", chat.rows.get(49).getText());
+
+        // a new message is one insert at the bottom, the message pushed out of the window stays on the screen
+        long events = backend.getEventCount();
+        databaseService.sendGroupMessage("g1", new ChatMessage("u2", "User", "New", NOW), null);
+        assertEquals(51, chat.rows.size());
+        assertEquals("New", chat.rows.get(50).getText());
+        assertEquals(0, chat.removals);
+        // the removal from the window and the new message, not the 1000 messages of the history.
+        // the only read is the one of the members by the send
+        assertEquals(2, backend.getEventCount() - events);
+        assertEquals(1, backend.getReadCount() - reads);
+
+        // scrolling up reads the older messages a page at a time
+        int[] loaded = new int[1];
+        stream.loadOlder(callback(count -> loaded[0] = count));
+        assertEquals(30, loaded[0]);
+        assertEquals("Message 920", chat.rows.get(0).getText());
+        assertEquals("Message 949", chat.rows.get(29).getText());
+        assertTrue(stream.hasOlder());
+
+        // deleted messages are removed by their tombstones, in and out of the live window
+        String deletedInWindow = chat.rows.get(70).getMessageId();
+        String oldestInWindow = chat.rows.get(31).getMessageId();
+        databaseService.deleteGroupMessage("g1", deletedInWindow, null);
+        databaseService.deleteGroupMessage("g1", oldestInWindow, null);
+        assertEquals(79, chat.rows.size());
+        assertEquals(2, chat.removals);
+        for (ChatMessage message : chat.rows) {
+            assertFalse(message.getMessageId().equals(deletedInWindow) || message.getMessageId().equals(oldestInWindow));
+        }
+
+        while (stream.hasOlder()) {
+            stream.loadOlder(null);
+        }
+        assertEquals(history - 1, chat.rows.size());
+        assertEquals("Message 0", chat.rows.get(0).getText());
+        assertEquals(stream.getMessages().size(), chat.rows.size());
+        for (int i = 0; i < chat.rows.size(); i++) {
+            assertEquals(stream.getMessages().get(i).getMessageId(), chat.rows.get(i).getMessageId());
+        }
+
+        // the listeners of the window and of the tombstones go away with the screen
+        int listeners = backend.getListenerCount();
+        screen.destroy();
+        assertEquals(listeners - 2, backend.getListenerCount());
+    }
+
+    @Test
+    public void groupChat_reopensFromTheJournalAndReadsOnlyTheNewMessages() throws IOException {
+        for (int i = 0; i < 300; i++) {
+            databaseService.sendGroupMessage("g2", new ChatMessage("u" + (i % 10), "User", "Message " + i, NOW - (300 - i) * 1000L), null);
+        }
+        File directory = Files.createTempDirectory("chat_journal").toFile();
+        directory.deleteOnExit();
+
+        ChatScreen first = new ChatScreen();
+        ChatStream stream = databaseService.listenForGroupMessages(screen, "g2", new ChatJournal(directory, 200), first);
+        assertEquals(0, stream.getJournalCount());
+        assertEquals(50, first.rows.size());
+        stream.remove();
+
+        // while the chat is closed, 10 messages are sent and a kept message is deleted
+        for (int i = 300; i < 310; i++) {
+            databaseService.sendGroupMessage("g2", new ChatMessage("u1", "User", "Message " + i, NOW - (310 - i) * 100L), null);
+        }
+        String deleted = first.rows.get(20).getMessageId();
+        databaseService.deleteGroupMessage("g2", deleted, null);
+
+        // the app was restarted, the journal is read from its file
+        ChatScreen second = new ChatScreen();
+        long reads = backend.getReadCount(), events = backend.getEventCount();
+        stream = databaseService.listenForGroupMessages(screen, "g2", new ChatJournal(directory, 200), second);
+        assertEquals(50, stream.getJournalCount());
+        assertEquals(59, second.rows.size());
+        assertEquals("Message 309", second.rows.get(58).getText());
+        for (ChatMessage message : second.rows) {
+            assertFalse(message.getMessageId().equals(deleted));
+        }
+        // the 10 new messages, the tombstone and the value shared with the window, not the 50 kept messages again
+        assertEquals(12, backend.getEventCount() - events);
+        assertEquals(0, backend.getReadCount() - reads);
+        stream.remove();
+
+        // too many new messages to join them with the kept ones, the kept ones are read again when scrolling up
+        for (int i = 310; i < 400; i++) {
+            databaseService.sendGroupMessage("g2", new ChatMessage("u1", "User", "Message " + i, NOW + i), null);
+        }
+        ChatScreen third = new ChatScreen();
+        ChatJournal journal = new ChatJournal(directory, 200);
+        stream = databaseService.listenForGroupMessages(screen, "g2", journal, third);
+        assertEquals(50, third.rows.size());
+        assertEquals("Message 350", third.rows.get(0).getText());
+        assertEquals(50, journal.read("g2").messages.size());
+        int[] loaded = new int[1];
+        stream.loadOlder(callback(count -> loaded[0] = count));
+        assertEquals(30, loaded[0]);
+        assertEquals("Message 320", third.rows.get(0).getText());
+        stream.remove();
+
+        // not synced for longer than the tombstones are kept, the kept messages may have been deleted since
+        journal.markSynced("g2", System.currentTimeMillis() - ChatJournal.SYNC_HORIZON - HOUR);
+        ChatScreen fourth = new ChatScreen();
+        stream = databaseService.listenForGroupMessages(screen, "g2", journal, fourth);
+        assertEquals(0, stream.getJournalCount());
+        assertEquals(50, fourth.rows.size());
+        assertEquals("Message 350", fourth.rows.get(0).getText());
+    }
+
+    @Test
+    public void groupChatDeletions_olderThanTheRetentionAreTrimmed() {
+        long day = TimeUnit.DAYS.toMillis(1);
+        backend.setValue("group_chat_deletions/g3/old", NOW - 40 * day, null);
+        backend.setValue("group_chat_deletions/g3/recent", NOW - 20 * day, null);
+
+        databaseService.deleteGroupMessage("g3", "m1", null);
+        // the times are compared with the new tombstone, the server's time
+        DataNode deletions = read("group_chat_deletions/g3");
+        assertEquals(2, deletions.getChildrenCount());
+        assertTrue(deletions.hasChild("recent"));
+        assertEquals(NOW, deletions.child("m1").getValue());
+    }
+
+    @Test
+    public void unreadCounters_areWrittenWithTheMessageAndReadAsOneNode() {
+        // g5 was created by u5, u55 is one of its members
+        List<Map<String, Integer>> updates = new ArrayList<>();
+        databaseService.listenToUnreadCounts(screen, "unread", "u5", callback(updates::add));
+        assertEquals(1, backend.getListenerCount());
+        assertTrue(updates.get(0).isEmpty());
+
+        databaseService.sendGroupMessage("g5", new ChatMessage("u55", "User", "First", NOW), null);
+        long reads = backend.getReadCount(), writes = backend.getWriteCount();
+        for (int i = 0; i < 20; i++) {
+            databaseService.sendGroupMessage("g5", new ChatMessage("u55", "User", "Message " + i, NOW + i), null);
+        }
+        // one write per message, and one read of the current members
+        assertEquals(20, backend.getWriteCount() - writes);
+        assertEquals(20, backend.getReadCount() - reads);
+
+        assertEquals(Integer.valueOf(21), updates.get(updates.size() - 1).get("g5"));
+        assertEquals(21L, read("user_unread/u15/g5/unread").getValue());
+        // the sender's own messages aren't unread
+        assertFalse(read("user_unread/u55/g5").hasChild("unread"));
+        assertEquals(NOW, read("user_unread/u55/g5/lastReadAt").getValue());
+        // a user outside the group has no counter
+        assertFalse(read("user_unread/u6").exists());
+
+        databaseService.markGroupRead("u5", "g5", null);
+        assertEquals(Integer.valueOf(0), updates.get(updates.size() - 1).get("g5"));
+        assertEquals(NOW, read("user_unread/u5/g5/lastReadAt").getValue());
+
+        databaseService.sendGroupMessage("g5", new ChatMessage("u55", "User", "After", NOW + 100), null);
+        assertEquals(Integer.valueOf(1), updates.get(updates.size() - 1).get("g5"));
+
+        databaseService.leaveGroup("g5", "u5", null);
+        assertFalse(updates.get(updates.size() - 1).containsKey("g5"));
+        assertEquals(1, backend.getListenerCount());
+    }
+
+    @Test
+    public void joinRequests_keepTheTimeTheyWereSent() {
+        databaseService.requestToJoinGroup("g1", "u99", null);
+        assertEquals(NOW, read("groups/g1/pendingRequests/u99").getValue());
+
+        Group[] group = new Group[1];
+        databaseService.getGroup("g1", callback(g -> group[0] = g));
+        assertEquals(Long.valueOf(NOW), group[0].getPendingRequests().get("u99"));
+
+        databaseService.approveJoinRequest("g1", "u99", null);
+        assertFalse(read("groups/g1/pendingRequests").exists());
+        assertEquals(true, read("groups/g1/members/u99").getValue());
+    }
+
+    @Test
+    public void inbox_isFannedOutWithTheChangesAndReadWithOneListener() {
+        // g5 was created by u5, u15 is one of its members
+        List<InboxEntry> member = new ArrayList<>();
+        List<InboxEntry> creator = new ArrayList<>();
+        databaseService.listenToInbox("u15", NOW, callback(member::add));
+        databaseService.listenToInbox("u5", NOW, callback(creator::add));
+        assertEquals(2, backend.getListenerCount());
+        // the events of the group created by the seed, only the newest ones are downloaded
+        assertEquals(20, member.size());
+        member.clear();
+        creator.clear();
+
+        long writes = backend.getWriteCount();
+        databaseService.sendGroupMessage("g5", new ChatMessage("u55", "Dana", "Hello", NOW), null);
+        assertEquals(1, backend.getWriteCount() - writes);
+        InboxEntry entry = member.get(0);
+        assertEquals(InboxEntryType.CHAT_MESSAGE, entry.getType());
+        assertEquals("Group 5", entry.getGroupName());
+        assertEquals("Dana", entry.getSenderName());
+        assertEquals("Hello", entry.getText());
+        assertEquals(NOW, entry.getCreatedAt());
+
+        Event event = new Event("new", "g5", "Evening ride", "", SportType.CYCLING, DifficultyLevel.BEGINNER,
+                NOW + HOUR, HOUR, null, "u15", 0);
+        databaseService.createNewEvent(event, null);
+        assertEquals(NOW, read("events/new/createdAt").getValue());
+        Event[] created = new Event[1];
+        databaseService.getEvent("new", callback(value -> created[0] = value));
+        assertEquals(NOW, created[0].getCreatedAt());
+        assertEquals("Evening ride", created[0].getTitle());
+        assertEquals(SportType.CYCLING, created[0].getSportType());
+        assertTrue(created[0].getParticipants().containsKey("u15"));
+        // the creator of the event isn't notified about it
+        assertEquals(1, member.size());
+        assertEquals(InboxEntryType.NEW_EVENT, creator.get(1).getType());
+        assertEquals("Evening ride", creator.get(1).getText());
+        assertEquals("new", creator.get(1).getRefId());
+
+        databaseService.requestToJoinGroup("g5", "u99", null);
+        assertEquals(InboxEntryType.JOIN_REQUEST, creator.get(2).getType());
+        assertEquals("u99", creator.get(2).getSenderId());
+        assertEquals(1, member.size());
+
+        List<InboxEntry> requester = new ArrayList<>();
+        databaseService.listenToInbox("u99", NOW, callback(requester::add));
+        databaseService.approveJoinRequest("g5", "u99", null);
+        assertEquals(InboxEntryType.JOIN_APPROVED, requester.get(requester.size() - 1).getType());
+        assertEquals("g5", requester.get(requester.size() - 1).getGroupId());
+    }
+
+    @Test
+    public void joinRequests_ofADeletedGroupFail() {
+        databaseService.deleteGroup("g7", null);
+        Exception[] failures = new Exception[2];
+        databaseService.requestToJoinGroup("g7", "u99", failure(e -> failures[0] = e));
+        databaseService.approveJoinRequest("g7", "u98", failure(e -> failures[1] = e));
+
+        assertNotNull(failures[0]);
+        assertNotNull(failures[1]);
+        // nothing was written under the deleted group
+        assertFalse(read("groups/g7").exists());
+        assertFalse(read("users/u98/groupIds/g7").exists());
+    }
+
+    @Test
+    public void groupMessages_reachNewMembersAndFailForADeletedGroup() {
+        databaseService.getGroup("g5", callback(group -> assertNotNull(group)));
+        // u99 joined on another device, the cached group doesn't have it yet
+        backend.setValue("groups/g5/members/u99", true, null);
+        databaseService.sendGroupMessage("g5", new ChatMessage("u55", "Dana", "Hello", NOW), null);
+        assertEquals(1L, read("user_unread/u99/g5/unread").getValue());
+
+        databaseService.deleteGroup("g7", null);
+        Exception[] failure = new Exception[1];
+        databaseService.sendGroupMessage("g7", new ChatMessage("u7", "Dana", "Hello", NOW), failure(e -> failure[0] = e));
+        assertNotNull(failure[0]);
+        // the chat of the deleted group isn't brought back
+        assertFalse(read("group_chats/g7").exists());
+        assertFalse(read("user_unread/u7/g7").exists());
+    }
+
+    @Test
+    public void inbox_isTrimmedToTheNewestEntries() {
+        for (int i = 0; i < 120; i++) {
+            databaseService.sendGroupMessage("g5", new ChatMessage("u55", "Dana", "Message " + i, NOW), null);
+        }
+        long entries = read("user_inbox/u15").getChildrenCount();
+        assertTrue(entries > 120);
+
+        Integer[] deleted = new Integer[1];
+        databaseService.trimInbox("u15", 0, callback(count -> deleted[0] = count));
+        assertEquals(Integer.valueOf((int) entries - 100), deleted[0]);
+        assertEquals(100, read("user_inbox/u15").getChildrenCount());
+
+        // everything written before the cutoff is deleted
+        databaseService.trimInbox("u15", NOW + 1, callback(count -> deleted[0] = count));
+        assertEquals(Integer.valueOf(100), deleted[0]);
+        assertFalse(read("user_inbox/u15").exists());
+    }
+
+    @Test
+    public void stats_areCountedWithTheWritesAndReadAsOneNode() {
+        AppStats[] stats = new AppStats[1];
+        int[] calls = {0};
+        databaseService.listenToStats(screen, "stats", callback(value -> {
+            stats[0] = value;
+            calls[0]++;
+        }));
+        assertEquals(USERS, stats[0].getUsers());
+        assertEquals(GROUPS, stats[0].getGroups());
+        assertEquals(EVENTS, stats[0].getEvents());
+
+        // the events of a group are deleted with it
+        long groupEvents = 0;
+        for (DataNode event : read("events").getChildren()) {
+            if ("g7".equals(event.child("groupId").getValue())) groupEvents++;
+        }
+        databaseService.deleteGroup("g7", null);
+        databaseService.deleteEvent("e0", null);
+        assertEquals(GROUPS - 1, stats[0].getGroups());
+        assertEquals(EVENTS - groupEvents - 1, stats[0].getEvents());
+
+        databaseService.cleanupOldEvents(NOW, null);
+        assertEquals(read("events").getChildrenCount(), stats[0].getEvents());
+
+        User user = new User();
+        user.setId("u3");
+        databaseService.deleteUserCompletely(user, null);
+        assertEquals(USERS - 1, stats[0].getUsers());
+        assertEquals(read("groups").getChildrenCount(), stats[0].getGroups());
+        assertEquals(read("events").getChildrenCount(), stats[0].getEvents());
+
+        // a counter that drifted is repaired by a recount
+        backend.setValue("stats/events", 12345, callback(ignored -> {
+        }));
+        AppStats[] recounted = new AppStats[1];
+        databaseService.recountStats(callback(value -> recounted[0] = value));
+        assertEquals(read("events").getChildrenCount(), recounted[0].getEvents());
+        assertEquals(recounted[0].getEvents(), stats[0].getEvents());
+        assertEquals(USERS - 1, stats[0].getUsers());
+
+        // a user from before the public profiles is counted too
+        backend.setValue("users/old", new User("old", "old@fitlink.test", "pass", "Old", "User", "0500000000", false, null), null);
+        databaseService.recountStats(callback(value -> recounted[0] = value));
+        assertEquals(USERS, recounted[0].getUsers());
+    }
+
+    @Test
+    public void activity_isBucketedWithTheWritesAndReadAsOneRange() {
+        for (int i = 0; i < 3; i++) {
+            databaseService.sendGroupMessage("g5", new ChatMessage("u55", "Dana", "Message " + i, NOW), null);
+        }
+        long now = System.currentTimeMillis();
+        long from = now - TimeUnit.DAYS.toMillis(30);
+
+        List<ActivityBucket> days = new ArrayList<>();
+        long reads = backend.getReadCount();
+        databaseService.getActivity(StatsInterval.DAY, from, now, callback(days::addAll));
+        assertEquals(1, backend.getReadCount() - reads);
+        // a bucket for every day, the days without activity too
+        assertEquals(31, days.size());
+        for (int i = 1; i < days.size(); i++) {
+            assertEquals(StatsInterval.DAY.next(days.get(i - 1).getStartTimestamp()), days.get(i).getStartTimestamp());
+        }
+        assertEquals(StatsInterval.DAY.keyOf(now), days.get(30).getKey());
+
+        List<ActivityBucket> weeks = new ArrayList<>();
+        databaseService.getActivity(StatsInterval.WEEK, from, now, callback(weeks::addAll));
+        assertTrue(weeks.size() >= 5 && weeks.size() <= 6);
+        for (ActivityBucket week : weeks) {
+            assertEquals(DayOfWeek.MONDAY, LocalDate.parse(week.getKey()).getDayOfWeek());
+        }
+
+        // every write of the seed is counted once in the days and once in the weeks
+        for (List<ActivityBucket> buckets : List.of(days, weeks)) {
+            int[] totals = new int[ActivitySeries.values().length];
+            for (ActivityBucket bucket : buckets) {
+                for (ActivitySeries series : ActivitySeries.values()) {
+                    totals[series.ordinal()] += bucket.getCount(series);
+                }
+            }
+            assertEquals(USERS, totals[ActivitySeries.SIGNUPS.ordinal()]);
+            assertEquals(EVENTS, totals[ActivitySeries.EVENTS_CREATED.ordinal()]);
+            assertEquals(GROUPS * 10 + EVENTS * 5, totals[ActivitySeries.JOINS.ordinal()]);
+            assertEquals(3, totals[ActivitySeries.MESSAGES.ordinal()]);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.fitlink.services;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.annotation.NonNull;
+
+import com.example.fitlink.services.DatabaseFixture.TestScreen;
+import com.example.fitlink.services.backend.DataBackend;
+import com.example.fitlink.services.backend.DataNode;
+import com.example.fitlink.services.backend.DataQuery;
+import com.example.fitlink.services.backend.InMemoryBackend;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local unit tests for the shared listeners of {@link ListenerHub}.
+ */
+public class ListenerHubTest {
+
+    private InMemoryBackend backend;
+    private final List<Runnable> replays = new ArrayList<>();
+    private ListenerHub hub;
+    private TestScreen screen;
+
+    @Before
+    public void setUp() {
+        backend = new InMemoryBackend(Runnable::run, () -> 0L);
+        backend.setValue("groups/g1/name", "First", null);
+        // the replays wait until the test runs them, like the posts to the main thread
+        hub = new ListenerHub(backend, replays::add);
+        screen = new TestScreen();
+    }
+
+    private static DataBackend.ValueListener names(List<Object> values) {
+        return new DataBackend.ValueListener() {
+            @Override
+            public void onDataChange(@NonNull DataNode node) {
+                values.add(node.child("g1/name").getValue());
+            }
+
+            @Override
+            public void onCancelled(@NonNull Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+    }
+
+    @Test
+    public void replay_isSkippedWhenANewerSnapshotArrivedFirst() {
+        List<Object> first = new ArrayList<>();
+        List<Object> second = new ArrayList<>();
+        hub.subscribe(screen, DataQuery.ref("groups"), "first", names(first));
+        hub.subscribe(screen, DataQuery.ref("groups"), "second", names(second));
+        assertEquals(1, replays.size());
+
+        backend.setValue("groups/g1/name", "Renamed", null);
+        replays.remove(0).run();
+        assertEquals(List.of("Renamed"), second);
+        assertEquals(List.of("First", "Renamed"), first);
+
+        // without a change in between the cached snapshot is replayed
+        List<Object> third = new ArrayList<>();
+        hub.subscribe(screen, DataQuery.ref("groups"), "third", names(third));
+        replays.remove(0).run();
+        assertEquals(List.of("Renamed"), third);
+    }
+
+    @Test
+    public void subscribe_replacesOnlyTheSubscriptionWithTheSameKey() {
+        List<Object> list = new ArrayList<>();
+        List<Object> badge = new ArrayList<>();
+        List<Object> reloaded = new ArrayList<>();
+        hub.subscribe(screen, DataQuery.ref("groups"), "list", names(list));
+        hub.subscribe(screen, DataQuery.ref("groups"), "badge", names(badge));
+        hub.subscribe(screen, DataQuery.ref("groups"), "list", names(reloaded));
+        replays.forEach(Runnable::run);
+        assertEquals(Integer.valueOf(2), hub.getSubscriberCounts().get("groups"));
+
+        backend.setValue("groups/g1/name", "Renamed", null);
+        assertEquals(List.of("First"), list);
+        assertEquals(List.of("First", "Renamed"), badge);
+        assertEquals(List.of("First", "Renamed"), reloaded);
+        assertEquals(1, backend.getListenerCount());
+
+        screen.destroy();
+        assertEquals(0, backend.getListenerCount());
+    }
+}
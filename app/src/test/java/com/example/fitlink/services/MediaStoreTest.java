@@ -0,0 +1,152 @@
+package com.example.fitlink.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.fitlink.enums.DifficultyLevel;
+import com.example.fitlink.enums.SportType;
+import com.example.fitlink.models.Group;
+import com.example.fitlink.models.User;
+import com.example.fitlink.services.backend.DataNode;
+import com.example.fitlink.services.backend.DataQuery;
+import com.example.fitlink.services.backend.InMemoryBackend;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Local unit tests for storing the profile and group images once by content hash in {@link MediaStore}.
+ */
+public class MediaStoreTest {
+
+    private InMemoryBackend backend;
+    private DatabaseService databaseService;
+
+    @Before
+    public void setUp() {
+        backend = new InMemoryBackend();
+        databaseService = new DatabaseService(backend);
+    }
+
+    /// a fake image of the given size, base64 with line breaks like android.util.Base64.DEFAULT writes it
+    private static String image(int size, int seed) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) bytes[i] = (byte) (i * 31 + seed);
+        return Base64.getMimeEncoder().encodeToString(bytes);
+    }
+
+    private DataNode read(String path) {
+        DataNode[] result = new DataNode[1];
+        backend.get(DataQuery.ref(path), callback(node -> result[0] = node));
+        return result[0];
+    }
+
+    @Test
+    public void savedObjects_keepOnlyTheHashAndTheImageIsStoredOnce() {
+        String photo = image(50_000, 1);
+        User user = new User("u1", "a@fitlink.test", "pass", "Dana", "Levi", "050", false, photo);
+        databaseService.createNewUser(user, null);
+
+        String hash = (String) read("users/u1/profileImage").getValue();
+        assertTrue(MediaStore.isMediaHash(hash));
+        assertEquals(hash, user.getProfileImage());
+        assertEquals(hash, read("user_public/u1/profileThumbnail").getValue());
+        assertEquals(50_000L, read("media/" + hash + "/size").getValue());
+        assertEquals(1, databaseService.getMediaStore().getUploadCount());
+
+        // saving the profile again (only the name changed) doesn't upload the image
+        user.setFirstName("Noa");
+        databaseService.updateUser(user, null);
+        // a group with the same picture shares it
+        Group group = new Group("g1", "Runners", "", SportType.RUNNING, DifficultyLevel.BEGINNER, null, "u1");
+        group.setGroupImage(photo);
+        databaseService.createNewGroup(group, null);
+
+        assertEquals(hash, read("groups/g1/groupImage").getValue());
+        assertEquals(1, databaseService.getMediaStore().getUploadCount());
+        assertEquals(1, databaseService.getMediaStore().getDeduplicatedCount());
+
+        // a new picture is a new hash
+        group.setGroupImage(image(1000, 2));
+        databaseService.updateGroup(group, null);
+        assertFalse(hash.equals(read("groups/g1/groupImage").getValue()));
+        assertEquals(2, databaseService.getMediaStore().getUploadCount());
+    }
+
+    @Test
+    public void getImage_readsEachVariantOnceAndPassesOldInlineImages() {
+        String photo = image(20_000, 3);
+        String[] hash = new String[1];
+        databaseService.storeImage(photo, callback(value -> hash[0] = value));
+
+        String[] result = new String[1];
+        long reads = backend.getReadCount();
+        for (int row = 0; row < 10; row++) {
+            databaseService.getImage(hash[0], MediaStore.Variant.THUMBNAIL, callback(value -> result[0] = value));
+        }
+        assertEquals(1, backend.getReadCount() - reads);
+        databaseService.getImage(hash[0], MediaStore.Variant.FULL, callback(value -> result[0] = value));
+        assertEquals(2, backend.getReadCount() - reads);
+        assertEquals(Base64.getEncoder().encodeToString(Base64.getMimeDecoder().decode(photo)), result[0]);
+
+        // an image saved before the media store is used as is, without reading
+        databaseService.getImage("/9j/4AAQSkZJRg==", MediaStore.Variant.THUMBNAIL, callback(value -> result[0] = value));
+        assertEquals("/9j/4AAQSkZJRg==", result[0]);
+        databaseService.getImage(null, MediaStore.Variant.FULL, callback(value -> result[0] = value));
+        assertNull(result[0]);
+        assertEquals(2, backend.getReadCount() - reads);
+    }
+
+    @Test
+    public void thumbnail_isMadeOnTheEncodeExecutor() {
+        List<Runnable> encodes = new ArrayList<>();
+        int[] made = new int[1];
+        MediaStore mediaStore = new MediaStore(backend, image -> {
+            made[0]++;
+            return "thumbnail";
+        }, encodes::add, Runnable::run);
+
+        String[] hash = new String[1];
+        mediaStore.store(image(1000, 5), callback(value -> hash[0] = value));
+        // nothing is made or written until the encode executor runs
+        assertEquals(0, made[0]);
+        assertNull(hash[0]);
+        assertEquals(1, encodes.size());
+
+        encodes.get(0).run();
+        assertEquals(1, made[0]);
+        assertEquals("thumbnail", read("media/" + hash[0] + "/thumbnail").getValue());
+        assertEquals(1000L, read("media/" + hash[0] + "/size").getValue());
+    }
+
+    @Test
+    public void removedImage_isWrittenAsNull() {
+        User user = new User("u1", "a@fitlink.test", "pass", "Dana", "Levi", "050", false, image(100, 4));
+        databaseService.createNewUser(user, null);
+        user.setProfileImage(null);
+        databaseService.updateUser(user, null);
+        assertFalse(read("users/u1/profileImage").exists());
+        assertFalse(read("user_public/u1/profileThumbnail").exists());
+    }
+
+    private static <T> DatabaseService.DatabaseCallback<T> callback(Consumer<T> onCompleted) {
+        return new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(T object) {
+                onCompleted.accept(object);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.fitlink.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local unit tests for merging bursts of notifications with {@link NotificationCoalescer}.
+ */
+public class NotificationCoalescerTest {
+
+    private static final long WINDOW = 1500;
+    private static final long INTERVAL = 1000;
+
+    /// a scheduler and a clock the test moves forward by hand
+    private static final class ManualTime {
+        long now = 0;
+        final List<long[]> times = new ArrayList<>();
+        final List<Runnable> tasks = new ArrayList<>();
+
+        void schedule(Runnable task, long delay) {
+            times.add(new long[]{now + delay});
+            tasks.add(task);
+        }
+
+        /// run the tasks that are due until the given time, in their order
+        void advanceTo(long time) {
+            while (true) {
+                int next = -1;
+                for (int i = 0; i < times.size(); i++) {
+                    if (times.get(i)[0] <= time && (next == -1 || times.get(i)[0] < times.get(next)[0])) next = i;
+                }
+                if (next == -1) break;
+                now = times.remove(next)[0];
+                tasks.remove(next).run();
+            }
+            now = time;
+        }
+    }
+
+    /// a post of the notification of a key
+    private static final class Post {
+        final String key;
+        final List<String> items;
+        final int count;
+        final long time;
+
+        Post(String key, List<String> items, int count, long time) {
+            this.key = key;
+            this.items = items;
+            this.count = count;
+            this.time = time;
+        }
+    }
+
+    private final ManualTime time = new ManualTime();
+    private final List<Post> posts = new ArrayList<>();
+
+    private NotificationCoalescer<String> coalescer(int maxItems) {
+        return new NotificationCoalescer<>(WINDOW, INTERVAL, maxItems, time::schedule, () -> time.now,
+                (key, items, count) -> posts.add(new Post(key, items, count, time.now)));
+    }
+
+    @Test
+    public void burst_isPostedOnceWithAllItsItems() {
+        NotificationCoalescer<String> coalescer = coalescer(6);
+        for (int i = 0; i < 4; i++) {
+            time.advanceTo(i * 100);
+            coalescer.add("chat", "g1", "m" + i);
+        }
+        assertTrue(posts.isEmpty());
+
+        time.advanceTo(WINDOW);
+        assertEquals(1, posts.size());
+        assertEquals(List.of("m0", "m1", "m2", "m3"), posts.get(0).items);
+        assertEquals(4, posts.get(0).count);
+        assertEquals(1, coalescer.getPostedCount());
+        assertEquals(3, coalescer.getMergedCount());
+
+        // a later message updates the same notification with the history of the group
+        coalescer.add("chat", "g1", "m4");
+        time.advanceTo(10_000);
+        assertEquals(2, posts.size());
+        assertEquals(List.of("m0", "m1", "m2", "m3", "m4"), posts.get(1).items);
+        assertEquals(5, posts.get(1).count);
+    }
+
+    @Test
+    public void postsOfAChannel_areSpacedByTheMinimalInterval() {
+        NotificationCoalescer<String> coalescer = coalescer(6);
+        for (int g = 0; g < 5; g++) {
+            coalescer.add("chat", "g" + g, "hello");
+        }
+        coalescer.add("events", "e1", "new event");
+        time.advanceTo(60_000);
+
+        assertEquals(6, posts.size());
+        List<Long> chatTimes = new ArrayList<>();
+        for (Post post : posts) {
+            if (post.key.startsWith("g")) chatTimes.add(post.time);
+            // another channel isn't held back by the chat posts
+            else assertEquals(WINDOW, post.time);
+        }
+        for (int i = 1; i < chatTimes.size(); i++) {
+            assertEquals(INTERVAL, chatTimes.get(i) - chatTimes.get(i - 1));
+        }
+    }
+
+    @Test
+    public void clearedKey_dropsItsWaitingItems() {
+        NotificationCoalescer<String> coalescer = coalescer(3);
+        for (int i = 0; i < 5; i++) {
+            coalescer.add("chat", "g1", "m" + i);
+        }
+        // only the newest 3 are kept, the 2 oldest were never shown
+        assertEquals(2, coalescer.getDroppedCount());
+        time.advanceTo(WINDOW);
+        assertEquals(List.of("m2", "m3", "m4"), posts.get(0).items);
+        assertEquals(5, posts.get(0).count);
+
+        coalescer.add("chat", "g1", "m5");
+        coalescer.add("chat", "g1", "m6");
+        coalescer.clear("g1");
+        time.advanceTo(60_000);
+        assertEquals(1, posts.size());
+        assertEquals(4, coalescer.getDroppedCount());
+
+        // the key starts again after it was cleared
+        coalescer.add("chat", "g1", "m7");
+        time.advanceTo(120_000);
+        assertEquals(List.of("m7"), posts.get(1).items);
+        assertEquals(1, posts.get(1).count);
+    }
+
+    @Test
+    public void busyChat_isPostedAtMostOncePerInterval() {
+        NotificationCoalescer<String> coalescer = coalescer(6);
+        // 10 groups, 600 messages over a minute, a message every 100 ms
+        for (int i = 0; i < 600; i++) {
+            time.advanceTo(i * 100L);
+            coalescer.add("chat", "g" + (i % 10), "m" + i);
+        }
+        time.advanceTo(10 * 60_000);
+        assertEquals(600, coalescer.getAddedCount());
+        // at most one post per INTERVAL for the whole channel
+        assertTrue(coalescer.getPostedCount() <= 60_000 / INTERVAL + 10);
+        assertEquals(coalescer.getAddedCount(), coalescer.getPostedCount() + coalescer.getMergedCount());
+    }
+}
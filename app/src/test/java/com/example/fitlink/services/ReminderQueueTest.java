@@ -0,0 +1,125 @@
+package com.example.fitlink.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.fitlink.models.Event;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ReminderQueueTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        File directory = Files.createTempDirectory("event_reminders").toFile();
+        directory.deleteOnExit();
+        file = new File(directory, "u1.heap");
+    }
+
+    private ReminderQueue open() {
+        return new ReminderQueue(file, ReminderQueue.DEFAULT_OFFSETS, ReminderQueue.DEFAULT_REFRESH_AFTER, Runnable::run);
+    }
+
+    private static Event event(String id, long startTimestamp) {
+        Event event = new Event();
+        event.setId(id);
+        event.setTitle("Event " + id);
+        event.setStartTimestamp(startTimestamp);
+        return event;
+    }
+
+    @Test
+    public void pollDue_returnsTheRemindersOfEveryOffsetInDueOrder() {
+        ReminderQueue queue = open();
+        queue.put(event("e1", NOW + 3 * DAY), NOW);
+        queue.put(event("e2", NOW + 2 * HOUR), NOW);
+        // the day before already passed, only the hour before is kept
+        assertEquals(3, queue.size());
+        assertEquals(NOW + HOUR, queue.getNextDueAt());
+
+        List<ReminderQueue.Reminder> due = queue.pollDue(NOW + 2 * DAY);
+        assertEquals(2, due.size());
+        assertEquals("e2", due.get(0).eventId);
+        assertEquals(HOUR, due.get(0).offset);
+        assertEquals("e1", due.get(1).eventId);
+        assertEquals(DAY, due.get(1).offset);
+        assertEquals(NOW + 3 * DAY - HOUR, queue.getNextDueAt());
+
+        // a changed start time moves the reminders of the event
+        queue.put(event("e1", NOW + 5 * DAY), NOW + 2 * DAY);
+        assertEquals(NOW + 4 * DAY, queue.getNextDueAt());
+        queue.remove("e1");
+        assertEquals(0, queue.getNextDueAt());
+    }
+
+    @Test
+    public void theHeap_survivesARestart() {
+        ReminderQueue queue = open();
+        for (int i = 0; i < 200; i++) {
+            queue.put(event("e" + i, NOW + DAY + (200 - i) * HOUR), NOW);
+        }
+        queue.pollDue(NOW + 10 * HOUR);
+        queue.setScheduledWakeUp(queue.getNextDueAt());
+
+        ReminderQueue reopened = open();
+        assertEquals(queue.size(), reopened.size());
+        assertEquals(queue.getNextDueAt(), reopened.getNextDueAt());
+        assertEquals(queue.getNextDueAt(), reopened.getScheduledWakeUp());
+        long previous = 0;
+        for (ReminderQueue.Reminder reminder : reopened.pollDue(Long.MAX_VALUE)) {
+            assertTrue(reminder.dueAt >= previous);
+            assertEquals(reminder.startTimestamp - reminder.offset, reminder.dueAt);
+            previous = reminder.dueAt;
+        }
+
+        reopened.clear();
+        assertTrue(!file.exists());
+        assertTrue(open().isEmpty());
+    }
+
+    @Test
+    public void reconcile_readsOnlyTheNewAndStaleEvents() {
+        ReminderQueue queue = open();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) ids.add("e" + i);
+        assertEquals(300, queue.reconcile(ids, NOW).size());
+        for (int i = 0; i < 299; i++) {
+            // half of the events already ended, they have no reminders
+            queue.put(event("e" + i, i % 2 == 0 ? NOW - DAY : NOW + 3 * DAY), NOW);
+        }
+        queue.putDeleted("e299", NOW);
+
+        // a restart an hour later reads nothing
+        assertTrue(open().reconcile(ids, NOW + HOUR).isEmpty());
+
+        // joining one event and leaving another reads only the new one
+        List<String> changed = new ArrayList<>(ids);
+        changed.remove("e1");
+        changed.add("e300");
+        ReminderQueue reopened = open();
+        assertEquals(Collections.singletonList("e300"), reopened.reconcile(changed, NOW + HOUR));
+        assertEquals(149 * 2 - 2, reopened.size());
+
+        // the events of pending reminders are read again after a while, in case they were moved
+        List<String> stale = reopened.reconcile(changed, NOW + ReminderQueue.DEFAULT_REFRESH_AFTER);
+        assertEquals(149 - 1 + 1, stale.size());
+        assertTrue(new HashSet<>(stale).containsAll(Arrays.asList("e3", "e300")));
+    }
+}
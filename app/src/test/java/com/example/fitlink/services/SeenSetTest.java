@@ -0,0 +1,132 @@
+package com.example.fitlink.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class SeenSetTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        File directory = Files.createTempDirectory("notifications_seen").toFile();
+        directory.deleteOnExit();
+        file = new File(directory, "u1.seen");
+    }
+
+    private static String id(int index) {
+        return String.format(Locale.ROOT, "-Nx%014d", index);
+    }
+
+    private SeenSet open(int capacity, boolean useBloomFilter) {
+        return new SeenSet(file, capacity, useBloomFilter, Runnable::run);
+    }
+
+    @Test
+    public void add_isTrueOnlyTheFirstTimeAndSurvivesARestart() {
+        SeenSet seen = open(100, true);
+        assertTrue(seen.isEmpty());
+        assertTrue(seen.add(id(1)));
+        assertFalse(seen.add(id(1)));
+        assertTrue(seen.add(id(2)));
+
+        SeenSet reopened = open(100, true);
+        assertFalse(reopened.isEmpty());
+        assertTrue(reopened.contains(id(1)));
+        assertFalse(reopened.add(id(2)));
+        assertTrue(reopened.add(id(3)));
+
+        reopened.clear();
+        assertFalse(file.exists());
+        assertTrue(open(100, true).isEmpty());
+    }
+
+    @Test
+    public void add_forgetsTheLeastRecentlyUsedIdsAndCompactsTheFile() {
+        SeenSet seen = open(50, false);
+        for (int i = 0; i < 1000; i++) {
+            seen.add(id(i));
+            // an id seen again is used lately, so it is kept
+            seen.contains(id(0));
+        }
+        assertEquals(50, seen.size());
+        assertTrue(seen.getCompactionCount() > 0);
+        assertTrue(seen.contains(id(0)));
+        assertTrue(seen.contains(id(999)));
+        assertFalse(seen.contains(id(500)));
+
+        SeenSet reopened = open(50, false);
+        assertEquals(50, reopened.size());
+        assertTrue(reopened.contains(id(0)));
+        assertTrue(reopened.contains(id(999)));
+        assertFalse(reopened.contains(id(900)));
+        // the file never holds much more than twice the kept ids
+        assertTrue(seen.getFileSize() <= 8 + 2 * 50 * (4 + id(0).length()));
+    }
+
+    @Test
+    public void add_doesntWaitForTheFileWrites() {
+        // the writes run later, as on the writer thread, and compact with the ids kept at that time
+        List<Runnable> writes = new ArrayList<>();
+        SeenSet seen = new SeenSet(file, 50, true, writes::add);
+        for (int i = 0; i < 1000; i++) assertTrue(seen.add(id(i)));
+        assertFalse(file.exists());
+        assertTrue(seen.contains(id(999)));
+
+        for (Runnable write : writes) write.run();
+        assertTrue(seen.getCompactionCount() > 0);
+        SeenSet reopened = open(50, true);
+        assertEquals(50, reopened.size());
+        assertTrue(reopened.contains(id(950)));
+        assertTrue(reopened.contains(id(999)));
+        assertFalse(reopened.contains(id(949)));
+    }
+
+    @Test
+    public void load_keepsTheWholeRecordsOfACutFile() throws IOException {
+        SeenSet seen = open(100, true);
+        for (int i = 0; i < 10; i++) seen.add(id(i));
+        try (RandomAccessFile cut = new RandomAccessFile(file, "rw")) {
+            cut.setLength(cut.length() - 5);
+        }
+
+        SeenSet reopened = open(100, true);
+        assertEquals(9, reopened.size());
+        assertTrue(reopened.add(id(9)));
+        // the file was written again without the cut record, so new records follow whole ones
+        assertEquals(10, open(100, true).size());
+
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        assertTrue(open(100, true).isEmpty());
+    }
+
+    @Test
+    public void bloomFilter_answersMostLookupsOfNewIds() {
+        int capacity = SeenSet.DEFAULT_CAPACITY;
+        SeenSet seen = open(capacity, true);
+        for (int i = 0; i < 10 * capacity; i++) seen.add(id(i));
+        long before = seen.getBloomRejectCount() + seen.getBloomFalsePositiveCount();
+
+        int lookups = 20_000;
+        for (int i = 0; i < lookups; i++) assertFalse(seen.contains(id(1_000_000 + i)));
+        long rejected = seen.getBloomRejectCount();
+        long passed = seen.getBloomFalsePositiveCount();
+        assertEquals(lookups, rejected + passed - before);
+        // the filter holds between the capacity and twice the capacity ids, sized for a rate of 1% at twice
+        double rate = (double) passed / (rejected + passed);
+        assertTrue("false positive rate " + rate, rate < 0.015);
+        for (int i = 9 * capacity; i < 10 * capacity; i++) assertTrue(seen.contains(id(i)));
+    }
+}
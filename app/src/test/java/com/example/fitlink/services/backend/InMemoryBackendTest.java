@@ -0,0 +1,241 @@
+package com.example.fitlink.services.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.example.fitlink.services.DatabaseService;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Local unit tests for the Firebase semantics of {@link InMemoryBackend}.
+ */
+public class InMemoryBackendTest {
+
+    private InMemoryBackend backend;
+    private long now;
+
+    @Before
+    public void setUp() {
+        now = 1_000_000L;
+        backend = new InMemoryBackend(Runnable::run, () -> now);
+    }
+
+    private DataNode read(DataQuery query) {
+        DataNode[] result = new DataNode[1];
+        backend.get(query, callback(node -> result[0] = node));
+        return result[0];
+    }
+
+    private void write(String path, Object value) {
+        backend.setValue(path, value, null);
+    }
+
+    private static List<String> keys(DataNode node) {
+        List<String> keys = new ArrayList<>();
+        for (DataNode child : node.getChildren()) keys.add(child.getKey());
+        return keys;
+    }
+
+    private static <T> DatabaseService.DatabaseCallback<T> callback(java.util.function.Consumer<T> onCompleted) {
+        return new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(T object) {
+                onCompleted.accept(object);
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+    }
+
+    @Test
+    public void setValue_thenGet_returnsValueAndDropsEmptyMaps() {
+        Map<String, Object> user = new HashMap<>();
+        user.put("name", "Dana");
+        user.put("groupIds", new HashMap<>());
+        write("users/u1", user);
+
+        DataNode node = read(DataQuery.ref("users/u1"));
+        assertTrue(node.exists());
+        assertEquals("u1", node.getKey());
+        assertEquals("Dana", node.child("name").getValue());
+        assertFalse(node.hasChild("groupIds"));
+
+        write("users/u1/name", null);
+        assertFalse(read(DataQuery.ref("users")).exists());
+    }
+
+    @Test
+    public void orderByChild_appliesRangeAndLimits() {
+        write("events/a", Map.of("start", 30));
+        write("events/b", Map.of("start", 10));
+        write("events/c", Map.of("start", 20));
+        write("events/d", Map.of("title", "no start"));
+
+        assertEquals(List.of("d", "b", "c", "a"), keys(read(DataQuery.ref("events").orderByChild("start"))));
+        assertEquals(List.of("b", "c"), keys(read(DataQuery.ref("events").orderByChild("start").startAt(10).endAt(20))));
+        assertEquals(List.of("c", "a"), keys(read(DataQuery.ref("events").orderByChild("start").startAfter(10))));
+        // children without the child sort first (null), like in Firebase
+        assertEquals(List.of("d", "b"), keys(read(DataQuery.ref("events").orderByChild("start").endBefore(20))));
+        assertEquals(List.of("c", "a"), keys(read(DataQuery.ref("events").orderByChild("start").limitToLast(2))));
+        assertEquals(List.of("d", "b"), keys(read(DataQuery.ref("events").orderByChild("start").limitToFirst(2))));
+        assertEquals(List.of("c"), keys(read(DataQuery.ref("events").orderByChild("start").equalTo(20))));
+    }
+
+    @Test
+    public void orderByKey_putsIntegerKeysFirst() {
+        write("items/b", true);
+        write("items/10", true);
+        write("items/2", true);
+        write("items/a", true);
+
+        assertEquals(List.of("2", "10", "a", "b"), keys(read(DataQuery.ref("items").orderByKey())));
+    }
+
+    @Test
+    public void updateChildren_isAtomicAndRejectsOverlappingPaths() {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("groups/g1/members/u1", true);
+        updates.put("users/u1/groupIds/g1", true);
+        backend.updateChildren("", updates, null);
+
+        assertTrue(read(DataQuery.ref("groups/g1/members/u1")).exists());
+        assertTrue(read(DataQuery.ref("users/u1/groupIds/g1")).exists());
+
+        Map<String, Object> overlapping = new HashMap<>();
+        overlapping.put("users/u1", null);
+        overlapping.put("users/u1/name", "x");
+        Exception[] failure = new Exception[1];
+        backend.updateChildren("", overlapping, new DatabaseService.DatabaseCallback<>() {
+            @Override
+            public void onCompleted(Void object) {
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                failure[0] = e;
+            }
+        });
+        assertTrue(failure[0] instanceof IllegalArgumentException);
+        assertTrue(read(DataQuery.ref("users/u1")).exists());
+    }
+
+    @Test
+    public void serverValues_areResolvedOnWrite() {
+        backend.setValue("users/u1/pastEventsCount", backend.serverIncrement(2), null);
+        backend.setValue("users/u1/pastEventsCount", backend.serverIncrement(3), null);
+        backend.setValue("users/u1/lastSeen", backend.serverTimestamp(), null);
+
+        assertEquals(5L, read(DataQuery.ref("users/u1/pastEventsCount")).getValue());
+        assertEquals(now, read(DataQuery.ref("users/u1/lastSeen")).getValue());
+    }
+
+    @Test
+    public void valueListener_firesOnlyWhenItsResultChanges() {
+        List<DataNode> received = new ArrayList<>();
+        DataBackend.ListenerRegistration registration = backend.addValueListener(
+                DataQuery.ref("events").orderByChild("groupId").equalTo("g1"), new DataBackend.ValueListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataNode node) {
+                        received.add(node);
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull Exception e) {
+                        throw new AssertionError(e);
+                    }
+                });
+        assertEquals(1, received.size());
+        assertFalse(received.get(0).exists());
+
+        write("events/e1", Map.of("groupId", "g1"));
+        write("events/e2", Map.of("groupId", "g2"));
+        write("users/u1/name", "unrelated");
+        write("events/e1/groupId", "g1");
+        assertEquals(2, received.size());
+        assertEquals(List.of("e1"), keys(received.get(1)));
+
+        registration.remove();
+        write("events/e3", Map.of("groupId", "g1"));
+        assertEquals(2, received.size());
+        assertEquals(0, backend.getListenerCount());
+    }
+
+    @Test
+    public void childListener_reportsAddedChangedAndRemovedChildren() {
+        List<String> events = new ArrayList<>();
+        backend.addChildListener(DataQuery.ref("chat").orderByChild("timestamp").limitToLast(2), new DataBackend.ChildListener() {
+            @Override
+            public void onChildAdded(@NonNull DataNode node, String previousChildKey) {
+                events.add("added " + node.getKey() + " after " + previousChildKey);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataNode node, String previousChildKey) {
+                events.add("changed " + node.getKey());
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataNode node) {
+                events.add("removed " + node.getKey());
+            }
+        });
+
+        write("chat/m1", Map.of("timestamp", 1, "text", "a"));
+        write("chat/m2", Map.of("timestamp", 2, "text", "b"));
+        write("chat/m2/text", "edited");
+        write("chat/m3", Map.of("timestamp", 3, "text", "c"));
+
+        assertEquals(List.of(
+                "added m1 after null",
+                "added m2 after m1",
+                "changed m2",
+                "removed m1",
+                "added m3 after m2"), events);
+    }
+
+    @Test
+    public void generateKey_isUniqueAndChronological() {
+        Set<String> keys = new HashSet<>();
+        String previous = "";
+        for (int i = 0; i < 1000; i++) {
+            if (i % 100 == 0) now++;
+            String key = backend.generateKey("events");
+            assertEquals(20, key.length());
+            assertTrue(key.compareTo(previous) > 0);
+            keys.add(key);
+            previous = key;
+        }
+        assertEquals(1000, keys.size());
+    }
+
+    @Test
+    public void runTransaction_commitsTheNewValue() {
+        for (int i = 0; i < 3; i++) {
+            backend.runTransaction("counters/views", current -> {
+                Long value = current.getValue(Long.class);
+                return value == null ? 1L : value + 1;
+            }, callback(node -> {
+            }));
+        }
+        assertEquals(3L, read(DataQuery.ref("counters/views")).getValue());
+
+        backend.runTransaction("counters/views", current -> null, callback(node -> assertFalse(node.exists())));
+        assertNull(read(DataQuery.ref("counters")).getValue());
+    }
+}
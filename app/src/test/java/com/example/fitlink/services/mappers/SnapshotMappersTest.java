@@ -0,0 +1,200 @@
+package com.example.fitlink.services.mappers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.fitlink.Benchmarks;
+import com.example.fitlink.enums.DifficultyLevel;
+import com.example.fitlink.enums.SportType;
+import com.example.fitlink.models.ChatMessage;
+import com.example.fitlink.models.Comment;
+import com.example.fitlink.models.ContactMessage;
+import com.example.fitlink.models.Event;
+import com.example.fitlink.models.Group;
+import com.example.fitlink.models.Location;
+import com.example.fitlink.models.User;
+import com.example.fitlink.services.backend.DataNode;
+import com.example.fitlink.services.backend.TreeNode;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks that the hand-written {@link SnapshotMappers} read the same objects as the reflective
+ * {@link DataNode#getValue(Class)} path. With -Pbenchmark it also prints how long each of them takes on a large list.
+ */
+public class SnapshotMappersTest {
+
+    private static final int ITEMS = 200;
+    private static final int BENCHMARK_ITEMS = 2000;
+    private static final int ROUNDS = 20;
+
+    private static DataNode list(Map<String, Object> children) {
+        return TreeNode.of("list", children);
+    }
+
+    /// compares two objects by the data they would write to the database
+    private static void assertSameData(Object expected, Object actual) {
+        assertEquals(TreeNode.of(null, expected).getValue(), TreeNode.of(null, actual).getValue());
+    }
+
+    private static <T> void assertMapsLikeReflection(DataNode list, Class<T> clazz) {
+        SnapshotMapper<T> mapper = SnapshotMappers.forClass(clazz);
+        for (DataNode child : list.getChildren()) {
+            T mapped = mapper.map(child);
+            assertNotNull(mapped);
+            assertSameData(child.getValue(clazz), mapped);
+        }
+    }
+
+    private static <T> void benchmark(String name, DataNode list, Class<T> clazz) {
+        SnapshotMapper<T> mapper = SnapshotMappers.forClass(clazz);
+        // warm up both paths before measuring
+        for (int i = 0; i < 3; i++) {
+            for (DataNode child : list.getChildren()) {
+                child.getValue(clazz);
+                mapper.map(child);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            for (DataNode child : list.getChildren()) child.getValue(clazz);
+        }
+        long reflective = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            for (DataNode child : list.getChildren()) mapper.map(child);
+        }
+        long mapped = System.nanoTime() - start;
+
+        Benchmarks.report("%-14s reflective %8.2f ms  mapper %8.2f ms  (x%.1f)", name,
+                reflective / 1e6, mapped / 1e6, (double) reflective / mapped);
+    }
+
+    private static DataNode events(int items) {
+        Map<String, Object> events = new HashMap<>();
+        for (int e = 0; e < items; e++) {
+            Event event = new Event("e" + e, e % 4 == 0 ? null : "g" + (e % 50), "Event " + e, "description " + e,
+                    SportType.values()[e % SportType.values().length], DifficultyLevel.values()[e % DifficultyLevel.values().length],
+                    1_700_000_000_000L + e * 60_000L, 3_600_000L, new Location("Tel Aviv " + e, 32.08, 34.78), "u" + e, e % 30);
+            for (int p = 0; p < 5; p++) event.addParticipant("u" + (e + p));
+            event.setCreatedAt(1_690_000_000_000L + e);
+            events.put(event.getId(), event);
+        }
+        return list(events);
+    }
+
+    private static DataNode groups(int items) {
+        Map<String, Object> groups = new HashMap<>();
+        for (int g = 0; g < items; g++) {
+            Group group = new Group("g" + g, "Group " + g, "", SportType.RUNNING, DifficultyLevel.ADVANCED,
+                    new Location("Haifa", 32.79, 34.99), "u" + g);
+            group.setGroupImage("image" + g);
+            for (int m = 1; m < 10; m++) group.getMembers().put("u" + (g + m), true);
+            group.getManagers().put("u" + g, true);
+            if (g % 3 == 0) {
+                Map<String, Long> pending = new HashMap<>();
+                pending.put("u" + (g + 20), 1_700_000_000_000L + g);
+                group.setPendingRequests(pending);
+            }
+            groups.put(group.getId(), group);
+        }
+        return list(groups);
+    }
+
+    private static DataNode users(int items) {
+        Map<String, Object> users = new HashMap<>();
+        for (int u = 0; u < items; u++) {
+            User user = new User("u" + u, "u" + u + "@fitlink.test", "pass", "User", "" + u, "050000" + u, u % 10 == 0, "img" + u);
+            for (int g = 0; g < 3; g++) user.addGroup("g" + (u + g));
+            for (int e = 0; e < 6; e++) user.addEvent("e" + (u + e));
+            user.setPastEventsCount(u % 17);
+            users.put(user.getId(), user);
+        }
+        return list(users);
+    }
+
+    private static DataNode chatMessages(int items) {
+        Map<String, Object> messages = new HashMap<>();
+        for (int m = 0; m < items; m++) {
+            ChatMessage message = new ChatMessage("u" + (m % 20), "User " + m, "message number " + m, 1_700_000_000_000L + m);
+            message.setMessageId("m" + m);
+            messages.put(message.getMessageId(), message);
+        }
+        return list(messages);
+    }
+
+    private static DataNode comments(int items) {
+        Map<String, Object> comments = new HashMap<>();
+        for (int c = 0; c < items; c++) {
+            comments.put("c" + c, new Comment("c" + c, "e" + (c % 40), "u" + c, "comment " + c, 1_700_000_000_000L + c));
+        }
+        return list(comments);
+    }
+
+    private static DataNode contactMessages(int items) {
+        Map<String, Object> messages = new HashMap<>();
+        for (int c = 0; c < items; c++) {
+            messages.put("c" + c, new ContactMessage("c" + c, "u" + c, "Name " + c, "u" + c + "@fitlink.test",
+                    "050000" + c, "help " + c, 1_700_000_000_000L + c));
+        }
+        return list(messages);
+    }
+
+    @Test
+    public void mappers_readTheSameObjectsAsReflection() {
+        assertMapsLikeReflection(events(ITEMS), Event.class);
+        assertMapsLikeReflection(groups(ITEMS), Group.class);
+        assertMapsLikeReflection(users(ITEMS), User.class);
+        assertMapsLikeReflection(chatMessages(ITEMS), ChatMessage.class);
+        assertMapsLikeReflection(comments(ITEMS), Comment.class);
+        assertMapsLikeReflection(contactMessages(ITEMS), ContactMessage.class);
+    }
+
+    @Test
+    public void mappers_keepConstructorDefaultsAndSkipBadValues() {
+        Map<String, Object> raw = new HashMap<>();
+        raw.put("name", "Group");
+        raw.put("sportType", "UNDERWATER_CHESS");
+        raw.put("level", DifficultyLevel.BEGINNER.name());
+        raw.put("location", Map.of("address", "Eilat", "latitude", 29L));
+        raw.put("unknownField", 5L);
+
+        Group group = SnapshotMappers.GROUP.map(TreeNode.of("g1", raw));
+        assertNotNull(group);
+        assertEquals("Group", group.getName());
+        assertNull(group.getSportType());
+        assertEquals(DifficultyLevel.BEGINNER, group.getLevel());
+        assertEquals(29d, group.getLocation().getLatitude(), 0d);
+        // missing maps stay the empty maps of the constructor, like with the Firebase mapper
+        assertTrue(group.getMembers().isEmpty());
+        assertTrue(group.getPendingRequests().isEmpty());
+
+        // a request saved before the requests had a time reads as the time 0
+        raw.put("pendingRequests", Map.of("u2", true, "u3", 5L, "u4", "bad"));
+        group = SnapshotMappers.GROUP.map(TreeNode.of("g1", raw));
+        assertNotNull(group);
+        assertEquals(Map.of("u2", 0L, "u3", 5L), group.getPendingRequests());
+
+        assertNull(SnapshotMappers.EVENT.map(TreeNode.of("e1", null)));
+        assertNull(SnapshotMappers.USER.map(TreeNode.of("u1", "not an object")));
+        assertEquals(Long.valueOf(7), SnapshotMappers.forClass(Long.class).map(TreeNode.of("count", 7L)));
+    }
+
+    @Test
+    public void benchmark_mappersAgainstReflection() {
+        Benchmarks.assumeEnabled();
+        benchmark("Event", events(BENCHMARK_ITEMS), Event.class);
+        benchmark("Group", groups(BENCHMARK_ITEMS), Group.class);
+        benchmark("User", users(BENCHMARK_ITEMS), User.class);
+        benchmark("ChatMessage", chatMessages(BENCHMARK_ITEMS), ChatMessage.class);
+        benchmark("Comment", comments(BENCHMARK_ITEMS), Comment.class);
+        benchmark("ContactMessage", contactMessages(BENCHMARK_ITEMS), ContactMessage.class);
+    }
+}
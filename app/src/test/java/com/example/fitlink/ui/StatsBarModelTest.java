@@ -0,0 +1,68 @@
+package com.example.fitlink.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the values the bars of {@link AdminStatsGraphView} animate between.
+ */
+public class StatsBarModelTest {
+
+    @Test
+    public void setValues_ignoresValuesThatDidntChange() {
+        StatsBarModel model = new StatsBarModel();
+        assertTrue(model.setValues(new int[]{10, 20, 30}, false, false));
+        model.setProgress(0.5f);
+        // the same values mid-animation and after it don't restart it
+        assertFalse(model.setValues(new int[]{10, 20, 30}, true, false));
+        assertEquals(0.5f, model.getProgress(), 0f);
+        model.setProgress(1f);
+        assertFalse(model.setValues(new int[]{10, 20, 30}, false, false));
+        for (int i = 0; i < StatsBarModel.BAR_COUNT; i++) {
+            assertEquals((i + 1) * 10, model.getShownValue(i));
+        }
+
+        // coming back from the time chart the bars grow from zero again
+        assertTrue(model.setValues(new int[]{10, 20, 30}, false, true));
+        assertEquals(0f, model.getProgress(), 0f);
+        assertEquals(0, model.getShownValue(0));
+        model.setProgress(1f);
+        assertEquals(10, model.getShownValue(0));
+    }
+
+    @Test
+    public void setValues_midAnimationContinuesFromTheShownValues() {
+        StatsBarModel model = new StatsBarModel();
+        model.setValues(new int[]{100, 100, 100}, false, false);
+        model.setProgress(0.5f);
+        // the bars start one after the other
+        int[] shown = new int[StatsBarModel.BAR_COUNT];
+        for (int i = 0; i < StatsBarModel.BAR_COUNT; i++) {
+            shown[i] = model.getShownValue(i);
+        }
+        assertEquals(50, shown[0]);
+        assertTrue(shown[1] < shown[0]);
+        assertTrue(shown[2] < shown[1]);
+
+        assertTrue(model.setValues(new int[]{200, 0, 100}, true, false));
+        assertEquals(0f, model.getProgress(), 0f);
+        for (int i = 0; i < StatsBarModel.BAR_COUNT; i++) {
+            // no jump on screen when the new values arrive
+            assertEquals(shown[i], model.getShownValue(i));
+            assertEquals(shown[i], model.getFromValue(i));
+        }
+        model.setProgress(1f);
+        assertEquals(200, model.getShownValue(0));
+        assertEquals(0, model.getShownValue(1));
+        assertEquals(100, model.getShownValue(2));
+
+        // the overshoot moves the bar past its value but not the number on it
+        model.setProgress(1.1f);
+        assertTrue(model.getValue(0) > 200);
+        assertEquals(200, model.getShownValue(0));
+        assertEquals(200, model.getMaxValue());
+    }
+}
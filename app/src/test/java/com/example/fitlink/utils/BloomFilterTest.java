@@ -0,0 +1,61 @@
+package com.example.fitlink.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+/**
+ * Checks that {@link BloomFilter} has no false negatives, and that its false positive rate stays near the rate
+ * it was sized for, with ids like the push ids of the inbox.
+ */
+public class BloomFilterTest {
+
+    private static String id(int index) {
+        return String.format(Locale.ROOT, "-Nx%014d", index);
+    }
+
+    @Test
+    public void mightContain_isTrueForEveryStringPut() {
+        BloomFilter filter = new BloomFilter(4000, 0.01);
+        for (int i = 0; i < 4000; i++) filter.put(id(i));
+        for (int i = 0; i < 4000; i++) assertTrue(filter.mightContain(id(i)));
+        assertEquals(4000, filter.size());
+
+        filter.clear();
+        assertEquals(0, filter.size());
+        assertFalse(filter.mightContain(id(0)));
+    }
+
+    @Test
+    public void falsePositiveRate_staysNearTheRateTheFilterWasSizedFor() {
+        double[] rates = {0.1, 0.01, 0.001};
+        for (double rate : rates) {
+            BloomFilter filter = new BloomFilter(4000, rate);
+            for (int i = 0; i < 4000; i++) filter.put(id(i));
+
+            int falsePositives = 0;
+            int lookups = 50_000;
+            for (int i = 0; i < lookups; i++) {
+                if (filter.mightContain(id(1_000_000 + i))) falsePositives++;
+            }
+            double measured = (double) falsePositives / lookups;
+            assertTrue("false positive rate " + measured + " for " + rate, measured < rate * 1.5);
+        }
+    }
+
+    @Test
+    public void falsePositiveRate_growsWhenTheFilterHoldsMoreThanExpected() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 4000; i++) filter.put(id(i));
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(id(1_000_000 + i))) falsePositives++;
+        }
+        // why the owner of a filter clears it and puts the kept strings again when it is full
+        assertTrue(falsePositives > 10_000);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.fitlink.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.fitlink.Benchmarks;
+
+import org.junit.Test;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Checks the size and quality search of {@link ImageEncoder}. With -Pbenchmark it also prints the bytes per picture
+ * and the encode time against the old full-size quality 100 JPEG. The JDK JPEG writer stands in for Bitmap.compress.
+ */
+public class ImageEncoderTest {
+
+    private static final int MAX_EDGE = 1080;
+    private static final int MAX_BYTES = 150 * 1024;
+
+    /// a picture encoded with the JDK, which has no WebP writer
+    private static final class ImageIoSource implements ImageEncoder.Source {
+        final BufferedImage image;
+        int encodes = 0;
+
+        ImageIoSource(BufferedImage image) {
+            this.image = image;
+        }
+
+        @Override
+        public int getWidth() {
+            return image.getWidth();
+        }
+
+        @Override
+        public int getHeight() {
+            return image.getHeight();
+        }
+
+        @Override
+        public byte[] encode(int width, int height, ImageEncoder.Format format, int quality) {
+            encodes++;
+            if (format != ImageEncoder.Format.JPEG) return null;
+            return jpeg(scale(image, width, height), quality);
+        }
+    }
+
+    /// a noisy gradient, about as hard to compress as a camera photo
+    private static BufferedImage photo(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(40)) & 0xff;
+                int g = (y * 255 / height + random.nextInt(40)) & 0xff;
+                int b = ((x + y) * 127 / (width + height) + random.nextInt(40)) & 0xff;
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        if (image.getWidth() == width && image.getHeight() == height) return image;
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    private static byte[] jpeg(BufferedImage image, int quality) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality / 100f);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void scaledSize_keepsTheAspectRatioAndNeverScalesUp() {
+        assertArrayEquals(new int[]{1080, 810}, ImageEncoder.scaledSize(4000, 3000, 1080));
+        assertArrayEquals(new int[]{608, 1080}, ImageEncoder.scaledSize(1080, 1920, 1080));
+        assertArrayEquals(new int[]{200, 100}, ImageEncoder.scaledSize(200, 100, 1080));
+    }
+
+    @Test
+    public void encode_triesTheNextFormatAndLowerQualitiesUntilItFits() {
+        ImageIoSource source = new ImageIoSource(photo(2000, 1500, 1));
+        ImageEncoder.Result result = new ImageEncoder(MAX_EDGE, MAX_BYTES,
+                ImageEncoder.Format.WEBP, ImageEncoder.Format.JPEG).encode(source);
+
+        assertNotNull(result);
+        assertEquals(ImageEncoder.Format.JPEG, result.format);
+        assertEquals(1080, result.width);
+        assertEquals(810, result.height);
+        assertTrue(result.bytes.length <= MAX_BYTES);
+        assertEquals(source.encodes, result.attempts);
+        // the JPEG starts with the image itself, no EXIF (APP1) segment
+        assertEquals((byte) 0xFF, result.bytes[0]);
+        assertEquals((byte) 0xD8, result.bytes[1]);
+        assertTrue(result.bytes[3] != (byte) 0xE1);
+    }
+
+    @Test
+    public void encode_makesTheEdgeSmallerWhenNoQualityFits() {
+        ImageIoSource source = new ImageIoSource(photo(1200, 1200, 2));
+        ImageEncoder.Result result = new ImageEncoder(MAX_EDGE, 20 * 1024, ImageEncoder.Format.JPEG).encode(source);
+
+        assertNotNull(result);
+        assertTrue(result.width < MAX_EDGE);
+        assertTrue(result.bytes.length <= 20 * 1024);
+
+        // nothing fits a budget that small, the smallest try is used
+        result = new ImageEncoder(MAX_EDGE, 10, ImageEncoder.Format.JPEG).encode(new ImageIoSource(photo(600, 400, 3)));
+        assertNotNull(result);
+        assertEquals(256, Math.max(result.width, result.height));
+        assertEquals(40, result.quality);
+
+        // no format could encode it
+        assertNull(new ImageEncoder(MAX_EDGE, MAX_BYTES, ImageEncoder.Format.WEBP).encode(source));
+    }
+
+    @Test
+    public void benchmark_bytesPerPictureAndEncodeTime() {
+        Benchmarks.assumeEnabled();
+        int[][] sizes = {{640, 480}, {1600, 1200}, {3000, 4000}};
+        ImageEncoder encoder = new ImageEncoder(MAX_EDGE, MAX_BYTES, ImageEncoder.Format.JPEG);
+        for (int[] size : sizes) {
+            BufferedImage image = photo(size[0], size[1], size[0]);
+            // warm up the JPEG writer before measuring
+            jpeg(image, 100);
+
+            long start = System.nanoTime();
+            byte[] old = jpeg(image, 100);
+            long oldTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ImageEncoder.Result result = encoder.encode(new ImageIoSource(image));
+            long newTime = System.nanoTime() - start;
+
+            assertNotNull(result);
+            assertTrue(result.bytes.length <= MAX_BYTES);
+            assertTrue(result.bytes.length < old.length);
+            Benchmarks.report("%4dx%-4d q100 %8d bytes %7.1f ms  budgeted %4dx%-4d q%d %7d bytes %7.1f ms  %d attempts",
+                    size[0], size[1], old.length, oldTime / 1e6, result.width, result.height, result.quality,
+                    result.bytes.length, newTime / 1e6, result.attempts);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.fitlink.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.fitlink.services.MediaStore;
+
+import org.junit.Test;
+
+/**
+ * Checks the sizes {@link ImageLoader} decodes images to, and that views of about the same size share a bitmap.
+ */
+public class ImageSamplingTest {
+
+    private static final String HASH = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    @Test
+    public void inSampleSize_keepsBothSidesAtLeastTheTargetSize() {
+        // a 4000x3000 photo in a 128 pixel avatar is decoded at 1/16: 250x187
+        assertEquals(16, ImageSampling.inSampleSize(4000, 3000, 128));
+        assertEquals(16, ImageSampling.inSampleSize(3000, 4000, 128));
+        // exactly twice the target size is halved, a little less isn't
+        assertEquals(2, ImageSampling.inSampleSize(512, 512, 256));
+        assertEquals(1, ImageSampling.inSampleSize(511, 511, 256));
+        // images smaller than the view are never scaled up
+        assertEquals(1, ImageSampling.inSampleSize(100, 80, 256));
+        for (int size = 1; size <= 2048; size += 37) {
+            int sampleSize = ImageSampling.inSampleSize(4000, 3000, size);
+            assertTrue(3000 / sampleSize >= size || sampleSize == 1);
+            assertTrue(3000 / (sampleSize * 2) < size);
+        }
+    }
+
+    @Test
+    public void cacheKey_isSharedByViewsOfAboutTheSameSize() {
+        String key = ImageSampling.cacheKey(HASH, MediaStore.Variant.THUMBNAIL, 128);
+        assertEquals(key, ImageSampling.cacheKey(HASH, MediaStore.Variant.THUMBNAIL, 150));
+        assertEquals(key, ImageSampling.cacheKey(HASH, MediaStore.Variant.THUMBNAIL, 255));
+        assertFalse(key.equals(ImageSampling.cacheKey(HASH, MediaStore.Variant.THUMBNAIL, 256)));
+        assertFalse(key.equals(ImageSampling.cacheKey(HASH, MediaStore.Variant.FULL, 128)));
+        assertTrue(key.startsWith(HASH));
+
+        // an inline image isn't kept whole in the key
+        String inline = "/9j/4AAQSkZJRgABAQAAAQABAAD" + "A".repeat(10_000);
+        String inlineKey = ImageSampling.cacheKey(inline, MediaStore.Variant.FULL, 0);
+        assertTrue(inlineKey.length() < 64);
+        assertEquals(inlineKey, ImageSampling.cacheKey(inline, MediaStore.Variant.FULL, 1));
+    }
+}